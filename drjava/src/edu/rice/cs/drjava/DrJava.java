@@ -48,6 +48,7 @@ import edu.rice.cs.plt.reflect.JavaVersion;
 import edu.rice.cs.util.ArgumentTokenizer;
 import edu.rice.cs.util.Log;
 import edu.rice.cs.util.UnexpectedException;
+import edu.rice.cs.util.newjvm.ClassDataSharing;
 import edu.rice.cs.drjava.model.DrJavaFileUtils;
 
 /** Startup class for DrJava consisting entirely of static members.  The main method reads the .drjava file (creating 
@@ -133,6 +134,10 @@ public class DrJava {
   /** Default properties file used by the configuration object, i.e. ".drjava" in the user's home directory. */
   public static final File DEFAULT_PROPERTIES_FILE = new File(System.getProperty("user.home"), ".drjava");
   
+  /** Directory for the class data sharing archives of DrJava's JVMs, i.e. ".drjava-cds" in the user's home 
+    * directory. */
+  public static final File CDS_ARCHIVE_DIRECTORY = new File(System.getProperty("user.home"), ".drjava-cds");
+  
   /** Properties file used by the configuration object. Defaults to DEFAULT_PROPERTIES_FILE. */
   private static volatile File _propertiesFile = DEFAULT_PROPERTIES_FILE;
   
@@ -240,6 +245,15 @@ public class DrJava {
     }
   }
   
+  /** Adds the arguments for DrJava's class data sharing archive for the given kind of JVM to a builder.
+    * @param jvmb  the builder for the JVM to be launched
+    * @param name  the kind of JVM, used to name the archive
+    * @return the extended builder
+    */
+  public static JVMBuilder withClassDataSharing(JVMBuilder jvmb, String name) {
+    return ClassDataSharing.withArchive(jvmb, CDS_ARCHIVE_DIRECTORY, name, Version.getBuildTimeString());
+  }
+  
   public static void configureAndLoadDrJavaRoot(String[] args) {
     try {
       // if there were files passed on the command line,
@@ -300,6 +314,7 @@ public class DrJava {
             for(File f: jvmb.classPath()) { extendedClassPath.add(f); }
             _log.log("JVMBuilder: extendedClassPath = "+extendedClassPath);
             jvmb = jvmb.classPath(edu.rice.cs.plt.iter.IterUtil.asSizedIterable(extendedClassPath));
+            if (getConfig().getSetting(CLASS_DATA_SHARING)) { jvmb = withClassDataSharing(jvmb, "drjava"); }
             _log.log("JVMBuilder: jvmArguments = "+jvmb.jvmArguments());
             _log.log("JVMBuilder: classPath = "+jvmb.classPath());
             _log.log("JVMBuilder: mainParams = "+classArgs);
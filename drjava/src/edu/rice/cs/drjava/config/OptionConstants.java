@@ -1188,6 +1188,15 @@ public interface OptionConstants {
   public static final BooleanOption FIND_NO_TEST_CASES =
     new BooleanOption("find.replace.no.test.cases", Boolean.FALSE);
   
+  public static final BooleanOption FIND_REGEX =
+    new BooleanOption("find.replace.regex", Boolean.FALSE);
+  
+  public static final BooleanOption FIND_ANY_LINE =
+    new BooleanOption("find.replace.any.line", Boolean.FALSE);
+  
+  public static final BooleanOption PROJECT_SEARCH_INDEX =
+    new BooleanOption("project.search.index", Boolean.FALSE);
+  
   /* ---------- Debugger Options ---------- */
   
   /** A classpath-structured vector of all paths to look for source files on while stepping in the debugger. */
@@ -1604,6 +1613,17 @@ public interface OptionConstants {
   /** The command-line arguments to be passed to the Slave JVM. */
   public static final StringOption SLAVE_JVM_ARGS = new StringOption("slave.jvm.args", "");
   
+  /** Whether to keep a standby Interactions JVM running so that resetting the Interactions Pane is fast. */
+  public static final BooleanOption INTERACTIONS_STANDBY_JVM = 
+    new BooleanOption("interactions.standby.jvm", Boolean.TRUE);
+  
+  /** Whether the Interactions JVM communicates with the Main JVM over a multiplexed socket channel instead of RMI. */
+  public static final BooleanOption SLAVE_JVM_CHANNEL_TRANSPORT = 
+    new BooleanOption("slave.jvm.channel.transport", Boolean.FALSE);
+  
+  /** Whether to generate and use class data sharing archives to speed up the startup of DrJava's JVMs. */
+  public static final BooleanOption CLASS_DATA_SHARING = new BooleanOption("jvm.class.data.sharing", Boolean.TRUE);
+  
   /* Possible maximum heap sizes. */
   public static final ArrayList<String> heapSizeChoices = HeapSizeChoices.evaluate();
   static class HeapSizeChoices {
@@ -36,6 +36,7 @@ import edu.rice.cs.drjava.config.OptionListener;
 import edu.rice.cs.drjava.model.definitions.indent.Indenter;
 import edu.rice.cs.drjava.model.definitions.reducedmodel.BraceInfo;
 import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelControl;
+import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelSnapshot;
 import edu.rice.cs.drjava.model.definitions.reducedmodel.HighlightStatus;
 import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelState;
 
@@ -56,6 +57,7 @@ import java.util.SortedMap;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
 import javax.swing.ProgressMonitor;
+import javax.swing.event.UndoableEditEvent;
 import javax.swing.text.AbstractDocument;
 import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
@@ -112,6 +114,13 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
     * purposes. */
   protected volatile int _currentLocation = 0;
   
+  /** A snapshot from which the reduced model is restored by the initial insertion of text into this document; only
+    * set during loadText. */
+  private volatile ReducedModelSnapshot _initialSnapshot = null;
+  
+  /** True while loadText is inserting the initial text of this document. */
+  private volatile boolean _loading = false;
+  
   /* The fields _queryCache, _offsetToQueries, and _cacheModified function as an extension of the reduced model. 
    * When enabled in blockIndent, this data structure caches calls to the reduced model to speed up indent performance.
    * Must be cleared every time the document is changed.  Use by calling _checkCache, _storeInCache, and _clearCache.
@@ -536,6 +545,33 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
     */
   public ReducedModelControl getReduced() { return _reduced; } 
   
+  /** Bulk-loads the text of this empty document.  The text is inserted by a single insertString call, so the content
+    * and line elements are built in one pass and listeners see a single insertion event covering the whole text.  The
+    * reduced model is restored from snapshot if it matches text and is otherwise built by one linear pass over text.
+    * No undoable edit is recorded for the load.
+    * @param text the text to load
+    * @param snapshot a snapshot taken from a document with the same text, or null
+    * @throws BadLocationException never, since the insertion is at offset 0
+    */
+  public void loadText(String text, ReducedModelSnapshot snapshot) throws BadLocationException {
+    assert getLength() == 0;
+    _initialSnapshot = snapshot;
+    _loading = true;
+    try { insertString(0, text, null); }
+    finally { 
+      _loading = false;
+      _initialSnapshot = null;
+    }
+  }
+  
+  /** @return true if this document is being bulk-loaded by loadText. */
+  protected boolean isLoading() { return _loading; }
+  
+  /** Suppresses undoable edit notification while the document is being bulk-loaded. */
+  protected void fireUndoableEditUpdate(UndoableEditEvent e) {
+    if (! _loading) super.fireUndoableEditUpdate(e);
+  }
+  
   /** Assumes that read lock and reduced lock are already held. 
    * @param dist the relative distance
    * @return the state at dist
@@ -1794,8 +1830,8 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
         (length == 1) ? new CharInsertCommand(offset, str.charAt(0)) : new InsertCommand(offset, str);
       RemoveCommand undoCommand = new UninsertCommand(offset, length, str);
       
-      // add the undo/redo
-      addUndoRedo(chng, undoCommand, doCommand);
+      // add the undo/redo unless the document is being loaded
+      if (! _loading) addUndoRedo(chng, undoCommand, doCommand);
       //chng.addEdit(new CommandUndoableEdit(undoCommand, doCommand));
       // actually do the insert
       doCommand.run();  // This method runs in the updating thread with exclusive access to the updated document
@@ -1924,8 +1960,12 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
       // Record any change to line numbering
       int newLineOffset = _text.indexOf(newline);
       if (newLineOffset >= 0) _numLinesChanged(_offset + newLineOffset);
-      // loop over string, inserting characters into reduced model and recording any change to line numbering
-      for (int i = 0; i < len; i++) { _addCharToReducedModel(_text.charAt(i)); }
+      final ReducedModelSnapshot snapshot = _initialSnapshot;
+      if (snapshot != null && _offset == 0 && getLength() == len && snapshot.matches(_text)) {
+        _initialSnapshot = null;  // only the initial insertion may use it
+        _reduced.restore(snapshot);
+      }
+      else _reduced.insertText(_text);  // one pass over the string, inserting runs of plain text as single gaps
       
       _currentLocation = _offset + len;  // update _currentLocation to match effects on the reduced model
       _styleChanged();  // update the color highlighting of the remainder of the document
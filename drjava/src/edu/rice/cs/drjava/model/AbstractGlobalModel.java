@@ -44,7 +44,6 @@ import java.io.FileReader;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.StringReader;
 
 import java.util.AbstractMap;
 import java.util.ArrayList;
@@ -55,6 +54,7 @@ import java.util.Set;
 import java.util.LinkedHashSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -83,6 +83,7 @@ import edu.rice.cs.drjava.config.OptionListener;
 import edu.rice.cs.drjava.model.cache.DCacheAdapter;
 import edu.rice.cs.drjava.model.cache.DDReconstructor;
 import edu.rice.cs.drjava.model.cache.DocumentCache ;
+import edu.rice.cs.drjava.model.cache.DocumentImage;
 import edu.rice.cs.drjava.model.compiler.CompilerModel;
 import edu.rice.cs.drjava.model.debug.Breakpoint;
 import edu.rice.cs.drjava.model.debug.DebugBreakpointData;
@@ -100,6 +101,7 @@ import edu.rice.cs.drjava.model.definitions.InvalidPackageException;
 import edu.rice.cs.drjava.model.definitions.indent.Indenter;
 import edu.rice.cs.drjava.model.definitions.reducedmodel.HighlightStatus;
 import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelControl;
+import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelSnapshot;
 import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelState;
 import edu.rice.cs.drjava.model.junit.JUnitModel;
 import edu.rice.cs.drjava.model.print.DrJavaBook;
@@ -122,6 +124,7 @@ import edu.rice.cs.plt.iter.IterUtil;
 import edu.rice.cs.plt.collect.CollectUtil;
 import edu.rice.cs.plt.lambda.LambdaUtil;
 import edu.rice.cs.plt.lambda.Predicate;
+import edu.rice.cs.plt.lambda.Thunk;
 
 import edu.rice.cs.util.FileOpenSelector;
 import edu.rice.cs.util.FileOps;
@@ -210,6 +213,9 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
   /** A state varible indicating whether the class path has changed. Reset to false by resetInteractions. */
   private volatile boolean classPathChanged = false;
   
+  /** The trigram index of the project source files used by "find all", or null if there is none. */
+  private volatile ProjectSearchIndex _projectSearchIndex = null;
+  
   /** The abstract container which contains views of open documents and allows user to navigate document focus among
     * this collection of open documents
     */
@@ -231,6 +237,12 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
   /** @return manager for bookmark regions. */
   public RegionManager<MovingDocumentRegion> getBookmarkManager() { return _bookmarkManager; }
   
+  /** The documents with breakpoints or bookmarks.  The region managers' own document sets are only safe to read in
+    * the event thread, so this set is kept up to date by listeners on both managers for use by the document cache.
+    */
+  private final Set<OpenDefinitionsDocument> _retainedDocuments =
+    Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<OpenDefinitionsDocument,Boolean>()));
+  
   /** Managers for find result regions. */
   protected final LinkedList<RegionManager<MovingDocumentRegion>> _findResultsManagers;
   
@@ -287,6 +299,12 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
     
     _breakpointManager = new ConcreteRegionManager<Breakpoint>();
     
+    _bookmarkManager.addListener(new RetainedDocumentsUpdater<MovingDocumentRegion>());
+    _breakpointManager.addListener(new RetainedDocumentsUpdater<Breakpoint>());
+    _cache.setRetentionPolicy(new Predicate<OpenDefinitionsDocument>() {
+      public boolean contains(OpenDefinitionsDocument odd) { return isRetainedInCache(odd); }
+    });
+    
     _registerOptionListeners();
     
     setFileGroupingState(makeFlatFileGroupingState());
@@ -360,6 +378,15 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
     };
     DrJava.getConfig().addOptionListener(BROWSER_HISTORY_MAX_SIZE, browserHistoryMaxSizeListener);
     getBrowserHistoryManager().setMaximumSize(DrJava.getConfig().getSetting(BROWSER_HISTORY_MAX_SIZE).intValue());
+    
+    // setup option listener for the project search index
+    OptionListener<Boolean> projectSearchIndexListener = new OptionListener<Boolean>() {
+      public void optionChanged(OptionEvent<Boolean> oce) {
+        if (oce.value.booleanValue()) _startProjectSearchIndex();
+        else _stopProjectSearchIndex();
+      }
+    };
+    DrJava.getConfig().addOptionListener(PROJECT_SEARCH_INDEX, projectSearchIndexListener);
   }
   
   // ----- STATE -----
@@ -1293,6 +1320,28 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
    */
   public DocumentCache getDocumentCache() { return _cache; }
   
+  /** Determines whether the document cache should keep odd resident in preference to other documents.  Called while
+    * the cache is locked, so it must not access the document itself.
+    * @param odd the document to check
+    * @return true if odd has breakpoints or bookmarks
+    */
+  protected boolean isRetainedInCache(OpenDefinitionsDocument odd) { return _retainedDocuments.contains(odd); }
+  
+  /** Updates _retainedDocuments when a breakpoint or bookmark is added or removed.  Runs in the thread that changed
+    * the region manager, immediately after the change.
+    */
+  private class RetainedDocumentsUpdater<R extends IDocumentRegion> implements RegionManagerListener<R> {
+    public void regionAdded(R r) { _updateRetained(r.getDocument()); }
+    public void regionChanged(R r) { }
+    public void regionRemoved(R r) { _updateRetained(r.getDocument()); }
+    private void _updateRetained(OpenDefinitionsDocument odd) {
+      if (_breakpointManager.getDocuments().contains(odd) || _bookmarkManager.getDocuments().contains(odd)) {
+        _retainedDocuments.add(odd);
+      }
+      else _retainedDocuments.remove(odd);
+    }
+  }
+  
   //---------------------- Specified by ILoadDocuments ----------------------//
   
   /** Open a file and add it to the pool of definitions documents. The provided file selector chooses a file, and on a 
@@ -1980,8 +2029,47 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
     
     // it may change here, in the auto-refresh on open    
     if (_state.getAutoRefreshStatus()) openNewFilesInProject(); 
+    
+    if (DrJava.getConfig().getSetting(PROJECT_SEARCH_INDEX).booleanValue()) _startProjectSearchIndex();
   }  // end _loadProject
   
+  /** @return the trigram index of the project source files, or null if no project is open or indexing is disabled */
+  public ProjectSearchIndex getProjectSearchIndex() { return _projectSearchIndex; }
+  
+  /** Starts indexing the source files of the current project (replacing any previous index), if a project is open.
+    * The index is saved in the .drjava-index directory next to the DrJava properties file. */
+  protected void _startProjectSearchIndex() {
+    _stopProjectSearchIndex();
+    final File root = getProjectRoot();
+    if (! isProjectActive() || root == null || ! root.isDirectory()) return;
+    
+    final String ext = getOpenAllFilesInFolderExtension();
+    final File dir = new File(DrJava.getPropertiesFile().getAbsoluteFile().getParentFile(), ".drjava-index");
+    final File indexFile = new File(dir, Integer.toHexString(root.getAbsolutePath().hashCode()) + ".idx");
+    final Thunk<File[]> lister = new Thunk<File[]>() {
+      public File[] value() {
+        final File[] allFiles;
+        try { allFiles = getFilesInFolder(root, true, ext); } 
+        catch(IOException e) { return null; }
+        catch(OperationCanceledException e) { return null; }
+        catch(AlreadyOpenException e) { return null; }
+        if (allFiles == null) return null;
+        final List<File> files = new ArrayList<File>(allFiles.length);
+        for (File f: allFiles) if (! _state.isExcludedFile(f)) files.add(f);
+        return files.toArray(new File[files.size()]);
+      }
+    };
+    _projectSearchIndex = new ProjectSearchIndex(root, ext, indexFile, lister);
+    _projectSearchIndex.start();
+  }
+  
+  /** Stops the project search index, if any; the index is saved in the background. */
+  protected void _stopProjectSearchIndex() {
+    final ProjectSearchIndex index = _projectSearchIndex;
+    _projectSearchIndex = null;
+    if (index != null) index.close();
+  }
+  
   /** Perform an auto-refresh of the project, adding new source files to the project. */
   public void autoRefreshProject() { openNewFilesInProject(); }
   
@@ -1994,6 +2082,8 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
     * @param suppressReset false if we want to reset the interactions pane; true otherwise
     */
   public void closeProject(boolean suppressReset) {
+    _stopProjectSearchIndex();
+    
     IDocumentNavigator<OpenDefinitionsDocument> nav = getDocumentNavigator();
     setDocumentNavigator(new AWTContainerNavigatorFactory<OpenDefinitionsDocument>().makeListNavigator(nav));
     setFileGroupingState(makeFlatFileGroupingState());
@@ -2723,8 +2813,8 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
     
 //     private boolean _modifiedSinceSave;
     
-    /** Cached String image of document as last read from or written to disk; initially null */
-    private volatile String _image;
+    /** Cached image of document as last read from disk or saved by the cache; initially null */
+    private volatile DocumentImage _image;
     private volatile File _file;
     private volatile long _timestamp;
     
@@ -3074,24 +3164,41 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
         private volatile List<FinalizationListener<DefinitionsDocument>> _finalListeners =
           new LinkedList<FinalizationListener<DefinitionsDocument>>();
         
+        // Reduced model of the document when saveDocInfo was called; restored by make() if the text is unchanged
+        private volatile ReducedModelSnapshot _snapshot = null;
+        
         // Weak hashmap that associates a WrappedPosition with its offset when saveDocInfo was called
         private volatile WeakHashMap< DefinitionsDocument.WrappedPosition, Integer> _positions =
           new WeakHashMap<DefinitionsDocument.WrappedPosition, Integer>();
         
         // Returns the text for this document as a String; assert never returns null;
         public String getText() {
-          String image = _image;
-          if (image != null) return image;
+          DocumentImage image = _image;
+          if (image != null) return image.getText();
           
           // Document has not yet been read from disk; read it and set _image before returning text.
           // Synchronization on this was eliminated because it does not prevent the returned string from becoming 
           // inconsistent with _doc/_file in the presence of huge scheduling delays.  Of course, all getText operations 
           // can return stale data in the presence of such delays. 
-          try { image = FileOps.readFileAsSwingText(_file); }
-          catch(IOException e) {  image = ""; }  
-//          System.err.println("Returning image '" + image + " for file " + _file);
+          String text;
+          try { 
+            text = FileOps.readFileAsSwingText(_file);
+            image = DocumentImage.fileBacked(_file, text);
+          }
+          catch(IOException e) { 
+            text = "";
+            image = DocumentImage.compressed(text);
+          }  
+//          System.err.println("Returning image '" + text + " for file " + _file);
           _image = image;
-          return _image;
+          return text;
+        }
+        
+        public DocumentImage getImage() { return _image; }
+        
+        public int getSnapshotBytes() {
+          final ReducedModelSnapshot snapshot = _snapshot;
+          return (snapshot == null) ? 0 : snapshot.retainedBytes();
         }
         
         public DefinitionsDocument make() throws IOException, BadLocationException, FileMovedException {
@@ -3100,14 +3207,22 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
           DefinitionsDocument newDefDoc = new DefinitionsDocument(_notifier);
           newDefDoc.setOpenDefDoc(ConcreteOpenDefDoc.this);
           
+          // A file deleted while its unmodified document was not resident is reported through documentNotFound
+          final DocumentImage saved = _image;
+          final File file = _file;
+          if (saved != null && saved.isFileBacked() && ! file.exists()) {
+            _image = null;  // once the file is found again, it is read afresh
+            throw new FileNotFoundException(file + " was deleted while its document was not resident");
+          }
+          
           /* Initialize doc text contents */
           String image = getText();  // retrieves _image if it has already been set
           assert image != null;  // getText() never returns null
           
-          _editorKit.read(new StringReader(image), newDefDoc, 0);
+          newDefDoc.loadText(image, _snapshot);  // re-lexes only if there is no snapshot matching image
           //  Set document property to write out document using newLine conventions of the host platform.
           newDefDoc.putProperty(DefaultEditorKit.EndOfLineStringProperty, StringOps.EOL);
-          _log.log("Reading from image for " + _file + " containing " + _image.length() + " chars");    
+          _log.log("Reading from image for " + _file + " containing " + image.length() + " chars");    
           
           _loc = Math.min(_loc, image.length()); // make sure not past end
           _loc = Math.max(_loc, 0); // make sure not less than 0
@@ -3141,11 +3256,17 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
 // These lines were commented out to fix a memory leak; evidently, the undomanager holds on to the document          
 //          _undo = doc.getUndoManager();
 //          _undoListeners = doc.getUndoableEditListeners();
-          // Save document image.  Note: this could be optimized to eliminate redundant updates to _image
+          // Save document image.  An unmodified document whose file is unchanged on disk is simply re-read when it is
+          // reconstructed; any other document is retained in compressed form.
           String text = doc.getText();
           if (text.length() > 0) {
-            _image = text;  
+            File file = _file;
+            if (! doc.isModifiedSinceSave() && ! (file instanceof NullFile) && file.exists() 
+                  && file.lastModified() == _timestamp) 
+              _image = DocumentImage.fileBacked(file, text);
+            else _image = DocumentImage.compressed(text);
 //            _log.log("Saving image containing " + _image.length() + " chars for " + _file);
+            _snapshot = doc.getReduced().snapshot(text);
           }
           _loc = doc.getCurrentLocation();
           _list = doc.getDocumentListeners();
@@ -3303,6 +3424,8 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
             
 //          Utilities.showDebug("ready to fire fileSaved for " + this);
             _notifier.fileSaved(openDoc);
+            final ProjectSearchIndex index = _projectSearchIndex;
+            if (index != null) index.update(file);
             
             // Make sure this file is on the appropriate classpaths (does nothing in AbstractGlobalModel)
             addDocToClassPath(this);
@@ -37,7 +37,6 @@ import java.util.IdentityHashMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList; 
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -98,6 +97,7 @@ public class ConcreteRegionManager<R extends OrderedDocumentRegion> extends
   public SortedSet<R> getHeadSet(R r) {
     RegionSet<R> oddRegions = _regions.get(r.getDocument());
     if (oddRegions == null || oddRegions.isEmpty()) return emptySet();
+    oddRegions.applyEdits();  // re-balances oddRegions if pending edits have changed the order of its regions
     return oddRegions.headSet(r);
   }
   
@@ -108,6 +108,7 @@ public class ConcreteRegionManager<R extends OrderedDocumentRegion> extends
   public SortedSet<R> getTailSet(R r) {
     RegionSet<R> oddRegions = _regions.get(r.getDocument());
     if (oddRegions == null || oddRegions.isEmpty()) return emptySet();
+    oddRegions.applyEdits();  // re-balances oddRegions if pending edits have changed the order of its regions
     return oddRegions.tailSet(r);
   }
   
@@ -124,7 +125,8 @@ public class ConcreteRegionManager<R extends OrderedDocumentRegion> extends
   
   /** Returns the region [start, end) containing offset.  Since regions can never overlap, there is at most one such 
     * region in the given document.  (Degenerate regions can coalesce but they are empty implying that they are 
-    * never returned by this method.)  Only runs in the event thread.
+    * never returned by this method.)  If regions do overlap, the first containing region in set order is returned.
+    * Only runs in the event thread.
     * @param odd the document
     * @param offset the offset in the document
     * @return the StaticDocumentRegion at the given offset, or null if it does not exist.
@@ -132,21 +134,9 @@ public class ConcreteRegionManager<R extends OrderedDocumentRegion> extends
   public R getRegionAt(OpenDefinitionsDocument odd, int offset) { 
     assert Utilities.TEST_MODE || EventQueue.isDispatchThread();
     
-    /* Get the tailSet consisting of the ordered set of regions [start, end) such that end > offset. */
-    @SuppressWarnings("unchecked")
-    SortedSet<R> tail = getTailSet((R) newDocumentRegion(odd, 0, offset + 1));
-    
-    /*  If tail contains a match, it must be the first region, since all 
-     * regions in a document are disjoint and no degenerate region in tail 
-     * can contain offset. (Every degenerate region is disjoint from every 
-     * other region because it is empty.) tail is sorted by [endOffset, 
-     * startOffset]; tail may be empty. 
-     */
-    if (tail.size() == 0) return null;
-    R r = tail.first();
-    
-    if (r.getStartOffset() <= offset) return r;
-    else return null;
+    RegionSet<R> oddRegions = _regions.get(odd);
+    if (oddRegions == null || oddRegions.isEmpty()) return null;
+    return oddRegions.getFirstContaining(offset);
   }
   
   /** Finds the interval of regions in odd such that the line label (excerpt) for the region contains offset. */
@@ -266,11 +256,9 @@ public class ConcreteRegionManager<R extends OrderedDocumentRegion> extends
   /** Returns the set of regions in the given document that overlap the specified interval [startOffset, endOffset), 
     * including degenerate regions [offset, offset) where [offset, offset] is a subset of (startOffset, endOffset).
     * 
-    * Assumes that all regions in the document are disjoint.  Note: degenerate  empty regions with form [offset, offset) 
-    * vacuously satisfy this property.  Only executes in the event thread.
-    * 
-    * Note: this method could be implemented more cleanly using a revserseIterator on the headSet containing all regions
-    * preceding or equal to the selection. but this functionality was not added to TreeSet until Java 6.0.
+    * Regions need not be disjoint; the query uses the interval tree of the document's RegionSet, so its cost depends
+    * on the number of regions returned rather than the number of regions in the document.  Only executes in the event
+    * thread.
     * 
     * @param odd the document
     * @param startOffset  the left end of the specified interval
@@ -280,21 +268,11 @@ public class ConcreteRegionManager<R extends OrderedDocumentRegion> extends
   public Collection<R> getRegionsOverlapping(OpenDefinitionsDocument odd, int startOffset, int endOffset) {
     
     assert Utilities.TEST_MODE || EventQueue.isDispatchThread();
-    LinkedList<R> result = new LinkedList<R>();
-    if (startOffset == endOffset) return result;
+    if (startOffset == endOffset) return new ArrayList<R>();
     
-    /* Find all regions with an endPoint greater than startOffset. */
-    
-    @SuppressWarnings("unchecked")
-    SortedSet<R> tail = getTailSet((R) newDocumentRegion(odd, 0, startOffset + 1));
-    
-    // tail is sorted by <startOffset, endOffset>; tail may be empty
-    
-    for (R r: tail) {
-      if (r.getStartOffset() >= endOffset) break;
-      else result.add(r);
-    }
-    return result;
+    RegionSet<R> oddRegions = _regions.get(odd);
+    if (oddRegions == null || oddRegions.isEmpty()) return new ArrayList<R>();
+    return oddRegions.getOverlapping(startOffset, endOffset);
   }
   
   /** Add the supplied StaticDocumentRegion to the manager.  Only runs in event 
@@ -102,6 +102,11 @@ public class DJError implements Comparable<DJError>, Serializable {
     */
   public File file() { return _file; }
   
+  /** Sets the file.
+    * @param f the file with errors
+    */
+  public void setFile(File f) { _file = f; }
+  
   /** Gets the full name of the file.
     * @return the file name.
     */
@@ -405,6 +405,16 @@ public class DefaultGlobalModel extends AbstractGlobalModel {
   /** Gets the CompilerModel, which provides all methods relating to compilers. */
   public CompilerModel getCompilerModel() { return _compilerModel; }
   
+  /** Also keeps documents with compiler errors resident, since the errors pane navigates into them.  Runs under the
+    * DocumentCache lock, so it only consults the set of documents with errors computed when compilation finished. */
+  protected boolean isRetainedInCache(OpenDefinitionsDocument odd) {
+    if (super.isRetainedInCache(odd)) return true;
+    final CompilerModel cm = _compilerModel;
+    if (cm == null) return false;  // still under construction
+    final CompilerErrorModel cem = cm.getCompilerErrorModel();
+    return cem.getNumErrors() > 0 && cem.isDocumentWithPositions(odd);
+  }
+  
   /** Gets the JUnitModel, which provides all methods relating to JUnit testing. */
   public JUnitModel getJUnitModel() { return _junitModel; }
   
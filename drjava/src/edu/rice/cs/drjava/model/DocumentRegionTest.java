@@ -5,6 +5,8 @@ import edu.rice.cs.util.UnexpectedException;
 import edu.rice.cs.plt.io.IOUtil;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Position;
 
@@ -192,4 +194,66 @@ public class DocumentRegionTest extends DrJavaTestCase {
     assertTrue("No region found", rm.getRegionsOverlapping(_doc, 2, 5).size() == 0);
     assertTrue("No region found", rm.getRegionsOverlapping(_doc, 5, 8).size() == 0);
   }
+  
+  /** Tests that overlap and stabbing queries find a long region that starts before regions ending earlier than it.
+    * @throws BadLocationException if attempts to reference an invalid location
+    */
+  public void testOverlappingRegions() throws BadLocationException {
+    _doc.insertString(0, DOCUMENT_TEXT, null);
+    RegionManager<StaticDocumentRegion> rm = new ConcreteRegionManager<StaticDocumentRegion>();
+    StaticDocumentRegion outer = new StaticDocumentRegion(_doc, 2, 30);
+    StaticDocumentRegion inner = new StaticDocumentRegion(_doc, 20, 22);
+    rm.addRegion(outer);
+    rm.addRegion(inner);
+    
+    assertTrue("outer region found", outer == rm.getRegionAt(_doc, 6));
+    assertTrue("inner region found first", inner == rm.getRegionAt(_doc, 21));
+    assertNull(rm.getRegionAt(_doc, 30));
+    assertEquals("only outer region overlaps", 1, rm.getRegionsOverlapping(_doc, 5, 8).size());
+    assertTrue("outer region overlaps", rm.getRegionsOverlapping(_doc, 5, 8).contains(outer));
+    assertEquals("both regions overlap", 2, rm.getRegionsOverlapping(_doc, 21, 40).size());
+    
+    _doc.insertString(0, "abc", null);  // moves both regions
+    assertTrue("outer region moved", outer == rm.getRegionAt(_doc, 4));
+    assertNull(rm.getRegionAt(_doc, 4 - 3));
+    assertEquals("both regions overlap after insertion", 2, rm.getRegionsOverlapping(_doc, 24, 25).size());
+    
+    rm.removeRegion(inner);
+    assertTrue("outer region contains former inner region", outer == rm.getRegionAt(_doc, 24));
+  }
+  
+  /** Tests that an edit notifies the manager only of the regions on the edited lines, and only once the edits are
+    * applied.
+    * @throws BadLocationException if attempts to reference an invalid location
+    */
+  public void testRegionsNotifiedOnlyOnEditedLines() throws BadLocationException {
+    _doc.insertString(0, DOCUMENT_TEXT, null);
+    ConcreteRegionManager<MovingDocumentRegion> rm = new ConcreteRegionManager<MovingDocumentRegion>();
+    rm.requireNotification();
+    final List<MovingDocumentRegion> changed = new ArrayList<MovingDocumentRegion>();
+    rm.addListener(new RegionManagerListener<MovingDocumentRegion>() {
+      public void regionAdded(MovingDocumentRegion r) { }
+      public void regionChanged(MovingDocumentRegion r) { changed.add(r); }
+      public void regionRemoved(MovingDocumentRegion r) { }
+    });
+    int foo = DOCUMENT_TEXT.indexOf("Foo");
+    int barry = DOCUMENT_TEXT.indexOf("Barry");
+    int bar = DOCUMENT_TEXT.indexOf("bar()");
+    MovingDocumentRegion r1 = 
+      new MovingDocumentRegion(_doc, foo, foo + 3, _doc._getLineStartPos(foo), _doc._getLineEndPos(foo));
+    MovingDocumentRegion r2 = 
+      new MovingDocumentRegion(_doc, barry, barry + 5, _doc._getLineStartPos(barry), _doc._getLineEndPos(barry));
+    MovingDocumentRegion r3 = 
+      new MovingDocumentRegion(_doc, bar, bar + 3, _doc._getLineStartPos(bar), _doc._getLineEndPos(bar));
+    rm.addRegion(r1);
+    rm.addRegion(r2);
+    rm.addRegion(r3);
+    
+    _doc.insertString(barry + 6, "x", null);
+    _doc.insertString(barry + 7, "y", null);
+    rm.getRegionsOverlapping(_doc, 0, _doc.getLength());  // applies the pending edits
+    assertEquals("only the region on the edited line is notified", 1, changed.size());
+    assertTrue(changed.get(0) == r2);
+    assertEquals("regions moved", bar + 2, r3.getStartOffset());
+  }
 }
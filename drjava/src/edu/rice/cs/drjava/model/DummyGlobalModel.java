@@ -423,6 +423,10 @@ public class DummyGlobalModel implements GlobalModel {
     throw new UnsupportedOperationException("Tried to call getProjectRoot on a Dummy");
   }
   
+  public ProjectSearchIndex getProjectSearchIndex() {
+    throw new UnsupportedOperationException("Tried to call getProjectSearchIndex on a Dummy");
+  }
+  
   public void setProjectFile(File f) {
     throw new UnsupportedOperationException("Tried to call setProjectFile on a Dummy");
   }
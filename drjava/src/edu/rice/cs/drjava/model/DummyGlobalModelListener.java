@@ -31,6 +31,7 @@ package edu.rice.cs.drjava.model;
 import java.io.File;
 import java.util.List;
 import edu.rice.cs.drjava.model.compiler.CompilerListener;
+import edu.rice.cs.drjava.model.junit.JUnitError;
 import edu.rice.cs.drjava.model.repl.DummyInteractionsListener;
 import edu.rice.cs.util.classloader.ClassFileError;
 import edu.rice.cs.util.swing.AsyncTask;
@@ -119,6 +120,11 @@ public class DummyGlobalModelListener extends DummyInteractionsListener implemen
     */
   public void junitTestEnded(String name, boolean wasSuccessful, boolean causedError) { }
   
+  /** Called when a test produces an error or failure, while the suite is still running.
+    * @param fault the error or failure
+    */
+  public void junitTestFault(JUnitError fault) { }
+  
   /** Called after JUnit is finished running tests. */
   public void junitEnded() { }
   
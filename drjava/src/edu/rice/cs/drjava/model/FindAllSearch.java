@@ -0,0 +1,328 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model;
+
+import java.awt.EventQueue;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+import edu.rice.cs.drjava.model.definitions.DefinitionsDocument;
+import edu.rice.cs.plt.lambda.Lambda;
+import edu.rice.cs.util.FileOps;
+import edu.rice.cs.util.Log;
+import edu.rice.cs.util.UnexpectedException;
+
+/** A "find all" search over a list of documents that runs off the event thread.  Each document is scanned by a task
+  * on a shared pool of daemon threads, so documents are searched in parallel.  Resident documents are scanned from a
+  * snapshot of their text taken in the event thread when the search is created; documents that have been evicted
+  * from the DocumentCache are scanned from their DocumentImage and are never made resident by the scan itself.
+  * Matches are delivered to a {@link Listener} in the event thread, one document at a time and in document order,
+  * as soon as the documents preceding them have been delivered.  A search can be cancelled at any time.
+  * 
+  * Matches in comments and strings are discarded using a mask of the scanned text (SearchPattern.shadowMask), so
+  * the reduced models of the documents are never consulted.
+  * 
+  * A search may also cover files that are not open (the candidates of a ProjectSearchIndex).  They are read and
+  * scanned in the pool threads after the documents, and only the files that contain matches are opened, in the
+  * event thread, just before their results are delivered.  At most MAX_OPENED_FILES files are opened by one search;
+  * the listener is told about the other files with matches when the search finishes.
+  * @version $Id$
+  */
+public class FindAllSearch {
+  
+  private static final Log _log = new Log("FindReplace.txt", false);
+  
+  /** The maximum number of unopened files that one search opens; each becomes an open document. */
+  public static final int MAX_OPENED_FILES = 100;
+  
+  /** Receives the results of a FindAllSearch.  All methods are called in the event thread. */
+  public interface Listener {
+    /** Called with the (non-empty) list of matches in doc, in ascending order of offset.  The offset of each 
+      * FindResult is the right edge of the match, as in a forward search by FindReplaceMachine, and its length is
+      * always set. 
+      * @param doc the document containing the matches
+      * @param results the matches in doc
+      */
+    public void resultsFound(OpenDefinitionsDocument doc, List<FindResult> results);
+    
+    /** Called exactly once, after the last results have been delivered or when the search is cancelled.
+      * @param count the number of matches delivered
+      * @param unopened the unopened files that contain matches but were not opened (and whose matches were not
+      *                 delivered) because MAX_OPENED_FILES files had already been opened
+      * @param cancelled true if the search was cancelled before all documents were searched
+      */
+    public void searchFinished(int count, List<File> unopened, boolean cancelled);
+  }
+  
+  /* The pool shared by all searches; created on first use.  Its threads are daemons so they never keep DrJava alive. */
+  private static volatile ExecutorService _executor = null;
+  
+  private static synchronized ExecutorService _getExecutor() {
+    if (_executor == null) {
+      final int n = Math.max(1, Runtime.getRuntime().availableProcessors());
+      _executor = Executors.newFixedThreadPool(n, new ThreadFactory() {
+        private int _next = 0;
+        public synchronized Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "Find All " + _next++);
+          t.setDaemon(true);
+          t.setPriority(Thread.NORM_PRIORITY - 1);  // keep the event thread responsive
+          return t;
+        }
+      });
+    }
+    return _executor;
+  }
+  
+  private final List<OpenDefinitionsDocument> _docs;
+  private final List<File> _files;                     // unopened files searched after _docs
+  private final Lambda<File, OpenDefinitionsDocument> _opener;  // opens a file in _files; may return null
+  private final String[] _texts;                       // snapshots of resident documents; null for evicted documents
+  private final long[] _stamps;                        // modification stamps of the snapshots; 0 for evicted documents
+  private final MovingDocumentRegion _region;          // the segment to search in a selection-only search, else null
+  private final int _regionStart;                      // offsets of _region when the search was created
+  private final int _regionEnd;
+  private final SearchPattern _pattern;
+  private final boolean _ignoreCommentsAndStrings;
+  private final Listener _listener;
+  private final AtomicReferenceArray<Scan> _scans;     // completed scans, indexed like _docs followed by _files
+  
+  private volatile boolean _cancelled = false;
+  private volatile boolean _started = false;
+  
+  /* Event thread state. */
+  private int _nextToDeliver = 0;
+  private int _count = 0;
+  private int _opened = 0;
+  private final List<File> _unopened = new ArrayList<File>();  // files with matches not opened because of the limit
+  private boolean _finished = false;
+  
+  /** Creates a search for pattern in docs.  Only runs in the event thread.
+    * @param docs the documents to search, in the order in which results should be delivered
+    * @param region if non-null, the only segment to search; docs must then consist of region.getDocument()
+    * @param pattern the compiled search
+    * @param ignoreCommentsAndStrings whether matches inside comments and strings are discarded
+    * @param listener the listener receiving the results
+    */
+  public FindAllSearch(List<OpenDefinitionsDocument> docs, MovingDocumentRegion region, SearchPattern pattern,
+                       boolean ignoreCommentsAndStrings, Listener listener) {
+    this(docs, new ArrayList<File>(), null, region, pattern, ignoreCommentsAndStrings, listener);
+  }
+  
+  /** Creates a search for pattern in docs and in files that are not open.  Only runs in the event thread.
+    * @param docs the open documents to search, in the order in which results should be delivered
+    * @param files the unopened files to search after docs; must be empty if region is non-null
+    * @param opener opens a file in files that contains matches, returning null if it cannot be opened
+    * @param region if non-null, the only segment to search; docs must then consist of region.getDocument()
+    * @param pattern the compiled search
+    * @param ignoreCommentsAndStrings whether matches inside comments and strings are discarded
+    * @param listener the listener receiving the results
+    */
+  public FindAllSearch(List<OpenDefinitionsDocument> docs, List<File> files, 
+                       Lambda<File, OpenDefinitionsDocument> opener, MovingDocumentRegion region, 
+                       SearchPattern pattern, boolean ignoreCommentsAndStrings, Listener listener) {
+    assert region == null || files.isEmpty();
+    _docs = new ArrayList<OpenDefinitionsDocument>(docs);
+    _files = new ArrayList<File>(files);
+    _opener = opener;
+    _region = region;
+    _regionStart = (region == null) ? 0 : region.getStartOffset();
+    _regionEnd = (region == null) ? 0 : region.getEndOffset();
+    _pattern = pattern;
+    _ignoreCommentsAndStrings = ignoreCommentsAndStrings;
+    _listener = listener;
+    _scans = new AtomicReferenceArray<Scan>(_docs.size() + _files.size());
+    
+    // Snapshot resident documents now: their text can only change in the event thread, so the snapshot is consistent.
+    _texts = new String[_docs.size()];
+    _stamps = new long[_docs.size()];
+    for (int i = 0; i < _texts.length; i++) {
+      final OpenDefinitionsDocument doc = _docs.get(i);
+      if (doc.isReady()) {
+        _texts[i] = doc.getText();
+        _stamps[i] = doc.getDocument().getModificationStamp();
+      }
+    }
+  }
+  
+  /** Submits the scans of all documents.  Results are delivered asynchronously, even if there are no documents. */
+  public void start() {
+    assert ! _started;
+    _started = true;
+    final int n = _scans.length();
+    if (n == 0) {
+      EventQueue.invokeLater(new Runnable() { public void run() { _deliver(); } });
+      return;
+    }
+    final ExecutorService executor = _getExecutor();
+    for (int i = 0; i < n; i++) {
+      final int index = i;
+      executor.execute(new Runnable() { public void run() { _scan(index); } });
+    }
+  }
+  
+  /** Cancels this search.  Pending scans are abandoned and no further results are delivered.  If called in the event
+    * thread before the search has finished, searchFinished(count, true) is called before this method returns. */
+  public void cancel() {
+    _cancelled = true;
+    if (EventQueue.isDispatchThread()) _finish(true);
+  }
+  
+  /** @return true if this search has been cancelled */
+  public boolean isCancelled() { return _cancelled; }
+  
+  /** Scans document (or unopened file) index in a pool thread and schedules delivery of the result. */
+  private void _scan(int index) {
+    Scan scan = Scan.EMPTY;
+    try {
+      if (! _cancelled) {
+        final String text;
+        if (index >= _docs.size()) text = FileOps.readFileAsSwingText(_files.get(index - _docs.size()));
+        else {
+          final String snapshot = _texts[index];
+          _texts[index] = null;  // the snapshot is no longer needed
+          // the DocumentImage if the document is not resident
+          text = (snapshot != null) ? snapshot : _docs.get(index).getText();
+        }
+        scan = _scanText(text, (index < _docs.size()) ? _stamps[index] : 0L);
+      }
+    }
+    catch(IOException e) { _log.log("Find all failed to read " + _files.get(index - _docs.size()), e); }
+    catch(RuntimeException e) { _log.log("Find all failed to scan item " + index, e); }
+    finally {
+      _scans.set(index, scan);
+      EventQueue.invokeLater(new Runnable() { public void run() { _deliver(); } });
+    }
+  }
+  
+  /** Scans text (or the selected segment of it).  May run in any thread. 
+    * @param text the text to scan; must not change during the scan
+    * @param stamp the modification stamp of the document when text was taken from it, or 0 if unknown
+    * @return the matches in text */
+  private Scan _scanText(CharSequence text, long stamp) {
+    final int len = text.length();
+    final int from = (_region == null) ? 0 : Math.min(_regionStart, len);
+    final int to = (_region == null) ? len : Math.min(_regionEnd, len);
+    final SearchPattern.Finder finder = _pattern.finder(text);
+    BitSet shadowed = null;  // computed on the first match
+    int[] bounds = Scan.NO_HITS;
+    int count = 0;
+    int i = from;
+    while (! _cancelled && finder.find(i, to)) {
+      final int start = finder.start();
+      i = finder.end();
+      if (_ignoreCommentsAndStrings) {
+        if (shadowed == null) shadowed = SearchPattern.shadowMask(text, to);
+        if (shadowed.get(start)) continue;
+      }
+      if (2 * count == bounds.length) bounds = Arrays.copyOf(bounds, Math.max(32, 4 * count));
+      bounds[2 * count] = start;
+      bounds[2 * count + 1] = i;
+      count++;
+    }
+    return new Scan(bounds, count, stamp);
+  }
+  
+  /** Delivers all completed scans that are next in document order.  Only runs in the event thread. */
+  private void _deliver() {
+    assert EventQueue.isDispatchThread();
+    
+    final int n = _scans.length();
+    while (! _finished && ! _cancelled && _nextToDeliver < n) {
+      Scan scan = _scans.get(_nextToDeliver);
+      if (scan == null) return;  // the next document has not been scanned yet
+      
+      final int index = _nextToDeliver;
+      _scans.set(index, null);
+      _nextToDeliver++;
+      
+      final OpenDefinitionsDocument doc;
+      if (index < _docs.size()) doc = _docs.get(index);
+      else if (scan.count == 0) continue;  // never open files without matches
+      else if (_opened == MAX_OPENED_FILES) { _unopened.add(_files.get(index - _docs.size())); continue; }
+      else {
+        doc = _opener.value(_files.get(index - _docs.size()));
+        if (doc == null || _cancelled) continue;
+        _opened++;
+      }
+      
+      // A resident document may have been edited (or reloaded) since it was scanned; if so, rescan its current text in
+      // place.  Its modification stamp changes with every edit, even one that leaves the length unchanged.
+      if (doc.isReady()) {
+        final DefinitionsDocument dd = doc.getDocument();
+        final long stamp = dd.getModificationStamp();
+        if (stamp != scan.stamp) {
+          _log.log(doc + " changed during find all; rescanning");
+          final Segment text = new Segment();
+          try { dd.getText(0, dd.getLength(), text); }
+          catch(BadLocationException e) { throw new UnexpectedException(e); }
+          scan = _scanText(text, stamp);
+        }
+      }
+      if (scan.count == 0) continue;
+      
+      final List<FindResult> results = new ArrayList<FindResult>(scan.count);
+      for (int j = 0; j < scan.count; j++) {
+        final int start = scan.bounds[2 * j];
+        final int end = scan.bounds[2 * j + 1];
+        results.add(new FindResult(doc, end, end - start, false, false));
+      }
+      _count += results.size();
+      _listener.resultsFound(doc, results);
+    }
+    if (_nextToDeliver == n) _finish(false);
+  }
+  
+  /** Notifies the listener that the search has finished, unless it has already been notified. */
+  private void _finish(boolean cancelled) {
+    if (_finished) return;
+    _finished = true;
+    _listener.searchFinished(_count, _unopened, cancelled);
+  }
+  
+  /** The bounds of the matches in one document, together with the modification stamp of the text that was scanned. */
+  private static class Scan {
+    static final int[] NO_HITS = new int[0];
+    static final Scan EMPTY = new Scan(NO_HITS, 0, 0L);
+    final int[] bounds;  // start and end of each match
+    final int count;
+    final long stamp;    // 0 if the text did not come from a resident document
+    Scan(int[] b, int c, long s) { bounds = b; count = c; stamp = s; }
+  }
+}
@@ -28,6 +28,7 @@
  * END_COPYRIGHT_BLOCK*/
 package edu.rice.cs.drjava.model;   
 
+import edu.rice.cs.plt.lambda.Lambda;
 import edu.rice.cs.plt.lambda.Runnable1;
 import edu.rice.cs.util.UnexpectedException;
 import edu.rice.cs.util.swing.DocumentIterator;
@@ -38,6 +39,13 @@ import edu.rice.cs.drjava.config.OptionConstants;
 
 import java.awt.Component;
 import java.awt.EventQueue;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import javax.swing.text.BadLocationException;
 import javax.swing.text.BadLocationException;;
@@ -63,6 +71,8 @@ public class FindReplaceMachine {
   private volatile boolean _isForward;                     // Whether search direction is forward (false means backward)
   private volatile boolean _ignoreCommentsAndStrings;      // Whether to ignore matches in comments and strings
   private volatile boolean _ignoreTestCases;               // Whether to ignore documents that end in *Test.java
+  private volatile boolean _regex;                         // Whether _findWord is a regular expression (find all only)
+  private volatile boolean _anyLine;                       // Whether each line of _findWord is sought (find all only)
   private volatile String _lastFindWord;                   // Last word found; set to null by FindReplacePanel if caret updated
   private volatile boolean _skipText;                      // Whether to skip over the current match if direction reversed
   private volatile DocumentIterator _docIterator;          // An iterator of open documents; _doc is current
@@ -94,6 +104,8 @@ public class FindReplaceMachine {
     setSearchSelectionOnly(false);
     setIgnoreCommentsAndStrings(false);
     setIgnoreTestCases(false);
+    setRegularExpression(false);
+    setMatchAnyLine(false);
   }
   
   public void cleanUp() {
@@ -146,6 +158,15 @@ public class FindReplaceMachine {
     _ignoreTestCases = ignoreTestCases;
   }
   public boolean getIgnoreTestCases() { return _ignoreTestCases; }
+  
+  public void setRegularExpression(boolean regex) { _regex = regex; }
+  public boolean getRegularExpression() { return _regex; }
+  
+  public void setMatchAnyLine(boolean anyLine) { _anyLine = anyLine; }
+  public boolean getMatchAnyLine() { return _anyLine; }
+  
+  /** @return true if the find word is not a plain literal, which only "find all" supports */
+  public boolean isCompiledSearch() { return _regex || _anyLine; }
 
   public void setDocument(OpenDefinitionsDocument doc) { _doc = doc; }
   
@@ -429,6 +450,77 @@ public class FindReplaceMachine {
     return count;
   }
   
+  /** Starts a background "find all" for the find word using the current settings of this machine: the current
+    * document, the selection region, whether to search all documents, case, whole word, comments and strings, test
+    * cases, and whether the find word is a regular expression or a list of words (one per line).  The settings are
+    * captured before this method returns, so the caller may change them immediately.  Documents are searched in the
+    * order processAll would visit them.  When searching all documents with a ProjectSearchIndex, project files that
+    * are not open but may contain the find word are searched after the open documents, and those with matches are
+    * opened, up to FindAllSearch.MAX_OPENED_FILES.  Only executes in event thread.
+    * @param region the selection region, used only if a selection-only search is set
+    * @param listener receives the results in the event thread
+    * @return the search, which has already been started and may be cancelled
+    * @throws java.util.regex.PatternSyntaxException if the find word is not a valid regular expression
+    */
+  public FindAllSearch startFindAll(MovingDocumentRegion region, FindAllSearch.Listener listener) {
+    
+    assert EventQueue.isDispatchThread() || Utilities.TEST_MODE;
+    
+    final SearchPattern pattern = SearchPattern.compile(_findWord, _regex, _anyLine, _matchCase, _matchWholeWord);
+    final List<OpenDefinitionsDocument> docs = new ArrayList<OpenDefinitionsDocument>();
+    MovingDocumentRegion segment = null;
+    if (_searchAllDocuments) {
+      OpenDefinitionsDocument doc = _doc;
+      final int n = _docIterator.getDocumentCount();
+      for (int i = 0; i < n && doc != null; i++) {
+        if (! _ignoreTestCases || ! _inTestCase(doc.getFileName())) docs.add(doc);
+        doc = _docIterator.getNextDocument(doc, _frame);
+      }
+    }
+    else {
+      if (! _ignoreTestCases || ! _inTestCase(_doc.getFileName())) docs.add(_doc);
+      if (_searchSelectionOnly) segment = region;
+    }
+    final List<File> files = _unopenedCandidates(pattern);
+    _log.log("Starting find all for '" + _findWord + "' in " + docs.size() + " document(s) and " + files.size() + 
+             " unopened file(s)");
+    
+    final Lambda<File, OpenDefinitionsDocument> opener = new Lambda<File, OpenDefinitionsDocument>() {
+      public OpenDefinitionsDocument value(File f) {
+        try { return _model.getDocumentForFile(f); }
+        catch(IOException e) { 
+          _log.log("Find all could not open " + f, e);
+          return null; 
+        }
+      }
+    };
+    final FindAllSearch search = 
+      new FindAllSearch(docs, files, opener, segment, pattern, _ignoreCommentsAndStrings, listener);
+    search.start();
+    return search;
+  }
+  
+  /** @param pattern the compiled find word
+    * @return the project files that are not open but may contain pattern according to the project search index; 
+    *         empty unless all documents are searched and the index can narrow the search for pattern */
+  private List<File> _unopenedCandidates(SearchPattern pattern) {
+    final List<File> files = new ArrayList<File>();
+    if (! _searchAllDocuments || _model == null) return files;
+    final ProjectSearchIndex index = _model.getProjectSearchIndex();
+    final List<String> literals = pattern.getLiterals();
+    if (index == null || literals == null) return files;
+    
+    final Set<File> candidates = index.getCandidates(literals);
+    if (candidates == null) return files;
+    final Set<File> open = new HashSet<File>();
+    for (OpenDefinitionsDocument doc: _model.getOpenDefinitionsDocuments()) open.add(doc.getRawFile());
+    for (File f: candidates) {
+      if (! open.contains(f) && (! _ignoreTestCases || ! _inTestCase(f.getName()))) files.add(f);
+    }
+    Collections.sort(files);
+    return files;
+  }
+  
   public FindResult findNext() { return findNext(_searchAllDocuments); }
   
   /** Finds the next occurrence of the find word and returns an offset at the end of that occurrence or -1 if the word
@@ -574,12 +666,7 @@ public class FindReplaceMachine {
     
     assert EventQueue.isDispatchThread() || Utilities.TEST_MODE;
 
-    boolean inTestCase = false;
-    for(String ext: OptionConstants.LANGUAGE_LEVEL_EXTENSIONS) {
-      inTestCase |= doc.getFileName().endsWith("Test" + ext);
-    }
-    
-    if (!_ignoreTestCases || ! inTestCase) {
+    if (!_ignoreTestCases || ! _inTestCase(doc.getFileName())) {
       final int docLen = doc.getLength();;     // The length of the segment to be searched
       final int wordLen = _findWord.length();   // length of search key (word being searched for)
       
@@ -735,12 +822,21 @@ public class FindReplaceMachine {
     return true;
   }
   
+  /** @param name the file name of a document
+    * @return true if the document is a test case, i.e. name ends in Test followed by a source file extension */
+  private static boolean _inTestCase(String name) {
+    for (String ext: OptionConstants.LANGUAGE_LEVEL_EXTENSIONS) {
+      if (name.endsWith("Test" + ext)) return true;
+    }
+    return false;
+  }
+  
   /** Determines whether a character is a delimiter (not a letter or digit) as a helper to wholeWordFoundAtCurrent
     * 
     * @param ch - a character
     * @return true if ch is a delimiter, false otherwise
     */
-  private boolean isDelimiter(char ch) { return ! Character.isLetterOrDigit(ch)  &&  ch != '_'; }
+  static boolean isDelimiter(char ch) { return ! Character.isLetterOrDigit(ch)  &&  ch != '_'; }
   
   /** Returns true if the currently found instance should be ignored (either because it is inside a string or comment or
     * because it does not match the whole word when either or both of those conditions are set to true).  Only executes 
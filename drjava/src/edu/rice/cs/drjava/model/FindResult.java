@@ -37,6 +37,7 @@ package edu.rice.cs.drjava.model;
 public class FindResult {
   private final OpenDefinitionsDocument _document;
   private final int _foundoffset;
+  private final int _foundLength;
   private final boolean _wrapped;
   private final boolean _allWrapped;
   
@@ -47,8 +48,21 @@ public class FindResult {
     * @param allWrapped {@code true} if the search wrapped to the start document
     */
   public FindResult(OpenDefinitionsDocument document, int foundoffset, boolean wrapped, boolean allWrapped) {
+    this(document, foundoffset, -1, wrapped, allWrapped);
+  }
+  
+  /** Constructor for a FindResult whose length need not be that of the find word, e.g. a regular expression match.
+    * @param document the document where the found instance is located
+    * @param foundoffset the offset of the instance found
+    * @param foundLength the length of the instance found, or -1 if it is the length of the find word
+    * @param wrapped {@code true} if the search wrapped to the beginning (or end) of the document
+    * @param allWrapped {@code true} if the search wrapped to the start document
+    */
+  public FindResult(OpenDefinitionsDocument document, int foundoffset, int foundLength, boolean wrapped, 
+                    boolean allWrapped) {
     _document = document;
     _foundoffset = foundoffset;
+    _foundLength = foundLength;
     _wrapped = wrapped;
     _allWrapped = allWrapped;
   }
@@ -64,6 +78,9 @@ public class FindResult {
   /** @return the offset of the instance found */ 
   public int getFoundOffset() { return _foundoffset; }
   
+  /** @return the length of the instance found, or -1 if it is the length of the find word */
+  public int getFoundLength() { return _foundLength; }
+  
   /** @return true if the search wrapped to the beginning (or end) of the document */
   public boolean isWrapped() { return _wrapped; }
   
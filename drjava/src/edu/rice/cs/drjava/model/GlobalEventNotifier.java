@@ -32,6 +32,7 @@ import java.io.File;
 import java.util.List;
 
 import edu.rice.cs.drjava.model.compiler.CompilerListener;
+import edu.rice.cs.drjava.model.junit.JUnitError;
 import edu.rice.cs.util.FileOpenSelector;
 import edu.rice.cs.util.classloader.ClassFileError;
 import edu.rice.cs.util.swing.AsyncTask;
@@ -519,6 +520,15 @@ public class GlobalEventNotifier extends EventNotifier<GlobalModelListener>
     finally { _lock.endRead(); }
   }
   
+  /** Called when a test produces an error or failure, while the suite is still running.
+    * @param fault the error or failure
+    */
+  public void junitTestFault(JUnitError fault) {
+    _lock.startRead();
+    try { for (GlobalModelListener l : _listeners) { l.junitTestFault(fault); } }
+    finally { _lock.endRead(); }
+  }
+  
   /** Called after JUnit is finished running tests. */
   public void junitEnded() {
     _lock.startRead();
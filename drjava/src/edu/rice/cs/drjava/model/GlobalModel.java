@@ -515,6 +515,10 @@ public interface GlobalModel extends ILoadDocuments {
   /** @return the source root for the project. */
   public File getProjectRoot();
   
+  /** @return the trigram index of the project source files used by "find all", or null if no project is open or 
+    * the index is disabled */
+  public ProjectSearchIndex getProjectSearchIndex();
+  
   /** Sets project file to specifed value; used in "Save Project As ..." 
    * command in MainFrame. 
    * @param f the file to set as the project file
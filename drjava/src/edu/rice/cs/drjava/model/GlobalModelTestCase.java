@@ -31,6 +31,7 @@ package edu.rice.cs.drjava.model;
 import edu.rice.cs.drjava.DrJava;
 import edu.rice.cs.drjava.model.compiler.CompilerListener;
 import edu.rice.cs.drjava.model.repl.InteractionsDocument;
+import edu.rice.cs.drjava.model.junit.JUnitError;
 import edu.rice.cs.drjava.model.junit.JUnitModel;
 import edu.rice.cs.drjava.ui.InteractionsController;
 import edu.rice.cs.util.FileOpenSelector;
@@ -634,6 +635,7 @@ public abstract class GlobalModelTestCase extends MultiThreadedTestCase {
     protected volatile int junitSuiteStartedCount;
     protected volatile int junitTestStartedCount;
     protected volatile int junitTestEndedCount;
+    protected volatile int junitTestFaultCount;
     protected volatile int junitEndCount;
     protected volatile int interactionStartCount;
     protected volatile int interactionEndCount;
@@ -682,6 +684,7 @@ public abstract class GlobalModelTestCase extends MultiThreadedTestCase {
       junitSuiteStartedCount = 0;
       junitTestStartedCount = 0;
       junitTestEndedCount = 0;
+      junitTestFaultCount = 0;
       junitEndCount = 0;
       interactionStartCount = 0;
       interactionEndCount = 0;
@@ -937,6 +940,7 @@ public abstract class GlobalModelTestCase extends MultiThreadedTestCase {
     public void junitTestEnded(String name, boolean wasSuccessful, boolean causedError) {
       listenerFail("junitTestEnded fired unexpectedly");
     }
+    public void junitTestFault(JUnitError fault) { listenerFail("junitTestFault fired unexpectedly"); }
     public void junitEnded() { listenerFail("junitEnded fired unexpectedly"); }
     
     public void javadocStarted() { listenerFail("javadocStarted fired unexpectedly"); }
@@ -1302,6 +1306,7 @@ public abstract class GlobalModelTestCase extends MultiThreadedTestCase {
       junitSuiteStartedCount = 0;
       junitTestStartedCount = 0;
       junitTestEndedCount = 0;
+      junitTestFaultCount = 0;
       junitEndCount = 0;
     }
      
@@ -1325,6 +1330,10 @@ public abstract class GlobalModelTestCase extends MultiThreadedTestCase {
       assertEquals("junitTestEndedCount should be same as junitTestStartedCount", junitTestEndedCount, 
                    junitTestStartedCount);
     }
+    @Override public void junitTestFault(JUnitError fault) {
+      _log.log("  listener.junitTestFault, incrementing count, fault = " + fault);
+      synchronized(this) { junitTestFaultCount++; }
+    }
     @Override public void nonTestCase(boolean isTestAll, boolean didCompileFail) {
       _log.log("listener.nonTestCase, isTestAll=" + isTestAll);
       synchronized(this) { nonTestCaseCount++; }
@@ -0,0 +1,529 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import edu.rice.cs.plt.lambda.Thunk;
+import edu.rice.cs.util.FileOps;
+import edu.rice.cs.util.Log;
+
+/** A trigram index of the source files of a project, used by "find all" to pick the files that may contain a literal
+  * word without reading the others.  For every sequence of three (lower-cased) characters, the index records the 
+  * files containing it; a file can only contain a word if it contains all of the word's trigrams.  Candidates must
+  * still be verified by scanning them.
+  * 
+  * The index is built by a background thread from the files returned by a lister (the model's getFilesInFolder),
+  * saved to disk so that it only needs to be brought up to date when the project is reopened, and kept up to date 
+  * by a file system watcher on the project tree and by explicit {@link #update} calls when documents are saved.
+  * Files queued for reindexing are always returned as candidates, so a query never misses a recent change.
+  * @version $Id$
+  */
+public class ProjectSearchIndex {
+  
+  private static final Log _log = new Log("ProjectSearchIndex.txt", false);
+  
+  private static final int MAGIC = 0x44726a49;             // "DrjI"
+  private static final int VERSION = 1;
+  private static final long MAX_FILE_LENGTH = 4L << 20;    // larger files are not worth indexing; always candidates
+  private static final long SAVE_DELAY = 5000;             // ms of quiet before changes are written to disk
+  private static final File RECONCILE = new File("");      // queue marker requesting a full comparison with the lister
+  
+  private final File _root;
+  private final String _extension;                         // e.g. ".java"
+  private final File _indexFile;
+  private final Thunk<File[]> _lister;
+  
+  /* The index, guarded by this.  Ids index _entries; an id is dead (its entry null) once its file is removed or
+   * reindexed under a new id.  Dead ids stay in the postings until the next compaction. */
+  private final Map<File, Integer> _ids = new HashMap<File, Integer>();
+  private final ArrayList<Entry> _entries = new ArrayList<Entry>();
+  private final Map<Long, Postings> _postings = new HashMap<Long, Postings>();
+  private final Set<File> _pending = new HashSet<File>();  // files queued for (re)indexing
+  private int _dead = 0;
+  private boolean _ready = false;
+  private boolean _dirty = false;
+  
+  private final LinkedBlockingQueue<File> _queue = new LinkedBlockingQueue<File>();
+  private volatile boolean _closed = false;
+  private volatile Thread _indexer = null;
+  private volatile Thread _watcher = null;
+  private volatile WatchService _watchService = null;
+  
+  /** Creates an index; call start() to build it.
+    * @param root the source root of the project
+    * @param extension the extension of the indexed files, including the dot
+    * @param indexFile the file in which the index is saved
+    * @param lister returns the files to index (normally all files under root with the extension)
+    */
+  public ProjectSearchIndex(File root, String extension, File indexFile, Thunk<File[]> lister) {
+    _root = root;
+    _extension = extension;
+    _indexFile = indexFile;
+    _lister = lister;
+  }
+  
+  /** Starts the background threads: the indexer loads the saved index, brings it up to date, and then processes
+    * changes; the watcher reports changes in the project tree. */
+  public void start() {
+    _queue.add(RECONCILE);
+    _indexer = new Thread("Project Search Index") { public void run() { _runIndexer(); } };
+    _indexer.setDaemon(true);
+    _indexer.setPriority(Thread.MIN_PRIORITY);
+    _indexer.start();
+    
+    try { 
+      _watchService = FileSystems.getDefault().newWatchService(); 
+      _watcher = new Thread("Project Search Index Watcher") { public void run() { _runWatcher(); } };
+      _watcher.setDaemon(true);
+      _watcher.start();
+    }
+    catch(IOException e) { _log.log("File system watcher unavailable; relying on save events", e); }
+  }
+  
+  /** Stops the background threads and saves the index if it has changed.  Does not wait for the indexer. */
+  public void close() {
+    _closed = true;
+    final WatchService ws = _watchService;
+    if (ws != null) {
+      try { ws.close(); }
+      catch(IOException e) { /* ignore */ }
+    }
+    final Thread indexer = _indexer;
+    if (indexer != null) indexer.interrupt();  // the indexer saves before exiting
+  }
+  
+  /** @return true once the index reflects all files returned by the lister */
+  public synchronized boolean isReady() { return _ready; }
+  
+  /** @return the project source root covered by this index */
+  public File getRoot() { return _root; }
+  
+  /** Queues file for reindexing, e.g. because its document was saved.  Does nothing for files with another extension.
+    * @param file the changed (or deleted) file
+    */
+  public void update(File file) {
+    if (! file.getName().endsWith(_extension)) return;
+    synchronized(this) { _pending.add(file); }
+    _queue.add(file);
+  }
+  
+  /** Returns the files that may contain one of words (ignoring case), or null if the index cannot narrow the search
+    * because it is not ready or one of the words is shorter than three characters.
+    * @param words the literal words searched for
+    * @return the candidate files, or null if all files are candidates
+    */
+  public synchronized Set<File> getCandidates(List<String> words) {
+    if (! _ready) return null;
+    for (String w: words) if (w.length() < 3) return null;
+    
+    final Set<File> result = new HashSet<File>(_pending);
+    for (String w: words) {
+      final long[] keys = _trigrams(w, w.length());
+      final Postings[] lists = new Postings[keys.length];
+      boolean absent = false;
+      for (int i = 0; i < keys.length && ! absent; i++) {
+        lists[i] = _postings.get(keys[i]);
+        absent = (lists[i] == null);
+      }
+      if (absent) continue;
+      
+      // Intersect the lists, starting with the shortest.
+      Arrays.sort(lists, new java.util.Comparator<Postings>() {
+        public int compare(Postings p, Postings q) { return p._size - q._size; }
+      });
+      int[] ids = Arrays.copyOf(lists[0]._ids, lists[0]._size);
+      int count = ids.length;
+      for (int i = 1; i < lists.length && count > 0; i++) {
+        int kept = 0;
+        for (int j = 0; j < count; j++) if (lists[i].contains(ids[j])) ids[kept++] = ids[j];
+        count = kept;
+      }
+      for (int j = 0; j < count; j++) {
+        final Entry e = _entries.get(ids[j]);
+        if (e != null) result.add(e.file);
+      }
+    }
+    for (Entry e: _entries) if (e != null && e.unindexed) result.add(e.file);
+    return result;
+  }
+  
+  /** @return the number of files in the index */
+  public synchronized int getFileCount() { return _ids.size(); }
+  
+  /* ----- Indexer thread ----- */
+  
+  private void _runIndexer() {
+    try {
+      _load();
+      while (! _closed) {
+        File f = _queue.poll(SAVE_DELAY, TimeUnit.MILLISECONDS);
+        if (f == null) {
+          _save();  // quiet period
+          f = _queue.take();
+        }
+        if (f == RECONCILE) _reconcile();
+        else _reindex(f);
+      }
+    }
+    catch(InterruptedException e) { /* closed */ }
+    catch(RuntimeException e) { _log.log("Project search index failed", e); }
+    finally { _save(); }
+  }
+  
+  /** Compares the index with the files returned by the lister, indexing new and changed files and dropping others. */
+  private void _reconcile() {
+    final File[] files = _lister.value();
+    if (files == null) return;
+    final Set<File> listed = new HashSet<File>(Arrays.asList(files));
+    
+    final List<File> gone = new ArrayList<File>();
+    synchronized(this) { for (File f: _ids.keySet()) if (! listed.contains(f)) gone.add(f); }
+    for (File f: gone) _remove(f);
+    
+    for (File f: files) {
+      if (_closed) return;
+      final Entry e;
+      synchronized(this) { 
+        final Integer id = _ids.get(f);
+        e = (id == null) ? null : _entries.get(id);
+      }
+      if (e == null || e.lastModified != f.lastModified() || e.length != f.length()) _index(f);
+    }
+    synchronized(this) { 
+      _ready = true; 
+      _log.log("Index of " + _root + " ready: " + _ids.size() + " files, " + _postings.size() + " trigrams");
+    }
+  }
+  
+  /** Reindexes f, or removes it if it no longer exists. */
+  private void _reindex(File f) {
+    if (f.isFile()) _index(f);
+    else _remove(f);
+    synchronized(this) { if (! _queue.contains(f)) _pending.remove(f); }
+  }
+  
+  private void _index(File f) {
+    final long lastModified = f.lastModified();
+    final long length = f.length();
+    long[] keys = null;
+    if (length <= MAX_FILE_LENGTH) {
+      try { 
+        final String text = FileOps.readFileAsSwingText(f);
+        keys = _trigrams(text, text.length());
+      }
+      catch(IOException e) { _log.log("Could not index " + f, e); }
+    }
+    synchronized(this) {
+      _kill(f);
+      final int id = _entries.size();
+      _entries.add(new Entry(f, lastModified, length, keys == null));
+      _ids.put(f, id);
+      if (keys != null) {
+        for (long k: keys) {
+          Postings p = _postings.get(k);
+          if (p == null) { p = new Postings(); _postings.put(k, p); }
+          p.append(id);
+        }
+      }
+      _dirty = true;
+    }
+  }
+  
+  private synchronized void _remove(File f) {
+    if (_kill(f)) _dirty = true;
+  }
+  
+  /** Marks the id of f dead.  Assumes the lock is held. */
+  private boolean _kill(File f) {
+    final Integer old = _ids.remove(f);
+    if (old == null) return false;
+    _entries.set(old, null);
+    _dead++;
+    return true;
+  }
+  
+  /** Drops dead ids, renumbering the live ones in order.  Assumes the lock is held. */
+  private void _compact() {
+    if (_dead == 0) return;
+    final int[] remap = new int[_entries.size()];
+    final ArrayList<Entry> live = new ArrayList<Entry>(_ids.size());
+    for (int i = 0; i < remap.length; i++) {
+      final Entry e = _entries.get(i);
+      if (e == null) remap[i] = -1;
+      else {
+        remap[i] = live.size();
+        _ids.put(e.file, live.size());
+        live.add(e);
+      }
+    }
+    final java.util.Iterator<Postings> it = _postings.values().iterator();
+    while (it.hasNext()) {
+      final Postings p = it.next();
+      p.remap(remap);
+      if (p._size == 0) it.remove();
+    }
+    _entries.clear();
+    _entries.addAll(live);
+    _dead = 0;
+  }
+  
+  /** Computes the distinct lower-cased trigrams of text[0, len), sorted. */
+  static long[] _trigrams(CharSequence text, int len) {
+    if (len < 3) return new long[0];
+    final long[] keys = new long[len - 2];
+    long c0 = Character.toLowerCase(text.charAt(0));
+    long c1 = Character.toLowerCase(text.charAt(1));
+    for (int i = 2; i < len; i++) {
+      final long c2 = Character.toLowerCase(text.charAt(i));
+      keys[i - 2] = (c0 << 32) | (c1 << 16) | c2;
+      c0 = c1;
+      c1 = c2;
+    }
+    Arrays.sort(keys);
+    int n = 0;
+    for (int i = 0; i < keys.length; i++) if (n == 0 || keys[i] != keys[n - 1]) keys[n++] = keys[i];
+    return Arrays.copyOf(keys, n);
+  }
+  
+  /* ----- Persistence ----- */
+  
+  /** Loads the saved index if it exists and belongs to this project.  Runs in the indexer thread. */
+  private void _load() {
+    if (! _indexFile.isFile()) return;
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(_indexFile))));
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || ! in.readUTF().equals(_root.getPath()) ||
+          ! in.readUTF().equals(_extension)) return;
+      synchronized(this) {
+        final int files = in.readInt();
+        for (int i = 0; i < files; i++) {
+          final File f = new File(in.readUTF());
+          final long lastModified = in.readLong();
+          final long length = in.readLong();
+          final boolean unindexed = in.readBoolean();
+          _ids.put(f, i);
+          _entries.add(new Entry(f, lastModified, length, unindexed));
+        }
+        final int trigrams = in.readInt();
+        for (int i = 0; i < trigrams; i++) {
+          final long key = in.readLong();
+          final int size = in.readInt();
+          final Postings p = new Postings(size);
+          int id = -1;
+          for (int j = 0; j < size; j++) { id += _readVarInt(in) + 1; p._ids[j] = id; }
+          p._size = size;
+          _postings.put(key, p);
+        }
+      }
+      _log.log("Loaded index of " + _root + " from " + _indexFile);
+    }
+    catch(IOException e) {
+      _log.log("Discarding unreadable index " + _indexFile, e);
+      synchronized(this) { _ids.clear(); _entries.clear(); _postings.clear(); }
+    }
+    finally { 
+      if (in != null) try { in.close(); } catch(IOException e) { /* ignore */ }
+    }
+  }
+  
+  /** Saves the index if it has changed, writing a temporary file first so a crash never leaves a corrupt index.  The
+    * index is copied under the lock and written outside it, so queries are not blocked by disk I/O. */
+  private void _save() {
+    final File tmp = new File(_indexFile.getPath() + ".tmp");
+    final Entry[] entries;
+    final long[] keys;
+    final int[][] postings;
+    synchronized(this) {
+      if (! _dirty) return;
+      _compact();
+      entries = _entries.toArray(new Entry[_entries.size()]);
+      keys = new long[_postings.size()];
+      postings = new int[keys.length][];
+      int i = 0;
+      for (Map.Entry<Long, Postings> me: _postings.entrySet()) {
+        keys[i] = me.getKey();
+        postings[i] = Arrays.copyOf(me.getValue()._ids, me.getValue()._size);
+        i++;
+      }
+      _dirty = false;
+    }
+    DataOutputStream out = null;
+    try {
+      final File dir = _indexFile.getParentFile();
+      if (dir != null) dir.mkdirs();
+      out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmp))));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(_root.getPath());
+      out.writeUTF(_extension);
+      out.writeInt(entries.length);
+      for (Entry e: entries) {
+        out.writeUTF(e.file.getPath());
+        out.writeLong(e.lastModified);
+        out.writeLong(e.length);
+        out.writeBoolean(e.unindexed);
+      }
+      out.writeInt(keys.length);
+      for (int i = 0; i < keys.length; i++) {
+        final int[] ids = postings[i];
+        out.writeLong(keys[i]);
+        out.writeInt(ids.length);
+        int prev = -1;
+        for (int id: ids) { _writeVarInt(out, id - prev - 1); prev = id; }
+      }
+      out.close();
+      out = null;
+      if (! tmp.renameTo(_indexFile)) {
+        _indexFile.delete();
+        if (! tmp.renameTo(_indexFile)) throw new IOException("Could not rename " + tmp);
+      }
+    }
+    catch(IOException e) { 
+      _log.log("Could not save index " + _indexFile, e);
+      synchronized(this) { _dirty = true; }
+    }
+    finally { 
+      if (out != null) try { out.close(); } catch(IOException e) { /* ignore */ }
+    }
+  }
+  
+  private static void _writeVarInt(DataOutputStream out, int v) throws IOException {
+    while ((v & ~0x7F) != 0) { out.writeByte((v & 0x7F) | 0x80); v >>>= 7; }
+    out.writeByte(v);
+  }
+  
+  private static int _readVarInt(DataInputStream in) throws IOException {
+    int v = 0;
+    for (int shift = 0; ; shift += 7) {
+      final int b = in.readUnsignedByte();
+      v |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return v;
+    }
+  }
+  
+  /* ----- Watcher thread ----- */
+  
+  private void _runWatcher() {
+    final WatchService ws = _watchService;
+    final Map<WatchKey, Path> dirs = new HashMap<WatchKey, Path>();
+    try {
+      _register(ws, _root, dirs);
+      while (! _closed) {
+        final WatchKey key = ws.take();
+        final Path dir = dirs.get(key);
+        for (WatchEvent<?> event: key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW) { _queue.add(RECONCILE); continue; }
+          final File f = dir.resolve((Path) event.context()).toFile();
+          if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && f.isDirectory()) {
+            _register(ws, f, dirs);
+            _queue.add(RECONCILE);  // picks up files created before the directory was registered
+          }
+          else update(f);
+        }
+        if (! key.reset()) dirs.remove(key);
+      }
+    }
+    catch(InterruptedException e) { /* closed */ }
+    catch(ClosedWatchServiceException e) { /* closed */ }
+    catch(IOException e) { _log.log("File system watcher failed; relying on save events", e); }
+  }
+  
+  /** Registers dir and its subdirectories with ws. */
+  private static void _register(WatchService ws, File dir, Map<WatchKey, Path> dirs) throws IOException {
+    final Path p = dir.toPath();
+    dirs.put(p.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, 
+                        StandardWatchEventKinds.ENTRY_MODIFY), p);
+    final File[] children = dir.listFiles();
+    if (children != null) for (File c: children) if (c.isDirectory()) _register(ws, c, dirs);
+  }
+  
+  /* ----- Data ----- */
+  
+  private static class Entry {
+    final File file;
+    final long lastModified;
+    final long length;
+    final boolean unindexed;  // too large or unreadable; always a candidate
+    Entry(File f, long m, long l, boolean u) { file = f; lastModified = m; length = l; unindexed = u; }
+  }
+  
+  /** A sorted list of ids. */
+  private static class Postings {
+    int[] _ids;
+    int _size = 0;
+    
+    Postings() { this(4); }
+    Postings(int capacity) { _ids = new int[Math.max(capacity, 1)]; }
+    
+    /** Adds id, which is larger than every id already present (ids are allocated in increasing order). */
+    void append(int id) {
+      if (_size == _ids.length) _ids = Arrays.copyOf(_ids, 2 * _size);
+      _ids[_size++] = id;
+    }
+    
+    boolean contains(int id) { return Arrays.binarySearch(_ids, 0, _size, id) >= 0; }
+    
+    /** Renumbers the ids by remap, dropping those mapped to -1; remap preserves order. */
+    void remap(int[] remap) {
+      int n = 0;
+      for (int i = 0; i < _size; i++) {
+        final int id = remap[_ids[i]];
+        if (id >= 0) _ids[n++] = id;
+      }
+      _size = n;
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+import edu.rice.cs.plt.io.IOUtil;
+import edu.rice.cs.plt.lambda.Thunk;
+
+/** Tests the trigram index used by FindAllSearch to select project files that are not open.
+  * @version $Id$
+  */
+public final class ProjectSearchIndexTest extends DrJavaTestCase {
+  
+  private static final long TIMEOUT = 10000;
+  
+  private File _tempDir;
+  private File _src;
+  private File _indexFile;
+  private ProjectSearchIndex _index;
+  
+  public void setUp() throws Exception {
+    super.setUp();
+    String user = System.getProperty("user.name");
+    _tempDir = IOUtil.createAndMarkTempDirectory("DrJava-test-" + user, "");
+    _src = new File(_tempDir, "src");
+    new File(_src, "pkg").mkdirs();
+    _indexFile = new File(_tempDir, "index/project.idx");
+  }
+  
+  public void tearDown() throws Exception {
+    if (_index != null) _index.close();
+    _index = null;
+    IOUtil.deleteRecursively(_tempDir);
+    super.tearDown();
+  }
+  
+  private File _write(String name, String text) throws IOException {
+    final File f = new File(_src, name);
+    IOUtil.writeStringToFile(f, text);
+    return f;
+  }
+  
+  /* Starts an index of the .java files under _src and waits until it is ready. */
+  private ProjectSearchIndex _startIndex() throws InterruptedException {
+    final ProjectSearchIndex index = new ProjectSearchIndex(_src, ".java", _indexFile, new Thunk<File[]>() {
+      public File[] value() {
+        final List<File> files = new java.util.ArrayList<File>();
+        for (File f: IOUtil.listFilesRecursively(_src)) if (f.getName().endsWith(".java")) files.add(f);
+        return files.toArray(new File[files.size()]);
+      }
+    });
+    index.start();
+    final long deadline = System.currentTimeMillis() + TIMEOUT;
+    while (! index.isReady()) {
+      assertTrue("index ready in time", System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+    return index;
+  }
+  
+  private static Set<File> _set(File... files) { return new HashSet<File>(Arrays.asList(files)); }
+  
+  /* Waits until the candidates for words are expected (pending files are candidates until they are reindexed). */
+  private void _assertCandidates(Set<File> expected, String... words) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + TIMEOUT;
+    Set<File> actual = _index.getCandidates(Arrays.asList(words));
+    while (! expected.equals(actual) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      actual = _index.getCandidates(Arrays.asList(words));
+    }
+    assertEquals("candidates for " + Arrays.asList(words), expected, actual);
+  }
+  
+  public void testTrigrams() {
+    assertEquals("short text", 0, ProjectSearchIndex._trigrams("ab", 2).length);
+    // "abcAbc" has the trigrams abc, bca, cab, abc (case is ignored), three of them distinct
+    final long[] keys = ProjectSearchIndex._trigrams("abcAbc", 6);
+    assertEquals("distinct trigrams", 3, keys.length);
+    for (int i = 1; i < keys.length; i++) assertTrue("sorted", keys[i - 1] < keys[i]);
+  }
+  
+  public void testCandidates() throws Exception {
+    final File a = _write("A.java", "class A { int alphaCount; }");
+    final File b = _write("pkg/B.java", "class B { String BETA = \"alpha\"; }");
+    final File c = _write("pkg/C.java", "class C { void gamma() { } }");
+    _write("notes.txt", "alpha beta gamma");
+    _index = _startIndex();
+    
+    assertEquals("file count", 3, _index.getFileCount());
+    _assertCandidates(_set(a, b), "alpha");
+    _assertCandidates(_set(a, b), "ALPHA");
+    _assertCandidates(_set(b), "beta");
+    _assertCandidates(_set(b, c), "beta", "gamma");
+    _assertCandidates(_set(c), "void gamma");
+    _assertCandidates(_set(), "delta");
+    assertNull("short words cannot be narrowed", _index.getCandidates(Arrays.asList("al")));
+    assertNull("short words cannot be narrowed", _index.getCandidates(Arrays.asList("alpha", "b")));
+  }
+  
+  public void testUpdate() throws Exception {
+    final File a = _write("A.java", "class A { int alpha; }");
+    final File b = _write("B.java", "class B { }");
+    _index = _startIndex();
+    _assertCandidates(_set(a), "alpha");
+    
+    _write("B.java", "class B { int alpha; }");
+    _index.update(b);
+    assertTrue("queued files are candidates at once", _index.getCandidates(Arrays.asList("alpha")).contains(b));
+    _assertCandidates(_set(a, b), "alpha");
+    
+    _write("A.java", "class A { int beta; }");
+    _index.update(a);
+    _assertCandidates(_set(b), "alpha");
+    _assertCandidates(_set(a), "beta");
+    
+    assertTrue("delete", b.delete());
+    _index.update(b);
+    _assertCandidates(Collections.<File>emptySet(), "alpha");
+    _assertCandidates(_set(a), "class");
+  }
+  
+  public void testPersistence() throws Exception {
+    final File a = _write("A.java", "class A { int alpha; }");
+    final File b = _write("pkg/B.java", "class B { int beta; }");
+    _index = _startIndex();
+    _index.close();
+    
+    final long deadline = System.currentTimeMillis() + TIMEOUT;
+    while (! _indexFile.isFile()) {
+      assertTrue("index saved in time", System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+    
+    // change one file while the index is closed; the reloaded index must notice
+    _write("pkg/B.java", "class B { int alpha; int gamma; }");
+    assertTrue("touch", b.setLastModified(b.lastModified() + 2000));
+    _index = _startIndex();
+    assertEquals("file count", 2, _index.getFileCount());
+    _assertCandidates(_set(a, b), "alpha");
+    _assertCandidates(_set(b), "gamma");
+    _assertCandidates(_set(), "beta");
+  }
+}
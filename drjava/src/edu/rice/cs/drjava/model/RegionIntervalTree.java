@@ -0,0 +1,147 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.drjava.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/** An interval tree over the regions of a RegionSet that answers overlap and stabbing queries without scanning the set.
+  * The tree is an implicit balanced binary tree over the regions in set order (by end offset, then start offset); each
+  * node records the region in its subtree with the least start offset.  Document edits move region offsets 
+  * monotonically, so they preserve both the order of the regions and which region in a subtree has the least start
+  * offset.  Hence the tree stays valid as the document is edited and is only rebuilt when regions are added or removed.
+  * A query for the k regions overlapping an interval visits O(log n + k log n) nodes.  Not thread safe; like RegionSet,
+  * only used in the event thread.
+  */
+final class RegionIntervalTree<R extends Region> {
+  
+  /** The regions in set order. */
+  private final ArrayList<R> _regions;
+  
+  /** _minStart[mid] is the index of the region with the least start offset in the subtree rooted at mid. */
+  private final int[] _minStart;
+  
+  /** Whether _regions is ordered by end offset, which permits skipping the regions that end too early. */
+  private final boolean _sortedByEnd;
+  
+  /** Builds the tree over regions, which are iterated in the order of the tree.
+    * @param regions the regions
+    */
+  RegionIntervalTree(Collection<? extends R> regions) {
+    _regions = new ArrayList<R>(regions);
+    _minStart = new int[_regions.size()];
+    boolean sorted = true;
+    for (int i = 1; sorted && i < _regions.size(); i++) {
+      sorted = _regions.get(i - 1).getEndOffset() <= _regions.get(i).getEndOffset();
+    }
+    _sortedByEnd = sorted;
+    _build(0, _regions.size());
+  }
+  
+  /** @return the number of regions in this tree */
+  int size() { return _regions.size(); }
+  
+  /** @param startOffset the left end of the interval
+    * @param endOffset the right end of the interval
+    * @return the regions r with r.getStartOffset() < endOffset and r.getEndOffset() > startOffset, in set order
+    */
+  List<R> getOverlapping(int startOffset, int endOffset) {
+    ArrayList<R> result = new ArrayList<R>();
+    _collect(0, _regions.size(), _firstEndingAfter(startOffset), startOffset, endOffset, result, false);
+    return result;
+  }
+  
+  /** @param startOffset the left end of the interval
+    * @param endOffset the right end of the interval
+    * @return the first region in set order overlapping the interval as in getOverlapping, or null if there is none
+    */
+  R getFirstOverlapping(int startOffset, int endOffset) {
+    ArrayList<R> result = new ArrayList<R>(1);
+    _collect(0, _regions.size(), _firstEndingAfter(startOffset), startOffset, endOffset, result, true);
+    return result.isEmpty() ? null : result.get(0);
+  }
+  
+  /** Fills in _minStart for the subtree spanning [lo, hi).
+    * @return the index of the region with the least start offset in [lo, hi), or -1 if the range is empty
+    */
+  private int _build(int lo, int hi) {
+    if (lo >= hi) return -1;
+    int mid = (lo + hi) >>> 1;
+    int min = mid;
+    int left = _build(lo, mid);
+    int right = _build(mid + 1, hi);
+    if (left >= 0 && _start(left) < _start(min)) min = left;
+    if (right >= 0 && _start(right) < _start(min)) min = right;
+    _minStart[mid] = min;
+    return min;
+  }
+  
+  /** @return the index of the first region ending after offset, or 0 if the regions are not ordered by end offset */
+  private int _firstEndingAfter(int offset) {
+    if (! _sortedByEnd) return 0;
+    int lo = 0;
+    int hi = _regions.size();
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (_regions.get(mid).getEndOffset() > offset) hi = mid;
+      else lo = mid + 1;
+    }
+    return lo;
+  }
+  
+  /** Adds to result, in order, the regions overlapping [startOffset, endOffset) in the subtree spanning [lo, hi) at
+    * indices of at least from.
+    * @return true if the search is complete because firstOnly is set and a region has been found
+    */
+  private boolean _collect(int lo, int hi, int from, int startOffset, int endOffset, List<R> result, boolean firstOnly) {
+    if (lo >= hi || hi <= from) return false;
+    int mid = (lo + hi) >>> 1;
+    if (_start(_minStart[mid]) >= endOffset) return false;  // every region in this subtree starts too late
+    if (_collect(lo, mid, from, startOffset, endOffset, result, firstOnly)) return true;
+    if (mid >= from) {
+      R r = _regions.get(mid);
+      if (r.getStartOffset() < endOffset && r.getEndOffset() > startOffset) {
+        result.add(r);
+        if (firstOnly) return true;
+      }
+    }
+    return _collect(mid + 1, hi, from, startOffset, endOffset, result, firstOnly);
+  }
+  
+  private int _start(int i) { return _regions.get(i).getStartOffset(); }
+}
@@ -36,7 +36,13 @@
 
 package edu.rice.cs.drjava.model;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.TreeSet;
 
 import javax.swing.event.DocumentEvent;
@@ -50,6 +56,15 @@ import edu.rice.cs.util.swing.Utilities;
   * Also optionally contains a reference to the ConcreteRegionManager that uses this region set, and notifies 
   * the manager on changes. Note that RegionSets can be used broadly by all types of RegionManagers; however, 
   * notification will only ever be requested by ConcreteRegionManagers.
+  * 
+  * Overlap and stabbing queries are answered by a RegionIntervalTree that is rebuilt lazily after the set changes.
+  * 
+  * Region offsets are maintained by Swing Positions, so document edits need no per-region work.  The document listener
+  * only records each edit in a short log; the log is applied once, either when the set is next queried or by a single
+  * task queued in the event thread after the first edit.  Applying the log re-balances the set only if a removal
+  * touched a region, and notifies the manager only of the regions on the lines that were edited, plus the regions
+  * after an edit that added or removed lines (whose line numbers have changed).  Hence the cost of a keystroke that
+  * does not break or join lines does not depend on the number of regions.
   */
 public class RegionSet<R extends IDocumentRegion> extends TreeSet<R> {
 
@@ -62,6 +77,9 @@ public class RegionSet<R extends IDocumentRegion> extends TreeSet<R> {
      * used for find/replace). 
      */
     private ConcreteRegionManager<OrderedDocumentRegion> _manager = null;
+    
+    /** The interval tree over this set, or null if the set has changed since the tree was built. */
+    private RegionIntervalTree<R> _tree = null;
 
     public void setManager(ConcreteRegionManager<OrderedDocumentRegion> manager) { 
       this._manager = manager; 
@@ -74,68 +92,150 @@ public class RegionSet<R extends IDocumentRegion> extends TreeSet<R> {
 
       if (this._docListener != null) return;
 
-      OpenDefinitionsDocument odd = region.getDocument();
+      _doc = region.getDocument();
 
-      /* Listen on changes to the document, as these may affect the region. */
-      final RegionSet<R> thisRef = this;
+      /* Listen on changes to the document, as these may affect the region.  Only record the edit here. */
       _docListener = new DocumentListener() {
-
-        public void insertUpdate(DocumentEvent e) {
-          /* Insertion can't cause positions to flip */
-          /* But we should still notify the RegionManager, if requested. */
-          if (thisRef._manager != null) {
-            for (R region : thisRef) {
-              thisRef._manager.notifyChangedRegion((OrderedDocumentRegion)region);
-            }
-          }
+        public void insertUpdate(DocumentEvent e) { 
+          _logEdit(new Edit(e.getOffset(), e.getLength(), true, _linesChanged(e))); 
         }
-
-        public void removeUpdate(DocumentEvent e) {
-
-          final DocumentEvent finalE = e;
-          Utilities.invokeLater(new Runnable() { 
-
-            public void run() {
-
-              /* Removal can cause positions to flip, but only need to worry if the removed portion is within the bounds
-               * of one or more regions. 
-               */
-              boolean requireRebalance = false;
-              for (R region : thisRef) {
-                if (region.getStartOffset() <= finalE.getOffset() &&
-                  finalE.getOffset() <= region.getEndOffset()) {
-                     requireRebalance = true;
-                     break;
-                }
-              }
-
-              /* Brute-force re-balance; can be relatively expensive if there are many regions, but in practice runs
-               * infrequently enough so as to be unnoticeable. Note: this code can probably be made ore efficient 
-               * because the region set to be rebalanced is almost in balance already.  Not worth the complication.
-               */
-              if (requireRebalance) {
-                @SuppressWarnings("unchecked")
-                RegionSet<R> thisCopy = (RegionSet<R>)thisRef.clone();
-                thisRef.clear();
-                thisRef.addAll(thisCopy);
-              }
-
-              /* Notify the RegionManager, if requested. */
-              if (thisRef._manager != null) {
-                for (R region : thisRef) {
-                  thisRef._manager.notifyChangedRegion((OrderedDocumentRegion)region);
-                }
-              }
-            }
-           });
+        public void removeUpdate(DocumentEvent e) { 
+          _logEdit(new Edit(e.getOffset(), e.getLength(), false, _linesChanged(e))); 
         }
-
         public void changedUpdate(DocumentEvent e) {
           /* Apparently not used for documents. */
           return;
         }
       };
-      odd.addDocumentListener(_docListener);
+      _doc.addDocumentListener(_docListener);
+    }
+    
+    /** @param e a document insertion or removal
+      * @return true if e added or removed lines, i.e., changed the line elements of the document */
+    private static boolean _linesChanged(DocumentEvent e) {
+      return e.getChange(e.getDocument().getDefaultRootElement()) != null;
+    }
+    
+    /** The maximum number of edits in the log; beyond it, the log is abandoned and every region is processed. */
+    private static final int MAX_LOGGED_EDITS = 64;
+    
+    /** The document of the regions in this set. */
+    private OpenDefinitionsDocument _doc = null;
+    
+    /** The document edits that have not yet been applied to this set.  Only accessed in the event thread. */
+    private final ArrayList<Edit> _editLog = new ArrayList<Edit>();
+    
+    /** Whether more than MAX_LOGGED_EDITS edits have been made since the log was last applied. */
+    private boolean _logOverflow = false;
+    
+    /** A document insertion or removal recorded in the edit log. */
+    private static final class Edit {
+      private final int _offset;
+      private final int _length;
+      private final boolean _insert;
+      private final boolean _linesChanged;  // whether the edit inserted or removed a line break
+      
+      Edit(int offset, int length, boolean insert, boolean linesChanged) {
+        _offset = offset;
+        _length = length;
+        _insert = insert;
+        _linesChanged = linesChanged;
+      }
+      
+      /** @param offset an offset in the document before this edit
+        * @return the corresponding offset after this edit
+        */
+      int map(int offset) {
+        if (_insert) return (offset >= _offset) ? offset + _length : offset;
+        return (offset <= _offset) ? offset : Math.max(_offset, offset - _length);
+      }
+    }
+    
+    /** Records a document edit, scheduling the application of the log if it was empty. 
+      * @param edit the edit
+      */
+    private void _logEdit(Edit edit) {
+      final boolean wasEmpty = _editLog.isEmpty() && ! _logOverflow;
+      if (_editLog.size() < MAX_LOGGED_EDITS) _editLog.add(edit);
+      else {
+        _editLog.clear();
+        _logOverflow = true;
+      }
+      if (wasEmpty) {
+        Utilities.invokeLater(new Runnable() { public void run() { applyEdits(); } });
+      }
+    }
+    
+    /** Applies the logged document edits to this set: re-balances the set if a removal may have changed the relative 
+      * order of its regions and notifies the manager, if requested, of the regions whose lines were edited or
+      * renumbered.  Called automatically before queries and after edits; only runs in the event thread.
+      */
+    public void applyEdits() {
+      if (_editLog.isEmpty() && ! _logOverflow) return;
+      final boolean overflow = _logOverflow;
+      final ArrayList<Edit> log = new ArrayList<Edit>(_editLog);
+      _editLog.clear();
+      _logOverflow = false;
+      if (isEmpty()) return;
+      
+      /* The edited intervals in current document coordinates. */
+      final int n = log.size();
+      final int[] lo = new int[n];
+      final int[] hi = new int[n];
+      for (int i = 0; i < n; i++) {
+        final Edit edit = log.get(i);
+        lo[i] = edit._offset;
+        hi[i] = edit._insert ? edit._offset + edit._length : edit._offset;
+        for (int j = i + 1; j < n; j++) {
+          lo[i] = log.get(j).map(lo[i]);
+          hi[i] = log.get(j).map(hi[i]);
+        }
+      }
+      
+      /* Removal can cause positions to flip, but only need to worry if the removed portion is within the bounds of one
+       * or more regions. */
+      boolean requireRebalance = false;
+      if (overflow) requireRebalance = true;
+      else {
+        for (int i = 0; i < n && ! requireRebalance; i++) {
+          if (! log.get(i)._insert && _getTree().getFirstOverlapping(lo[i] - 1, lo[i] + 1) != null) requireRebalance = true;
+        }
+      }
+      
+      /* Brute-force re-balance; can be relatively expensive if there are many regions, but in practice runs infrequently
+       * enough so as to be unnoticeable. */
+      if (requireRebalance) {
+        @SuppressWarnings("unchecked")
+        RegionSet<R> thisCopy = (RegionSet<R>) clone();
+        clear();
+        addAll(thisCopy);
+      }
+      
+      /* Notify the RegionManager, if requested, of the regions on the edited lines, and of all regions after an edit
+       * that changed the number of lines, since their line numbers have changed. */
+      if (_manager == null) return;
+      final List<R> changed;
+      if (overflow) changed = new ArrayList<R>(this);
+      else {
+        changed = new ArrayList<R>();
+        final Set<R> seen = Collections.newSetFromMap(new IdentityHashMap<R, Boolean>());
+        final int length = _doc.getLength();
+        int renumbered = length + 1;  // start of the first line whose number may have changed
+        for (int i = 0; i < n; i++) {
+          final int lineStart = _doc._getLineStartPos(Math.min(lo[i], length));
+          final int lineEnd = _doc._getLineEndPos(Math.min(hi[i], length));
+          if (log.get(i)._linesChanged) renumbered = Math.min(renumbered, lineStart);
+          for (R region : _getTree().getOverlapping(lineStart - 1, lineEnd + 1)) {
+            if (seen.add(region)) changed.add(region);
+          }
+        }
+        if (renumbered <= length) {
+          for (R region : _getTree().getOverlapping(renumbered - 1, length + 1)) {
+            if (seen.add(region)) changed.add(region);
+          }
+        }
+      }
+      for (R region : changed) _manager.notifyChangedRegion((OrderedDocumentRegion) region);
     }
 
     /** Adds an input region to the set. Also sets up a listener on the document to which the region belongs, if this
@@ -145,6 +245,7 @@ public class RegionSet<R extends IDocumentRegion> extends TreeSet<R> {
       */
     public boolean add(R region) {
       this._setDocListener(region);
+      _tree = null;
       return super.add(region);
     }
 
@@ -158,7 +259,73 @@ public class RegionSet<R extends IDocumentRegion> extends TreeSet<R> {
         for (R region : regions) {
             this._setDocListener(region);
         }
+        _tree = null;
         return super.addAll(regions);
     }
+    
+    public boolean remove(Object o) {
+      _tree = null;
+      return super.remove(o);
+    }
+    
+    public void clear() {
+      _tree = null;
+      super.clear();
+    }
+    
+    public R pollFirst() {
+      _tree = null;
+      return super.pollFirst();
+    }
+    
+    public R pollLast() {
+      _tree = null;
+      return super.pollLast();
+    }
+    
+    /** @return an iterator over this set whose remove operation invalidates the interval tree */
+    public Iterator<R> iterator() {
+      final Iterator<R> it = super.iterator();
+      return new Iterator<R>() {
+        public boolean hasNext() { return it.hasNext(); }
+        public R next() { return it.next(); }
+        public void remove() {
+          _tree = null;
+          it.remove();
+        }
+      };
+    }
+    
+    /** Returns the regions r in this set with r.getStartOffset() < endOffset and r.getEndOffset() > startOffset in set
+      * order, including degenerate regions [offset, offset) with startOffset < offset < endOffset.  Unlike a scan of a
+      * tail set, this finds regions that overlap other regions.  Only runs in the event thread.
+      * @param startOffset the left end of the interval
+      * @param endOffset the right end of the interval
+      * @return the regions overlapping [startOffset, endOffset)
+      */
+    public List<R> getOverlapping(int startOffset, int endOffset) { 
+      applyEdits();
+      return _getTree().getOverlapping(startOffset, endOffset); 
+    }
+    
+    /** Returns the first region in set order containing offset.  Only runs in the event thread.
+      * @param offset the offset
+      * @return the first region r with r.getStartOffset() <= offset < r.getEndOffset(), or null if there is none
+      */
+    public R getFirstContaining(int offset) { 
+      applyEdits();
+      return _getTree().getFirstOverlapping(offset, offset + 1); 
+    }
+    
+    /** @return the interval tree over this set, rebuilding it if the set has changed.  The size check catches changes
+      * made through subset views. */
+    private RegionIntervalTree<R> _getTree() {
+      RegionIntervalTree<R> tree = _tree;
+      if (tree == null || tree.size() != size()) {
+        tree = new RegionIntervalTree<R>(this);
+        _tree = tree;
+      }
+      return tree;
+    }
 }
 
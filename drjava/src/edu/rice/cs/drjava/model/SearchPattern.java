@@ -0,0 +1,393 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/** A compiled search used by "find all": a literal word, a regular expression, or a set of literal words searched 
+  * for in a single pass.  Patterns are immutable and may be shared by threads; each scan of a text uses its own
+  * {@link Finder}.  Matches are reported left to right and never overlap.  Where several matches start at the same
+  * offset, the longest one is reported.  With whole word matching, a match must be delimited by characters for which
+  * FindReplaceMachine.isDelimiter holds (or by the ends of the text).
+  * @version $Id$
+  */
+public abstract class SearchPattern {
+  
+  /** Finds the successive matches of a pattern in one text.  Not thread-safe. */
+  public interface Finder {
+    /** Finds the first match lying entirely within [from, to) of the text.
+      * @param from the offset where the search starts
+      * @param to the offset where the search ends
+      * @return true if a match was found; its bounds are then given by start() and end()
+      */
+    public boolean find(int from, int to);
+    /** @return the offset of the first character of the last match */
+    public int start();
+    /** @return the offset following the last character of the last match */
+    public int end();
+  }
+  
+  protected final boolean _matchCase;
+  protected final boolean _wholeWord;
+  
+  protected SearchPattern(boolean matchCase, boolean wholeWord) {
+    _matchCase = matchCase;
+    _wholeWord = wholeWord;
+  }
+  
+  /** @param text the text to search
+    * @return a new finder over text */
+  public abstract Finder finder(CharSequence text);
+  
+  /** @return the literal words one of which every match contains (possibly folded), or null if matches need not
+    * contain a fixed word (as for regular expressions).  Used to narrow the files searched with a ProjectSearchIndex. */
+  public List<String> getLiterals() { return null; }
+  
+  /** Compiles the text of the find field.
+    * @param findWord the (non-empty) text of the find field
+    * @param regex whether findWord is a regular expression
+    * @param anyLine whether each line of findWord is a separate literal word
+    * @param matchCase whether the search is case-sensitive
+    * @param wholeWord whether matches must be whole words
+    * @return the compiled pattern
+    * @throws PatternSyntaxException if regex is set and findWord is not a valid regular expression
+    */
+  public static SearchPattern compile(String findWord, boolean regex, boolean anyLine, boolean matchCase,
+                                      boolean wholeWord) {
+    if (regex) return new Regex(findWord, matchCase, wholeWord);
+    if (anyLine) {
+      final List<String> words = new ArrayList<String>();
+      for (String w: findWord.split("\n")) if (w.length() > 0) words.add(w);
+      if (words.size() > 1) return new AnyOf(words, matchCase, wholeWord);
+      if (words.size() == 1) findWord = words.get(0);
+    }
+    return new Literal(findWord, matchCase, wholeWord);
+  }
+  
+  /** Folds c for comparison. */
+  protected final char _fold(char c) { return _matchCase ? c : Character.toLowerCase(c); }
+  
+  /* Same test as FindReplaceMachine.wholeWordFoundAtCurrent, but on a CharSequence. */
+  protected final boolean _isWholeWord(CharSequence text, int start, int end) {
+    return ! _wholeWord ||
+      ((start == 0 || FindReplaceMachine.isDelimiter(text.charAt(start - 1))) &&
+       (end == text.length() || FindReplaceMachine.isDelimiter(text.charAt(end))));
+  }
+  
+  /** Computes which characters of text[0, to) lie inside comments and string or character literals, using the same
+    * conventions as the reduced model: opening delimiters are not shadowed, closing delimiters are, a newline ends a
+    * line comment or an unterminated literal (and is itself shadowed), and an escaped backslash or quote outside a
+    * literal does not open one.  The mask agrees with
+    * OpenDefinitionsDocument.isShadowed without requiring the document or its reduced model to be resident.
+    * @param text the text of a document
+    * @param to the offset up to which the mask is needed
+    * @return the set of shadowed offsets
+    */
+  public static BitSet shadowMask(CharSequence text, int to) {
+    final int len = text.length();
+    final BitSet mask = new BitSet(to);
+    char quote = 0;             // the open quote character if inside a literal
+    boolean inBlock = false;
+    boolean inLine = false;
+    int i = 0;
+    while (i < to) {
+      final char c = text.charAt(i);
+      final char next = (i + 1 < len) ? text.charAt(i + 1) : 0;
+      if (inBlock) {
+        if (c == '*' && next == '/') { mask.set(i, i + 2); inBlock = false; i += 2; continue; }
+        mask.set(i);
+      }
+      else if (inLine) {
+        mask.set(i);
+        if (c == '\n') inLine = false;
+      }
+      else if (quote != 0) {
+        mask.set(i);
+        if (c == '\n' || c == quote) quote = 0;
+        else if (c == '\\' && next != '\n' && next != 0) { mask.set(i + 1); i += 2; continue; }
+      }
+      else if (c == '\\' && (next == '\\' || next == '"' || next == '\'')) { i += 2; continue; }  // escape token
+      else if (c == '/' && next == '*') { inBlock = true; i += 2; continue; }
+      else if (c == '/' && next == '/') { inLine = true; i += 2; continue; }
+      else if (c == '"' || c == '\'') quote = c;
+      i++;
+    }
+    return mask;
+  }
+  
+  /** A literal word, found with a Boyer-Moore-Horspool search that folds case one character at a time, so a 
+    * case-insensitive search does not copy the text.  The case folding is the same as that of FindReplaceMachine
+    * (Character.toLowerCase on both the text and the word).
+    */
+  static class Literal extends SearchPattern {
+    private final char[] _word;          // the word, lower-cased unless _matchCase
+    private final int[] _shift;          // Horspool shifts indexed by the low 8 bits of a (folded) character
+    
+    Literal(String word, boolean matchCase, boolean wholeWord) {
+      super(matchCase, wholeWord);
+      final int n = word.length();
+      assert n > 0;
+      _word = new char[n];
+      for (int i = 0; i < n; i++) _word[i] = _fold(word.charAt(i));
+      
+      // Characters sharing a bucket get the smallest of their shifts, which keeps the table conservative.
+      _shift = new int[256];
+      Arrays.fill(_shift, n);
+      for (int i = 0; i < n - 1; i++) _shift[_word[i] & 0xFF] = n - 1 - i;
+    }
+    
+    public List<String> getLiterals() { return Collections.singletonList(new String(_word)); }
+    
+    public Finder finder(final CharSequence text) {
+      return new Finder() {
+        private int _start = -1;
+        public boolean find(int from, int to) {
+          _start = indexOf(text, from, to);
+          return _start >= 0;
+        }
+        public int start() { return _start; }
+        public int end() { return _start + _word.length; }
+      };
+    }
+    
+    /** @return the left edge of the first match lying entirely within [from, to) of text, or -1 if there is none */
+    int indexOf(CharSequence text, int from, int to) {
+      final int n = _word.length;
+      final int last = n - 1;
+      int i = from;
+      while (i + n <= to) {
+        final char c = _fold(text.charAt(i + last));
+        if (c == _word[last]) {
+          int j = last - 1;
+          while (j >= 0 && _fold(text.charAt(i + j)) == _word[j]) j--;
+          if (j < 0 && _isWholeWord(text, i, i + n)) return i;
+        }
+        i += _shift[c & 0xFF];
+      }
+      return -1;
+    }
+  }
+  
+  /* Recently compiled regular expressions, keyed by flags and expression; the find field is usually re-searched. */
+  private static final int PATTERN_CACHE_SIZE = 32;
+  private static final Map<String, Pattern> _patternCache = new LinkedHashMap<String, Pattern>(16, 0.75f, true) {
+    protected boolean removeEldestEntry(Map.Entry<String, Pattern> e) { return size() > PATTERN_CACHE_SIZE; }
+  };
+  
+  /** @return the compiled form of regex with the given flags, from the cache if possible */
+  static Pattern _compile(String regex, int flags) {
+    final String key = flags + ":" + regex;
+    synchronized(_patternCache) {
+      Pattern p = _patternCache.get(key);
+      if (p == null) {
+        p = Pattern.compile(regex, flags);
+        _patternCache.put(key, p);
+      }
+      return p;
+    }
+  }
+  
+  /** A regular expression.  ^ and $ match at line boundaries, and empty matches are skipped. */
+  static class Regex extends SearchPattern {
+    private final Pattern _pattern;
+    
+    Regex(String regex, boolean matchCase, boolean wholeWord) {
+      super(matchCase, wholeWord);
+      _pattern = _compile(regex, Pattern.MULTILINE | (matchCase ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+    }
+    
+    public Finder finder(final CharSequence text) {
+      final Matcher m = _pattern.matcher(text);
+      m.useTransparentBounds(true);  // lookaround and \b see the text outside the region
+      m.useAnchoringBounds(false);   // ^ and $ only match at real line boundaries
+      return new Finder() {
+        public boolean find(int from, int to) {
+          while (from < to) {
+            m.region(from, to);
+            if (! m.find()) return false;
+            if (m.end() > m.start() && _isWholeWord(text, m.start(), m.end())) return true;
+            from = m.start() + 1;
+          }
+          return false;
+        }
+        public int start() { return m.start(); }
+        public int end() { return m.end(); }
+      };
+    }
+  }
+  
+  /** A set of literal words found in one pass with an Aho-Corasick automaton over folded characters.  At each offset
+    * the longest word is preferred, and the leftmost match wins.
+    */
+  static class AnyOf extends SearchPattern {
+    /* The automaton: node 0 is the root; each node has sorted edge labels and targets, a failure link, and the lengths 
+     * of all words that end at it (including those inherited along failure links), longest first. */
+    private final char[][] _labels;
+    private final int[][] _targets;
+    private final int[] _fail;
+    private final int[][] _outputs;
+    private final int _maxLength;
+    private final List<String> _words;
+    
+    AnyOf(List<String> words, boolean matchCase, boolean wholeWord) {
+      super(matchCase, wholeWord);
+      _words = new ArrayList<String>(words);
+      
+      // Build the trie with growable per-node edge lists.
+      final List<StringBuilder> labels = new ArrayList<StringBuilder>();
+      final List<List<Integer>> targets = new ArrayList<List<Integer>>();
+      final List<Integer> lengths = new ArrayList<Integer>();  // length of the word ending at each node, or 0
+      labels.add(new StringBuilder());
+      targets.add(new ArrayList<Integer>());
+      lengths.add(0);
+      int maxLength = 0;
+      for (String w: words) {
+        int node = 0;
+        for (int i = 0; i < w.length(); i++) {
+          final char c = _fold(w.charAt(i));
+          final int k = labels.get(node).indexOf(String.valueOf(c));
+          if (k >= 0) node = targets.get(node).get(k);
+          else {
+            final int child = labels.size();
+            labels.add(new StringBuilder());
+            targets.add(new ArrayList<Integer>());
+            lengths.add(0);
+            labels.get(node).append(c);
+            targets.get(node).add(child);
+            node = child;
+          }
+        }
+        lengths.set(node, w.length());
+        maxLength = Math.max(maxLength, w.length());
+      }
+      _maxLength = maxLength;
+      
+      // Freeze the edges, sorted by label for binary search.
+      final int n = labels.size();
+      _labels = new char[n][];
+      _targets = new int[n][];
+      for (int node = 0; node < n; node++) {
+        final String ls = labels.get(node).toString();
+        final char[] sorted = ls.toCharArray();
+        Arrays.sort(sorted);
+        _labels[node] = sorted;
+        _targets[node] = new int[sorted.length];
+        for (int k = 0; k < sorted.length; k++) _targets[node][k] = targets.get(node).get(ls.indexOf(sorted[k]));
+      }
+      
+      // Compute failure links and outputs breadth first.
+      _fail = new int[n];
+      _outputs = new int[n][];
+      _outputs[0] = new int[0];
+      final int[] queue = new int[n];
+      int head = 0;
+      int tail = 0;
+      queue[tail++] = 0;
+      while (head < tail) {
+        final int node = queue[head++];
+        for (int k = 0; k < _labels[node].length; k++) {
+          final int child = _targets[node][k];
+          final char c = _labels[node][k];
+          int f = 0;
+          if (node != 0) {
+            f = _fail[node];
+            while (f != 0 && _step(f, c) < 0) f = _fail[f];
+            final int g = _step(f, c);
+            f = (g >= 0) ? g : 0;
+          }
+          _fail[child] = f;
+          final int[] inherited = _outputs[f];
+          final int own = lengths.get(child);
+          if (own == 0) _outputs[child] = inherited;
+          else {
+            final int[] out = new int[inherited.length + 1];
+            out[0] = own;  // own word is longer than any proper suffix
+            System.arraycopy(inherited, 0, out, 1, inherited.length);
+            _outputs[child] = out;
+          }
+          queue[tail++] = child;
+        }
+      }
+    }
+    
+    /** @return the child of node labelled c, or -1 */
+    private int _step(int node, char c) {
+      final int k = Arrays.binarySearch(_labels[node], c);
+      return (k >= 0) ? _targets[node][k] : -1;
+    }
+    
+    public List<String> getLiterals() { return Collections.unmodifiableList(_words); }
+    
+    public Finder finder(final CharSequence text) {
+      return new Finder() {
+        private int _start = -1;
+        private int _end = -1;
+        public boolean find(int from, int to) {
+          int best = -1;         // start of the best candidate so far
+          int bestEnd = -1;
+          int node = 0;
+          for (int i = from; i < to; i++) {
+            // No match found later can start at or before best once the longest word could no longer reach back.
+            if (best >= 0 && i - _maxLength >= best) break;
+            final char c = _fold(text.charAt(i));
+            int next = _step(node, c);
+            while (next < 0 && node != 0) {
+              node = _fail[node];
+              next = _step(node, c);
+            }
+            node = (next >= 0) ? next : 0;
+            for (int len: _outputs[node]) {
+              final int s = i + 1 - len;
+              if (s < from) continue;
+              if (best >= 0 && (s > best || (s == best && i + 1 <= bestEnd))) continue;
+              if (! _isWholeWord(text, s, i + 1)) continue;
+              best = s;
+              bestEnd = i + 1;
+            }
+          }
+          if (best < 0) return false;
+          _start = best;
+          _end = bestEnd;
+          return true;
+        }
+        public int start() { return _start; }
+        public int end() { return _end; }
+      };
+    }
+  }
+}
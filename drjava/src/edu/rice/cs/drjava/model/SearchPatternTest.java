@@ -0,0 +1,158 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelControl;
+
+/** Tests the patterns used by FindAllSearch.  Literal matches must agree with the toLowerCase/indexOf loop of
+  * FindReplaceMachine, and the shadow mask must agree with the reduced model.
+  * @version $Id$
+  */
+public final class SearchPatternTest extends DrJavaTestCase {
+  
+  private static final String TEXT = "Hear no evil, see no EVIL, speak no Evil; evildoers eVILLY evil_doers.";
+  
+  /* Collects the bounds of all matches of p in [from, to) of text. */
+  private static String _matches(SearchPattern p, String text, int from, int to) {
+    final SearchPattern.Finder f = p.finder(text);
+    final StringBuilder sb = new StringBuilder();
+    int i = from;
+    while (f.find(i, to)) {
+      sb.append(f.start()).append('-').append(f.end()).append(' ');
+      i = f.end();
+    }
+    return sb.toString().trim();
+  }
+  
+  private static String _matches(SearchPattern p, String text) { return _matches(p, text, 0, text.length()); }
+  
+  private static SearchPattern _literal(String word, boolean matchCase, boolean wholeWord) {
+    return SearchPattern.compile(word, false, false, matchCase, wholeWord);
+  }
+  
+  /* The same matches computed the way FindReplaceMachine does (without the whole word test). */
+  private static String _expected(String word, String text, boolean matchCase) {
+    if (! matchCase) { word = word.toLowerCase(); text = text.toLowerCase(); }
+    StringBuilder sb = new StringBuilder();
+    int i = text.indexOf(word);
+    while (i >= 0) {
+      sb.append(i).append('-').append(i + word.length()).append(' ');
+      i = text.indexOf(word, i + word.length());
+    }
+    return sb.toString().trim();
+  }
+  
+  public void testMatchCase() {
+    assertEquals(_expected("evil", TEXT, true), _matches(_literal("evil", true, false), TEXT));
+    assertEquals("", _matches(_literal("evIL", true, false), TEXT));
+  }
+  
+  public void testIgnoreCase() {
+    for (String word: new String[] { "evil", "EVIL", "no e", "e", "Hear", "doers.", "xyz" }) {
+      assertEquals(word, _expected(word, TEXT, false), _matches(_literal(word, false, false), TEXT));
+    }
+  }
+  
+  public void testNonOverlapping() {
+    assertEquals("0-2 2-4", _matches(_literal("aa", true, false), "aaaaa"));
+  }
+  
+  public void testWholeWord() {
+    final SearchPattern p = _literal("evil", false, true);
+    assertEquals("8-12 21-25 36-40", _matches(p, TEXT));  // not evildoers, eVILLY or evil_doers
+    assertEquals("0-4", _matches(p, "evil"));
+  }
+  
+  public void testSegment() {
+    final SearchPattern p = _literal("evil", false, false);
+    assertEquals("21-25 36-40", _matches(p, TEXT, 9, 40));  // matches must lie entirely inside the segment
+    assertEquals("", _matches(p, TEXT, 22, 24));
+  }
+  
+  public void testRegex() {
+    assertEquals("8-12 21-25 36-40 42-46 52-56 59-63", 
+                 _matches(SearchPattern.compile("e[a-z]il", true, false, false, false), TEXT));
+    assertEquals("8-12 21-25 36-40", _matches(SearchPattern.compile("e[a-z]il", true, false, false, true), TEXT));
+    assertEquals("8-12 42-46 59-63", _matches(SearchPattern.compile("e[a-z]il", true, false, true, false), TEXT));
+    assertEquals("0-4 8-12 14-17", _matches(SearchPattern.compile("^\\w+", true, false, true, false), 
+                                             "Hear no\nevil\n\nsee"));  // ^ matches at line starts
+    // empty matches are skipped; matches may be longer than the expression
+    assertEquals("1-3 4-5", _matches(SearchPattern.compile("b*", true, false, true, false), "abbab"));
+  }
+  
+  public void testRegexCache() {
+    final int flags = java.util.regex.Pattern.MULTILINE;
+    assertSame(SearchPattern._compile("ev+il", flags), SearchPattern._compile("ev+il", flags));
+    assertNotSame(SearchPattern._compile("ev+il", flags), SearchPattern._compile("ev+il", 0));
+  }
+  
+  public void testAnyLine() {
+    final SearchPattern p = SearchPattern.compile("evil\nsee\nno", false, true, false, false);
+    assertTrue(p instanceof SearchPattern.AnyOf);
+    assertEquals("5-7 8-12 14-17 18-20 21-25 33-35 36-40 42-46 52-56 59-63", _matches(p, TEXT));
+    
+    // the longest word wins at the same offset; the leftmost match wins overall
+    final SearchPattern q = SearchPattern.compile("he\nhers\nher\nshe\nrs", false, true, true, false);
+    assertEquals("1-4 4-6", _matches(q, "ushers"));  // "she" starts before "he" and "hers"
+    assertEquals("0-4 4-6", _matches(q, "hersrs"));
+    
+    assertEquals("8-12 22-26 37-41", _matches(SearchPattern.compile("evil\nsee", false, true, false, true), 
+                                               TEXT.replace("see", "sees")));
+    assertTrue(SearchPattern.compile("evil\n\n", false, true, false, false) instanceof SearchPattern.Literal);
+  }
+  
+  /* Compares the shadow mask with the reduced model at every offset of text. */
+  private static void _assertMaskAgrees(String text) {
+    final ReducedModelControl rm = new ReducedModelControl();
+    rm.insertText(text);
+    final BitSet mask = SearchPattern.shadowMask(text, text.length());
+    for (int i = 0; i < text.length(); i++) {
+      rm.move(i - rm.absOffset());
+      assertEquals("offset " + i + " of '" + text + "'", rm.isShadowed(), mask.get(i));
+    }
+  }
+  
+  public void testShadowMask() {
+    _assertMaskAgrees("a/*b*/c\"d\\\"e\"f'g'h//i\nj'\\''k/**/l\"\"m");
+    _assertMaskAgrees("x/*/y*/z /* \" */ plt \" /* \" plt '//' plt \"a\\\nb\"c // x \\\ny");
+    _assertMaskAgrees("a\\\\\\\"b\"c\"d \\'x' \\/* y */");
+    
+    final Random r = new Random(3);
+    final char[] alphabet = "ab/*\"'\\\n ".toCharArray();
+    for (int k = 0; k < 200; k++) {
+      final char[] cs = new char[r.nextInt(40)];
+      for (int i = 0; i < cs.length; i++) cs[i] = alphabet[r.nextInt(alphabet.length)];
+      _assertMaskAgrees(new String(cs));
+    }
+  }
+}
@@ -59,4 +59,10 @@ public interface DDReconstructor {
   
   /** @return the string text for document that has been kicked out; null otherwise. */
   public String getText();
+  
+  /** @return the saved image of the document, or null if the document has never been read or virtualized */
+  public DocumentImage getImage();
+  
+  /** @return the number of bytes retained by the reduced model snapshot kept to speed up make(); 0 if none */
+  public int getSnapshotBytes();
 }
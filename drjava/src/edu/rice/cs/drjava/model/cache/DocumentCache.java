@@ -31,6 +31,7 @@ package edu.rice.cs.drjava.model.cache;
 import javax.swing.event.DocumentListener;
 import javax.swing.text.BadLocationException;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.io.IOException;
 
 import edu.rice.cs.drjava.model.definitions.DefinitionsDocument;
@@ -38,9 +39,10 @@ import edu.rice.cs.drjava.model.OpenDefinitionsDocument;
 import edu.rice.cs.drjava.model.FileMovedException;
 
 import edu.rice.cs.util.Log;
+import edu.rice.cs.util.StringOps;
 import edu.rice.cs.util.UnexpectedException;
 import edu.rice.cs.util.swing.Utilities;
-import edu.rice.cs.plt.iter.IterUtil;
+import edu.rice.cs.plt.lambda.Predicate;
 
 /** The document cache is a structure that maps OpenDefinitionsDocuments to DefinitionsDocuments (which contain
   * the actual document text).  Since the latter can consume a lot of memory, the cache virtualizes some of them
@@ -54,8 +56,10 @@ import edu.rice.cs.plt.iter.IterUtil;
   * <p>
   * When a document is accessed through the document manager by the model, the cache informs the manager, which 
   * tells the active queue to add the manager to the end of the queue--if it isn't already in the queue.  If the
-  * active queue had already reached maximum size, it deletes the last document in the queue to keep the queue from
-  * growing larger than its maximum size.
+  * active queue then holds more than the maximum number of documents, or more than the byte budget (estimated from
+  * document lengths), documents are evicted in least-recently-used order.  Documents matching the retention policy
+  * (e.g. documents with breakpoints, bookmarks or compiler errors) are only evicted when no other document remains.
+  * Accesses to resident documents are time-stamped without taking any lock.
   * <p>
   * The resident queue only contains documents that have not been modified since their last save (except in the process
   * of responding to notification that a document has been modified).  When a document is modified for the first time, 
@@ -75,19 +79,45 @@ public class DocumentCache {
   
   private static final int INIT_CACHE_SIZE = 32;
   
+  /** Estimated heap bytes per char of a resident DefinitionsDocument: its text, element structure and reduced model. */
+  static final int BYTES_PER_CHAR = 8;
+  
   /** invariant {@code _residentQueue.size() <= CACHE_SIZE} */
   private volatile int CACHE_SIZE;
   
   /** Data structure representing the queue of resident unmodified documents. */
   private final LinkedHashSet<DocManager> _residentQueue;
   
+  /** All registered, unclosed document managers; weakly held in case a document is discarded without being closed. */
+  private final Set<DocManager> _managers;
+  
   private final Object _cacheLock = new Object();
   
+  /** Upper bound on the estimated size of the documents in _residentQueue; defaults to an eighth of the maximum heap. */
+  private volatile long _byteBudget = Runtime.getRuntime().maxMemory() / 8;
+  
+  /** Estimated size of the documents in _residentQueue.  Guarded by _cacheLock. */
+  private long _residentBytes = 0;
+  
+  /** Logical clock for time-stamping accesses.  It is deliberately not atomic: a lost increment only blurs the
+    * recency order of two nearly simultaneous accesses. */
+  private volatile long _clock = 0;
+  
+  /** Documents satisfying this predicate are evicted last; null if no document is preferred. */
+  private volatile Predicate<? super OpenDefinitionsDocument> _retentionPolicy = null;
+  
+  /* Counters for tuning the cache. */
+  private final LongAdder _hits = new LongAdder();
+  private final LongAdder _loads = new LongAdder();
+  private final LongAdder _reconstructions = new LongAdder();
+  private final LongAdder _evictions = new LongAdder();
+  
   /* General constructor.  Not currently used except when called by default constructor. */
   public DocumentCache(int size) {
 //    Utilities.showDebug("DocumentCache created with size = " + size);
     CACHE_SIZE = size;
     _residentQueue = new LinkedHashSet<DocManager>();
+    _managers = Collections.newSetFromMap(new WeakHashMap<DocManager, Boolean>());
   }
   
   /* Default constructor; uses default cache size. */
@@ -99,7 +129,8 @@ public class DocumentCache {
     * @return an adapter that allows its owner to access its definitions document
     */
   public DCacheAdapter register(OpenDefinitionsDocument odd, DDReconstructor rec) {
-    DocManager mgr = new DocManager(rec, odd.isUntitled());
+    DocManager mgr = new DocManager(odd, rec, odd.isUntitled());
+    synchronized(_cacheLock) { _managers.add(mgr); }
     notifyRegistrationListeners(odd, mgr);  // runs synchronously; only used in tests
 //    System.err.println("register(" + odd + ", " + rec + ") called");
     return mgr;
@@ -116,19 +147,149 @@ public class DocumentCache {
     if (size <= 0) throw new IllegalArgumentException("Cannot set the cache size to zero or less.");
     synchronized(_cacheLock) {    // lock the cache so entries can be removed if necessary
       CACHE_SIZE = size;
-      int diff = _residentQueue.size() - CACHE_SIZE;
-      if (diff > 0) {
-        Iterable<DocManager> toRemove = IterUtil.snapshot(IterUtil.truncate(_residentQueue, diff));
-        for (DocManager dm : toRemove) { _residentQueue.remove(dm); dm.kickOut(); }
-      }
+      _evict(null);
     }
   }
   
   public int getCacheSize() { return CACHE_SIZE; }
+  
+  /** Changes the upper bound on the estimated memory used by unmodified resident documents.  At least one document
+    * is always kept, however large it is.
+    * @param bytes the new budget in bytes
+    */
+  public void setByteBudget(long bytes) {
+    if (bytes <= 0) throw new IllegalArgumentException("Cannot set the byte budget to zero or less.");
+    synchronized(_cacheLock) {
+      _byteBudget = bytes;
+      _evict(null);
+    }
+  }
+  
+  public long getByteBudget() { return _byteBudget; }
+  
+  /** Sets the predicate identifying documents that should stay resident in preference to others, e.g. documents
+    * with breakpoints.  The predicate is evaluated while the cache is locked, so it must not access any document.
+    * @param policy the predicate, or null to treat all documents alike
+    */
+  public void setRetentionPolicy(Predicate<? super OpenDefinitionsDocument> policy) { _retentionPolicy = policy; }
+  
+  /** Evicts documents until the resident queue is within both the document count and the byte budget.  Assumes 
+    * _cacheLock is held.
+    * @param keep a manager that must not be evicted (the one just made resident), or null
+    */
+  private void _evict(DocManager keep) {
+    while (_residentQueue.size() > CACHE_SIZE || (_residentBytes > _byteBudget && _residentQueue.size() > 1)) {
+      DocManager victim = _chooseVictim(keep);
+      if (victim == null) return;
+      victim.remove();
+    }
+  }
+  
+  /** Picks the least recently used document that is not retained or, failing that, the least recently used 
+    * document.  Ties go to the document that entered the queue first.  Assumes _cacheLock is held.
+    * @param keep a manager that must not be chosen, or null
+    * @return the manager to evict, or null if there is none
+    */
+  private DocManager _chooseVictim(DocManager keep) {
+    final Predicate<? super OpenDefinitionsDocument> policy = _retentionPolicy;
+    DocManager victim = null;
+    boolean victimRetained = true;
+    for (DocManager dm : _residentQueue) {
+      if (dm == keep) continue;
+      boolean retained = policy != null && policy.contains(dm._odd);
+      if (victim == null || (victimRetained && ! retained) 
+            || (retained == victimRetained && dm._lastAccess < victim._lastAccess)) {
+        victim = dm;
+        victimRetained = retained;
+      }
+    }
+    return victim;
+  }
   public int getNumInCache() { return _residentQueue.size(); }
   
   public String toString() { return _residentQueue.toString(); }
   
+  /** @return a snapshot of the memory held by resident and virtualized documents */
+  public Statistics getStatistics() {
+    Statistics stats = new Statistics();
+    stats._hits = _hits.sum();
+    stats._loads = _loads.sum();
+    stats._reconstructions = _reconstructions.sum();
+    stats._evictions = _evictions.sum();
+    synchronized(_cacheLock) {
+      stats._queuedBytes = _residentBytes;
+      stats._byteBudget = _byteBudget;
+      for (DocManager mgr : _managers) {
+        final DefinitionsDocument doc = mgr._doc;
+        if (doc != null) {
+          stats._residentDocs++;
+          stats._residentChars += doc.getLength();
+          continue;
+        }
+        final DocumentImage image = mgr._rec.getImage();
+        stats._virtualDocs++;
+        stats._retainedBytes += mgr._rec.getSnapshotBytes();
+        if (image == null) continue;  // never read from disk
+        stats._virtualChars += image.length();
+        stats._retainedBytes += image.retainedBytes();
+        if (image.isFileBacked()) stats._fileBackedDocs++;
+      }
+    }
+    return stats;
+  }
+  
+  /** Memory statistics for the documents in a cache.  Resident documents are held as full DefinitionsDocuments (two
+    * bytes per char of text plus the document structure); virtualized documents only hold a DocumentImage.
+    */
+  public static class Statistics {
+    private int _residentDocs;
+    private long _residentChars;
+    private int _virtualDocs;
+    private long _virtualChars;
+    private long _retainedBytes;
+    private int _fileBackedDocs;
+    private long _queuedBytes;
+    private long _byteBudget;
+    private long _hits;
+    private long _loads;
+    private long _reconstructions;
+    private long _evictions;
+    
+    /** @return the number of documents held in memory as DefinitionsDocuments */
+    public int getResidentDocuments() { return _residentDocs; }
+    /** @return the total number of chars in resident documents */
+    public long getResidentChars() { return _residentChars; }
+    /** @return the number of virtualized documents */
+    public int getVirtualDocuments() { return _virtualDocs; }
+    /** @return the total number of chars in virtualized documents */
+    public long getVirtualChars() { return _virtualChars; }
+    /** @return the number of bytes retained by the images and reduced model snapshots of virtualized documents */
+    public long getRetainedBytes() { return _retainedBytes; }
+    /** @return the number of virtualized documents whose images are re-read from disk */
+    public int getFileBackedDocuments() { return _fileBackedDocs; }
+    /** @return the estimated size of the unmodified resident documents, which is what the byte budget limits */
+    public long getQueuedBytes() { return _queuedBytes; }
+    /** @return the byte budget for unmodified resident documents */
+    public long getByteBudget() { return _byteBudget; }
+    /** @return the number of document accesses that found the document resident */
+    public long getHits() { return _hits; }
+    /** @return the number of documents made resident for the first time */
+    public long getLoads() { return _loads; }
+    /** @return the number of documents made resident again after being virtualized */
+    public long getReconstructions() { return _reconstructions; }
+    /** @return the number of documents virtualized */
+    public long getEvictions() { return _evictions; }
+    
+    public String toString() {
+      return "Resident documents: " + _residentDocs + " (" + StringOps.memSizeToString(2 * _residentChars) + " of text)" +
+        "\nVirtualized documents: " + _virtualDocs + " (" + StringOps.memSizeToString(2 * _virtualChars) + " of text in " +
+        StringOps.memSizeToString(_retainedBytes) + ", " + _fileBackedDocs + " read from disk on demand)" +
+        "\nCache budget: " + StringOps.memSizeToString(_queuedBytes) + " of " + StringOps.memSizeToString(_byteBudget) +
+        " used; " + _hits + " hits, " + _loads + " loads, " + _reconstructions + " reconstructions, " + _evictions + 
+        " evictions";
+    }
+  }
+  
   
   ///////////////////////////// DocManager //////////////////////////
   
@@ -140,7 +301,7 @@ public class DocumentCache {
   /** Note: before extending this table, check that the extension does not conflict with isUnmangedOrUntitled() */
   
   /** Manages the retrieval of a document for a corresponding open definitions document.  This manager only 
-    * maintains its document data if it contained in _residentQueue, which is maintained using a round-robin
+    * maintains its document data if it contained in _residentQueue, which is maintained using a least-recently-used
     * replacement scheme.
     * 
     * NOTE: DO NOT OVERRIDE hashcode or equals for DocManager or any descendant of DocManager!  DocManagers are mutable
@@ -148,6 +309,7 @@ public class DocumentCache {
     */
   private class DocManager implements DCacheAdapter {
     
+    private final OpenDefinitionsDocument _odd;
     private final DDReconstructor _rec;
     /** Set of keywords if they were updated since the document had been kicked out, or null if not updated. */
     private volatile HashSet<String> _keywords = null;
@@ -155,12 +317,21 @@ public class DocumentCache {
     private volatile int _stat; // I know, this is not very OO
     private volatile DefinitionsDocument _doc;
     
+    /** Value of _clock at the most recent access to this document. */
+    private volatile long _lastAccess;
+    /** Estimated size of _doc when it entered the resident queue.  Guarded by _cacheLock. */
+    private long _bytes;
+    /** Whether this document has been virtualized at least once.  Guarded by _cacheLock. */
+    private boolean _virtualized = false;
+    
     /** Instantiates a manager for the documents that are produced by the given document reconstructor.
+     * @param odd The open definitions document that owns this manager
      * @param rec The reconstructor used to create the document
      * @param isUntitled true if the document is untitled; false otherwise
      */
-    public DocManager(DDReconstructor rec, boolean isUntitled) {
+    public DocManager(OpenDefinitionsDocument odd, DDReconstructor rec, boolean isUntitled) {
 //      Utilities.showDebug("DocManager(" + rec + ", " + fn + ", " + isUntitled + ")");
+      _odd = odd;
       _rec = rec;
       if (isUntitled) _stat = UNTITLED; 
       else _stat = NOT_IN_QUEUE;
@@ -175,6 +346,8 @@ public class DocumentCache {
      * @return the newly-created document
      */
     private DefinitionsDocument makeDocument() {
+      if (_virtualized) _reconstructions.increment();
+      else _loads.increment();
       try { // _doc is not in memory
         _doc = _rec.make();
         assert _doc != null;
@@ -202,9 +375,16 @@ public class DocumentCache {
       
 //      The following double-check idiom is safe in Java 1.4 and later JVMs provided that _doc is volatile.
       final DefinitionsDocument doc = _doc;  // create a snapshot of _doc
-      if (doc != null) return doc;  
+      _lastAccess = ++_clock;
+      if (doc != null) { 
+        _hits.increment();
+        return doc;
+      }
       synchronized(_cacheLock) { // lock the cache so that this DocManager's state can be updated
-        if (_doc != null) return _doc;  // _doc may have changed since test outside of _cacheLock
+        if (_doc != null) {  // _doc may have changed since test outside of _cacheLock
+          _hits.increment();
+          return _doc;
+        }
         return makeDocument();
       }
     }
@@ -246,14 +426,15 @@ public class DocumentCache {
     public void close() {
 //      Utilities.showDebug("close() called on " + this);
       synchronized(_cacheLock) {
-        _residentQueue.remove(this);
+        dequeue();
+        _managers.remove(this);
         closingKickOut();
       }
     }
     
     public void documentModified() {
       synchronized(_cacheLock) { 
-        _residentQueue.remove(this); // remove modified document from queue if present
+        dequeue(); // remove modified document from queue if present
         _stat = UNMANAGED;
       }
     }
@@ -275,20 +456,28 @@ public class DocumentCache {
       }
     }
     
-    /** Adds this DocManager to the queue and sets status to IN_QUEUE.  Assumes _cacheLock is already held. */
+    /** Adds this DocManager to the queue and sets status to IN_QUEUE, then evicts other documents if the queue has
+      * grown too large.  Assumes _cacheLock is already held. */
     private void add() {
 //      Utilities.showDebug("add " + this + " to the QUEUE\n" + "QUEUE = " + _residentQueue);
 //      System.err.println("adding " + this + " to the QUEUE\n" + "QUEUE = " + _residentQueue);
-      if (! _residentQueue.contains(this)) {
-        _residentQueue.add(this);
+      if (_residentQueue.add(this)) {
+        final DefinitionsDocument doc = _doc;
+        _bytes = (doc == null) ? 0 : (long) doc.getLength() * BYTES_PER_CHAR;
+        _residentBytes += _bytes;
         _stat = IN_QUEUE;
       }
-      if (_residentQueue.size() > CACHE_SIZE) IterUtil.first(_residentQueue).remove();
+      _evict(this);
+    }
+    
+    /** Removes this DocManager from the queue if present.  Assumes _cacheLock is already held. */
+    private void dequeue() {
+      if (_residentQueue.remove(this)) _residentBytes -= _bytes;
     }
     
     /** Removes this DocManager from the queue and sets status to NOT_IN_QUEUE.  Assumes _cacheLock is already held. */
     private void remove() { 
-      _residentQueue.remove(this);
+      dequeue();
       kickOut();
     }
     
@@ -314,6 +503,8 @@ public class DocumentCache {
         /* virtualize this document */
 //        Utilities.showDebug("Virtualizing " + _doc);
         _rec.saveDocInfo(_doc);
+        _virtualized = true;
+        _evictions.increment();
       }
       if (_doc != null) {
         _doc.close(); 
@@ -319,16 +319,16 @@ public class DocumentCacheTest extends DrJavaTestCase {
     assertFalse("The document 2 should have been kicked out of the cache", _adapterTable.get(doc2).isReady());
     
     // Load documents out of order
-    doc4.getCurrentLine(); // 3 4 5 6
+    doc4.getCurrentLine(); // 3 5 6 4
     assertTrue("The document 3 should should still be in the cache", _adapterTable.get(doc3).isReady());    
     assertEquals("There should still be 4 documents in the cache", 4, _cache.getNumInCache());
-    doc5.getCurrentLine(); // 3 4 5 6
+    doc5.getCurrentLine(); // 3 6 4 5
     assertTrue("The document 3 should should still be in the cache", _adapterTable.get(doc3).isReady());    
     assertEquals("There should still be 4 documents in the cache", 4, _cache.getNumInCache());
-    doc3.getCurrentLine(); // 3 4 5 6
+    doc3.getCurrentLine(); // 6 4 5 3
     assertTrue("The document 6 should should still be in the cache", _adapterTable.get(doc6).isReady());    
     assertEquals("There should still be 4 documents in the cache", 4, _cache.getNumInCache());
-    doc4.getCurrentLine(); // 3 4 5 6
+    doc4.getCurrentLine(); // 6 5 3 4
     assertTrue("The document 6 should should still be in the cache", _adapterTable.get(doc6).isReady());    
     
     assertEquals("There should be 4 documents in the cache", 4, _cache.getNumInCache());
@@ -336,27 +336,98 @@ public class DocumentCacheTest extends DrJavaTestCase {
     assertFalse("The document 2 should still be out of the cache", _adapterTable.get(doc2).isReady());
     
     // Test the resize cache method by increasing the size of the cache to 5, which is still less than the number of open documents: 6
-    _cache.setCacheSize(5); // 3 4 5 6
+    _cache.setCacheSize(5); // 6 5 3 4
     assertEquals("The cache size should now be 5", 5, _cache.getCacheSize());
     assertEquals("There should still only be 4 files in the cache", 4, _cache.getNumInCache());
     
-    doc2.getCurrentLine(); // 3 4 5 6 2
+    doc2.getCurrentLine(); // 6 5 3 4 2
     assertTrue("The document 2 should now be in the cache", _adapterTable.get(doc2).isReady());
     assertFalse("The document 1 should still be out of the cache", _adapterTable.get(doc1).isReady());
     assertEquals("There should be 5 documents in the cache", 5, _cache.getNumInCache());
     
-    _cache.setCacheSize(3); // 5 6 2
+    _cache.setCacheSize(3); // 3 4 2  (least recently used documents go first)
     
     assertEquals("The cache size should now be 3", 3, _cache.getCacheSize());
     assertEquals("There should be 3 documents in the cache", 3, _cache.getNumInCache());
     assertTrue("The document 2 should be in the cache", _adapterTable.get(doc2).isReady());
-    assertTrue("The document 6 should be in the cache", _adapterTable.get(doc6).isReady());
-    assertTrue("The document 5 should be in the cache", _adapterTable.get(doc5).isReady());
-    assertFalse("The document 3 should now be out of the cache", _adapterTable.get(doc3).isReady());
-    assertFalse("The document 4 should now be out of the cache", _adapterTable.get(doc4).isReady());
+    assertTrue("The document 3 should be in the cache", _adapterTable.get(doc3).isReady());
+    assertTrue("The document 4 should be in the cache", _adapterTable.get(doc4).isReady());
+    assertFalse("The document 6 should now be out of the cache", _adapterTable.get(doc6).isReady());
+    assertFalse("The document 5 should now be out of the cache", _adapterTable.get(doc5).isReady());
     assertFalse("The document 1 should still be out of the cache", _adapterTable.get(doc1).isReady());
   }
   
+  /** Writes n lines of text to a new temporary file. */
+  private File tempFile(int i, int n) throws IOException {
+    File f = tempFile(i);
+    StringBuilder sb = new StringBuilder();
+    for (int j = 0; j < n; j++) sb.append("// line ").append(j).append('\n');
+    IOUtil.writeStringToFile(f, sb.toString());
+    return f;
+  }
+  
+  public void testByteBudget() throws IOException {
+    _cache.setCacheSize(10);
+    OpenDefinitionsDocument doc1 = openFile(tempFile(1, 100));
+    OpenDefinitionsDocument doc2 = openFile(tempFile(2, 100));
+    OpenDefinitionsDocument doc3 = openFile(tempFile(3, 100));
+    // room for two of the three documents
+    _cache.setByteBudget(5L * doc1.getLength() * DocumentCache.BYTES_PER_CHAR / 2);
+    
+    doc1.getCurrentLine();
+    doc2.getCurrentLine();
+    assertEquals("There should be 2 documents in the cache", 2, _cache.getNumInCache());
+    doc3.getCurrentLine();
+    assertEquals("There should still be 2 documents in the cache", 2, _cache.getNumInCache());
+    assertFalse("The document 1 should have been kicked out of the cache", _adapterTable.get(doc1).isReady());
+    
+    DocumentCache.Statistics before = _cache.getStatistics();
+    doc1.getCurrentLine();
+    DocumentCache.Statistics after = _cache.getStatistics();
+    assertEquals("Document 1 should have been reconstructed", before.getReconstructions() + 1, 
+                 after.getReconstructions());
+    assertFalse("The document 2 should have been kicked out of the cache", _adapterTable.get(doc2).isReady());
+    assertTrue("Evictions should be counted", after.getEvictions() > before.getEvictions());
+  }
+  
+  public void testRetentionPolicy() throws IOException {
+    _cache.setCacheSize(2);
+    final OpenDefinitionsDocument doc1 = openFile(tempFile(1, 10));
+    OpenDefinitionsDocument doc2 = openFile(tempFile(2, 10));
+    OpenDefinitionsDocument doc3 = openFile(tempFile(3, 10));
+    _cache.setRetentionPolicy(new edu.rice.cs.plt.lambda.Predicate<OpenDefinitionsDocument>() {
+      public boolean contains(OpenDefinitionsDocument odd) { return odd == doc1; }
+    });
+    
+    doc1.getCurrentLine();
+    doc2.getCurrentLine();
+    doc3.getCurrentLine(); // 1 3
+    assertTrue("The retained document 1 should still be in the cache", _adapterTable.get(doc1).isReady());
+    assertFalse("The document 2 should have been kicked out of the cache", _adapterTable.get(doc2).isReady());
+    assertTrue("The document 3 should be in the cache", _adapterTable.get(doc3).isReady());
+  }
+
+  public void testBookmarkRetention() throws IOException {
+    _cache.setCacheSize(2);
+    OpenDefinitionsDocument doc1 = openFile(tempFile(1, 10));
+    OpenDefinitionsDocument doc2 = openFile(tempFile(2, 10));
+    OpenDefinitionsDocument doc3 = openFile(tempFile(3, 10));
+    RegionManager<MovingDocumentRegion> bookmarks = _model.getBookmarkManager();
+    MovingDocumentRegion bookmark = new MovingDocumentRegion(doc1, 0, 1, 0, 1);
+    bookmarks.addRegion(bookmark);
+
+    doc1.getCurrentLine();
+    doc2.getCurrentLine();
+    doc3.getCurrentLine(); // 1 3
+    assertTrue("The bookmarked document 1 should still be in the cache", _adapterTable.get(doc1).isReady());
+    assertFalse("The document 2 should have been kicked out of the cache", _adapterTable.get(doc2).isReady());
+
+    bookmarks.removeRegion(bookmark);
+    doc2.getCurrentLine(); // 3 2
+    assertFalse("The document 1 should have been kicked out of the cache", _adapterTable.get(doc1).isReady());
+    assertTrue("The document 3 should be in the cache", _adapterTable.get(doc3).isReady());
+  }
+
   public void testGetDDocFromCache() throws BadLocationException, IOException, OperationCanceledException {
     File file1 = tempFile(1);
     File file2 = tempFile(2);
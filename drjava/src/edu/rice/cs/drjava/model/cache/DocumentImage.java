@@ -0,0 +1,192 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.drjava.model.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.SoftReference;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import edu.rice.cs.util.FileOps;
+import edu.rice.cs.util.Log;
+import edu.rice.cs.util.UnexpectedException;
+
+/** The saved text of a virtualized DefinitionsDocument.  A plain String image of every virtualized document costs
+  * about as much heap as the resident document did, so an image is kept in one of two compact forms:
+  * <ul>
+  * <li><i>file-backed</i>: the document is unmodified and its file has not changed since it was read or saved.  No
+  *     text is retained; it is re-read from disk on demand.  If the file has changed in the meantime, its current
+  *     contents are returned, and the model detects the change through the document's timestamp and offers to revert
+  *     in the usual way (which is a no-op for an unmodified document).  A file that has been deleted is reported when
+  *     the document is reconstructed; until then, it reads as empty, like a file that could never be read.</li>
+  * <li><i>compressed</i>: the text is retained as Deflate-compressed UTF-8, favoring speed over size.</li>
+  * </ul>
+  * In both cases the most recently decoded text is held through a SoftReference, so repeated queries on a virtualized
+  * document (e.g. getLength followed by getText) do not decode it again unless the heap is under pressure.
+  * Instances are immutable apart from this soft cache and are safe to use from multiple threads.
+  */
+public abstract class DocumentImage {
+  
+  /** Log file. */
+  private static final Log _log = new Log("DocumentImage.txt", false);
+  
+  /** Number of chars in the image when it was saved. */
+  private final int _length;
+  
+  /** Most recently decoded text, or null; may be cleared by the garbage collector at any time. */
+  private volatile SoftReference<String> _text = null;
+  
+  private DocumentImage(String text) { _length = text.length(); }
+  
+  /** Creates an image that retains no text and re-reads the given file on demand.  The caller must ensure that text
+    * is the current contents of file as returned by FileOps.readFileAsSwingText.
+    * @param file the file backing this image
+    * @param text the current text of the file
+    * @return a file-backed image
+    */
+  public static DocumentImage fileBacked(File file, String text) { return new FileBacked(file, text); }
+  
+  /** Creates an image that retains text in compressed form.
+    * @param text the text to retain
+    * @return a compressed image
+    */
+  public static DocumentImage compressed(String text) { return new Compressed(text); }
+  
+  /** @return the number of chars in this image when it was saved, without decoding it */
+  public int length() { return _length; }
+  
+  /** @return the text of this image; never null */
+  public String getText() {
+    final SoftReference<String> ref = _text;
+    String text = (ref == null) ? null : ref.get();
+    if (text != null) return text;
+    text = decode();
+    _text = new SoftReference<String>(text);
+    return text;
+  }
+  
+  /** @return the number of bytes of text retained on the heap by this image, excluding the soft cache */
+  public abstract int retainedBytes();
+  
+  /** @return true if this image retains no text and reads it from disk on demand */
+  public abstract boolean isFileBacked();
+  
+  /** Reconstructs the text of this image. */
+  protected abstract String decode();
+  
+  public String toString() {
+    return getClass().getSimpleName() + "[" + _length + " chars, " + retainedBytes() + " bytes]";
+  }
+  
+  /** An image that re-reads its file on demand. */
+  private static class FileBacked extends DocumentImage {
+    private final File _file;
+    private final long _fileLength;
+    private final long _lastModified;
+    
+    FileBacked(File file, String text) {
+      super(text);
+      _file = file;
+      _fileLength = file.length();
+      _lastModified = file.lastModified();
+    }
+    
+    public int retainedBytes() { return 0; }
+    public boolean isFileBacked() { return true; }
+    
+    /** Reads the file again, even if it has changed behind DrJava's back. */
+    protected String decode() {
+      if (_file.length() != _fileLength || _file.lastModified() != _lastModified) {
+        _log.log(_file + " changed on disk since its image was saved");
+      }
+      try { return FileOps.readFileAsSwingText(_file); }
+      catch(IOException e) {
+        _log.log("Could not re-read " + _file, e);
+        return "";
+      }
+    }
+  }
+  
+  /** An image retained as Deflate-compressed UTF-8. */
+  private static class Compressed extends DocumentImage {
+    private final byte[] _data;
+    private final int _byteLength;
+    
+    Compressed(String text) {
+      super(text);
+      byte[] bytes = _utf8(text);
+      _byteLength = bytes.length;
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try {
+        deflater.setInput(bytes);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+        byte[] buf = new byte[8192];
+        while (! deflater.finished()) {
+          int n = deflater.deflate(buf);
+          out.write(buf, 0, n);
+        }
+        _data = out.toByteArray();
+      }
+      finally { deflater.end(); }
+    }
+    
+    public int retainedBytes() { return _data.length; }
+    public boolean isFileBacked() { return false; }
+    
+    protected String decode() {
+      Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(_data);
+        byte[] bytes = new byte[_byteLength];
+        int off = 0;
+        while (off < bytes.length) {
+          int n = inflater.inflate(bytes, off, bytes.length - off);
+          if (n == 0 && (inflater.finished() || inflater.needsInput())) break;
+          off += n;
+        }
+        if (off != bytes.length) throw new UnexpectedException("Truncated document image");
+        return new String(bytes, "UTF-8");
+      }
+      catch(DataFormatException e) { throw new UnexpectedException(e); }
+      catch(UnsupportedEncodingException e) { throw new UnexpectedException(e); }
+      finally { inflater.end(); }
+    }
+    
+    private static byte[] _utf8(String text) {
+      try { return text.getBytes("UTF-8"); }
+      catch(UnsupportedEncodingException e) { throw new UnexpectedException(e); }
+    }
+  }
+}
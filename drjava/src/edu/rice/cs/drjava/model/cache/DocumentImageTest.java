@@ -0,0 +1,79 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.drjava.model.cache;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import edu.rice.cs.plt.io.IOUtil;
+
+/** Tests the compressed and file-backed forms of DocumentImage. */
+public class DocumentImageTest extends TestCase {
+  
+  private static String _sampleText(String comment) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 500; i++) sb.append("  public int field").append(i).append(" = ").append(i).append("; // ").append(comment).append('\n');
+    return sb.toString();
+  }
+  
+  public void testCompressedRoundTrip() {
+    String text = _sampleText("caf\u00e9 \u03bb");  // non-ASCII text must survive the UTF-8 encoding
+    DocumentImage image = DocumentImage.compressed(text);
+    assertFalse(image.isFileBacked());
+    assertEquals(text.length(), image.length());
+    assertTrue("image should be much smaller than its text", image.retainedBytes() < text.length() / 4);
+    assertEquals(text, image.decode());
+    assertEquals(text, image.getText());
+    
+    DocumentImage empty = DocumentImage.compressed("");
+    assertEquals("", empty.decode());
+  }
+  
+  public void testFileBacked() throws IOException {
+    File f = IOUtil.createAndMarkTempFile("image", ".java");
+    String text = _sampleText("field");
+    IOUtil.writeStringToFile(f, text);
+    DocumentImage image = DocumentImage.fileBacked(f, text);
+    assertTrue(image.isFileBacked());
+    assertEquals("no text retained", 0, image.retainedBytes());
+    assertEquals(text.length(), image.length());
+    assertEquals(text, image.decode());
+    
+    // a file changed behind our back is read as it is now; the model offers to revert the document
+    IOUtil.writeStringToFile(f, "class A { }\n");
+    assertEquals("class A { }\n", image.decode());
+    
+    // a file that has been deleted reads as empty, like a file that could never be read
+    assertTrue(f.delete());
+    assertEquals("", image.decode());
+  }
+}
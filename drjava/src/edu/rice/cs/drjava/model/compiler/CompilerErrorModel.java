@@ -32,10 +32,12 @@ import java.io.File;
 import java.io.IOException;
 import javax.swing.text.*;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.LinkedList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Set;
 
 import edu.rice.cs.drjava.model.DJError;
 import edu.rice.cs.drjava.model.DummyGlobalModel;
@@ -92,6 +94,9 @@ public class CompilerErrorModel {
     */
   private final HashMap<File, StartAndEndIndex> _filesToIndexes = new HashMap<File, StartAndEndIndex>();
   
+  /** The documents with errors that have positions, published by _calculatePositions once all positions are known. */
+  private volatile Set<OpenDefinitionsDocument> _docsWithPositions = Collections.emptySet();
+  
   /** The global model which created/controls this object. */
   private final GlobalModel _model;
   
@@ -307,6 +312,14 @@ public class CompilerErrorModel {
     return true;
   }
   
+  /** Tells if the given document had errors with source locations when their positions were calculated.  Unlike
+    * hasErrorsWithPositions, this method only looks up the document in a precomputed set: it performs no file I/O and
+    * may be called while holding locks (e.g., by the DocumentCache residency predicate).
+    * @param odd the document to check
+    * @return true if odd contains errors with source locations; false otherwise (or if positions are not yet known)
+    */
+  public boolean isDocumentWithPositions(OpenDefinitionsDocument odd) { return _docsWithPositions.contains(odd); }
+  
   /** Checks whether all CompilerErrors contained here are actually warnings. This would indicate that there were no
     * "real" errors, so output is valid.
     * @return false if any error contained here is not a warning, true otherwise
@@ -329,6 +342,7 @@ public class CompilerErrorModel {
   
   /** Create array of positions where each error occurred. Positions are related their corresponding documents. */
   private void _calculatePositions() {
+    final HashSet<OpenDefinitionsDocument> docsWithPositions = new HashSet<OpenDefinitionsDocument>();
     try {
       int curError = 0;
       
@@ -429,8 +443,10 @@ public class CompilerErrorModel {
           try { file = file.getCanonicalFile(); }
           catch (IOException ioe) { /* Oh well, store it as is */ }
           _filesToIndexes.put(file, new StartAndEndIndex(fileStartIndex, fileEndIndex));
+          docsWithPositions.add(document);
         }
       }
+      _docsWithPositions = docsWithPositions;
     }
     catch (BadLocationException ble) { throw new UnexpectedException(ble); }
     catch (StringIndexOutOfBoundsException e) { throw new UnexpectedException(e); }
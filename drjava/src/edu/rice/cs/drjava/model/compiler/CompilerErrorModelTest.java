@@ -311,6 +311,7 @@ public final class CompilerErrorModelTest extends DrJavaTestCase {
     // Doc with errors
     OpenDefinitionsDocument doc = getter.getDocumentForFile(files[4]);
     assertTrue("File should have errors with lines.", model.hasErrorsWithPositions(doc));
+    assertTrue("Document should have errors with lines.", model.isDocumentWithPositions(doc));
     
     // Same doc with a different (but equivalent) file name
     doc.setFile(new File("/tmp/./nowhere5"));
@@ -319,6 +320,7 @@ public final class CompilerErrorModelTest extends DrJavaTestCase {
     // Doc without errors
     doc = getter.getDocumentForFile(files[1]);
     assertTrue("File shouldn't have errors with lines.", !model.hasErrorsWithPositions(doc));
+    assertTrue("Document shouldn't have errors with lines.", !model.isDocumentWithPositions(doc));
   }
   
   public void testErrorsInMultipleDocuments() throws IOException, OperationCanceledException {
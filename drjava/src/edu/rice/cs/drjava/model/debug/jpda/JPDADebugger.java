@@ -32,6 +32,8 @@ import java.awt.EventQueue;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.TreeMap;
@@ -99,6 +101,9 @@ public class JPDADebugger implements Debugger {
   
   private static final String NEW_INSTANCE_SIG = "(Ljava/lang/Class;I)Ljava/lang/Object;";
   
+  /** Maximum number of stack frames fetched for the stack table; deeper frames are summarized in one entry. */
+  static final int MAX_STACK_FRAMES = 256;
+  
   /** Reference to DrJava's model. */
   private volatile GlobalModel _model;
   
@@ -135,6 +140,20 @@ public class JPDADebugger implements Debugger {
   
   /*Determines whether automatic trace has been enabled*/
   private volatile boolean _isAutomaticTraceEnabled = false;
+  
+  /** Whether the values of the watches are up to date.  Cleared whenever a thread resumes or is switched to, or an
+    * interaction ends; only accessed in the event thread. */
+  private boolean _watchesValid = false;
+  
+  /** The stack frame data of the current thread, or null if it has not been fetched since the thread was suspended.
+    * Only accessed in the event thread. */
+  private ArrayList<DebugStackData> _stackFrameCache = null;
+  
+  /** The thread whose frames are in _stackFrameCache. */
+  private ThreadReference _stackFrameCacheThread = null;
+  
+  /** Classes in the debuggee VM by name, as returned by _getClass.  Cleared when the VM changes. */
+  private final HashMap<String, ReferenceType> _classCache = new HashMap<String, ReferenceType>();
       
   /** Builds a new JPDADebugger to debug code in the Interactions JVM, using 
    * the JPDA/JDI interfaces.
@@ -152,7 +171,10 @@ public class JPDADebugger implements Debugger {
     _eventHandlerError = null;
     
     _watchListener = new DummyInteractionsListener() {
-      public void interactionEnded() { _updateWatches(); }
+      public void interactionEnded() { 
+        _watchesValid = false;
+        _updateWatches(); 
+      }
     };
   }
   
@@ -274,6 +296,8 @@ public class JPDADebugger implements Debugger {
         _suspendedThreads = new RandomAccessStack();
         _eventManager = null;
         _runningThread = null;
+        _invalidateThreadState();
+        synchronized(_classCache) { _classCache.clear(); }
         _updateWatches();
       }
     }
@@ -512,7 +536,9 @@ public class JPDADebugger implements Debugger {
     
     final DebugWatchData w = new DebugWatchData(field);
     _watches.add(w);
-    _updateWatches();
+    // only the new watch needs to be evaluated
+    if (_watchesValid) { _updateWatches(Collections.singletonList(w)); }
+    else { _updateWatches(); }
     
 //    Utilities.invokeLater(new Runnable() { public void run() { 
       _notifier.watchSet(w); 
@@ -752,19 +778,30 @@ public class JPDADebugger implements Debugger {
       throw new DebugException("No suspended thread to obtain stack frames.");
     }
     
+    ThreadReference thread = _suspendedThreads.peek();
+    // the frames can't change until the thread resumes, so reuse the last result
+    if (_stackFrameCache != null && thread.equals(_stackFrameCacheThread)) {
+      return new ArrayList<DebugStackData>(_stackFrameCache);
+    }
+    
     try {
-      ThreadReference thread = _suspendedThreads.peek();
       ArrayList<DebugStackData> frames = new ArrayList<DebugStackData>();
       // get a list of language level files whose line numbers need to be translated 
       final List<File> files = new ArrayList<File>();
       for (OpenDefinitionsDocument odd: _model.getLLOpenDefinitionsDocuments()) { files.add(odd.getRawFile()); }
-      for (StackFrame f : thread.frames()) {
+      // fetch only the frames that are displayed, in one request
+      int count = thread.frameCount();
+      int fetched = Math.min(count, MAX_STACK_FRAMES);
+      for (StackFrame f : thread.frames(0, fetched)) {
         // map Java line numbers to LL line numbers
         String method = JPDAStackData.methodName(f);
         StackTraceElement ste = getLLStackTraceElement(f.location(), files);
         frames.add(new JPDAStackData(method, ste.getLineNumber()));
       }
-      return frames;
+      if (count > fetched) { frames.add(new JPDAStackData("... " + (count - fetched) + " more frames", -1)); }
+      _stackFrameCache = frames;
+      _stackFrameCacheThread = thread;
+      return new ArrayList<DebugStackData>(frames);
     }
     catch (IncompatibleThreadStateException itse) {
       error.log("Unable to obtain stack frame.", itse);
@@ -1245,6 +1282,7 @@ public class JPDADebugger implements Debugger {
     if (!fromStep) {
       // Copy variables back into the thread
       _copyVariablesFromInterpreter();
+      _watchesValid = false;
       _updateWatches();
     }
     try {
@@ -1430,41 +1468,38 @@ public class JPDADebugger implements Debugger {
     }
   }
   
-  /** Updates the stored value of each watched field and variable. Synchronization is necessary because this method is 
-    * called from unsynchronized listeners. */
+  /** Marks the watch values and the cached stack frames as out of date, because the current thread has changed or
+    * may have run.
+    */
+  private void _invalidateThreadState() {
+    _watchesValid = false;
+    _stackFrameCache = null;
+    _stackFrameCacheThread = null;
+  }
+  
+  /** Updates the stored value of each watched field and variable, unless they are already up to date. */
   private /* synchronized */ void _updateWatches() {
     assert EventQueue.isDispatchThread();
-    if (! isReady()) return;
+    if (! isReady() || _watchesValid) return;
+    _updateWatches(_watches);
+    _watchesValid = true;
+  }
+  
+  /** Updates the stored values of the given watches, fetching all of them from the interpreter in one request. 
+    * @param watches the watches to update
+    */
+  private void _updateWatches(List<DebugWatchData> watches) {
+    assert EventQueue.isDispatchThread();
+    if (! isReady() || watches.isEmpty()) return;
+    
+    List<String> names = new ArrayList<String>(watches.size());
+    for (DebugWatchData w : watches) { names.add(w.getName()); }
+    List<Pair<String,String>> values = _model.getInteractionsModel().getVariablesToString(names);
     
-    for (DebugWatchData w : _watches) {
-      String name = w.getName();
-      String val = "";
-      String type = "";
-//      ArrayList<Integer> arr_index = new ArrayList<Integer>();
-//      
-//      if (name.indexOf("[") != -1 && name.indexOf("]") != -1) {
-//        name = name.substring(0, name.indexOf("["));
-//        arr_index.add(Integer.parseInt(w.getName().substring(w.getName().indexOf("[")+1, w.getName().indexOf("]"))));      
-//        if (w.getName().indexOf("]")<(w.getName().length()-1)) {
-//          String iter = w.getName().substring(w.getName().indexOf("]")+1, w.getName().length());
-//          while(iter.indexOf("[") != -1 && iter.indexOf("]") != -1) {
-//            arr_index.add(Integer.parseInt(iter.substring(iter.indexOf("[")+1, iter.indexOf("]"))));      
-//            if (iter.indexOf("]")<(iter.length()-1))
-//              iter = iter.substring(iter.indexOf("]")+1, iter.length());
-//            else 
-//              iter = "";
-//          }
-//        }
-//      }
-//     
-//      int [] indices = new int[arr_index.size()];
-//      for (int i = 0; i < arr_index.size(); i++) {
-//        indices[i] = arr_index.get(i);
-//      }
-      Pair<String,String> pair = _model.getInteractionsModel().getVariableToString(name);
-      // System.out.println("pair == null? "+(pair == null));
-      val = pair.first();
-      type = pair.second();
+    for (int i = 0; i < watches.size(); i++) {
+      DebugWatchData w = watches.get(i);
+      String val = values.get(i).first();
+      String type = values.get(i).second();
       
       if (val == null) { w.setNoValue(); }
       else { w.setValue(val); }
@@ -1682,16 +1717,25 @@ public class JPDADebugger implements Debugger {
    * @throws DebugException  If no loaded class has the given name.
    */
   private ReferenceType _getClass(String name) throws DebugException {
+    synchronized(_classCache) {
+      ReferenceType cached = _classCache.get(name);
+      if (cached != null && cached.virtualMachine() == _vm && cached.isPrepared()) { return cached; }
+    }
     List<ReferenceType> classes = _vm.classesByName(name);
     if (classes.isEmpty()) {
       throw new DebugException("Class '" + name + "' is not loaded");
     }
     else {
+      ReferenceType result = classes.get(0);
       for (ReferenceType t : classes) {
         // class loader is null iff it comes from the bootstrap loader
-        if (t.classLoader() == null) { return t; }
+        if (t.classLoader() == null) { result = t; break; }
+      }
+      // only bootstrap classes are cached, since other classes may be unloaded
+      if (result.classLoader() == null) {
+        synchronized(_classCache) { _classCache.put(name, result); }
       }
-      return classes.get(0);
+      return result;
     }
   }
   
@@ -1747,6 +1791,7 @@ public class JPDADebugger implements Debugger {
   private void _switchToSuspendedThread(BreakpointRequest request, boolean updateWatches) throws DebugException {
     _log.log(this + " executing _switchToSuspendedThread()");
     _runningThread = null;
+    _invalidateThreadState();
     if (updateWatches) _updateWatches();
     final ThreadReference currThread = _suspendedThreads.peek();
     _notifier.currThreadSuspended();
@@ -1879,6 +1924,7 @@ public class JPDADebugger implements Debugger {
    */
   private void _currThreadResumed() throws DebugException {
     _log.log(this + " is executing _currThreadResumed()");
+    _invalidateThreadState();
     EventQueue.invokeLater(new Runnable() { public void run() { _notifier.currThreadResumed(); } });
   }
   
@@ -1906,6 +1952,7 @@ public class JPDADebugger implements Debugger {
     printMessage("The current thread has finished.");
     _runningThread = null;
     
+    _invalidateThreadState();
     _updateWatches();
     
     if (_suspendedThreads.size() > 0) {
@@ -29,7 +29,19 @@
 package edu.rice.cs.drjava.model.definitions;
 
 import java.awt.EventQueue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import javax.swing.undo.*;
 
 import edu.rice.cs.drjava.model.GlobalEventNotifier;
@@ -39,6 +51,12 @@ import edu.rice.cs.drjava.model.GlobalEventNotifier;
   * in UndoManager.  The public methods that involve composite state are synchronized, so this manager can be accessed
   * outside of the event thread.  The internal data structures _compoundEdits and _keys are not thread safe but they
   * only accessed only by synchronized methods.  The synchronization scheme (locking on this) follows UndoManager.
+  * <p>
+  * Document edits whose text has been reported through {@link #textChanged} are wrapped in groups that record the 
+  * estimated memory they retain.  Adjacent single-character insertions are coalesced into one typing run that is undone
+  * as a unit.  When the edits held in memory exceed the byte budget, the oldest undoable edits are either written to an
+  * on-disk journal (if journaling has been enabled for a document) or discarded.  A journaled edit is undone by
+  * applying the inverse of its recorded text changes to the document, so undo and redo never scan the history.</p>
   * @version $Id$
   */
 public class CompoundUndoManager extends UndoManager {
@@ -64,6 +82,44 @@ public class CompoundUndoManager extends UndoManager {
   /** Keeps track of the listeners to this undo manager. */
   private final GlobalEventNotifier _notifier;
   
+  /** The default bound on the estimated size of the edits held in memory. */
+  public static final long DEFAULT_BYTE_BUDGET = 4L << 20;
+  
+  /** Estimated fixed cost of an edit (the edit objects, element edits, and reduced model commands). */
+  private static final int EDIT_OVERHEAD = 256;
+  
+  /** Estimated cost of a changed char; the text is held by the document content edit and the reduced model command. */
+  private static final int BYTES_PER_CHAR = 4;
+  
+  /** The bound on the estimated size of the edits held in memory. */
+  private volatile long _byteBudget = DEFAULT_BYTE_BUDGET;
+  
+  /** The estimated size of the edits held in memory. */
+  private volatile long _bytes = 0;
+  
+  /** The document whose journaled edits are undone and redone; null unless journaling is enabled. */
+  private volatile Document _journalDoc = null;
+  
+  /** The journal file, created on the first spill. */
+  private volatile File _journalFile = null;
+  private volatile RandomAccessFile _journal = null;
+  
+  /** The number of JournalEdits in edits; they always form a prefix of edits, in ascending order of position. */
+  private volatile int _journaledEdits = 0;
+  
+  /** The number of bytes of the journal used by the JournalEdits in edits. */
+  private volatile long _journaledBytes = 0;
+  
+  /** The journal is compacted when it is this long and at least half of it belongs to discarded edits. */
+  private static final long JOURNAL_COMPACTION_THRESHOLD = 64L << 10;
+  
+  /** Collects the edits generated while a JournalEdit is applied to the document; null otherwise. */
+  private volatile Group _capture = null;
+  
+  /** The document edit most recently reported by textChanged and its text change. */
+  private volatile UndoableEdit _changedEdit = null;
+  private volatile TextChange _change = null;
+  
   /** Standard constructor. 
    * @param notifier a GlobalEventNotifier
    */
@@ -82,7 +138,7 @@ public class CompoundUndoManager extends UndoManager {
     * @return the key for the compound edit
     */
   public /* synchronized */ int startCompoundEdit() {
-    _compoundEdits.add(0, new CompoundEdit());
+    _compoundEdits.add(0, new Group());
     _keys.add(0, Integer.valueOf(_nextKey));
     if (_nextKey < Integer.MAX_VALUE) _nextKey++;
     else _nextKey = Integer.MIN_VALUE;
@@ -111,7 +167,9 @@ public class CompoundUndoManager extends UndoManager {
       ce.end();
       if (ce.canUndo()) {
         if (! _compoundEditInProgress()) {
+          _bytes += _sizeOf(ce);
           super.addEdit(ce);
+          _enforceBudget();
           _notifyUndoHappened();
         }
         else {
@@ -143,17 +201,116 @@ public class CompoundUndoManager extends UndoManager {
     * @return true if the add is successful, false otherwise
     */
   public /* synchronized */ boolean addEdit(UndoableEdit e) {
+    final TextChange change = _takeChange(e);
+    if (_capture != null) return _capture.add(e, change);  // e is part of applying a journaled edit
     if (_compoundEditInProgress()) {
       //      _notifyUndoHappened(); // added this for granular undo
-      return _compoundEdits.get(0).addEdit(e);
+      final CompoundEdit ce = _compoundEdits.get(0);
+      return (ce instanceof Group) ? ((Group) ce).add(e, change) : ce.addEdit(e);
     }
     else {
-      boolean result = super.addEdit(e);
+      boolean result;
+      if (change == null) {
+        _bytes += _sizeOf(e);
+        result = super.addEdit(e);
+      }
+      else if (_extendTypingRun(e, change)) result = true;
+      else {
+        final Group g = new Group(e, change);
+        _bytes += g._bytes;
+        result = super.addEdit(g);
+      }
+      _enforceBudget();
       _notifyUndoHappened();
       return result;
     }
   }
   
+  /** Records the text change made by the document edit e, which is about to be reported to this manager.  Only edits
+    * whose text is known can be coalesced into typing runs or journaled.
+    * @param e the edit generated by the change
+    * @param insert true if text was inserted, false if it was removed
+    * @param offset the offset of the change
+    * @param text the inserted or removed text
+    */
+  public void textChanged(UndoableEdit e, boolean insert, int offset, String text) {
+    _change = new TextChange(insert, offset, text);
+    _changedEdit = e;
+  }
+  
+  /** Enables journaling of old edits of doc to disk, or disables it if doc is null.  Disabling journaling deletes the
+    * journal, so journaled edits can no longer be undone.
+    * @param doc the document whose edits this manager holds, or null
+    */
+  public /* synchronized */ void setJournalDocument(Document doc) {
+    if (doc == null) _closeJournal();
+    _journalDoc = doc;
+  }
+  
+  /** @return the bound on the estimated size of the edits held in memory */
+  public long getByteBudget() { return _byteBudget; }
+  
+  /** Sets the bound on the estimated size of the edits held in memory; the most recent edit is always kept.
+    * @param budget the new budget in bytes
+    */
+  public /* synchronized */ void setByteBudget(long budget) {
+    _byteBudget = budget;
+    _enforceBudget();
+  }
+  
+  /** @return the estimated size of the edits held in memory */
+  public long getRetainedBytes() { return _bytes; }
+  
+  /** @return the number of edits that have been written to the journal and not yet discarded */
+  public int getJournaledEditCount() { return _journaledEdits; }
+  
+  /** @return the length in bytes of the journal file, or 0 if there is none */
+  public long getJournalLength() {
+    final RandomAccessFile journal = _journal;
+    if (journal == null) return 0;
+    try { return journal.length(); }
+    catch (IOException ioe) { return 0; }
+  }
+  
+  /** @return the journal file, or null if there is none */
+  File getJournalFile() { return _journalFile; }
+  
+  /** Discards all edits and deletes the journal. */
+  public /* synchronized */ void discardAllEdits() {
+    super.discardAllEdits();  // does not go through trimEdits
+    _bytes = 0;
+    _journaledEdits = 0;
+    _journaledBytes = 0;
+    _closeJournal();
+  }
+  
+  /** Maintains the byte count and the journal as edits are removed; overrides the method in UndoManager that removes
+    * edits beyond the limit, redo edits made obsolete by a new edit, and all edits on discardAllEdits.  The journal is
+    * compacted once most of it belongs to removed edits, so it does not grow without bound in a long session.
+    * @param from the index of the first edit to remove
+    * @param to the index of the last edit to remove
+    */
+  protected void trimEdits(int from, int to) {
+    for (int i = from; i <= to; i++) {
+      final UndoableEdit e = edits.elementAt(i);
+      _bytes -= _sizeOf(e);
+      if (e instanceof JournalEdit) {
+        _journaledEdits--;
+        _journaledBytes -= ((JournalEdit) e)._length;
+      }
+    }
+    super.trimEdits(from, to);
+    if (_journal == null) return;
+    if (_journaledEdits == 0) {
+      try { _journal.setLength(0); }
+      catch (IOException ioe) { LOG.log("Could not truncate undo journal " + _journalFile, ioe); }
+    }
+    else {
+      final long length = getJournalLength();
+      if (length >= JOURNAL_COMPACTION_THRESHOLD && length > 2 * _journaledBytes) _compactJournal();
+    }
+  }
+  
   /** Returns whether or not a compound edit is in progress.
     * @return true iff in progress
     */
@@ -243,6 +400,302 @@ public class CompoundUndoManager extends UndoManager {
   
   public String toString() { return "(CompoundUndoManager: " + id + ")"; }
   
+  /** Since Java 9, AbstractDocument reports each document event to undoable edit listeners in a private wrapper, so a
+    * reported edit is matched to the preceding text change by presentation name as well as by identity.  The document
+    * reports the edit immediately after the change, under its write lock.
+    * @param e the reported edit
+    * @return the text change reported for e, if any, and forgets the reported change 
+    */
+  private TextChange _takeChange(UndoableEdit e) {
+    final UndoableEdit changed = _changedEdit;
+    final TextChange change = 
+      (changed == e || (changed != null && changed.getPresentationName().equals(e.getPresentationName()))) ? _change : null;
+    _changedEdit = null;
+    _change = null;
+    return change;
+  }
+  
+  /** Appends the single character insertion e to the most recent edit if that edit is a typing run ending at the
+    * insertion point.  A run is closed by a newline, by undo or redo, and by saving the document.
+    * @param e the edit
+    * @param change the text change made by e
+    * @return true if e was appended
+    */
+  private boolean _extendTypingRun(UndoableEdit e, TextChange change) {
+    if (! change.isTyped() || change._text.charAt(0) == '\n') return false;
+    if (edits.isEmpty() || editToBeRedone() != null) return false;
+    final UndoableEdit last = edits.lastElement();
+    if (! (last instanceof Group) || last != editToBeUndone() || last == _savePoint) return false;
+    final Group run = (Group) last;
+    if (! run._typing || run._end != change._offset) return false;
+    final long before = run._bytes;
+    run.extend(e, change);
+    _bytes += run._bytes - before;
+    return true;
+  }
+  
+  /** Journals or discards the oldest undoable edits until the edits held in memory fit within the byte budget.  The
+    * most recent undoable edit is always kept in memory.
+    */
+  private void _enforceBudget() {
+    while (_bytes > _byteBudget && _journaledEdits < _undoIndex()) {
+      final UndoableEdit e = edits.elementAt(_journaledEdits);
+      final JournalEdit je = (e instanceof Group) ? _spill((Group) e) : null;
+      if (je == null) trimEdits(0, _journaledEdits);  // older edits cannot be undone without this one
+      else {
+        _bytes += _sizeOf(je) - _sizeOf(e);
+        edits.setElementAt(je, _journaledEdits);
+        _journaledEdits++;
+        _journaledBytes += je._length;
+        if (_savePoint == e) _savePoint = je;
+      }
+    }
+  }
+  
+  /** @return the index in edits of the next edit to be undone, or -1 if there is none.  UndoManager does not expose
+    * indexOfNextAdd; the search is over the edits that can be redone, which are normally none. */
+  private int _undoIndex() {
+    final UndoableEdit e = editToBeUndone();
+    return (e == null) ? -1 : edits.lastIndexOf(e);
+  }
+  
+  /** Writes the text changes of g to the journal.
+    * @param g the group to journal
+    * @return the edit that replaces g, or null if g cannot be journaled
+    */
+  private JournalEdit _spill(Group g) {
+    final List<TextChange> changes = g._changes;
+    if (_journalDoc == null || changes == null || changes.isEmpty()) return null;
+    try {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      final DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(changes.size());
+      for (TextChange c: changes) {
+        out.writeBoolean(c._insert);
+        out.writeInt(c._offset);
+        out.writeInt(c._text.length());
+        out.writeChars(c._text);
+      }
+      out.flush();
+      if (_journal == null) {
+        _journalFile = File.createTempFile("DrJava-undo", ".journal");
+        _journalFile.deleteOnExit();
+        _journal = new RandomAccessFile(_journalFile, "rw");
+      }
+      final long position = _journal.length();
+      _journal.seek(position);
+      _journal.write(bytes.toByteArray());
+      return new JournalEdit(position, bytes.size(), g.getPresentationName());
+    }
+    catch (IOException ioe) {
+      LOG.log("Could not write undo journal " + _journalFile, ioe);
+      return null;
+    }
+  }
+  
+  /** Moves the records of the journaled edits to the front of the journal and truncates it.  The records are in the
+    * order of the edits, so each one only moves towards the front. */
+  private void _compactJournal() {
+    long end = 0;
+    try {
+      for (int i = 0; i < _journaledEdits; i++) {
+        final JournalEdit je = (JournalEdit) edits.elementAt(i);
+        if (je._position != end) {
+          final byte[] bytes = je._readBytes();
+          _journal.seek(end);
+          _journal.write(bytes);
+          je._position = end;
+        }
+        end += je._length;
+      }
+      _journal.setLength(end);
+    }
+    catch (IOException ioe) { LOG.log("Could not compact undo journal " + _journalFile, ioe); }
+  }
+  
+  /** Closes and deletes the journal file. */
+  private void _closeJournal() {
+    if (_journal == null) return;
+    try { _journal.close(); }
+    catch (IOException ioe) { LOG.log("Could not close undo journal " + _journalFile, ioe); }
+    _journalFile.delete();
+    _journal = null;
+    _journalFile = null;
+  }
+  
+  /** @param e an edit
+    * @return the estimated memory retained by e
+    */
+  private static long _sizeOf(UndoableEdit e) {
+    if (e instanceof Group) return ((Group) e)._bytes;
+    if (e instanceof JournalEdit) return ((JournalEdit) e).size();
+    if (e instanceof DocumentEvent) return EDIT_OVERHEAD + (long) BYTES_PER_CHAR * ((DocumentEvent) e).getLength();
+    return EDIT_OVERHEAD;
+  }
+  
+  /** A text insertion or removal. */
+  private static final class TextChange {
+    private final boolean _insert;
+    private final int _offset;
+    private final String _text;
+    
+    TextChange(boolean insert, int offset, String text) {
+      _insert = insert;
+      _offset = offset;
+      _text = text;
+    }
+    
+    /** @return true if this change inserts a single character */
+    boolean isTyped() { return _insert && _text.length() == 1; }
+    
+    /** @return the estimated memory retained by the edit that made this change */
+    long size() { return EDIT_OVERHEAD + (long) BYTES_PER_CHAR * _text.length(); }
+  }
+  
+  /** A compound edit that tracks its estimated size and, while journaling is enabled, the text changes of its edits. A
+    * group started by a typing insertion remains open to further adjacent typing after it has been ended. */
+  private class Group extends CompoundEdit {
+    private volatile long _bytes = 0;
+    private volatile ArrayList<TextChange> _changes = (_journalDoc == null) ? null : new ArrayList<TextChange>();
+    private volatile boolean _typing = false;
+    private volatile int _end;
+    
+    /** Creates a group for the edits of a compound edit. */
+    Group() { }
+    
+    /** Creates an ended group containing the single document edit e.
+      * @param e the edit
+      * @param change the text change made by e
+      */
+    Group(UndoableEdit e, TextChange change) {
+      add(e, change);
+      end();
+      _typing = change.isTyped() && change._text.charAt(0) != '\n';
+      _end = change._offset + 1;
+    }
+    
+    /** Adds e to this group while it is in progress.
+      * @param e the edit
+      * @param change the text change made by e, or null if unknown
+      * @return true if e was added
+      */
+    boolean add(UndoableEdit e, TextChange change) {
+      if (! super.addEdit(e)) return false;
+      _bytes += (change == null) ? _sizeOf(e) : change.size();
+      if (_changes != null) {
+        if (e instanceof Group && ((Group) e)._changes != null) _changes.addAll(((Group) e)._changes);
+        else if (change != null) _changes.add(change);
+        else _changes = null;  // this group cannot be journaled
+      }
+      return true;
+    }
+    
+    public boolean addEdit(UndoableEdit e) { return add(e, null); }
+    
+    /** Appends a typing edit to this ended group.
+      * @param e the edit
+      * @param change the text change made by e
+      */
+    void extend(UndoableEdit e, TextChange change) {
+      edits.addElement(e);
+      _bytes += change.size();
+      if (_changes != null) _changes.add(change);
+      _end++;
+    }
+    
+    public void undo() throws CannotUndoException {
+      _typing = false;
+      super.undo();
+    }
+  }
+  
+  /** An edit whose text changes have been written to the journal.  It is undone by applying the inverse of the changes
+    * to the document; the document edits generated in doing so are kept (and counted in the byte budget) only until
+    * they are undone to redo this edit. */
+  private class JournalEdit extends AbstractUndoableEdit {
+    private volatile long _position;  // moved by _compactJournal
+    private final int _length;
+    private final String _name;
+    private volatile Group _inverse = null;
+    
+    JournalEdit(long position, int length, String name) {
+      _position = position;
+      _length = length;
+      _name = name;
+    }
+    
+    public String getPresentationName() { return _name; }
+    
+    /** @return the estimated memory retained by this edit */
+    long size() {
+      final Group inverse = _inverse;
+      return EDIT_OVERHEAD + ((inverse == null) ? 0 : inverse._bytes);
+    }
+    
+    public void undo() throws CannotUndoException {
+      super.undo();
+      final Document doc = _journalDoc;
+      if (doc == null || _journal == null) throw new CannotUndoException();  // the journal has been deleted
+      final Group inverse = new Group();
+      _capture = inverse;
+      try {
+        final List<TextChange> changes = _read();
+        for (int i = changes.size() - 1; i >= 0; i--) {
+          final TextChange c = changes.get(i);
+          if (c._insert) doc.remove(c._offset, c._text.length());
+          else doc.insertString(c._offset, c._text, null);
+        }
+      }
+      catch (IOException ioe) { throw _cannotUndo(ioe); }
+      catch (BadLocationException ble) { throw _cannotUndo(ble); }
+      finally {
+        _capture = null;
+        inverse.end();
+      }
+      _inverse = inverse;
+      _bytes += inverse._bytes;
+    }
+    
+    public void redo() throws CannotRedoException {
+      super.redo();
+      final Group inverse = _inverse;
+      inverse.undo();
+      _inverse = null;  // the next undo reads the journal again
+      _bytes -= inverse._bytes;
+    }
+    
+    private CannotUndoException _cannotUndo(Exception e) {
+      LOG.log("Could not undo journaled edit", e);
+      final CannotUndoException cue = new CannotUndoException();
+      cue.initCause(e);
+      return cue;
+    }
+    
+    /** @return the record of this edit in the journal */
+    private byte[] _readBytes() throws IOException {
+      final byte[] bytes = new byte[_length];
+      _journal.seek(_position);
+      _journal.readFully(bytes);
+      return bytes;
+    }
+    
+    /** @return the text changes of this edit, read from the journal */
+    private List<TextChange> _read() throws IOException {
+      final byte[] bytes = _readBytes();
+      final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+      final int n = in.readInt();
+      final ArrayList<TextChange> changes = new ArrayList<TextChange>(n);
+      for (int i = 0; i < n; i++) {
+        final boolean insert = in.readBoolean();
+        final int offset = in.readInt();
+        final char[] text = new char[in.readInt()];
+        for (int j = 0; j < text.length; j++) text[j] = in.readChar();
+        changes.add(new TextChange(insert, offset, new String(text)));
+      }
+      return changes;
+    }
+  }
+  
   /** Used to help track down memory leaks. */
   //  protected void finalize() throws Throwable{
   //    super.finalize();
@@ -0,0 +1,210 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.drjava.model.definitions;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+import edu.rice.cs.drjava.model.GlobalEventNotifier;
+
+import java.io.File;
+
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+
+/** Tests typing coalescing, the byte budget, and the undo journal of CompoundUndoManager.
+  * @version $Id$
+  */
+public final class CompoundUndoManagerTest extends DrJavaTestCase {
+  
+  private CompoundUndoManager _manager;
+  private TestDocument _doc;
+  
+  /** A document that reports its text changes to the undo manager as DefinitionsDocument does. */
+  private class TestDocument extends PlainDocument {
+    protected void insertUpdate(DefaultDocumentEvent chng, AttributeSet attr) {
+      super.insertUpdate(chng, attr);
+      _textChanged(chng, true);
+    }
+    protected void removeUpdate(DefaultDocumentEvent chng) {
+      _textChanged(chng, false);
+      super.removeUpdate(chng);
+    }
+    private void _textChanged(DefaultDocumentEvent chng, boolean insert) {
+      try { _manager.textChanged(chng, insert, chng.getOffset(), getText(chng.getOffset(), chng.getLength())); }
+      catch (BadLocationException e) { fail(e.toString()); }
+    }
+    String text() throws BadLocationException { return getText(0, getLength()); }
+  }
+  
+  public void setUp() throws Exception {
+    super.setUp();
+    _manager = new CompoundUndoManager(new GlobalEventNotifier());
+    _doc = new TestDocument();
+    _doc.addUndoableEditListener(_manager);
+  }
+  
+  public void tearDown() throws Exception {
+    _manager.discardAllEdits();
+    super.tearDown();
+  }
+  
+  private void _type(int offset, String text) throws BadLocationException {
+    for (int i = 0; i < text.length(); i++) _doc.insertString(offset + i, text.substring(i, i + 1), null);
+  }
+  
+  /** Tests that adjacent typing is undone as a unit and that a newline or a save ends a typing run. */
+  public void testTypingRuns() throws BadLocationException {
+    _type(0, "abc\nde");
+    _manager.documentSaved();
+    _type(6, "fg");
+    _type(2, "x");
+    assertEquals("abxc\ndefg", _doc.text());
+    
+    _manager.undo();
+    assertEquals("non-adjacent typing", "abc\ndefg", _doc.text());
+    _manager.undo();
+    assertEquals("typing after save", "abc\nde", _doc.text());
+    assertFalse("back at save point", _manager.isModified());
+    _manager.undo();
+    assertEquals("typing after newline", "abc\n", _doc.text());
+    _manager.undo();
+    assertEquals("newline", "abc", _doc.text());
+    _manager.undo();
+    assertEquals("first run", "", _doc.text());
+    assertFalse(_manager.canUndo());
+    
+    _manager.redo();
+    _manager.redo();
+    _type(4, "z");
+    assertEquals("a redone run is not extended", "abc\nz", _doc.text());
+    _manager.undo();
+    assertEquals("abc\n", _doc.text());
+  }
+  
+  /** Tests that without a journal, edits beyond the byte budget are discarded. */
+  public void testByteBudgetDiscardsOldEdits() throws BadLocationException {
+    _manager.setByteBudget(0);
+    _doc.insertString(0, "one ", null);
+    _doc.insertString(4, "two ", null);
+    _doc.insertString(8, "three", null);
+    assertEquals(0, _manager.getJournaledEditCount());
+    _manager.undo();
+    assertEquals("one two ", _doc.text());
+    assertFalse("older edits discarded", _manager.canUndo());
+  }
+  
+  /** Tests that journaled edits are undone and redone like edits held in memory. */
+  public void testJournaledEdits() throws BadLocationException {
+    _manager.setJournalDocument(_doc);
+    String[] states = new String[8];
+    states[0] = _doc.text();
+    _doc.insertString(0, "class A {\n}\n", null);
+    states[1] = _doc.text();
+    _type(9, " int x;");
+    states[2] = _doc.text();
+    _doc.remove(0, 6);
+    states[3] = _doc.text();
+    _doc.insertString(0, "interface", null);
+    states[4] = _doc.text();
+    int key = _manager.startCompoundEdit();
+    _doc.remove(10, 7);
+    _doc.insertString(10, "void f();", null);
+    _manager.endCompoundEdit(key);
+    states[5] = _doc.text();
+    _doc.insertString(_doc.getLength(), "\u00e9\u03bb\n", null);
+    states[6] = _doc.text();
+    _manager.setByteBudget(0);
+    assertEquals("all but the last edit journaled", 5, _manager.getJournaledEditCount());
+    _doc.remove(0, 9);
+    states[7] = _doc.text();
+    assertEquals(6, _manager.getJournaledEditCount());
+    
+    for (int round = 0; round < 2; round++) {
+      for (int i = 7; i > 0; i--) {
+        _manager.undo();
+        assertEquals("undo " + i + " in round " + round, states[i - 1], _doc.text());
+      }
+      assertFalse(_manager.canUndo());
+      for (int i = 1; i < 8; i++) {
+        _manager.redo();
+        assertEquals("redo " + i + " in round " + round, states[i], _doc.text());
+      }
+    }
+    
+    _manager.undo();
+    _manager.undo();
+    _doc.insertString(0, "x", null);
+    assertEquals("redo edits trimmed", 5, _manager.getJournaledEditCount());
+    _manager.discardAllEdits();
+    assertEquals(0, _manager.getJournaledEditCount());
+    assertEquals(0, _manager.getRetainedBytes());
+  }
+  
+  /** Tests that the journal is compacted as old journaled edits are trimmed, and that the inverses of undone journaled
+    * edits are counted in the retained bytes. */
+  public void testJournalCompaction() throws BadLocationException {
+    _manager.setJournalDocument(_doc);
+    _manager.setByteBudget(0);
+    _manager.setLimit(10);
+    final StringBuilder line = new StringBuilder();
+    for (int i = 0; i < 1000; i++) line.append('x');
+    line.append('\n');
+    for (int i = 0; i < 200; i++) _doc.insertString(_doc.getLength(), line.toString(), null);
+    assertEquals("all but the last edit journaled", 9, _manager.getJournaledEditCount());
+    // each journaled insertion takes about 2 * line.length() bytes; without compaction the journal would hold 199
+    assertTrue("journal compacted", _manager.getJournalLength() < 50 * line.length() * 2);
+    
+    final long before = _manager.getRetainedBytes();
+    _manager.undo();
+    _manager.undo();
+    assertTrue("inverse of the undone journaled edit is counted", _manager.getRetainedBytes() > before);
+    _manager.redo();
+    _manager.redo();
+    assertEquals(before, _manager.getRetainedBytes());
+    assertEquals(200 * line.length(), _doc.getLength());
+  }
+  
+  /** Tests that closing a DefinitionsDocument deletes the journal of its undo manager. */
+  public void testCloseDeletesJournal() throws BadLocationException {
+    final DefinitionsDocument doc = new DefinitionsDocument(new GlobalEventNotifier());
+    final CompoundUndoManager manager = doc.getUndoManager();
+    doc.addUndoableEditListener(manager);
+    manager.setByteBudget(0);
+    for (int i = 0; i < 5; i++) doc.insertString(doc.getLength(), "int x" + i + " = " + i + ";\n", null);
+    final File journal = manager.getJournalFile();
+    assertNotNull("edits journaled", journal);
+    assertTrue(journal.exists());
+    
+    doc.close();
+    assertFalse("journal deleted", journal.exists());
+    assertNull(manager.getJournalFile());
+    assertEquals(0, manager.getJournalLength());
+  }
+}
@@ -36,6 +36,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.lang.ref.WeakReference;
 
 import java.io.Reader;
@@ -80,9 +81,10 @@ public class DefinitionsDocument extends AbstractDJDocument implements Finalizab
   // begin debug code
   
   /** Closes this DefinitionsDocument (but not the enclosing OpenDefinitionsDocument).  Called when this is kicked out
-    * of the document cache so that this can be GC'd. */
+    * of the document cache so that this can be GC'd.  Deletes the undo journal, if any. */
   public void close() {
     _removeIndenter();
+    _undoManager.setJournalDocument(null);
     synchronized(_closedListeners) {
       for (DocumentClosedListener l: _closedListeners)  { l.close(); }
       _closedListeners.clear();
@@ -98,6 +100,13 @@ public class DefinitionsDocument extends AbstractDJDocument implements Finalizab
   /** Specifies if the document has been modified since the last save.  Modified under write lock. */
   private volatile boolean _isModifiedSinceSave = false;
   
+  /** The source of modification stamps, shared by all documents so that a reloaded document never reuses a stamp. */
+  private static final AtomicLong _stamps = new AtomicLong();
+  
+  /** The stamp of the last change to the text of this document (including undo and redo).  Modified under write
+    * lock. */
+  private volatile long _modificationStamp = _stamps.incrementAndGet();
+  
   /** This reference to the OpenDefinitionsDocument is needed so that the document iterator 
     * (the DefaultGlobalModel) can find the next ODD given a DD. */
   private volatile OpenDefinitionsDocument _odd;
@@ -147,6 +156,7 @@ public class DefinitionsDocument extends AbstractDJDocument implements Finalizab
     this(indenter, notifier, new CompoundUndoManager(notifier));
     // finish setting up _undomanager
     _undoManager.setLimit(UNDO_LIMIT);
+    _undoManager.setJournalDocument(this);
   }
   
   /** Convenience constructor.  
@@ -288,6 +298,7 @@ public class DefinitionsDocument extends AbstractDJDocument implements Finalizab
   /** Override insertUpdate to log text insertions after they occur. */
   protected void insertUpdate(AbstractDocument.DefaultDocumentEvent chng, AttributeSet attr) {
     super.insertUpdate(chng, attr);
+    if (isLoading()) return;  // a bulk load is not a text change
     
     try {
       final int offset = chng.getOffset();
@@ -365,6 +376,22 @@ public class DefinitionsDocument extends AbstractDJDocument implements Finalizab
     */
   public boolean isModifiedSinceSave() { return  _isModifiedSinceSave; }
   
+  /** @return a stamp that changes whenever the text of this document changes; distinct documents never share a stamp,
+    *         so an unchanged stamp means unchanged text */
+  public long getModificationStamp() { return _modificationStamp; }
+  
+  /** Updates the modification stamp before notifying the listeners of an insertion (also fired by undo and redo). */
+  protected void fireInsertUpdate(DocumentEvent e) {
+    _modificationStamp = _stamps.incrementAndGet();
+    super.fireInsertUpdate(e);
+  }
+  
+  /** Updates the modification stamp before notifying the listeners of a removal (also fired by undo and redo). */
+  protected void fireRemoveUpdate(DocumentEvent e) {
+    _modificationStamp = _stamps.incrementAndGet();
+    super.fireRemoveUpdate(e);
+  }
+  
   /** @return the current column of the cursor position. Uses a 0 based index. */
   public int getCurrentCol() {
     Element root = getDefaultRootElement();
@@ -1322,7 +1349,8 @@ public class DefinitionsDocument extends AbstractDJDocument implements Finalizab
         if (entry.getKey() != null) {
           // hasn't been garbage-collected yet
           WrappedPosition wp = entry.getKey();
-          wp.setWrapped(createUnwrappedPosition(entry.getValue()));
+          // the text may be shorter than when the offsets were saved if the file was re-read after it changed
+          wp.setWrapped(createUnwrappedPosition(Math.min(entry.getValue(), getLength())));
           _wrappedPosList.add(new WeakReference<WrappedPosition>(wp));
         }
       }
@@ -1359,8 +1387,10 @@ public class DefinitionsDocument extends AbstractDJDocument implements Finalizab
   
   /** Resets the undo manager. */
   public void resetUndoManager() {
+    _undoManager.setJournalDocument(null);  // deletes the journal of the old manager
     _undoManager = new CompoundUndoManager(_notifier);
     _undoManager.setLimit(UNDO_LIMIT);
+    _undoManager.setJournalDocument(this);
   }
   
   /** @return the next undo action. */
@@ -1380,7 +1410,13 @@ public class DefinitionsDocument extends AbstractDJDocument implements Finalizab
   protected void endLastCompoundEdit() { _undoManager.endLastCompoundEdit(); }
   
   protected void addUndoRedo(AbstractDocument.DefaultDocumentEvent chng, Runnable undoCommand, Runnable doCommand) {
-    chng.addEdit(new CommandUndoableEdit(undoCommand, doCommand));    
+    chng.addEdit(new CommandUndoableEdit(undoCommand, doCommand));
+    // the changed text is still in the document: insertUpdate runs after an insertion, removeUpdate before a removal
+    try {
+      _undoManager.textChanged(chng, chng.getType() == DocumentEvent.EventType.INSERT, chng.getOffset(), 
+                               getText(chng.getOffset(), chng.getLength()));
+    }
+    catch (BadLocationException e) { throw new UnexpectedException(e); }
   }
   
   
@@ -1077,6 +1077,25 @@ public final class DefinitionsDocumentTest extends MultiThreadedTestCase impleme
     assertEquals("redo uncommenting",text, _doc.getText());
   }
   
+  /** Verify that the modification stamp changes with every edit, including ones that keep the length, and with undo.
+   * @throws BadLocationException if attempts to reference an invalid location
+   */
+  public void testModificationStamp() throws BadLocationException {
+    _doc.addUndoableEditListener(_doc.getUndoManager());
+    _doc.insertString(0, "int x = 1;", null);
+    final long inserted = _doc.getModificationStamp();
+    assertTrue("other document", inserted != new DefinitionsDocument(_notifier).getModificationStamp());
+    
+    _doc.remove(8, 1);
+    _doc.insertString(8, "2", null);
+    assertEquals("same length", "int x = 2;", _doc.getText());
+    final long replaced = _doc.getModificationStamp();
+    assertTrue("replacement", replaced != inserted);
+    
+    _doc.getUndoManager().undo();
+    assertTrue("undo", _doc.getModificationStamp() != replaced);
+  }
+  
   /** Verify that uncommenting an empty document does not crash
    * @throws BadLocationException if attempts to reference an invalid location
    */
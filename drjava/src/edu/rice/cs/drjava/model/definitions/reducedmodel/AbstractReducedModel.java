@@ -98,6 +98,45 @@ public abstract class AbstractReducedModel implements ReducedModelStates {
     return len;
   }
   
+  /** Encodes the tokens of this model for a ReducedModelSnapshot.
+    * @param length the expected total size of the tokens
+    * @return the encoded tokens, or null if the tokens do not add up to length or cannot be encoded
+    */
+  int[] encodeTokens(int length) {
+    int[] codes = new int[_tokens.length()];
+    int n = 0;
+    int total = 0;
+    TokenList.Iterator it = _tokens.getIterator();
+    try {
+      it.next();
+      while (! it.atEnd()) {
+        ReducedToken token = it.current();
+        int size = token.getSize();
+        if (n == codes.length) return null;
+        if (token.isGap() ? size > ReducedModelSnapshot.MAX_GAP_SIZE : size != token.getType().length()) return null;
+        codes[n++] = ReducedModelSnapshot.encode(token);
+        total += size;
+        it.next();
+      }
+    }
+    finally { it.dispose(); }
+    if (n != codes.length || total != length) return null;
+    return codes;
+  }
+  
+  /** Rebuilds the tokens of this empty model from codes produced by encodeTokens.  Leaves the cursor at the end of 
+    * the model with block offset 0, which is where inserting the text char by char would leave it.
+    * @param codes the encoded tokens
+    */
+  void decodeTokens(int[] codes) {
+    assert _tokens.isEmpty();
+    for (int code : codes) {
+      _cursor.insert(ReducedModelSnapshot.decode(code));
+      _cursor.next();
+    }
+    _cursor.setBlockOffset(0);
+  }
+  
   /** @return the shadowing state of _cursor; only makes sense for ReducedModelComment. */
   public ReducedModelState getState() { return _cursor.getStateAtCurrent(); }
   
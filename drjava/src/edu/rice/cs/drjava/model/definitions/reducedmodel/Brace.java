@@ -75,6 +75,17 @@ class Brace extends ReducedToken implements ReducedModelStates {
     else return new Brace(index, state);
   }
 
+  /** Virtual constructor taking the index of the brace type in braces; used to restore reduced model snapshots.
+    * @param type the index of the brace type
+    * @param state whether the brace is shadowed by a comment, quote etc
+    * @return a new Brace
+    * @throws BraceException if the given type is not a valid brace type.
+    */
+  static Brace MakeBrace(int type, ReducedModelState state) {
+    if (type < 0 || type >= BRACES_LENGTH) throw new BraceException("Invalid brace type index " + type);
+    return new Brace(type, state);
+  }
+
   /** Constructor.
     * @param type the brace type
     * @param state the state of the reduced model
@@ -90,6 +101,9 @@ class Brace extends ReducedToken implements ReducedModelStates {
     */
   public String getType() { return (_type == BRACES_LENGTH) ? "!" : braces[_type]; }
 
+  /** @return the index of this brace's type in braces */
+  int getTypeIndex() { return _type; }
+
   /** @return the size of the brace and its preceding gap. */
   public int getSize() { return _size; }
 
@@ -82,6 +82,65 @@ public class ReducedModelControl implements BraceReduction {
     _rmc.insertChar(ch);
   }
   
+  /** Takes a snapshot of this model, which must have been built from text.  The snapshot is only taken if the model
+    * is consistent with the length of text, so a concurrent modification at worst yields no snapshot.
+    * @param text the text of the document that this model reduces
+    * @return the snapshot, or null if none could be taken
+    */
+  public ReducedModelSnapshot snapshot(String text) {
+    try {
+      int[] braceTokens = _rmb.encodeTokens(text.length());
+      if (braceTokens == null) return null;
+      int[] commentTokens = _rmc.encodeTokens(text.length());
+      if (commentTokens == null) return null;
+      return new ReducedModelSnapshot(braceTokens, commentTokens, text);
+    }
+    catch(RuntimeException e) { return null; }  // the token lists were modified while they were being walked
+  }
+  
+  /** Restores this model, which must be empty, from a snapshot.  The result is the same as inserting the snapshot's
+    * text with insertChar: the cursor is at the end of the text and the walker is at the start.
+    * @param snapshot the snapshot to restore
+    */
+  public void restore(ReducedModelSnapshot snapshot) {
+    _rmb.decodeTokens(snapshot.getBraceTokens());
+    _rmc.decodeTokens(snapshot.getCommentTokens());
+  }
+  
+  /** Inserts a string at the cursor.  Equivalent to calling insertChar on each char of text, but each run of chars
+    * that is special to neither sub-model is inserted as a single gap, so plain text costs one operation per run 
+    * rather than per char.
+    * @param text the text to insert
+    */
+  public void insertText(String text) {
+    final int len = text.length();
+    int i = 0;
+    while (i < len) {
+      char ch = text.charAt(i);
+      if (_isSpecial(ch)) { 
+        insertChar(ch); 
+        i++;
+        continue;
+      }
+      int j = i + 1;
+      while (j < len && ! _isSpecial(text.charAt(j))) j++;
+      _rmb._insertGap(j - i);
+      _rmc._insertGap(j - i);
+      i = j;
+    }
+  }
+  
+  /** @return true if ch is treated as anything other than a gap by either sub-model */
+  private static boolean _isSpecial(char ch) {
+    switch(ch) {
+      case '{': case '}': case '[': case ']': case '(': case ')':  // ReducedModelBrace
+      case '*': case '/': case '\n': case '\\': case '\'': case '\"':  // ReducedModelComment
+        return true;
+      default:
+        return false;
+    }
+  }
+  
   /** Updates the BraceReduction to reflect cursor movement. Negative values move left; positive values move right.
     * ASSUMES that count is within range, i.e. that {@code 0 <= absOffset() + count <= getLength}
     * NOTE: this method does NOT move the _walker in ReduceModelComment.
@@ -0,0 +1,88 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.drjava.model.definitions.reducedmodel;
+
+/** A compact, immutable image of the token lists of a ReducedModelControl.  Restoring a model from a snapshot is
+  * linear in the number of tokens, whereas rebuilding it means feeding every char of the text through insertChar.
+  * A snapshot is keyed by the length and hash code of the text it was built from and may only be restored for 
+  * exactly that text.
+  * <p>
+  * Each token is encoded as one int: bit 0 is set for braces, bits 1-3 hold the shadowing state, and the remaining
+  * bits hold the brace type index or the gap size.
+  */
+public final class ReducedModelSnapshot implements ReducedModelStates {
+  
+  /** Gap sizes must fit in the bits left over by the brace flag and the state. */
+  static final int MAX_GAP_SIZE = Integer.MAX_VALUE >> 4;
+  
+  private static final ReducedModelState[] STATES = {
+    FREE, INSIDE_SINGLE_QUOTE, INSIDE_DOUBLE_QUOTE, INSIDE_LINE_COMMENT, INSIDE_BLOCK_COMMENT, STUTTER 
+  };
+  
+  private final int[] _braceTokens;
+  private final int[] _commentTokens;
+  private final int _textLength;
+  private final int _textHash;
+  
+  ReducedModelSnapshot(int[] braceTokens, int[] commentTokens, String text) {
+    _braceTokens = braceTokens;
+    _commentTokens = commentTokens;
+    _textLength = text.length();
+    _textHash = text.hashCode();
+  }
+  
+  int[] getBraceTokens() { return _braceTokens; }
+  int[] getCommentTokens() { return _commentTokens; }
+  
+  /** @param text the text of a document about to be built
+    * @return true if this snapshot was taken from a model of exactly this text (up to hash collisions)
+    */
+  public boolean matches(String text) { return text.length() == _textLength && text.hashCode() == _textHash; }
+  
+  /** @return the approximate number of bytes retained by this snapshot */
+  public int retainedBytes() { return 4 * (_braceTokens.length + _commentTokens.length); }
+  
+  static int encode(ReducedToken token) {
+    int state = stateCode(token.getState());
+    if (token.isGap()) return (token.getSize() << 4) | (state << 1);
+    return (((Brace) token).getTypeIndex() << 4) | (state << 1) | 1;
+  }
+  
+  static ReducedToken decode(int code) {
+    ReducedModelState state = STATES[(code >> 1) & 0x7];
+    if ((code & 1) == 0) return new Gap(code >>> 4, state);
+    return Brace.MakeBrace(code >>> 4, state);
+  }
+  
+  private static int stateCode(ReducedModelState state) {
+    for (int i = 0; i < STATES.length; i++) { if (STATES[i] == state) return i; }
+    throw new IllegalArgumentException("Unknown reduced model state " + state);
+  }
+}
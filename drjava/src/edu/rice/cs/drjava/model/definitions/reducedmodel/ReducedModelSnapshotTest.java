@@ -0,0 +1,91 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.drjava.model.definitions.reducedmodel;
+
+/** Tests that restoring a ReducedModelSnapshot yields the same model as inserting the text char by char.
+  * @version $Id$
+  */
+public final class ReducedModelSnapshotTest extends BraceReductionTestCase implements ReducedModelStates {
+  
+  private static final String TEXT = 
+    "package p;\n" +
+    "/* block { comment */\n" +
+    "class A {\n" +
+    "  String s = \"a \\\" { string\"; // line ( comment\n" +
+    "  char c = '\\'';\n" +
+    "  int f(int[] a) { return a[0] * 2 / 3; }\n" +
+    "}\n" +
+    "/* unterminated";
+  
+  private static void insert(ReducedModelControl model, String text) {
+    for (int i = 0; i < text.length(); i++) model.insertChar(text.charAt(i));
+  }
+  
+  public void testRestoreMatchesInsertion() {
+    insert(model0, TEXT);
+    ReducedModelSnapshot snapshot = model0.snapshot(TEXT);
+    assertNotNull("snapshot should be taken", snapshot);
+    assertTrue("snapshot should match its text", snapshot.matches(TEXT));
+    assertFalse("snapshot should not match other text", snapshot.matches(TEXT + " "));
+    
+    model1.restore(snapshot);
+    assertEquals("brace models", model0._rmb.simpleString(), model1._rmb.simpleString());
+    assertEquals("comment models", model0._rmc.simpleString(), model1._rmc.simpleString());
+    assertEquals("cursor", model0.braceCursorOffset(), model1.braceCursorOffset());
+    assertEquals("walker", model0.walkerOffset(), model1.walkerOffset());
+    
+    // the restored model must support further editing and brace matching exactly like the original
+    model0.move(-TEXT.length());
+    model1.move(-TEXT.length());
+    for (int i = 0; i < TEXT.length(); i++) {
+      assertEquals("state at " + i, model0.getStateAtCurrent(), model1.getStateAtCurrent());
+      assertEquals("balance at " + i, model0.balanceForward(), model1.balanceForward());
+      model0.move(1);
+      model1.move(1);
+    }
+    model0.insertChar('}');
+    model1.insertChar('}');
+    assertEquals("after edit", model0._rmc.simpleString(), model1._rmc.simpleString());
+  }
+  
+  public void testInconsistentModelYieldsNoSnapshot() {
+    insert(model0, TEXT);
+    assertNull("snapshot of a model of different text", model0.snapshot(TEXT.substring(1)));
+  }
+  
+  public void testEmptyModel() {
+    ReducedModelSnapshot snapshot = model0.snapshot("");
+    assertNotNull(snapshot);
+    model1.restore(snapshot);
+    assertEquals(model0._rmc.simpleString(), model1._rmc.simpleString());
+    insertGap(model1, 3);
+    assertEquals(3, model1.braceCursorOffset());
+  }
+}
@@ -1065,6 +1065,25 @@ public final class ReducedModelTest extends BraceReductionTestCase implements Re
 //    System.out.println(model0.currentToken());
     assertEquals("#9.0", -1, model1.balanceForward());
   }
+  
+  /** Tests that bulk insertion of text builds the same model as inserting it char by char, both into an empty model
+    * and in the middle of existing text. */
+  public void testInsertText() {
+    String text = "class A { /* x ( */ String s = \"a \\\" }\"; // y [\n  char c = '\\''; int i = 2 * 3 / 4; }\n";
+    for (int i = 0; i < text.length(); i++) model0.insertChar(text.charAt(i));
+    model1.insertText(text);
+    assertEquals("#0.0", model0._rmb.simpleString(), model1._rmb.simpleString());
+    assertEquals("#0.1", model0._rmc.simpleString(), model1._rmc.simpleString());
+    assertEquals("#0.2", model0.absOffset(), model1.absOffset());
+    
+    model0.move(-20);
+    model1.move(-20);
+    for (int i = 0; i < text.length(); i++) model0.insertChar(text.charAt(i));
+    model1.insertText(text);
+    assertEquals("#1.0", model0._rmb.simpleString(), model1._rmb.simpleString());
+    assertEquals("#1.1", model0._rmc.simpleString(), model1._rmc.simpleString());
+    assertEquals("#1.2", model0.absOffset(), model1.absOffset());
+  }
 }
 
 
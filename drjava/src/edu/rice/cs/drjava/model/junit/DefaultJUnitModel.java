@@ -109,6 +109,20 @@ public class DefaultJUnitModel implements JUnitModel, JUnitModelCallback {
   /** The error model containing all current JUnit errors. */
   private volatile JUnitErrorModel _junitErrorModel;
   
+  /** Maximum number of faults retained from a single test suite.  Faults beyond this bound are counted but dropped,
+    * so a suite with many thousands of failures cannot exhaust the heap of the main JVM.
+    */
+  public static final int MAX_RETAINED_FAULTS = 1000;
+  
+  /** Faults streamed from the slave JVM (through testFault) for the suite currently running. */
+  private final List<JUnitError> _streamedFaults = new ArrayList<JUnitError>();
+  
+  /** Number of faults from the current suite that were dropped because MAX_RETAINED_FAULTS was exceeded. */
+  private int _droppedFaultCount = 0;
+  
+  /** Raw files of the open documents, captured lazily once per suite for stack trace translation; null if stale. */
+  private List<File> _openFiles = null;
+  
   /** State flag to prevent starting new tests on top of old ones and to prevent resetting interactions after compilation
     * is forced by unit testing. This field is NOT REDUNDANT, it is used in junitJVMReady.
     */
@@ -581,7 +595,14 @@ public class DefaultJUnitModel implements JUnitModel, JUnitModelCallback {
   /** Called to indicate that a suite of tests has started running.
     * @param numTests The number of tests in the suite to be run.
     */
-  public void testSuiteStarted(final int numTests) { _notifier.junitSuiteStarted(numTests); }
+  public void testSuiteStarted(final int numTests) {
+    synchronized(_streamedFaults) {
+      _streamedFaults.clear();
+      _droppedFaultCount = 0;
+      _openFiles = null;
+    }
+    _notifier.junitSuiteStarted(numTests);
+  }
   
   /** Called when a particular test is started.
     * @param testName The name of the test being started.
@@ -597,31 +618,68 @@ public class DefaultJUnitModel implements JUnitModel, JUnitModelCallback {
     _notifier.junitTestEnded(testName, wasSuccessful, causedError); 
   }
   
+  /** Called as soon as a test produces an error or failure.  The fault's file and any language level line numbers are
+    * resolved here rather than in the slave JVM.  Does not necessarily run in event thread.
+    * @param fault the error or failure
+    */
+  public void testFault(final JUnitError fault) {
+    if (fault.file() == null && ! fault.className().equals("")) {
+      File f = getFileForClassName(fault.className());
+      fault.setFile((f == null) ? new File("nofile") : f);
+    }
+    synchronized(_streamedFaults) {
+      _resolveFault(fault);
+      if (_streamedFaults.size() < MAX_RETAINED_FAULTS) _streamedFaults.add(fault);
+      else {
+        _droppedFaultCount++;
+        return;
+      }
+    }
+    Utilities.invokeLater(new Runnable() { public void run() { _notifier.junitTestFault(fault); } });
+  }
+  
   /** Called when a full suite of tests has finished running.  Does not necessarily run in event thread.
-    * @param errors The array of errors from all failed tests in the suite.
+    * @param errors The array of errors from the suite that were not already reported through testFault.
     */
   public void testSuiteEnded(final JUnitError[] errors) {
 //    new ScrollableDialog(null, "DefaultJUnitModel.testSuiteEnded(...) called", "", "").show();
-    List<File> files = new ArrayList<File>();
-    for(OpenDefinitionsDocument odd: _model.getLLOpenDefinitionsDocuments()) { files.add(odd.getRawFile()); }
-//    Utilities.show("errors.length = " + errors.length + " files = " + files);
-    for(JUnitError e: errors) {
-      try {
-        e.setStackTrace(_compilerModel.getLLSTM().replaceStackTrace(e.stackTrace(),files));
-      } catch(Exception ex) { DrJavaErrorHandler.record(ex); }
-      File f = e.file();
-      if ((f != null) && (DrJavaFileUtils.isLLFile(f))) {
-        String dn = DrJavaFileUtils.getJavaForLLFile(f.getName());
-        StackTraceElement ste = new StackTraceElement(e.className(), "", dn, e.lineNumber());
-        ste = _compilerModel.getLLSTM().replaceStackTraceElement(ste, f);
-        e.setLineNumber(ste.getLineNumber());
+    List<JUnitError> allErrors;
+    synchronized(_streamedFaults) {
+      for (JUnitError e: errors) { _resolveFault(e); }
+      allErrors = new ArrayList<JUnitError>(_streamedFaults);
+      allErrors.addAll(Arrays.asList(errors));
+      if (_droppedFaultCount > 0) {
+        allErrors.add(new JUnitError(_droppedFaultCount + " further test faults were omitted", false, ""));
       }
+      _streamedFaults.clear();
+      _droppedFaultCount = 0;
+      _openFiles = null;
     }
-    _junitErrorModel = new JUnitErrorModel(errors, _model, true);
+    _junitErrorModel = new JUnitErrorModel(allErrors.toArray(new JUnitError[allErrors.size()]), _model, true);
     _notifyJUnitEnded();
     _testInProgress = false;
 //    new ScrollableDialog(null, "DefaultJUnitModel.testSuiteEnded(...) finished", "", "").show();
   }
+  
+  /** Translates the stack trace and line number of e from language level files to the generated Java files.  Must
+    * hold the lock on _streamedFaults.
+    */
+  private void _resolveFault(JUnitError e) {
+    if (_openFiles == null) {
+      _openFiles = new ArrayList<File>();
+      for(OpenDefinitionsDocument odd: _model.getLLOpenDefinitionsDocuments()) { _openFiles.add(odd.getRawFile()); }
+    }
+    try {
+      e.setStackTrace(_compilerModel.getLLSTM().replaceStackTrace(e.stackTrace(), _openFiles));
+    } catch(Exception ex) { DrJavaErrorHandler.record(ex); }
+    File f = e.file();
+    if ((f != null) && (DrJavaFileUtils.isLLFile(f))) {
+      String dn = DrJavaFileUtils.getJavaForLLFile(f.getName());
+      StackTraceElement ste = new StackTraceElement(e.className(), "", dn, e.lineNumber());
+      ste = _compilerModel.getLLSTM().replaceStackTraceElement(ste, f);
+      e.setLineNumber(ste.getLineNumber());
+    }
+  }
 
   
   /** Called when the JUnitTestManager wants to open a file that is not currently open.
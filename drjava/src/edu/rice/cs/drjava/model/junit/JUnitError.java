@@ -32,11 +32,19 @@ import edu.rice.cs.drjava.model.DJError;
 
 import java.io.File;
 import java.io.Serializable;
+import java.util.Arrays;
 
 /** A class to represent JUnit errors.  This class enables DrJava to highlight the exact error text.
   * @version $Id$
   */
 public class JUnitError extends DJError implements Serializable {
+  
+  /** Maximum number of stack frames kept per error; deeper traces (e.g., runaway recursion) are cut off. */
+  public static final int MAX_STACK_TRACE_DEPTH = 256;
+  
+  /** Maximum number of characters kept from an exception description or message. */
+  public static final int MAX_MESSAGE_LENGTH = 8192;
+  
   private volatile String _test;
   private volatile String _className;
   private volatile String _exception;
@@ -96,6 +104,25 @@ public class JUnitError extends DJError implements Serializable {
    */
   public void setStackTrace(StackTraceElement[] stes) { _stackTrace = stes; }
   
+  /** Bounds the length of an exception description or message so that a single huge message (such as an 
+    * assertEquals on two long strings) cannot dominate the memory used by the test results.
+    * @param s the message to truncate; may be null
+    * @return s, or its first MAX_MESSAGE_LENGTH characters followed by an ellipsis
+    */
+  public static String truncateMessage(String s) {
+    if (s == null || s.length() <= MAX_MESSAGE_LENGTH) return s;
+    return s.substring(0, MAX_MESSAGE_LENGTH) + "...";
+  }
+  
+  /** Bounds the depth of a stack trace.  The innermost frames, which locate the fault, are retained.
+    * @param stackTrace the stack trace to truncate
+    * @return stackTrace, or its first MAX_STACK_TRACE_DEPTH elements
+    */
+  public static StackTraceElement[] truncateStackTrace(StackTraceElement[] stackTrace) {
+    if (stackTrace.length <= MAX_STACK_TRACE_DEPTH) return stackTrace;
+    return Arrays.copyOf(stackTrace, MAX_STACK_TRACE_DEPTH);
+  }
+  
   public String toString() {
     StringBuilder sb = new StringBuilder();
     sb.append(_exception);
@@ -138,6 +138,15 @@ class JUnitEventNotifier extends EventNotifier<JUnitListener> implements JUnitLi
     finally { _lock.endRead(); }
   }
   
+  /** Called when a test produces an error or failure, while the suite is still running.
+    * @param fault the error or failure
+    */
+  public void junitTestFault(JUnitError fault) {
+    _lock.startRead();
+    try { for (JUnitListener jul : _listeners) { jul.junitTestFault(fault); } }
+    finally { _lock.endRead(); }
+  }
+  
   /** Called after JUnit is finished running tests. */
   public void junitEnded() {
     _lock.startRead();
@@ -73,6 +73,11 @@ public interface JUnitListener {
     */
   public void junitTestEnded(String name, boolean wasSuccessful, boolean causedError);
   
+  /** Called when a test produces an error or failure, while the suite is still running.
+    * @param fault the error or failure
+    */
+  public void junitTestFault(JUnitError fault);
+  
   /** Called after JUnit is finished running tests. */
   public void junitEnded();
   
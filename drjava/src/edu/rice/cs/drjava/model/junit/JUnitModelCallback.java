@@ -65,8 +65,13 @@ public interface JUnitModelCallback {
     */
   public void testEnded(String testName, boolean wasSuccessful, boolean causedError);
   
+  /** Called as soon as a test produces an error or failure, while the rest of the suite is still running.
+    * @param fault the error or failure; its file may be null if it must be resolved from its class name
+    */
+  public void testFault(JUnitError fault);
+  
   /** Called when a full suite of tests has finished running.
-    * @param errors The array of errors from all failed tests in the suite.
+    * @param errors The array of errors from the suite that were not already reported through testFault.
     */
   public void testSuiteEnded(JUnitError[] errors);
   
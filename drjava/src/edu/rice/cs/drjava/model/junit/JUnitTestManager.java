@@ -42,7 +42,6 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Enumeration;
 import java.util.Arrays;
 
 import edu.rice.cs.drjava.model.coverage.CoverageMetadata;
@@ -57,6 +56,7 @@ import edu.rice.cs.util.classloader.ClassFileError;
 import edu.rice.cs.plt.io.IOUtil;
 import edu.rice.cs.plt.tuple.Pair;
 import edu.rice.cs.plt.iter.IterUtil;
+import edu.rice.cs.plt.lambda.Runnable2;
 
 import edu.rice.cs.drjava.model.coverage.JacocoClassLoader;
 import edu.rice.cs.plt.reflect.EmptyClassLoader;
@@ -235,39 +235,14 @@ public class JUnitTestManager {
     
 //    _log.log("runTestSuite() in SlaveJVM called");
     
-    /* Declare fault array for amalgamating errors and failures */
+    /* Faults (errors and failures) are streamed to the master JVM by _reportFault as they occur, so none are
+     * left to pass to testSuiteEnded unless the run itself blows up. */
     JUnitError[] faults = new JUnitError[0];
     try {
       _log.log("Calling _testRunner.runSuite(" + _suite + ")");
       TestResult result = _testRunner.runSuite(_suite);
+      _log.log("Suite finished with " + result.errorCount() + " errors and " + result.failureCount() + " failures");
       
-      /* A fault is either an error or a failure. */
-      int faultCount = result.errorCount() + result.failureCount();
-      
-      if (faultCount > 0) {
-        
-        /* NOTE: TestFailure, a JUnit class, is misnamed; it should have been called TestFault with TestFailure
-         * and TestError as disjoint subtypes (e.g., classes) */
-        faults = new JUnitError[faultCount];
-        Enumeration<TestFailure> failures = result.failures();
-        Enumeration<TestFailure> errors = result.errors();
-        
-        int i = 0;
-        
-        // faults should be called faults!  and makeJUnitError should be makeJUnitFault!
-        while (errors.hasMoreElements()) {
-          TestFailure error = errors.nextElement();
-          faults[i] = _makeJUnitError(error, _testClassNames, true, _testFiles);
-          i++;
-        }
-        
-        while (failures.hasMoreElements()) {
-          TestFailure failure = failures.nextElement();
-          faults[i] = _makeJUnitError(failure, _testClassNames, false, _testFiles);
-          i++;
-        }
-      }
-
       _log.log("Testing doCoverage");
       
       if (_runtime != null) { /* doCoverage was true */
@@ -363,7 +338,10 @@ public class JUnitTestManager {
     return (Test.class.isAssignableFrom(c));
   }
   
-  /** Constructs a new JUnitError from a TestFailure
+  /** Constructs a new JUnitError from a TestFailure.  Runs once per fault while the suite is still executing, so it
+    * works directly on the StackTraceElement array rather than formatting and re-parsing the trace as text.  If the
+    * source file for the failing class is not one of the tested files, the file is left null and resolved lazily by
+    * the master JVM (see DefaultJUnitModel.testFault) instead of making a round trip per fault.
     * @param failure A given TestFailure
     * @param classNames The classes that were used for this test suite
     * @param isError The passed TestFailure may signify either an error or a failure
@@ -393,145 +371,86 @@ public class JUnitTestManager {
     else
       className = testString.substring(0, firstIndex-1);
     
+    Throwable thrown = failure.thrownException();
+    String exception = JUnitError.truncateMessage(thrown.toString());
+    StackTraceElement[] stackTrace = thrown.getStackTrace();
     
-    String classNameAndTest = className + "." + testName;
-//   _log.log("classNameAndTest = " + classNameAndTest);
-    String exception = failure.thrownException().toString();
-    StackTraceElement[] stackTrace = failure.thrownException().getStackTrace();
-    
-    /* Check to see if the class and test name appear directly in the stack trace. If
-     * they don't, then we'll have to do additional work to find the line number. Additionally,
-     * if the exception occured in a subclass of the test class, we'll need to adjust our conception
-     * of the class name.
+    /* Check to see if the class and test name appear directly in the stack trace. If they don't, then the line 
+     * number is taken from the first frame outside of junit.framework.Assert.  Additionally, if the exception
+     * occured in a subclass of the test class, we'll need to adjust our conception of the class name.
      */
-    StringBuilder sb = new StringBuilder();
-    sb.append(exception);
-    sb.append('\n');
-    for(StackTraceElement s: stackTrace) {
-      sb.append("\tat ");
-      sb.append(s);
-    }
-    String combined = sb.toString();
     int lineNum = -1;
-    
-    if (combined.indexOf(classNameAndTest) == -1) {
-      /* get the stack trace of the junit error */
-      String trace = failure.trace();
-      /* knock off the first line of the stack trace.
-       * now the string will look like
-       * at my.package.class(file.java:line)
-       * at other.package.class(anotherfile.java:line)
-       * etc...
-       */
-      trace = trace.substring(trace.indexOf('\n')+1);
-      if (trace.trim().length()>0) {
-        while (trace.indexOf("junit.framework.Assert") != -1 &&
-               trace.indexOf("junit.framework.Assert") < trace.indexOf("(")) {
-          /* the format of the trace will have "at junit.framework.Assert..."
-           * on each line until the line of the actual source file.
-           * if the exception was thrown from the test case (so the test failed
-           * without going through assert), then the source file will be on
-           * the first line of the stack trace
-           */
-          trace = trace.substring(trace.indexOf('\n') + 1);
-        }
-        trace = trace.substring(trace.indexOf('(')+1);
-        trace = trace.substring(0, trace.indexOf(')'));
-        // If the exception occurred in a subclass of the test class, then update our
-        // concept of the class and test name. Otherwise, we're only here to pick up the
-        // line number.
-        if (combined.indexOf(className) == -1) {
-          int dotPos = trace.lastIndexOf('.');
-          if (dotPos!=-1) {
-            className = trace.substring(0,dotPos);
-            classNameAndTest = className + "." + testName;
-          }
-        }
-        
-        try {
-          lineNum = Integer.parseInt(trace.substring(trace.indexOf(':') + 1)) - 1;
+    StackTraceElement testFrame = _findFrame(stackTrace, className, testName);
+    if (testFrame != null) lineNum = _frameLineNumber(testFrame);
+    else {
+      StackTraceElement sourceFrame = null;
+      for (StackTraceElement s : stackTrace) {
+        if (! s.getClassName().startsWith("junit.framework.Assert")) { sourceFrame = s; break; }
+      }
+      if (sourceFrame != null) {
+        // If the exception occurred in a subclass of the test class, then update our concept of the class name.
+        // Otherwise, we're only here to pick up the line number.
+        if (! _mentionsClass(exception, stackTrace, className) && sourceFrame.getFileName() != null) {
+          String fileName = sourceFrame.getFileName();
+          int dotPos = fileName.lastIndexOf('.');
+          if (dotPos != -1) className = fileName.substring(0, dotPos);
         }
-        catch (NumberFormatException e) { lineNum = 0; } // may be native method
-      }      
-    }
-    
-    if (lineNum < 0) {
-      lineNum = _lineNumber(combined, classNameAndTest);
+        lineNum = _frameLineNumber(sourceFrame);
+      }
     }
     
 //    if (lineNum > -1) _faultsWithPos++;
     
-    String message =  (isError) ? failure.thrownException().toString(): 
-      failure.thrownException().getMessage();
+    String message =  (isError) ? exception : JUnitError.truncateMessage(thrown.getMessage());
     
-    boolean isFailure = (failure.thrownException() instanceof AssertionError ||
-        failure.thrownException() instanceof AssertionFailedError) &&
-        !classNameAndTest.equals("junit.framework.TestSuite$1.warning");
+    boolean isFailure = (thrown instanceof AssertionError || thrown instanceof AssertionFailedError) &&
+      ! (className + "." + testName).equals("junit.framework.TestSuite$1.warning");
     
-//    for debugging    
-//    try {
-//      File temp = File.createTempFile("asdf", "java", new File("/home/awulf"));
-//      FileWriter writer = new FileWriter(temp);
-//      writer.write("testString: " + testString + "\n");
-//      writer.write("old className: " + className1 + "\n");
-//      writer.write("new className: " + className2 + "\n");
-//      writer.write("file: " + file + "\n");
-//      writer.write("lineNum: " + lineNum + "\n");
-//      writer.write("exception: " + exception + "\n");
-//      writer.write("!isFailure: " + !isFailure + "\n");
-//      writer.write("testName: " + testName + "\n");
-//      writer.write("className: " + className + "\n");
-//      writer.write("stackTrace: " + stackTrace + "\n");
-//      writer.close();
-//    } catch(IOException e) {
-//      
-//    }
+    stackTrace = JUnitError.truncateStackTrace(stackTrace);
     
     int indexOfClass = classNames.indexOf(className);
-    File file;
-    if (indexOfClass != -1) file = files.get(indexOfClass);
-    else file = _jmc.getFileForClassName(className);
-    
-    // if testClass contains no 
-    
-    // a test didn't fail, we couldn't even open the test.
-    if (file == null) {
-      return new JUnitError(new File("nofile"), 0, 0, message, !isFailure, testName, className, exception, stackTrace);
-    }
+    File file = (indexOfClass != -1) ? files.get(indexOfClass) : null;  // null files are resolved in the master JVM
     
     return new JUnitError(file, lineNum, 0, message, !isFailure, testName, className, exception, stackTrace);
   }
   
-  /** Parses the line number out of the stack trace in the given class name. 
-    * @param sw stack trace
-    * @param classname class in which stack trace was generated
-    * @return the line number
-    */
-  private int _lineNumber(String sw, String classname) {
-    // TODO: use stack trace elements to find line number
-    int lineNum;
-    int idxClassname = sw.indexOf(classname);
-    if (idxClassname == -1) return -1;
-    
-    String theLine = sw.substring(idxClassname, sw.length());
-    
-    theLine = theLine.substring(theLine.indexOf(classname), theLine.length());
-    theLine = theLine.substring(theLine.indexOf("(") + 1, theLine.length());
-    theLine = theLine.substring(0, theLine.indexOf(")"));
-    
-    try {
-      int i = theLine.indexOf(":") + 1;
-      lineNum = Integer.parseInt(theLine.substring(i, theLine.length())) - 1;
+  /** @return the first frame of stackTrace executing the given test method of the given class, or null if none. */
+  private static StackTraceElement _findFrame(StackTraceElement[] stackTrace, String className, String testName) {
+    for (StackTraceElement s : stackTrace) {
+      if (s.getClassName().equals(className) && s.getMethodName().equals(testName)) return s;
     }
-    catch (NumberFormatException e) { lineNum = 0; } // may be native method
-    
-    return lineNum;
+    return null;
+  }
+  
+  /** @return true if className appears in the exception description or any frame of the stack trace. */
+  private static boolean _mentionsClass(String exception, StackTraceElement[] stackTrace, String className) {
+    if (exception.indexOf(className) != -1) return true;
+    for (StackTraceElement s : stackTrace) {
+      if (s.getClassName().indexOf(className) != -1) return true;
+    }
+    return false;
+  }
+  
+  /** @return the zero-based line number of the given frame, or 0 if it has none (e.g., a native method). */
+  private static int _frameLineNumber(StackTraceElement frame) {
+    int line = frame.getLineNumber();
+    return (line > 0) ? line - 1 : 0;
+  }
+  
+  /** Converts a fault reported by the runner into a JUnitError and sends it to the master JVM right away.
+    * @param failure the fault reported by JUnit
+    * @param isError true if the fault is an error rather than a failure
+    */
+  private void _reportFault(TestFailure failure, boolean isError) {
+    _jmc.testFault(_makeJUnitError(failure, _testClassNames, isError, _testFiles));
   }
   
   /** @param loader current template for the runner's class loader
     * @return a fresh JUnitTestRunner with its own class loader instance. 
     */
   private JUnitTestRunner makeRunner(ClassLoader loader) {
-    return new JUnitTestRunner(_jmc, loader);
+    return new JUnitTestRunner(_jmc, loader, new Runnable2<TestFailure, Boolean>() {
+      public void run(TestFailure failure, Boolean isError) { _reportFault(failure, isError); }
+    });
   }
 }
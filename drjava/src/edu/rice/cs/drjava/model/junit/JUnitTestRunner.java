@@ -28,11 +28,15 @@
  * END_COPYRIGHT_BLOCK*/
 package edu.rice.cs.drjava.model.junit;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.runner.*;
 import junit.framework.*;
 
 import edu.rice.cs.util.Log;
 import edu.rice.cs.util.UnexpectedException;
+import edu.rice.cs.plt.lambda.Runnable2;
 
 /** Runs in the InterpreterJVM. It uses RMI calls to update the the JUnitPanel as test results are reported.  Some methods are
   * synchronized to maintain the consistency of local state.  These methods run in an auxiliary thread.
@@ -49,6 +53,9 @@ public class JUnitTestRunner extends BaseTestRunner {
   /** Class loader that uses DrJava's classpath. */
   private ClassLoader _loader;
 
+  /** Receives each fault (the failing test and whether it is an error) as soon as JUnit reports it. */
+  private final Runnable2<TestFailure, Boolean> _faultHandler;
+
   /** The JUnit TestResult being accumulated. */
   private TestResult _result;
 
@@ -63,9 +70,19 @@ public class JUnitTestRunner extends BaseTestRunner {
    * @param loader class loader to use during testing
    */
   public JUnitTestRunner(JUnitModelCallback jmc, ClassLoader loader) {
+    this(jmc, loader, new Runnable2<TestFailure, Boolean>() { public void run(TestFailure f, Boolean isError) { } });
+  }
+
+  /** Constructor for a runner that streams faults as they occur.
+   * @param jmc a JUnitModelCallback
+   * @param loader class loader to use during testing
+   * @param faultHandler receives each fault and a flag that is true iff it is an error rather than a failure
+   */
+  public JUnitTestRunner(JUnitModelCallback jmc, ClassLoader loader, Runnable2<TestFailure, Boolean> faultHandler) {
     super();
     _jmc = jmc;
     _loader = loader;
+    _faultHandler = faultHandler;
     _result = null;
     _errorCount = 0;
     _failureCount = 0;
@@ -76,8 +93,8 @@ public class JUnitTestRunner extends BaseTestRunner {
     _errorCount = 0;
     _failureCount = 0;
 
-    // Run the test
-    _result = new TestResult();
+    // Run the test; faults are streamed to _faultHandler rather than retained in the result
+    _result = new StreamingTestResult();
     _result.addListener(this);
     _jmc.testSuiteStarted(suite.countTestCases());
     suite.run(_result);
@@ -115,11 +132,38 @@ public class JUnitTestRunner extends BaseTestRunner {
     _jmc.testEnded(testName, success, failure);
   }
   
+  /** Called by BaseTestRunner when a test produces an error or a failure; forwards the fault immediately. */
   @Override public synchronized void testFailed(int status, Test test, Throwable t) {
-    // ignore
+    _faultHandler.run(new TestFailure(test, t), status == TestRunListener.STATUS_ERROR);
   }
   
   @Override protected void runFailed(String message) {
     throw new UnexpectedException(message);
-  }  
+  }
+  
+  /** A TestResult that only counts errors and failures instead of retaining them.  Every fault is reported to the
+    * listeners (and hence to the master JVM) as it happens, so holding on to thousands of TestFailure objects and
+    * their stack traces until the end of the suite is unnecessary.  The errors() and failures() enumerations are
+    * therefore always empty.
+    */
+  private static class StreamingTestResult extends TestResult {
+    private int _errors = 0;
+    private int _failures = 0;
+    
+    @Override public void addError(Test test, Throwable t) {
+      synchronized(this) { _errors++; }
+      for (TestListener l : _listeners()) { l.addError(test, t); }
+    }
+    
+    @Override public void addFailure(Test test, AssertionFailedError t) {
+      synchronized(this) { _failures++; }
+      for (TestListener l : _listeners()) { l.addFailure(test, t); }
+    }
+    
+    @Override public synchronized int errorCount() { return _errors; }
+    @Override public synchronized int failureCount() { return _failures; }
+    @Override public synchronized boolean wasSuccessful() { return _errors == 0 && _failures == 0; }
+    
+    private synchronized List<TestListener> _listeners() { return new ArrayList<TestListener>(fListeners); }
+  }
 }
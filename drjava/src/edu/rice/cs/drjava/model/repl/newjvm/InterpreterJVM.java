@@ -101,6 +101,12 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
   /** Singleton instance of this class. */
   public static final InterpreterJVM ONLY = new InterpreterJVM();
   
+  /** Maximum number of variables evaluated by one call to getVariablesToString. */
+  public static final int MAX_BATCH_VARIABLES = 100;
+  
+  /** Maximum length of a variable's string representation returned by getVariablesToString. */
+  public static final int MAX_VARIABLE_STRING_LENGTH = 1000;
+  
   // As RMI can lead to concurrent threads, all fields must be thread-safe.  Collections are wrapped
   // in synchronized versions.
   
@@ -442,6 +448,30 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
     }
   }
 
+  /** Gets the string representations of the values of several variables in the current interpreter.  To bound the
+    * cost of a refresh, at most MAX_BATCH_VARIABLES variables are evaluated, and each string is truncated to
+    * MAX_VARIABLE_STRING_LENGTH characters.
+    * @param vars the names of the variables
+    * @return one pair per variable, as in {@link #getVariableToString}
+    */
+  public List<Pair<String,String>> getVariablesToString(List<String> vars) {
+    List<Pair<String,String>> result = new ArrayList<Pair<String,String>>(vars.size());
+    synchronized(_stateLock) {
+      for (String var : vars) {
+        if (result.size() >= MAX_BATCH_VARIABLES) { result.add(new Pair<String,String>("<not evaluated>", "")); }
+        else {
+          Pair<String,String> p = getVariableToString(var);
+          String val = p.first();
+          if (val != null && val.length() > MAX_VARIABLE_STRING_LENGTH) {
+            p = new Pair<String,String>(val.substring(0, MAX_VARIABLE_STRING_LENGTH) + "...", p.second());
+          }
+          result.add(p);
+        }
+      }
+    }
+    return result;
+  }
+  
   /** @param c the class to get the name of
    * @return the name of the class, with the right number of array suffixes 
    *         "[]" and while being ambiguous about boxed and primitive types. 
@@ -684,6 +714,15 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
     catch (RemoteException re) { error.log(re); }
   }
   
+  /** Notifies the Main JVM that a test has produced an error or failure.  Unsynchronized because it contains a remote
+    * call and does not involve mutable local state.
+    * @param fault the error or failure
+    */
+  public void testFault(JUnitError fault) {
+    try { _mainJVM.testFault(fault); }
+    catch (RemoteException re) { error.log(re); }
+  }
+  
   /** Notifies that a full suite of tests has finished running.  Unsynchronized because it contains a remote call
     * and does not involve mutable local state.
     * @param errors The array of errors from all failed tests in the suite.
@@ -113,6 +113,13 @@ public interface InterpreterJVMRemoteI extends SlaveRemote {
    */
   public Pair<String,String> getVariableToString(String var) throws RemoteException;
   
+  /** Gets the string representations of the values of several variables in the current interpreter in one call.
+   * @param vars the names of the variables
+   * @return one pair per variable, as in {@link #getVariableToString}
+   * @throws RemoteException if communication over RMI fails
+   */
+  public List<Pair<String,String>> getVariablesToString(List<String> vars) throws RemoteException;
+  
   /** @return the current class path.
    * @throws RemoteException if communication over RMI fails
    */
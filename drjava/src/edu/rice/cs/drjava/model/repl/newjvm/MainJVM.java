@@ -178,6 +178,11 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
     _state.value().started(slaveCast);
   }
   
+  /** @return true iff the interpreter JVM should communicate over a MultiplexedChannel rather than RMI */
+  protected boolean useChannelTransport() {
+    return DrJava.getConfig().getSetting(OptionConstants.SLAVE_JVM_CHANNEL_TRANSPORT);
+  }
+  
   /** Callback for when the slave JVM has quit.
     * @param status The exit code returned by the slave JVM.
     */
@@ -271,6 +276,13 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
     _junitModel.testEnded(testName, wasSuccessful, causedError);
   }
  
+  /** Called when a test produces an error or failure. Forwards from the other JVM to the local JUnit model.
+   * @param fault the error or failure
+   */
+  public void testFault(JUnitError fault) {
+    _junitModel.testFault(fault);
+  }
+ 
   /** Called when a full suite of tests has finished running. Forwards from the other JVM to the local JUnit model.
    * @param errors The array of errors from all failed tests in the suite.
    */
@@ -376,6 +388,19 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
     catch (RemoteException e) { _handleRemoteException(e); return Option.none(); }
   }
   
+  /** Gets the string representations of the values of several variables in the current interpreter in a single
+    * remote call, or "none" if the remote JVM is unavailable or an error occurs.  Blocks until the interpreter is
+    * connected.
+    * @param vars the names of the variables
+    * @return string representations of vars
+    */
+  public Option<List<Pair<String,String>>> getVariablesToString(List<String> vars) {
+    InterpreterJVMRemoteI remote = _state.value().interpreter(false);
+    if (remote == null) { return Option.none(); }
+    try { return Option.some(remote.getVariablesToString(vars)); }
+    catch (RemoteException e) { _handleRemoteException(e); return Option.none(); }
+  }
+  
   /** Blocks until the interpreter is connected. 
     * @param f file to be added to the class path
     * @return {@code true} if the change was successfully passed to the remote JVM.
@@ -594,7 +619,23 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
    */
   
   /** Call invokeSlave with the appropriate JVMBuilder. */
-  private void _doStartup() {
+  private void _doStartup() { invokeSlave(_jvmBuilder()); }
+  
+  /** @return true iff a standby interpreter JVM should be kept ready for the next reset.  Never true while
+    * debugging, since the standby would compete with the current slave for the debug port.
+    */
+  private boolean _useStandby() {
+    return DrJava.getConfig().getSetting(OptionConstants.INTERACTIONS_STANDBY_JVM) && _getDebugPort() == -1;
+  }
+  
+  /** Launch a standby interpreter JVM in the background, if enabled, so that the next reset is fast. */
+  private void _prepareStandby() {
+    if (_useStandby()) { prepareStandbySlave(_jvmBuilder()); }
+    else { discardStandbySlave(); }
+  }
+  
+  /** @return the JVMBuilder describing the interpreter JVM for the current settings */
+  private JVMBuilder _jvmBuilder() {
     File dir = _workingDir;
     // TODO: Eliminate NULL_FILE.  It is a bad idea!  The correct behavior when it is used always depends on
     // context, so it can never be treated transparently.  In this case, the process won't start.
@@ -765,7 +806,11 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
     
 //    jvmb = jvmb.properties(props);
     
-    invokeSlave(jvmb);
+    // debugging with -Xdebug and -Djava.compiler=NONE gains nothing from a shared archive
+    if (debugPort == -1 && DrJava.getConfig().getSetting(OptionConstants.CLASS_DATA_SHARING)) {
+      jvmb = DrJava.withClassDataSharing(jvmb, "interactions");
+    }
+    return jvmb;
   }
   
   /** @return the debug port to use, as specified by the model; returns -1 if no usable port could be found. */
@@ -898,7 +943,8 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
         // Note that _workingDir isn't guaranteed to be the dir at the time startup began.  Is that a problem?
         // (Is the user ever going to see a working dir message that doesn't match the actual setting?)
         _interactionsModel.interpreterReady(_workingDir);
-        _junitModel.junitJVMReady();        
+        _junitModel.junitJVMReady();
+        _prepareStandby();
       }
       else { _state.value().started(i); }
     }
@@ -929,7 +975,16 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
     }
     
     public void restart(boolean force) {
-      if (_state.compareAndSet(this, new RestartingState())) {  // Advance to RestartingState
+      if (_useStandby()) {
+        // Hand off to the standby JVM immediately; the old JVM shuts down on its own
+        if (_state.compareAndSet(this, new StartingState())) {
+          _interactionsModel.interpreterResetting();
+          retireSlave();
+          _doStartup();
+        }
+        else { _state.value().restart(force); }
+      }
+      else if (_state.compareAndSet(this, new RestartingState())) {  // Advance to RestartingState
         _interactionsModel.interpreterResetting();
         quitSlave();
       }
@@ -1128,6 +1183,7 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
     public void testSuiteStarted(int numTests) { }
     public void testStarted(String testName) { }
     public void testEnded(String testName, boolean wasSuccessful, boolean causedError) { }
+    public void testFault(JUnitError fault) { }
     public void testSuiteEnded(JUnitError[] errors) { }
     public File getFileForClassName(String className) { return null; }
     public Iterable<File> getClassPath() { return IterUtil.empty(); }
@@ -44,12 +44,14 @@ public interface MainJVMRemoteI extends MasterRemote {
     * @param s String that was printed in the other JVM
     * @throws RemoteException if remote communication fails
     */
+  @OutOfBand
   public void systemErrPrint(String s) throws RemoteException;
   
   /** Forwards a call to System.out from InterpreterJVM to the MainJVM for output to the user.
     * @param s String that was printed in the other JVM
     * @throws RemoteException if remote communication fails
     */
+  @OutOfBand
   public void systemOutPrint(String s) throws RemoteException;
   
   /** Asks the main jvm for input from the console.
@@ -93,6 +95,12 @@ public interface MainJVMRemoteI extends MasterRemote {
   public void testEnded(String testName, boolean wasSuccessful, boolean causedError)
     throws RemoteException;
   
+  /** Called when a test produces an error or failure, before the suite has finished.
+    * @param fault the error or failure
+    * @throws RemoteException if remote communication fails
+    */
+  public void testFault(JUnitError fault) throws RemoteException;
+  
   /** Called when a full suite of tests has finished running.
     * @param errors The array of errors from all failed tests in the suite.
     * @throws RemoteException if remote communication fails
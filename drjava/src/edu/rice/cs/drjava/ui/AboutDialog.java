@@ -44,6 +44,9 @@ import edu.rice.cs.drjava.DrJava;
 import edu.rice.cs.drjava.Version;
 import edu.rice.cs.drjava.config.OptionConstants;
 import edu.rice.cs.drjava.config.FileConfiguration;
+import edu.rice.cs.drjava.model.AbstractGlobalModel;
+import edu.rice.cs.drjava.model.SingleDisplayModel;
+import edu.rice.cs.drjava.model.cache.DocumentCache;
 
 import javax.swing.*;
 import javax.swing.border.*;
@@ -93,7 +96,7 @@ public class AboutDialog extends JDialog implements ActionListener {
   
   public void setVisible(boolean vis) {
     _tabs.remove(0);
-    addTab(_tabs,"About",createCopyrightTab(), 0);
+    addTab(_tabs,"About",createCopyrightTab(_documentCache()), 0);
     _tabs.setSelectedIndex(0);
     
     if (vis) {
@@ -178,7 +181,22 @@ public class AboutDialog extends JDialog implements ActionListener {
     tabs.insertTab(title, null, tab, "", i);
   }                        
   
-  public static JComponent createCopyrightTab() {
+  /** @return the document cache of the owning MainFrame's model, or null if there is none */
+  private DocumentCache _documentCache() {
+    Window owner = getOwner();
+    if (! (owner instanceof MainFrame)) return null;
+    SingleDisplayModel model = ((MainFrame) owner).getModel();
+    if (! (model instanceof AbstractGlobalModel)) return null;
+    return ((AbstractGlobalModel) model).getDocumentCache();
+  }
+  
+  public static JComponent createCopyrightTab() { return createCopyrightTab(null); }
+  
+  /** Creates the "About" tab.
+    * @param cache the document cache whose statistics should be shown, or null
+    * @return the tab
+    */
+  public static JComponent createCopyrightTab(DocumentCache cache) {
     final JPanel panel = new JPanel(new BorderLayout());
 
     final StringBuilder sb = new StringBuilder("DrJava Version : ");
@@ -203,6 +221,10 @@ public class AboutDialog extends JDialog implements ActionListener {
     sb.append(StringOps.memSizeToString(Runtime.getRuntime().totalMemory()));
     sb.append("\nTotal memory can expand to: about ");
     sb.append(StringOps.memSizeToString(Runtime.getRuntime().maxMemory()));
+    if (cache != null) {
+      sb.append("\n\n");
+      sb.append(cache.getStatistics());
+    }
     sb.append("\n\n");
     sb.append(COPYRIGHT);
     final JComponent copy = createTextScroller(sb.toString());
@@ -31,9 +31,11 @@ package edu.rice.cs.drjava.ui;
 import java.awt.*;
 import java.awt.datatransfer.*;
 import java.awt.event.*;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.lang.ref.WeakReference;
+import java.util.regex.PatternSyntaxException;
 
 import javax.swing.*;
 import javax.swing.event.*;
@@ -43,11 +45,13 @@ import edu.rice.cs.drjava.DrJava;
 import edu.rice.cs.drjava.config.*;
 import edu.rice.cs.drjava.model.SingleDisplayModel;
 import edu.rice.cs.drjava.model.OpenDefinitionsDocument;
+import edu.rice.cs.drjava.model.FindAllSearch;
 import edu.rice.cs.drjava.model.FindReplaceMachine;
 import edu.rice.cs.drjava.model.FindResult;
 import edu.rice.cs.drjava.model.ClipboardHistoryModel;
 import edu.rice.cs.drjava.model.MovingDocumentRegion;
 import edu.rice.cs.drjava.model.RegionManager;
+import edu.rice.cs.drjava.model.SearchPattern;
 import edu.rice.cs.plt.lambda.Runnable1;  // variant on Runnable with unary run method
 import edu.rice.cs.util.UnexpectedException;
 import edu.rice.cs.util.swing.BorderlessScrollPane;
@@ -94,6 +98,8 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
   private volatile JCheckBox _matchWholeWord;
   private volatile JCheckBox _ignoreTestCases;
   private volatile JCheckBox _searchSelectionOnly;
+  private volatile JCheckBox _regex;
+  private volatile JCheckBox _anyLine;
   
   /* MainFrame _frame is inherited from TabbedPanel */
   
@@ -411,6 +417,36 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
       }
     });
 
+    boolean regexSelected = DrJava.getConfig().getSetting(OptionConstants.FIND_REGEX);
+    _regex = new JCheckBox("Regex", regexSelected);
+    _regex.setToolTipText("Find All matches the search text as a regular expression");
+    _machine.setRegularExpression(regexSelected);
+    _regex.addItemListener(new ItemListener() {
+      public void itemStateChanged(ItemEvent e) {
+        boolean isSelected = (e.getStateChange() == ItemEvent.SELECTED);
+        if (isSelected) 
+          _anyLine.setSelected(false);
+        _machine.setRegularExpression(isSelected);
+        DrJava.getConfig().setSetting(OptionConstants.FIND_REGEX, isSelected);
+        _findField.requestFocusInWindow();
+      }
+    });
+    
+    boolean anyLineSelected = DrJava.getConfig().getSetting(OptionConstants.FIND_ANY_LINE);
+    _anyLine = new JCheckBox("Any Line", anyLineSelected);
+    _anyLine.setToolTipText("Find All matches each line of the search text in a single pass");
+    _machine.setMatchAnyLine(anyLineSelected);
+    _anyLine.addItemListener(new ItemListener() {
+      public void itemStateChanged(ItemEvent e) {
+        boolean isSelected = (e.getStateChange() == ItemEvent.SELECTED);
+        if (isSelected) 
+          _regex.setSelected(false);
+        _machine.setMatchAnyLine(isSelected);
+        DrJava.getConfig().setSetting(OptionConstants.FIND_ANY_LINE, isSelected);
+        _findField.requestFocusInWindow();
+      }
+    });
+
     // We choose not to preserve backwards searching between sessions
     //_machine.setSearchBackwards(DrJava.getConfig().getSetting(OptionConstants.FIND_SEARCH_BACKWARDS));
     
@@ -438,6 +474,12 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     _ignoreTestCasesPanel.add(_searchSelectionOnly);
     _ignoreTestCasesPanel.setMaximumSize(new Dimension(200, 40));
     
+    JPanel _searchModePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+    _regex.setPreferredSize(_ignoreTestCases.getPreferredSize());
+    _searchModePanel.add(_regex);
+    _searchModePanel.add(_anyLine);
+    _searchModePanel.setMaximumSize(new Dimension(200, 40));
+    
     BorderlessScrollPane _findPane = new BorderlessScrollPane(_findField);
     BorderlessScrollPane _replacePane = new BorderlessScrollPane(_replaceField);
     _findPane.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED);
@@ -465,6 +507,7 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     optionsPanel.add(_matchCaseAndAllDocsPanel);
     optionsPanel.add(_lowerCheckPanel);
     optionsPanel.add(_ignoreTestCasesPanel);
+    optionsPanel.add(_searchModePanel);
     optionsPanel.add(emptyPanel);
     
     c.fill = GridBagConstraints.HORIZONTAL;
@@ -474,6 +517,7 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     gbLayout.setConstraints(_matchCaseAndAllDocsPanel, c);
     gbLayout.setConstraints(_lowerCheckPanel, c);
     gbLayout.setConstraints(_ignoreTestCasesPanel, c);
+    gbLayout.setConstraints(_searchModePanel, c);
     
     c.fill = GridBagConstraints.BOTH;
     c.anchor = GridBagConstraints.SOUTH;
@@ -558,6 +602,10 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     final boolean searchAll = _machine.getSearchAllDocuments();
     final boolean searchSelectionOnly = _machine.getSearchSelectionOnly();
 
+    final boolean regex = _machine.getRegularExpression();
+    final boolean anyLine = _machine.getMatchAnyLine();
+    if (regex && ! _isValidRegex(searchStr)) return;
+
     final String tabLabel = (title.length() <= 20) ? title : title.substring(0,20);
     final RegionManager<MovingDocumentRegion> rm = _model.createFindResultsManager();
 
@@ -569,25 +617,42 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     final FindResultsPanel panel = 
       _frame.createFindResultsPanel(rm, region, tabLabel, searchStr, searchAll, searchSelectionOnly, _machine.getMatchCase(),
                                     _machine.getMatchWholeWord(), _machine.getIgnoreCommentsAndStrings(),
-                                    _ignoreTestCases.isSelected(), new WeakReference<OpenDefinitionsDocument>(startDoc), this);
+                                    _ignoreTestCases.isSelected(), regex, anyLine, 
+                                    new WeakReference<OpenDefinitionsDocument>(startDoc), this);
 
     findAll(searchStr, searchAll, searchSelectionOnly, _machine.getMatchCase(),  _machine.getMatchWholeWord(), 
-            _machine.getIgnoreCommentsAndStrings(), _ignoreTestCases.isSelected(), startDoc, rm, region, panel);
-
-    _log.log("Refreshing active document after 'find all'");
-
-    EventQueue.invokeLater(new Runnable() {  // execute these actions after all pending Runnables in the EventQueue
-      public void run() {
-        _model.refreshActiveDocument();  // Rationale: a giant findAll left the definitions pane is a strange state
-        if (panel.isEmpty()) { requestFocusInWindow(); }// selects _findField as focus }
-        else {
-          panel.requestFocusInWindow();
-          panel.getRegTree().scrollRowToVisible(0);
-        }
-      }});
+            _machine.getIgnoreCommentsAndStrings(), _ignoreTestCases.isSelected(), regex, anyLine, startDoc, rm, region,
+            panel);
+  }
+  
+  /** Reports a malformed regular expression in the status bar.
+    * @param regex the text of the find field
+    * @return true if regex is a valid regular expression
+    */
+  private boolean _isValidRegex(String regex) {
+    try { 
+      SearchPattern.compile(regex, true, false, true, false);
+      return true;
+    }
+    catch(PatternSyntaxException e) {
+      _frame.setStatusMessage("Invalid regular expression: " + e.getDescription());
+      Toolkit.getDefaultToolkit().beep();
+      return false;
+    }
   }
   
-  /** Performs "find all" with the specified options. 
+  /** Reports (in the status bar) that a regular expression or any line search is only supported by "find all".
+    * @return true if the find word is such a search
+    */
+  private boolean _rejectCompiledSearch() {
+    if (! _machine.isCompiledSearch()) return false;
+    _frame.setStatusMessage("Regular expression and any line searches are only supported by Find All.");
+    Toolkit.getDefaultToolkit().beep();
+    return true;
+  }
+  
+  /** Performs "find all" with the specified options.  The search runs in the background; its matches are added to rm
+    * and shown in panel as they are found.  Starting another search for panel cancels the one in progress.
     * @param searchStr string to search for
     * @param searchAll true if we should search all documents
     * @param searchSelectionOnly true if we should search only the current selection
@@ -595,13 +660,16 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     * @param wholeWord true if we want to match the whole word
     * @param noComments true if we want to ignore comments
     * @param noTestCases true if we want to ignore test cases
+    * @param regex true if searchStr is a regular expression
+    * @param anyLine true if we want to find any line of searchStr
     * @param startDoc first document to search within
     * @param rm a RegionManager
     * @param region a MovingDocumentRegion
     * @param panel panel in which to display search results
     */
   public void findAll(final String searchStr, final boolean searchAll, final boolean searchSelectionOnly, final boolean matchCase,
-                      final boolean wholeWord, final boolean noComments, final boolean noTestCases, final OpenDefinitionsDocument startDoc, 
+                      final boolean wholeWord, final boolean noComments, final boolean noTestCases, final boolean regex,
+                      final boolean anyLine, final OpenDefinitionsDocument startDoc, 
                       final RegionManager<MovingDocumentRegion> rm, final MovingDocumentRegion region, final FindResultsPanel panel) {
     
     _machine.setSearchBackwards(false);
@@ -618,6 +686,8 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     final boolean oldWholeWord = _machine.getMatchWholeWord();
     final boolean oldNoComments = _machine.getIgnoreCommentsAndStrings();
     final boolean oldNoTestCases = _machine.getIgnoreTestCases();
+    final boolean oldRegex = _machine.getRegularExpression();
+    final boolean oldAnyLine = _machine.getMatchAnyLine();
     final int oldPosition = _machine.getCurrentOffset();
     
 //    _updateMachine();  // in this method call, _defPane returned null in actual usage
@@ -631,25 +701,80 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     _machine.setIgnoreCommentsAndStrings(noComments);
     _machine.setPosition(startDoc.getCurrentLocation());
     _machine.setIgnoreTestCases(noTestCases);
+    _machine.setRegularExpression(regex);
+    _machine.setMatchAnyLine(anyLine);
 
     _machine.setFindWord(searchStr);
     final String replaceStr = _replaceField.getText();
     _machine.setReplaceWord(replaceStr);
-    final List<FindResult> results = new ArrayList<FindResult>();
     
     _frame.setStatusMessage("Finding All");
-    repaint();
+    
+    /* Matches are streamed into rm as the background search delivers them; the panel is shown with the first ones. */
+    final FindAllSearch.Listener listener = new FindAllSearch.Listener() {
+      private boolean _shown = false;
+      private int _found = 0;
+      
+      public void resultsFound(OpenDefinitionsDocument doc, List<FindResult> results) {
+        if (! _model.getOpenDefinitionsDocuments().contains(doc)) return;  // doc was closed during the search
+        for (FindResult fr: results) {
+          final int end = fr.getFoundOffset();
+          final int start = end - fr.getFoundLength();
+          final int lineStart = doc._getLineStartPos(start);
+          final int lineEnd = doc._getLineEndPos(end);
+          
+          rm.addRegion(new MovingDocumentRegion(doc, start, end, lineStart, lineEnd));
+        }
+        _found += results.size();
+        if (! _shown) {
+          _shown = true;
+          _frame.showFindResultsPanel(panel);
+        }
+        _frame.setStatusMessage("Finding All: " + _found + " occurrences so far");
+      }
+      
+      public void searchFinished(int count, List<File> unopened, boolean cancelled) {
+        if (cancelled) {
+          _log.log("Find all for '" + searchStr + "' cancelled after " + count + " occurrences");
+          return;
+        }
+        _log.log("Completing findAll call");
         
-    _frame.hourglassOn();
-    int count = 0;
-    try {
-      /* Accumulate all occurrences of searchStr in results. */
-      count = _machine.processAll(new Runnable1<FindResult>() { public void run(FindResult fr) { results.add(fr); }}, region);
+        // show panel in tabbed pane unless it is empty
+        if (count == 0) panel.freeResources();
+        
+        _model.refreshActiveDocument();  // Rationale: a giant findAll left the definitions pane is a strange state
+        if (searchSelectionOnly) {
+          if (_defPane != null) {
+            _defPane.requestFocusInWindow();
+            _defPane.setSelectionStart(region.getStartOffset());
+            _defPane.setSelectionEnd(region.getEndOffset());
+          }
+        }
+        else if (count == 0) requestFocusInWindow(); // selects _findField as focus
+        else {
+          panel.requestFocusInWindow();
+          panel.getRegTree().scrollRowToVisible(0);
+        }
+        Toolkit.getDefaultToolkit().beep();
+        _log.log("Updating status message to report number of matching occurrences");
+        String message = "Found " + count + " occurrence" + ((count == 1) ? "" : "s") + ".";
+        if (! unopened.isEmpty()) {
+          _log.log("Find all did not open " + unopened.size() + " more files with matches: " + unopened);
+          final int n = unopened.size();
+          message += "  " + n + " more unopened file" + ((n == 1) ? " contains" : "s contain") + " matches.";
+        }
+        _frame.setStatusMessage(message);
+      }
+    };
+    
+    /* Start the search (which captures the settings of _machine), replacing any search still running for panel. */
+    try { panel.setSearch(_machine.startFindAll(region, listener)); }
+    catch(PatternSyntaxException e) { 
+      _frame.setStatusMessage("Invalid regular expression: " + e.getDescription());
+      panel.setSearch(null);
     }
-    finally { 
-      _frame.hourglassOff(); 
-      _model.refreshActiveDocument();
-    } 
+    
     /* Restore state of FindReplaceMachine except for _findWord and _replaceWord. */
     _log.log("Restoring FindReplaceMachine");
     _machine.setDocument(oldDoc);
@@ -662,45 +787,16 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     else { _machine.setFindAnyOccurrence(); }
     _machine.setIgnoreCommentsAndStrings(oldNoComments);
     _machine.setIgnoreTestCases(oldNoTestCases);
+    _machine.setRegularExpression(oldRegex);
+    _machine.setMatchAnyLine(oldAnyLine);
     _machine.setPosition(oldPosition);
-    
-//    System.out.println("Adding found regions to corresponding documents");
-    for (FindResult fr: results) {
-      
-      final OpenDefinitionsDocument doc = fr.getDocument();
-      
-      final int end = fr.getFoundOffset();
-      final int start = end - searchLen;
-      final int lineStart = doc._getLineStartPos(start);
-      final int lineEnd = doc._getLineEndPos(end);
-      
-      rm.addRegion(new MovingDocumentRegion(doc, start, end, lineStart, lineEnd));                       
-    }
-      
-    // show panel in tabbed pane unless it is empty
-    if (count > 0) _frame.showFindResultsPanel(panel);
-    else panel.freeResources();
-    
-//    _model.refreshActiveDocument();  // force tabbed pane to show count for find command
-    
-    if (searchSelectionOnly) 
-      EventQueue.invokeLater(new Runnable() { public void run() { 
-      if (_defPane != null) {
-        _defPane.requestFocusInWindow();
-        _defPane.setSelectionStart(region.getStartOffset());
-        _defPane.setSelectionEnd(region.getEndOffset());
-      }
-    } }); 
-    _log.log("Completing findAll call");
-    Toolkit.getDefaultToolkit().beep();
-    _log.log("Updating status message to report number of matching occurrences");
-    _frame.setStatusMessage("Found " + count + " occurrence" + ((count == 1) ? "" : "s") + ".");
   }
   
   /** Performs the "replace all" command. */
   
   private void _replaceAll() {
     
+    if (_rejectCompiledSearch()) return;
     _findLabelBot.setText("Next");
     
     final String searchStr = _findField.getText();
@@ -902,6 +998,7 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
   }
   
   private void _replace() {
+    if (_rejectCompiledSearch()) return;
     _frame.updateStatusField("Replacing");
     _updateMachine();
     _machine.setFindWord(_findField.getText());
@@ -970,6 +1067,7 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
   /** Abstracted out since this is called from findNext and findPrevious. */
   private void _doFind() {
     
+    if (_rejectCompiledSearch()) return;
     if (_findField.getText().length() > 0) {
 
       _updateMachine();
@@ -44,7 +44,9 @@ import java.lang.ref.WeakReference;
 
 import javax.swing.*;
 import javax.swing.event.*;
+import javax.swing.text.BadLocationException;
 import javax.swing.text.LayeredHighlighter;
+import javax.swing.text.Segment;
 
 import java.awt.event.*;
 import java.awt.*;
@@ -58,10 +60,12 @@ import edu.rice.cs.drjava.config.Option;
 import edu.rice.cs.drjava.config.OptionConstants;
 import edu.rice.cs.drjava.config.OptionEvent;
 import edu.rice.cs.drjava.config.OptionListener;
+import edu.rice.cs.drjava.model.FindAllSearch;
 import edu.rice.cs.drjava.model.MovingDocumentRegion;
 import edu.rice.cs.drjava.model.OpenDefinitionsDocument;
 import edu.rice.cs.drjava.model.RegionManager;
 import edu.rice.cs.drjava.model.RegionManagerListener;
+import edu.rice.cs.drjava.model.SearchPattern;
 import edu.rice.cs.plt.tuple.Pair;
 import edu.rice.cs.util.swing.Utilities;
 
@@ -79,6 +83,9 @@ public class FindResultsPanel extends RegionsTreePanel<MovingDocumentRegion> {
   private final boolean _wholeWord;
   private final boolean _noComments;
   private final boolean _noTestCases;
+  private final boolean _regex;
+  private final boolean _anyLine;
+  private volatile SearchPattern _pattern;  // compiled lazily when regions of a regex or any line search change
   private final WeakReference<OpenDefinitionsDocument> _doc;
   private final FindReplacePanel _findReplace;
   private final MovingDocumentRegion _region; //document region used for search limited selection function
@@ -89,6 +96,7 @@ public class FindResultsPanel extends RegionsTreePanel<MovingDocumentRegion> {
   private volatile JButton _removeButton;
   private volatile JComboBox<Color> _colorBox;
   private volatile int _lastIndex;
+  private volatile FindAllSearch _search;  // the search filling this panel; null once it is replaced or freed
   
   /** Saved option listeners kept in this field so they can be removed for garbage collection  */
   private final LinkedList<Pair<Option<Color>, OptionListener<Color>>> _colorOptionListeners = 
@@ -106,14 +114,16 @@ public class FindResultsPanel extends RegionsTreePanel<MovingDocumentRegion> {
     * @param wholeWord whether the search was looking for a match on the whole word
     * @param noComments whether the search ignored comments
     * @param noTestCases whether the search ignored test cases
+    * @param regex whether searchString is a regular expression
+    * @param anyLine whether each line of searchString was searched for
     * @param doc weak reference to the document in which the search occurred (or started, if all documents were searched)
     * @param findReplacePanel the FindReplacePanel that created this FindResultsPanel
     */
   public FindResultsPanel(final MainFrame frame, final RegionManager<MovingDocumentRegion> regionManager, 
     final MovingDocumentRegion region, final String title, final String searchString, 
     final boolean searchAll, final boolean searchSelectionOnly, final boolean matchCase, 
-    final boolean wholeWord, final boolean noComments, final boolean noTestCases, 
-    final WeakReference<OpenDefinitionsDocument> doc, final FindReplacePanel findReplacePanel) {
+    final boolean wholeWord, final boolean noComments, final boolean noTestCases, final boolean regex,
+    final boolean anyLine, final WeakReference<OpenDefinitionsDocument> doc, final FindReplacePanel findReplacePanel) {
 
     super(frame, title, regionManager);
     
@@ -126,6 +136,8 @@ public class FindResultsPanel extends RegionsTreePanel<MovingDocumentRegion> {
     _wholeWord    = wholeWord;
     _noComments   = noComments;
     _noTestCases  = noTestCases;
+    _regex        = regex;
+    _anyLine      = anyLine;
     _doc          = doc;
     _findReplace  = findReplacePanel;
     
@@ -143,6 +155,8 @@ public class FindResultsPanel extends RegionsTreePanel<MovingDocumentRegion> {
     if (_wholeWord) sb.append("<br>Whole words only.");
     if (_noComments) sb.append("<br>No comments or strings.");
     if (_noTestCases) sb.append("<br>No test cases.");
+    if (_regex) sb.append("<br>Regular expression.");
+    if (_anyLine) sb.append("<br>Any line of the search text.");
     sb.append("</html>");
     _findAgainButton.setToolTipText(sb.toString());
 
@@ -153,7 +167,7 @@ public class FindResultsPanel extends RegionsTreePanel<MovingDocumentRegion> {
         regionRemoved(r);
 
         /* Only re-add the region if it is still a match. */
-        if (findReplacePanel.isSearchStringMatch(r, searchString)) { regionAdded(r); }
+        if (_isMatch(r)) { regionAdded(r); }
       }
       public void regionRemoved(MovingDocumentRegion r) { removeRegion(r); }
     });
@@ -302,12 +316,28 @@ public class FindResultsPanel extends RegionsTreePanel<MovingDocumentRegion> {
 //      _requestFocusInWindow();
       _log.log("Root has been cleared; child count = " + getRootNode().getChildCount());
       _findReplace.findAll(_searchString, _searchAll, _searchSelectionOnly, _matchCase, _wholeWord, _noComments, 
-                           _noTestCases, odd, getRegionManager(), _region, this);
+                           _noTestCases, _regex, _anyLine, odd, getRegionManager(), _region, this);
       getRegTree().scrollRowToVisible(0);  // Scroll to the first line in the new panel
       _requestFocusInWindow();
     }
   }
   
+  /** @param r a region of this panel
+    * @return whether the text of r is still a match of the search */
+  private boolean _isMatch(MovingDocumentRegion r) {
+    if (! _regex && ! _anyLine) return _findReplace.isSearchStringMatch(r, _searchString);
+    
+    if (_pattern == null) _pattern = SearchPattern.compile(_searchString, _regex, _anyLine, _matchCase, _wholeWord);
+    final OpenDefinitionsDocument doc = r.getDocument();
+    final int start = r.getStartOffset();
+    final int end = r.getEndOffset();
+    final Segment text = new Segment();  // a view of the document text, so the match can see the surrounding text
+    try { doc.getText(0, doc.getLength(), text); }
+    catch(BadLocationException e) { return false; }
+    final SearchPattern.Finder finder = _pattern.finder(text);
+    return finder.find(start, end) && finder.start() == start && finder.end() == end;
+  }
+  
   /** Turn the selected regions into bookmarks. */
   private void _bookmark() {  // TODO: consolidate with _toggleBookmark in MainFrame/AbstractGlobalModel?
     updateButtons();
@@ -386,8 +416,17 @@ public class FindResultsPanel extends RegionsTreePanel<MovingDocumentRegion> {
     super._close();  // Not redundant.  _close may be called from removeRegion.
   }
   
+  /** Sets the search that fills this panel, cancelling the previous one if it is still running.
+    * @param search the new search */
+  public void setSearch(FindAllSearch search) {
+    final FindAllSearch old = _search;
+    _search = search;
+    if (old != null) old.cancel();
+  }
+  
   /** Called from FindReplacePanel.findAll if search finds no matches. */
   public void freeResources() {
+    setSearch(null);
     _docToTreeNode.clear();
     _regionToTreeNode.clear();
     getGlobalModel().removeFindResultsManager(getRegionManager());  // removes manager from global model (should be done by listener!)
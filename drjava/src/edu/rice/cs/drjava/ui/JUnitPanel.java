@@ -320,6 +320,28 @@ public class JUnitPanel extends ErrorPanel {
       });
     }
     
+    /** Shows a fault in the JUnitPanel as soon as it is reported, below the test that produced it, so failures in a
+      * long suite are visible before the suite finishes.  The complete, navigable list replaces this text when the
+      * suite ends.  Only runs in event thread.
+      * @param fault the error or failure
+      */
+    public void testFault(JUnitError fault) {
+      assert EventQueue.isDispatchThread();
+      String message = fault.message();
+      if (message == null) message = fault.exception();
+      int newline = message.indexOf('\n');
+      if (newline >= 0) message = message.substring(0, newline);
+      ErrorDocument doc = getErrorDocument();
+      try {
+        doc.insertString(doc.getLength(), "      " + (fault.isWarning() ? "Error: " : "Failure: ") + message + "\n",
+                         TEST_FAIL_ATTRIBUTES);
+      }
+      catch (BadLocationException ble) {
+        // Inserting at end, shouldn't happen
+        throw new UnexpectedException(ble);
+      }
+    }
+    
     /** Puts the error pane into "junit in progress" state.  Only runs in event thread. */
     public void setJUnitInProgress() {
       assert EventQueue.isDispatchThread();
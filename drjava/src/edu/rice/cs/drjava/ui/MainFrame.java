@@ -123,6 +123,7 @@ import static edu.rice.cs.drjava.ui.predictive.PredictiveInputModel.*;
 import static edu.rice.cs.util.XMLConfig.XMLConfigException;
 import static edu.rice.cs.drjava.ui.MainFrameStatics.*;
 
+import edu.rice.cs.drjava.model.junit.JUnitError;
 import edu.rice.cs.drjava.model.junit.JUnitResultTuple;
 import edu.rice.cs.drjava.ui.aichat.AIChatPanel;
 
@@ -2809,6 +2810,8 @@ public class MainFrame extends SwingFrame implements ClipboardOwner, DropTargetL
     * @param wholeWord whether matches must be against the whole word
     * @param noComments whether comments should be ignored
     * @param noTestCases whether test cases should be ignored
+    * @param regex whether searchString is a regular expression
+    * @param anyLine whether each line of searchString is searched for
     * @param doc weak reference to document in which search occurred (or started, if all documents were searched)
     * @param findReplacePanel the FindReplacePanel that created this FindResultsPanel
     * @return new find results tab.
@@ -2816,11 +2819,11 @@ public class MainFrame extends SwingFrame implements ClipboardOwner, DropTargetL
   public FindResultsPanel createFindResultsPanel(final RegionManager<MovingDocumentRegion> rm,
     final MovingDocumentRegion region, final String title, final String searchString, 
     final boolean searchAll, final boolean searchSelectionOnly, final boolean matchCase, 
-    final boolean wholeWord, final boolean noComments, final boolean noTestCases, 
-    final WeakReference<OpenDefinitionsDocument> doc, final FindReplacePanel findReplacePanel) {
+    final boolean wholeWord, final boolean noComments, final boolean noTestCases, final boolean regex,
+    final boolean anyLine, final WeakReference<OpenDefinitionsDocument> doc, final FindReplacePanel findReplacePanel) {
     
     final FindResultsPanel panel = new FindResultsPanel(this, rm, region, title, searchString, searchAll, 
-      searchSelectionOnly, matchCase, wholeWord, noComments, noTestCases, doc, findReplacePanel);
+      searchSelectionOnly, matchCase, wholeWord, noComments, noTestCases, regex, anyLine, doc, findReplacePanel);
 
     final AbstractMap<MovingDocumentRegion, HighlightManager.HighlightInfo> highlights =
       new IdentityHashMap<MovingDocumentRegion, HighlightManager.HighlightInfo>();
@@ -9582,6 +9585,11 @@ public class MainFrame extends SwingFrame implements ClipboardOwner, DropTargetL
       _model.refreshActiveDocument();
     }
     
+    public void junitTestFault(final JUnitError fault) {
+      assert EventQueue.isDispatchThread();
+      _junitPanel.getErrorListPane().testFault(fault);
+    }
+    
     public void junitEnded() {
       assert EventQueue.isDispatchThread();
 //      new ScrollableDialog(null, "MainFrame.junitEnded() called", "", "").show();
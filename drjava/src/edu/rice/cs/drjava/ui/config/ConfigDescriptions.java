@@ -477,6 +477,11 @@ public class ConfigDescriptions {
         "Focus on the definitions pane after find/replace", 
         "<html>Whether to focus on the definitions pane after executing a find/replace operation.<br>" +
         "If this is not selected, the focus will be in the Find/Replace pane.</html>");
+    add(OptionConstants.PROJECT_SEARCH_INDEX, "Index Project Files for Find All", 
+        "<html>Whether to keep an index of the source files of the open project, so that \"Find All\"<br>" +
+        "in all documents also finds plain and multi-word searches in project files that are not open.<br>" +
+        "Files containing matches are opened.  The index is built in the background and saved<br>" +
+        "in the .drjava-index directory next to the DrJava preferences file.</html>");
     add(OptionConstants.DRJAVA_USE_FORCE_QUIT, 
         "Forcefully Quit DrJava",
         "<html>On some platforms, DrJava does not shut down properly when files are open<br>"+
@@ -518,6 +523,19 @@ public class ConfigDescriptions {
         "The maximum heap the Interactions JVM can use. Select blank for default");
     add(OptionConstants.SLAVE_JVM_ARGS, "JVM Args for Interactions JVM",
         "The command-line arguments to pass to the Interactions JVM.");    
+    add(OptionConstants.INTERACTIONS_STANDBY_JVM, "Keep Standby Interactions JVM",
+        "<html>Whether to start a second Interactions JVM in the background, so that<br>" +
+        "resetting the Interactions Pane does not have to wait for a new JVM.<br>" +
+        "Uses additional memory. Not used while debugging.</html>");
+    add(OptionConstants.SLAVE_JVM_CHANNEL_TRANSPORT, "Use Socket Channel for Interactions JVM",
+        "<html>Whether the Interactions JVM communicates with the Main JVM over a single<br>" +
+        "socket with a compact message format, instead of over RMI.<br>" +
+        "Takes effect when the Interactions Pane is reset.</html>");
+    add(OptionConstants.CLASS_DATA_SHARING, "Use Class Data Sharing Archives",
+        "<html>Whether to speed up the startup of the Main JVM and the Interactions JVM<br>" +
+        "by saving the classes they load in an archive that later JVMs can map directly.<br>" +
+        "The archives are stored in the '.drjava-cds' directory in your home directory.<br>" +
+        "Requires Java 13 or newer.</html>");
     
     /** Adds all of the components for the Compiler Options Panel of the preferences window
       */
@@ -1048,6 +1048,7 @@ public class ConfigFrame extends SwingFrame {
 
     addOptionComponent(panel, 
                        newBooleanOptionComponent(OptionConstants.FIND_REPLACE_FOCUS_IN_DEFPANE));
+    addOptionComponent(panel, newBooleanOptionComponent(OptionConstants.PROJECT_SEARCH_INDEX));
     addOptionComponent(panel, newBooleanOptionComponent(OptionConstants.DRJAVA_USE_FORCE_QUIT));
     addOptionComponent(panel, newBooleanOptionComponent(OptionConstants.REMOTE_CONTROL_ENABLED));
     addOptionComponent(panel, newIntegerOptionComponent(OptionConstants.REMOTE_CONTROL_PORT));
@@ -1073,6 +1074,12 @@ public class ConfigFrame extends SwingFrame {
                        newForcedChoiceOptionComponent(OptionConstants.SLAVE_JVM_XMX));
     addOptionComponent(panel, 
                        newStringOptionComponent(OptionConstants.SLAVE_JVM_ARGS));    
+    addOptionComponent(panel, 
+                       newBooleanOptionComponent(OptionConstants.INTERACTIONS_STANDBY_JVM));
+    addOptionComponent(panel, 
+                       newBooleanOptionComponent(OptionConstants.SLAVE_JVM_CHANNEL_TRANSPORT));
+    addOptionComponent(panel, 
+                       newBooleanOptionComponent(OptionConstants.CLASS_DATA_SHARING));
     panel.displayComponents();
   }
 
@@ -28,6 +28,13 @@
  * END_COPYRIGHT_BLOCK*/
 package edu.rice.cs.util.newjvm;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.rmi.NoSuchObjectException;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
@@ -40,6 +47,7 @@ import edu.rice.cs.plt.collect.CollectUtil;
 import edu.rice.cs.plt.concurrent.ConcurrentUtil;
 import edu.rice.cs.plt.concurrent.JVMBuilder;
 import edu.rice.cs.plt.concurrent.StateMonitor;
+import edu.rice.cs.plt.iter.IterUtil;
 import edu.rice.cs.plt.lambda.LazyThunk;
 import edu.rice.cs.plt.lambda.Runnable1;
 import edu.rice.cs.plt.lambda.Thunk;
@@ -73,10 +81,27 @@ public abstract class AbstractMasterJVM implements MasterRemote {
    */
   private enum State { FRESH, STARTING, RUNNING, QUITTING, DISPOSED };
   
+  /** The role of a launched slave process.  A STANDBY process has been launched (and its slave object constructed)
+    * but not yet started; it becomes CURRENT when it is handed to {@link #invokeSlave}.  A RETIRED process has been
+    * detached from this master and is shutting down on its own, so its exit is not reported.
+    */
+  private enum Role { STANDBY, CURRENT, RETIRED };
+  
+  /** A launched slave process, tracked so that its exit can be attributed to the right role. */
+  private static class SlaveProcess {
+    public final JVMBuilder builder;
+    public volatile Role role;
+    public volatile SlaveRemote remote;
+    /** The channel to the process, or null if it communicates over RMI. */
+    public volatile MultiplexedChannel channel;
+    public SlaveProcess(JVMBuilder b, Role r) { builder = b; role = r; remote = null; channel = null; }
+  }
+  
   /** Loads an instance of the given AbstractSlaveJVM class.  Invoked in the slave JVM. */
-  private static class SlaveFactory implements Thunk<AbstractSlaveJVM>, Serializable {
+  static class SlaveFactory implements Thunk<AbstractSlaveJVM>, Serializable {
     private final String _className;
     public SlaveFactory(String className) { _className = className; }
+    public String className() { return _className; }
     public AbstractSlaveJVM value() {
       try { return (AbstractSlaveJVM) ReflectUtil.getStaticField(_className, "ONLY"); }
       catch (ReflectException e) {
@@ -91,6 +116,18 @@ public abstract class AbstractMasterJVM implements MasterRemote {
   private final LazyThunk<MasterRemote> _masterStub;
   /** The slave JVM remote stub (non-null when the state is RUNNING). */
   private volatile SlaveRemote _slave;
+  /** The process hosting _slave (non-null when the state is RUNNING). */
+  private volatile SlaveProcess _slaveProcess;
+  
+  /** Maximum time in milliseconds to wait for a slave to connect over a channel. */
+  private static final int CHANNEL_CONNECT_TIMEOUT = 60000;
+  
+  /** Guards _standby and _standbyLaunching. */
+  private final Object _standbyLock = new Object();
+  /** A pre-launched slave waiting to be handed to invokeSlave; null if there is none. */
+  private SlaveProcess _standby = null;
+  /** Whether a standby slave is currently being launched. */
+  private boolean _standbyLaunching = false;
   
   /** Set up the master JVM object.  Does not start a slave JVM.
    * @param slaveClassName The fully-qualified class name of the class to start up in the second JVM.  Must be a
@@ -109,6 +146,7 @@ public abstract class AbstractMasterJVM implements MasterRemote {
       }
     });
     _slave = null;
+    _slaveProcess = null;
     // Make sure RMI doesn't use an IP address that might change
     System.setProperty("java.rmi.server.hostname", "127.0.0.1");
   }
@@ -131,51 +169,45 @@ public abstract class AbstractMasterJVM implements MasterRemote {
   
   /** Creates and starts the slave JVM.  If the the slave is currently running, waits until it completes.
     * Also waits until the new process has started up and calls one of {@link #handleSlaveConnected}
-    * or {@link #handleSlaveWontStart} before returning.
+    * or {@link #handleSlaveWontStart} before returning.  If a standby slave prepared by
+    * {@link #prepareStandbySlave} with an identical configuration is available, it is started instead of
+    * launching a new process.
     * @param jvmBuilder  JVMBuilder to use in starting the remote process.
     * @throws IllegalStateException  If this object has been disposed.
     */
   protected final void invokeSlave(JVMBuilder jvmBuilder) {
     transition(State.FRESH, State.STARTING);
 
-    // update jvmBuilder with any special properties
-    Map<String, String> props = ConcurrentUtil.getPropertiesAsMap("plt.", "drjava.", "edu.rice.cs.");
-    if (!props.containsKey("plt.log.working.dir") && // Set plt.log.working.dir, in case the working dir changes
-        (props.containsKey("plt.debug.log") || props.containsKey("plt.error.log") || 
-            props.containsKey("plt.log.factory"))) {
-      props.put("plt.log.working.dir", System.getProperty("user.dir", ""));
-    }
-    // include props, but shadow them with any definitions in jvmBuilder
-    final JVMBuilder tweakedJVMBuilder = jvmBuilder.properties(CollectUtil.union(props, jvmBuilder.properties()));
+    final JVMBuilder tweakedJVMBuilder = _withSlaveProperties(jvmBuilder);
 
+    SlaveProcess newProcess = _takeStandby(tweakedJVMBuilder);
     SlaveRemote newSlave = null;
-    try {
-      debug.logStart("invoking remote JVM process");
-      newSlave =
-        (SlaveRemote) ConcurrentUtil.exportInProcess(_slaveFactory, tweakedJVMBuilder, new Runnable1<Process>() {
-          public void run(Process p) {
-            debug.log("Remote JVM quit");
-            _monitor.set(State.FRESH);
-            //debug.log("Entered state " + State.FRESH);
-            debug.logStart("handleSlaveQuit");
-            handleSlaveQuit(p.exitValue());
-            debug.logEnd("handleSlaveQuit");
-          }
-        });
-      debug.logEnd("invoking remote JVM process");
+    if (newProcess != null) {
+      debug.log("using standby remote JVM process");
+      newSlave = newProcess.remote;
     }
-    catch (Exception e) {
-      debug.log(e);
-      debug.logEnd("invoking remote JVM process (failed)");
-      _monitor.set(State.FRESH);
-      //debug.log("Entered state " + State.FRESH);
-      handleSlaveWontStart(e);
+    else {
+      newProcess = new SlaveProcess(tweakedJVMBuilder, Role.CURRENT);
+      try {
+        debug.logStart("invoking remote JVM process");
+        newSlave = _launch(newProcess);
+        newProcess.remote = newSlave;
+        debug.logEnd("invoking remote JVM process");
+      }
+      catch (Exception e) {
+        debug.log(e);
+        debug.logEnd("invoking remote JVM process (failed)");
+        _monitor.set(State.FRESH);
+        //debug.log("Entered state " + State.FRESH);
+        handleSlaveWontStart(e);
+      }
     }
 
     if (newSlave != null) {
-      try { newSlave.start(_masterStub.value()); }
+      try { newSlave.start(newProcess.channel == null ? _masterStub.value() : this); }
       catch (RemoteException e) {
         debug.log(e);
+        newProcess.role = Role.RETIRED;
         attemptQuit(newSlave);
         _monitor.set(State.FRESH);
         //debug.log("Entered state " + State.FRESH);
@@ -185,11 +217,216 @@ public abstract class AbstractMasterJVM implements MasterRemote {
       
       handleSlaveConnected(newSlave);
       _slave = newSlave;
+      _slaveProcess = newProcess;
       _monitor.set(State.RUNNING);
       //debug.log("Entered state " + State.RUNNING);
     }
   }
   
+  /** Launches a standby slave JVM in the background, so that a later {@link #invokeSlave} with the same
+    * configuration only needs to start it rather than wait for a new process.  The standby's slave object is
+    * constructed (and thus warmed up) immediately, but {@link SlaveRemote#start} is not invoked until it is used;
+    * meanwhile, {@link SlaveRemote#watchMaster} makes the standby quit if this JVM dies.
+    * Does nothing if an equivalent standby already exists or is being launched.  Does not block.
+    * @param jvmBuilder  JVMBuilder to use in starting the remote process.
+    */
+  protected final void prepareStandbySlave(JVMBuilder jvmBuilder) {
+    final SlaveProcess sp = new SlaveProcess(_withSlaveProperties(jvmBuilder), Role.STANDBY);
+    synchronized(_standbyLock) {
+      if (isDisposed() || _standbyLaunching) { return; }
+      if (_standby != null) {
+        if (_isUsable(_standby, sp.builder)) { return; }
+        _discardStandby();
+      }
+      _standbyLaunching = true;
+    }
+    Thread launcher = new Thread("Launch Standby SlaveJVM") {
+      public void run() {
+        SlaveRemote remote = null;
+        try {
+          remote = _launch(sp);
+          sp.remote = remote;
+          remote.watchMaster(sp.channel == null ? _masterStub.value() : AbstractMasterJVM.this);
+        }
+        catch (Exception e) {
+          debug.log("Standby remote JVM won't start", e);
+          if (remote != null) { _retire(sp); }
+          remote = null;
+        }
+        synchronized(_standbyLock) {
+          _standbyLaunching = false;
+          if (remote == null || sp.role != Role.STANDBY) { return; }  // failed, or process has already quit
+          if (isDisposed()) { _retire(sp); }
+          else { _standby = sp; }
+        }
+      }
+    };
+    launcher.setDaemon(true);
+    launcher.start();
+  }
+  
+  /** @return true iff a standby slave JVM has been launched and is ready to be used */
+  protected final boolean hasStandbySlave() {
+    synchronized(_standbyLock) { return _standby != null; }
+  }
+  
+  /** Quits the standby slave JVM, if any. */
+  protected final void discardStandbySlave() {
+    synchronized(_standbyLock) { _discardStandby(); }
+  }
+  
+  /** Removes and returns the standby if it was launched with the given configuration; otherwise discards any 
+    * standby and returns null.
+    */
+  private SlaveProcess _takeStandby(JVMBuilder jvmBuilder) {
+    synchronized(_standbyLock) {
+      SlaveProcess sp = _standby;
+      if (sp == null) { return null; }
+      _standby = null;
+      if (! _isUsable(sp, jvmBuilder)) { _retire(sp); return null; }
+      sp.role = Role.CURRENT;
+      return sp;
+    }
+  }
+  
+  /** Quits the standby, if any, without waiting.  Must hold _standbyLock. */
+  private void _discardStandby() {
+    if (_standby != null) {
+      _retire(_standby);
+      _standby = null;
+    }
+  }
+  
+  /** Launches the process for sp and returns its slave stub.  The exit of the process is reported according to the
+    * role of sp at the time of exit.
+    */
+  private SlaveRemote _launch(final SlaveProcess sp) throws Exception {
+    Runnable1<Process> onExit = new Runnable1<Process>() {
+      public void run(Process p) { _slaveExited(sp, p); }
+    };
+    if (useChannelTransport()) { return _launchOverChannel(sp, onExit); }
+    else { return (SlaveRemote) ConcurrentUtil.exportInProcess(_slaveFactory, sp.builder, onExit); }
+  }
+  
+  /** Launches the process for sp with a {@link MultiplexedChannel} as transport.  The process connects to a
+    * loopback port opened for it, authenticates itself with a token that it receives on its standard input, and
+    * sends its slave object over the resulting channel.
+    */
+  private SlaveRemote _launchOverChannel(final SlaveProcess sp, final Runnable1<Process> onExit) throws Exception {
+    final String token = MultiplexedChannel.newToken();
+    ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+    try {
+      Process p = sp.builder.start(ChannelSlaveJVM.class.getName(), String.valueOf(server.getLocalPort()),
+                                   _slaveFactory.className());
+      ConcurrentUtil.discardProcessOut(p);
+      ConcurrentUtil.copyProcessErr(p, System.err);
+      try {
+        // unlike the command line, the standard input of the process is not visible to other processes
+        Writer tokenOut = new OutputStreamWriter(p.getOutputStream(), "UTF-8");
+        tokenOut.write(token + "\n");
+        tokenOut.close();
+        Socket socket = _acceptSlave(server, token);
+        socket.setTcpNoDelay(true);
+        final MultiplexedChannel channel = new MultiplexedChannel("Master Channel", socket.getInputStream(),
+                                                                  socket.getOutputStream());
+        channel.start();
+        SlaveRemote result = (SlaveRemote) channel.awaitRoot(CHANNEL_CONNECT_TIMEOUT);
+        sp.channel = channel;
+        ConcurrentUtil.onProcessExit(p, new Runnable1<Process>() {
+          public void run(Process exited) {
+            channel.close();
+            onExit.run(exited);
+          }
+        });
+        return result;
+      }
+      catch (Exception e) {
+        p.destroy();
+        throw e;
+      }
+    }
+    finally { server.close(); }
+  }
+  
+  /** Accepts connections to server until one presents token; other connections are closed before anything else is
+    * read from them.
+    * @return the authenticated connection
+    * @throws InterruptedIOException  if no connection presents the token within CHANNEL_CONNECT_TIMEOUT
+    */
+  private static Socket _acceptSlave(ServerSocket server, String token) throws IOException {
+    long end = System.currentTimeMillis() + CHANNEL_CONNECT_TIMEOUT;
+    while (true) {
+      long remaining = end - System.currentTimeMillis();
+      if (remaining <= 0) { throw new InterruptedIOException("Timed out waiting for slave to connect"); }
+      server.setSoTimeout((int) remaining);
+      Socket socket = server.accept();
+      try {
+        socket.setSoTimeout((int) remaining);
+        if (MultiplexedChannel.readToken(socket.getInputStream(), token)) {
+          socket.setSoTimeout(0);
+          return socket;
+        }
+      }
+      catch (IOException e) { debug.log("Unable to read token from connection", e); }
+      error.log("Rejected a connection to the slave port without the slave's token");
+      socket.close();
+    }
+  }
+  
+  /** Reports the exit of a slave process according to its role. */
+  private void _slaveExited(SlaveProcess sp, Process p) {
+    switch (sp.role) {
+      case STANDBY:
+        debug.log("Standby remote JVM quit");
+        sp.role = Role.RETIRED;
+        synchronized(_standbyLock) { if (_standby == sp) { _standby = null; } }
+        break;
+      case RETIRED:
+        debug.log("Retired remote JVM quit");
+        break;
+      default:
+        debug.log("Remote JVM quit");
+        _monitor.set(State.FRESH);
+        //debug.log("Entered state " + State.FRESH);
+        debug.logStart("handleSlaveQuit");
+        handleSlaveQuit(p.exitValue());
+        debug.logEnd("handleSlaveQuit");
+    }
+  }
+  
+  /** Determines the transport for slaves launched from now on.  If true, the slave communicates with this master
+    * over a {@link MultiplexedChannel}; otherwise, over RMI.  Returns false; subclasses may override.
+    * @return true iff new slaves should use a MultiplexedChannel
+    */
+  protected boolean useChannelTransport() { return false; }
+  
+  /** @return jvmBuilder extended with the special properties passed on to every slave JVM */
+  private static JVMBuilder _withSlaveProperties(JVMBuilder jvmBuilder) {
+    Map<String, String> props = ConcurrentUtil.getPropertiesAsMap("plt.", "drjava.", "edu.rice.cs.");
+    if (!props.containsKey("plt.log.working.dir") && // Set plt.log.working.dir, in case the working dir changes
+        (props.containsKey("plt.debug.log") || props.containsKey("plt.error.log") || 
+            props.containsKey("plt.log.factory"))) {
+      props.put("plt.log.working.dir", System.getProperty("user.dir", ""));
+    }
+    // include props, but shadow them with any definitions in jvmBuilder
+    return jvmBuilder.properties(CollectUtil.union(props, jvmBuilder.properties()));
+  }
+  
+  /** @return true iff sp was launched with the given configuration and the current transport */
+  private boolean _isUsable(SlaveProcess sp, JVMBuilder jvmBuilder) {
+    return _sameConfiguration(sp.builder, jvmBuilder) && ((sp.channel != null) == useChannelTransport());
+  }
+  
+  /** @return true iff the two builders would launch identically configured processes */
+  private static boolean _sameConfiguration(JVMBuilder b1, JVMBuilder b2) {
+    return b1.javaCommand().equals(b2.javaCommand()) &&
+      IterUtil.isEqual(b1.jvmArguments(), b2.jvmArguments()) &&
+      IterUtil.isEqual(b1.classPath(), b2.classPath()) &&
+      b1.directory().equals(b2.directory()) &&
+      b1.properties().equals(b2.properties()) &&
+      (b1.environment() == null ? b2.environment() == null : b1.environment().equals(b2.environment()));
+  }
+  
   /** Quits slave JVM.  If a slave is not currently started and running, blocks until that state is reached.
     * @throws IllegalStateException  If this object has been disposed.
     */
@@ -197,9 +434,36 @@ public abstract class AbstractMasterJVM implements MasterRemote {
     transition(State.RUNNING, State.QUITTING);
     attemptQuit(_slave);
     _slave = null;
+    _slaveProcess = null;
     _monitor.set(State.FRESH);
     //debug.log("Entered state " + State.FRESH);
   }
+  
+  /** Detaches the running slave JVM and quits it asynchronously.  Unlike {@link #quitSlave}, the state is FRESH as
+    * soon as this method returns, so a new slave can be invoked immediately, and {@link #handleSlaveQuit} is
+    * <em>not</em> called when the old process eventually exits.  If a slave is not currently started and running,
+    * blocks until that state is reached.
+    * @throws IllegalStateException  If this object has been disposed.
+    */
+  protected final void retireSlave() {
+    transition(State.RUNNING, State.QUITTING);
+    _retire(_slaveProcess);
+    _slave = null;
+    _slaveProcess = null;
+    _monitor.set(State.FRESH);
+    //debug.log("Entered state " + State.FRESH);
+  }
+  
+  /** Marks sp as retired and quits it in a separate thread, so that a slave that is busy cannot block the caller. */
+  private static void _retire(final SlaveProcess sp) {
+    sp.role = Role.RETIRED;
+    if (sp.remote == null) { return; }
+    Thread quitter = new Thread("Quit Retired SlaveJVM") {
+      public void run() { attemptQuit(sp.remote); }
+    };
+    quitter.setDaemon(true);
+    quitter.start();
+  }
     
   /** Make a best attempt to invoke {@code slave.quit()}.  Log an error if it fails.
    * @param slave link to the slave JVM
@@ -215,6 +479,7 @@ public abstract class AbstractMasterJVM implements MasterRemote {
    */
   protected void dispose() {
     transition(State.FRESH, State.DISPOSED);
+    discardStandbySlave();
     if (_masterStub.isResolved()) { 
       try { UnicastRemoteObject.unexportObject(this, true); }
       catch (NoSuchObjectException e) { error.log(e); }
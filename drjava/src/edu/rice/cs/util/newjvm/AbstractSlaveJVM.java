@@ -46,6 +46,8 @@ public abstract class AbstractSlaveJVM implements SlaveRemote {
   /** Name of the thread to periodically poll the master. */
   private final String _pollMasterThreadName;
   private boolean _started;
+  /** Whether the thread polling the master has been started. */
+  private boolean _watching;
   
   public AbstractSlaveJVM() {
     this("Quit SlaveJVM Thread", "Poll MasterJVM Thread");
@@ -55,6 +57,7 @@ public abstract class AbstractSlaveJVM implements SlaveRemote {
     _quitSlaveThreadName = quitSlaveThreadName;
     _pollMasterThreadName = pollMasterThreadName;
     _started = false;
+    _watching = false;
   }
   
   /** Quits the slave JVM, calling {@link #beforeQuit} before it does. */
@@ -81,7 +84,24 @@ public abstract class AbstractSlaveJVM implements SlaveRemote {
   public final synchronized void start(final MasterRemote master) throws RemoteException {
     if (_started) { throw new IllegalArgumentException("start() has already been invoked"); }
     master.checkStillAlive(); // verify that two-way communication works; may throw RemoteException
-
+    if (! _watching) { _pollMaster(master); }
+    handleStart(master);
+  }
+  
+  /** Starts the background thread that periodically polls the master JVM, without starting this slave.  Used for
+    * standby slaves, which would otherwise outlive a master that dies before using them.
+    * @param master link to the master JVM
+    * @throws RemoteException if communication over RMI fails
+    */
+  public final synchronized void watchMaster(MasterRemote master) throws RemoteException {
+    if (_watching) { return; }
+    master.checkStillAlive(); // may throw RemoteException
+    _pollMaster(master);
+  }
+  
+  /** Starts the thread that quits this JVM once the master no longer responds.  Must hold the lock on this. */
+  private void _pollMaster(final MasterRemote master) {
+    _watching = true;
     Thread checkMaster = new Thread(_pollMasterThreadName) {
       public void run() {
         while (true) {
@@ -98,7 +118,6 @@ public abstract class AbstractSlaveJVM implements SlaveRemote {
     };
     checkMaster.setDaemon(true);
     checkMaster.start();
-    handleStart(master);
   }
   
   /** This method is called just before the JVM is quit.  It can be overridden to provide cleanup code, etc. */
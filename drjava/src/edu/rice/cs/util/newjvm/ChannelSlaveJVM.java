@@ -0,0 +1,71 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.util.newjvm;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import static edu.rice.cs.plt.debug.DebugUtil.error;
+
+/** Entry point of a slave JVM that communicates with its master over a {@link MultiplexedChannel} instead of RMI.
+  * Connects to the master's loopback port, authenticates itself with the token that the master writes to the standard
+  * input of this JVM, creates the slave object (in the same way as the RMI launcher) and sends it to the master as the
+  * channel's root.  The JVM quits when the channel is closed.
+  * @version $Id$
+  */
+public final class ChannelSlaveJVM {
+  
+  /** Prevents instantiation. */
+  private ChannelSlaveJVM() { }
+  
+  /** @param args  the master's port on the loopback interface, and the name of the slave class */
+  public static void main(String[] args) {
+    try {
+      String token = new BufferedReader(new InputStreamReader(System.in, "UTF-8")).readLine();
+      if (token == null) { throw new EOFException("No token on standard input"); }
+      Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), Integer.parseInt(args[0]));
+      socket.setTcpNoDelay(true);
+      MultiplexedChannel.writeToken(socket.getOutputStream(), token);
+      MultiplexedChannel channel = new MultiplexedChannel("Slave Channel", socket.getInputStream(), 
+                                                          socket.getOutputStream());
+      channel.start();
+      channel.sendRoot(new AbstractMasterJVM.SlaveFactory(args[1]).value());
+      channel.awaitClose();
+    }
+    catch (Throwable t) {
+      error.log("Unable to start slave over channel", t);
+      System.exit(1);
+    }
+    // the master is gone (or has quit this slave without the slave exiting itself)
+    System.exit(0);
+  }
+}
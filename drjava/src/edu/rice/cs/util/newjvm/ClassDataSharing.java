@@ -0,0 +1,138 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.util.newjvm;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import edu.rice.cs.plt.concurrent.JVMBuilder;
+
+import static edu.rice.cs.plt.debug.DebugUtil.debug;
+
+/** Support for class data sharing (CDS) archives, which let a JVM map the classes it loads at startup from a
+  * pre-generated archive instead of loading and verifying them from jars.  An archive is specific to a class path,
+  * to a build of the application and to a JDK; this class names archives after a checksum of all three, so a new
+  * archive is generated automatically whenever any of them changes, and archives for stale configurations are
+  * deleted.  Requires a Java 13 or later JVM; for earlier JVMs no arguments are produced.
+  * @version $Id$
+  */
+public final class ClassDataSharing {
+  /** File extension of archive files. */
+  public static final String ARCHIVE_EXTENSION = ".jsa";
+  
+  /** Archives that a process launched by this JVM is in the process of generating. */
+  private static final Set<File> _generating = new HashSet<File>();
+  
+  /** Prevents instantiation. */
+  private ClassDataSharing() { }
+  
+  /** Returns the given builder with additional JVM arguments that use (or, if it does not exist yet, generate) a CDS
+    * archive for the builder's class path.  Only one process launched by this JVM at a time is asked to generate
+    * a particular archive; processes launched in the meantime run without one.  If the builder does not use the
+    * current JVM's java command, its version is unknown, and the builder is returned unchanged.  The builder is also
+    * returned unchanged if its class path contains a non-empty directory, as when running from compiled classes
+    * rather than from a jar file.
+    * @param jvmb  the builder for the process to be launched
+    * @param archiveDir  the directory in which archives are kept; created if necessary
+    * @param name  the name of the kind of process (for example "slave"), used as prefix of the archive file
+    * @param buildId  a string identifying the build of the application, such as the build time
+    * @return a builder with CDS arguments, or {@code jvmb} itself if CDS cannot be used
+    */
+  public static JVMBuilder withArchive(JVMBuilder jvmb, File archiveDir, String name, String buildId) {
+    int feature = Runtime.version().feature();
+    if (feature < 13 || ! jvmb.javaCommand().equals(JVMBuilder.DEFAULT.javaCommand())) { return jvmb; }
+    // the JVM refuses to map or create an archive if the class path contains a non-empty directory
+    for (File f : jvmb.classPath()) {
+      String[] contents = f.list();
+      if (contents != null && contents.length > 0) { return jvmb; }
+    }
+    
+    File archive = archiveFile(jvmb, archiveDir, name, buildId);
+    List<String> args = new ArrayList<String>();
+    for (String arg : jvmb.jvmArguments()) { args.add(arg); }
+    
+    synchronized(_generating) {
+      if (archive.isFile()) { _generating.remove(archive); }
+      else {
+        if (_generating.contains(archive)) { return jvmb; }
+        if (! archiveDir.isDirectory() && ! archiveDir.mkdirs()) { return jvmb; }
+        _deleteStaleArchives(archiveDir, name, archive);
+        _generating.add(archive);
+        debug.log("Generating CDS archive " + archive);
+      }
+    }
+    
+    args.add("-Xshare:auto");  // fall back to loading classes normally if the archive can't be mapped
+    if (feature >= 19) {
+      // the JVM validates the archive and regenerates it at exit if it is missing or out of date
+      args.add("-XX:+AutoCreateSharedArchive");
+      args.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+    }
+    else if (archive.isFile()) { args.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath()); }
+    else { args.add("-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath()); }
+    return jvmb.jvmArguments(args);
+  }
+  
+  /** @return the archive file for the given configuration.  The file name includes a checksum of the java command,
+    *         the JDK version, the build id, the JVM arguments and the class path, including the size and modification
+    *         date of each jar file on the class path.
+    */
+  public static File archiveFile(JVMBuilder jvmb, File archiveDir, String name, String buildId) {
+    StringBuilder key = new StringBuilder();
+    key.append(jvmb.javaCommand()).append('\n');
+    key.append(System.getProperty("java.vm.version")).append('\n');
+    key.append(buildId).append('\n');
+    for (String arg : jvmb.jvmArguments()) { key.append(arg).append('\n'); }
+    for (File f : jvmb.classPath()) {
+      key.append(f.getAbsolutePath());
+      if (f.isFile()) { key.append(':').append(f.length()).append(':').append(f.lastModified()); }
+      key.append('\n');
+    }
+    CRC32 crc = new CRC32();
+    crc.update(key.toString().getBytes());
+    return new File(archiveDir, name + "-" + Long.toHexString(crc.getValue()) + ARCHIVE_EXTENSION);
+  }
+  
+  /** Deletes the archives with the given name in archiveDir, except for current. */
+  private static void _deleteStaleArchives(File archiveDir, String name, File current) {
+    File[] files = archiveDir.listFiles();
+    if (files == null) { return; }
+    for (File f : files) {
+      String fName = f.getName();
+      if (fName.startsWith(name + "-") && fName.endsWith(ARCHIVE_EXTENSION) && ! f.equals(current)) {
+        debug.log("Deleting stale CDS archive " + f);
+        f.delete();
+      }
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.util.newjvm;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import edu.rice.cs.plt.concurrent.JVMBuilder;
+import edu.rice.cs.plt.io.IOUtil;
+import edu.rice.cs.plt.iter.IterUtil;
+
+/** Tests for {@link ClassDataSharing}.
+  * @version $Id$
+  */
+public class ClassDataSharingTest extends TestCase {
+  
+  private File _dir;
+  private File _jar;
+  private File _archiveDir;
+  private JVMBuilder _jvmb;
+  
+  protected void setUp() throws IOException {
+    _dir = IOUtil.createAndMarkTempDirectory("ClassDataSharingTest", "");
+    _jar = new File(_dir, "app.jar");
+    IOUtil.writeStringToFile(_jar, "jar contents");
+    _jar.setLastModified(1000000000000L);
+    _archiveDir = new File(_dir, "archives");
+    _jvmb = JVMBuilder.DEFAULT.classPath(_jar).jvmArguments("-Xmx64m");
+  }
+  
+  protected void tearDown() { IOUtil.deleteRecursively(_dir); }
+  
+  private File archive(JVMBuilder jvmb, String buildId) {
+    return ClassDataSharing.archiveFile(jvmb, _archiveDir, "slave", buildId);
+  }
+  
+  public void testArchiveFileName() throws IOException {
+    File base = archive(_jvmb, "1");
+    assertEquals(_archiveDir, base.getParentFile());
+    assertTrue(base.getName().startsWith("slave-"));
+    assertTrue(base.getName().endsWith(ClassDataSharing.ARCHIVE_EXTENSION));
+    assertEquals("same configuration", base, archive(_jvmb, "1"));
+    
+    assertFalse("build id", base.equals(archive(_jvmb, "2")));
+    assertFalse("JVM arguments", base.equals(archive(_jvmb.jvmArguments("-Xmx128m"), "1")));
+    assertFalse("no JVM arguments", base.equals(archive(_jvmb.jvmArguments(IterUtil.<String>empty()), "1")));
+    
+    _jar.setLastModified(2000000000000L);
+    File touched = archive(_jvmb, "1");
+    assertFalse("jar modification date", base.equals(touched));
+    
+    IOUtil.writeStringToFile(_jar, "longer jar contents");
+    _jar.setLastModified(2000000000000L);
+    assertFalse("jar size", touched.equals(archive(_jvmb, "1")));
+  }
+  
+  public void testStaleArchivesDeleted() throws IOException {
+    if (Runtime.version().feature() < 13) { return; }
+    assertTrue(_archiveDir.mkdirs());
+    File stale = new File(_archiveDir, "slave-0" + ClassDataSharing.ARCHIVE_EXTENSION);
+    File otherName = new File(_archiveDir, "master-0" + ClassDataSharing.ARCHIVE_EXTENSION);
+    File otherFile = new File(_archiveDir, "slave-notes.txt");
+    for (File f : new File[] { stale, otherName, otherFile }) { IOUtil.writeStringToFile(f, ""); }
+    
+    File current = archive(_jvmb, "1");
+    JVMBuilder generating = ClassDataSharing.withArchive(_jvmb, _archiveDir, "slave", "1");
+    assertFalse(stale.exists());
+    assertTrue(otherName.exists());
+    assertTrue(otherFile.exists());
+    assertTrue(IterUtil.contains(generating.jvmArguments(), "-Xmx64m"));
+    assertTrue(IterUtil.contains(generating.jvmArguments(), "-Xshare:auto"));
+    
+    // only one process at a time generates the archive
+    assertSame(_jvmb, ClassDataSharing.withArchive(_jvmb, _archiveDir, "slave", "1"));
+    
+    // once the archive exists, it is used, and a new build makes it stale
+    IOUtil.writeStringToFile(current, "");
+    JVMBuilder using = ClassDataSharing.withArchive(_jvmb, _archiveDir, "slave", "1");
+    assertNotSame(_jvmb, using);
+    String sharedArchive = "-XX:SharedArchiveFile=" + current.getAbsolutePath();
+    assertTrue(IterUtil.contains(using.jvmArguments(), sharedArchive));
+    assertTrue(current.exists());
+    ClassDataSharing.withArchive(_jvmb, _archiveDir, "slave", "2");
+    assertFalse(current.exists());
+  }
+  
+  public void testDirectoryClassPath() throws IOException {
+    File classes = new File(_dir, "classes");
+    assertTrue(classes.mkdir());
+    IOUtil.writeStringToFile(new File(classes, "A.class"), "");
+    JVMBuilder jvmb = _jvmb.classPath(_jar, classes);
+    assertSame(jvmb, ClassDataSharing.withArchive(jvmb, _archiveDir, "slave", "1"));
+    assertFalse(_archiveDir.exists());
+  }
+}
@@ -45,7 +45,7 @@ public class IntegratedMasterSlaveTest extends DrJavaTestCase {
   
   public void setUp() throws Exception {
     super.setUp();
-    _testMaster = new TestMasterJVM();
+    _testMaster = new TestMasterJVM(false);
   }
   
   public void tearDown() throws Exception {
@@ -66,6 +66,23 @@ public class IntegratedMasterSlaveTest extends DrJavaTestCase {
     for (int i = 0; i < 5; i++)  _testMaster.runImmediateQuitTest();
   }
   
+  // this test uses thread pools and starts a THRAD_EXECUTOR-n thread that we cannot join
+  public void testRetire_NOJOIN() throws Exception {
+    _testMaster.runRetireTest();
+  }
+  
+  // this test uses thread pools and starts a THRAD_EXECUTOR-n thread that we cannot join
+  public void testStandby_NOJOIN() throws Exception {
+    _testMaster.runStandbyTest();
+  }
+  
+  /** Runs the test sequence with a slave that authenticates itself and communicates over a MultiplexedChannel. */
+  public void testItAllOverChannel_NOJOIN() throws Exception {
+    _testMaster.dispose();
+    _testMaster = new TestMasterJVM(true);
+    _testMaster.runTestSequence();
+  }
+  
   private static class TestMasterJVM extends AbstractMasterJVM implements TestMasterRemote {
     
     private static final int WAIT_TIMEOUT = 10000; 
@@ -83,7 +100,14 @@ public class IntegratedMasterSlaveTest extends DrJavaTestCase {
     
     private volatile String _currentTest = "";
     
-    public TestMasterJVM() { super(CounterSlave.class.getName()); }
+    private final boolean _overChannel;
+    
+    public TestMasterJVM(boolean overChannel) {
+      super(CounterSlave.class.getName());
+      _overChannel = overChannel;
+    }
+    
+    @Override protected boolean useChannelTransport() { return _overChannel; }
     
     /** In util-20020414-0647, if quitSlave were called between the time the 
      * slave was invoked and the time it registered, an IllegalStateException 
@@ -128,6 +152,74 @@ public class IntegratedMasterSlaveTest extends DrJavaTestCase {
       _currentTest = "";
     }
     
+    /** A retired slave must actually be quit, even though its exit is not reported through handleSlaveQuit. */
+    public void runRetireTest() throws Exception {
+      _currentTest = "runRetireTest";
+      _justQuit.reset();
+      _slave = null;
+      _letter = 'a';
+      
+      invokeSlave(JVMBuilder.DEFAULT);
+      TestSlaveRemote retired = _slave;
+      assertEquals("value returned by slave", 0, retired.getNumber());
+      retireSlave();
+      
+      // the retired slave quits asynchronously; wait until it no longer responds
+      long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+      boolean quit = false;
+      while (! quit && System.currentTimeMillis() < deadline) {
+        try { retired.getNumber(); Thread.sleep(100); }
+        catch (RemoteException e) { quit = true; }
+      }
+      assertTrue("retired slave should have quit", quit);
+      assertFalse("retired slave's exit should not be reported", _justQuit.isSignaled());
+      
+      // a new slave can be started after the old one was retired
+      _letter = 'a';
+      invokeSlave(JVMBuilder.DEFAULT);
+      assertEquals("value returned by new slave", 0, _slave.getNumber());
+      quitSlave();
+      assertTrue(_justQuit.attemptEnsureSignaled(WAIT_TIMEOUT));
+      _currentTest = "";
+    }
+    
+    /** A reset that takes a standby slave must start the standby and quit the retired slave. */
+    public void runStandbyTest() throws Exception {
+      _currentTest = "runStandbyTest";
+      _justQuit.reset();
+      _slave = null;
+      _letter = 'a';
+      
+      invokeSlave(JVMBuilder.DEFAULT);
+      TestSlaveRemote retired = _slave;
+      assertEquals("value returned by slave", 0, retired.getNumber());
+      prepareStandbySlave(JVMBuilder.DEFAULT);
+      long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+      while (! hasStandbySlave() && System.currentTimeMillis() < deadline) { Thread.sleep(100); }
+      assertTrue("standby slave should have been launched", hasStandbySlave());
+      
+      // reset: retire the running slave and take the standby
+      retireSlave();
+      _letter = 'a';
+      invokeSlave(JVMBuilder.DEFAULT);
+      assertFalse("standby slave should have been taken", hasStandbySlave());
+      assertTrue("standby slave should be running", _slave != retired);
+      assertEquals("value returned by standby slave", 0, _slave.getNumber());
+      
+      deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+      boolean quit = false;
+      while (! quit && System.currentTimeMillis() < deadline) {
+        try { retired.getNumber(); Thread.sleep(100); }
+        catch (RemoteException e) { quit = true; }
+      }
+      assertTrue("retired slave should have quit", quit);
+      assertFalse("retired slave's exit should not be reported", _justQuit.isSignaled());
+      
+      quitSlave();
+      assertTrue(_justQuit.attemptEnsureSignaled(WAIT_TIMEOUT));
+      _currentTest = "";
+    }
+    
     public char getLetter() {
       synchronized(_letterLock) {
         char ret = _letter;
@@ -0,0 +1,741 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.util.newjvm;
+
+import java.io.*;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static edu.rice.cs.plt.debug.DebugUtil.debug;
+import static edu.rice.cs.plt.debug.DebugUtil.error;
+
+/** A bidirectional remote invocation channel over a single pair of streams (typically a loopback socket), used as an
+  * alternative to RMI between a master and a slave JVM.  The existing remote interfaces remain the programming model:
+  * objects implementing interfaces that extend {@link Remote} are passed by reference, and the other side invokes them
+  * through dynamic proxies.  All other values are passed by value.
+  * <p>
+  * Every message is a length-prefixed frame.  Common values (null, booleans, numbers, characters and strings) have a
+  * compact binary encoding; other values fall back to Java serialization.  Methods are identified by a small integer
+  * that is defined once per channel, rather than by a description sent with every call.  Calls are pipelined: any
+  * number of threads may have calls outstanding at a time, and replies are matched to calls by request id.  Incoming
+  * calls run on a pool of threads, so calls that call back through the channel (for example, a slave calling the
+  * master while handling a call from the master) do not deadlock.  Methods marked {@link OutOfBand}, such as the
+  * console output methods, are sent one-way and executed in order on a dedicated thread; an incoming call starts
+  * only after the one-way calls received before it have completed.
+  * <p>
+  * Serialized values are restricted by an {@link ObjectInputFilter} to the classes that the remote interfaces
+  * exchange.  A process that opens a channel over a socket should first authenticate its peer with a token (see
+  * {@link #newToken}, {@link #writeToken} and {@link #readToken}).
+  * <p>
+  * Unlike RMI, there is no distributed garbage collection: exported objects remain exported until the channel is
+  * closed.
+  * @version $Id$
+  */
+public class MultiplexedChannel {
+  
+  /* Frame types */
+  private static final byte CALL = 1;
+  private static final byte ONE_WAY = 2;
+  private static final byte REPLY = 3;
+  private static final byte FAULT = 4;
+  private static final byte METHOD = 5;
+  private static final byte ROOT = 6;
+  
+  /* Value tags */
+  private static final byte NULL = 0;
+  private static final byte TRUE = 1;
+  private static final byte FALSE = 2;
+  private static final byte INT = 3;
+  private static final byte LONG = 4;
+  private static final byte DOUBLE = 5;
+  private static final byte CHAR = 6;
+  private static final byte STRING = 7;
+  /** An object exported by the sender; followed by its id and the names of its remote interfaces. */
+  private static final byte REF = 8;
+  /** An object exported by the receiver; followed by its id. */
+  private static final byte BACK_REF = 9;
+  private static final byte SERIALIZED = 10;
+  
+  /** The number of random bytes in a token created by {@link #newToken}. */
+  private static final int TOKEN_BYTES = 32;
+  
+  /** The interval, in milliseconds, at which a thread waiting for a reply checks that the channel is still open. */
+  private static final long LIVENESS_INTERVAL = 1000;
+  
+  /** The maximum nesting depth of a serialized value. */
+  private static final long MAX_SERIALIZED_DEPTH = 100;
+  
+  /** The packages whose classes may be deserialized (in addition to those under edu.rice.cs).  Subpackages are not
+    * included. */
+  private static final String[] SERIALIZABLE_PACKAGES = { "java.lang", "java.math", "java.util", "java.io", "java.rmi" };
+  
+  /** Admits only the classes of the values exchanged by DrJava's remote interfaces: classes in 
+    * SERIALIZABLE_PACKAGES or under edu.rice.cs, arrays of them, and primitive arrays.  Proxies are rejected. */
+  private static final ObjectInputFilter SERIAL_FILTER = new ObjectInputFilter() {
+    public Status checkInput(FilterInfo info) {
+      if (info.depth() > MAX_SERIALIZED_DEPTH) { return Status.REJECTED; }
+      Class<?> c = info.serialClass();
+      if (c == null) { return Status.UNDECIDED; }
+      while (c.isArray()) { c = c.getComponentType(); }
+      return _isSerializable(c) ? Status.ALLOWED : Status.REJECTED;
+    }
+  };
+  
+  private static final Map<String, Class<?>> PRIMITIVES = new HashMap<String, Class<?>>();
+  static {
+    for (Class<?> c : new Class<?>[]{ boolean.class, byte.class, char.class, short.class, int.class, long.class,
+                                      float.class, double.class }) {
+      PRIMITIVES.put(c.getName(), c);
+    }
+  }
+  
+  private final String _name;
+  private final DataInputStream _in;
+  private final OutputStream _out;
+  /** Guards writes to _out, so that frames are never interleaved. */
+  private final Object _writeLock = new Object();
+  private final ExecutorService _executor;
+  /** Runs one-way calls, in order. */
+  private final ExecutorService _oneWayExecutor;
+  /** The last one-way call submitted to _oneWayExecutor, or null.  Only accessed by the reader thread. */
+  private Future<?> _lastOneWay = null;
+  private volatile boolean _closed = false;
+  private volatile Runnable _closeListener = null;
+  
+  /** Objects exported by this side, by id, and their ids.  Both guarded by _exports. */
+  private final Map<Integer, Object> _exports = new HashMap<Integer, Object>();
+  private final Map<Object, Integer> _exportIds = new IdentityHashMap<Object, Integer>();
+  /** Proxies for objects exported by the other side, by id.  Guarded by _exports. */
+  private final Map<Integer, Object> _proxies = new HashMap<Integer, Object>();
+  private int _nextExportId = 0;
+  
+  /** Ids of the methods that this side has defined for calls it makes.  Guarded by _writeLock. */
+  private final Map<Method, Integer> _outMethods = new HashMap<Method, Integer>();
+  /** Methods defined by the other side. */
+  private final Map<Integer, Method> _inMethods = new ConcurrentHashMap<Integer, Method>();
+  
+  private final AtomicInteger _nextRequestId = new AtomicInteger(0);
+  /** Calls waiting for a reply, by request id. */
+  private final Map<Integer, PendingCall> _pending = new ConcurrentHashMap<Integer, PendingCall>();
+  
+  /** The root object exported by the other side, once received.  Guarded by _stateLock. */
+  private Object _root = null;
+  /** Notified when the root is received and when the channel is closed. */
+  private final Object _stateLock = new Object();
+  
+  /** Creates a channel over the given streams.  Call {@link #start} to begin processing incoming messages.
+    * @param name  a name for the channel, used in thread names and log messages
+    * @param in  the stream from which messages are read
+    * @param out  the stream to which messages are written
+    */
+  public MultiplexedChannel(final String name, InputStream in, OutputStream out) {
+    _name = name;
+    _in = new DataInputStream(new BufferedInputStream(in));
+    _out = new BufferedOutputStream(out);
+    _executor = Executors.newCachedThreadPool(new ThreadFactory() {
+      private final AtomicInteger _count = new AtomicInteger(0);
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, name + " Call " + _count.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      }
+    });
+    _oneWayExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, name + " One-Way");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+  
+  /** @return a new random token, in hexadecimal, with which a peer can authenticate the connection of a channel */
+  public static String newToken() {
+    byte[] bytes = new byte[TOKEN_BYTES];
+    new SecureRandom().nextBytes(bytes);
+    StringBuilder result = new StringBuilder();
+    for (byte b : bytes) {
+      result.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return result.toString();
+  }
+  
+  /** Writes token as a frame to out.  Used by the connecting side before a channel is created over out.
+    * @param out  the stream over which the channel will be created
+    * @param token  the token expected by the other side
+    * @throws IOException  if the token cannot be written
+    */
+  public static void writeToken(OutputStream out, String token) throws IOException {
+    byte[] bytes = token.getBytes("UTF-8");
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(bytes.length);
+    data.write(bytes);
+    data.flush();
+  }
+  
+  /** Reads a frame written by {@link #writeToken} from in and compares it with token.  Reads no more than the frame,
+    * so a channel can be created over in afterwards.
+    * @param in  the stream over which the channel will be created
+    * @param token  the expected token
+    * @return true iff the frame holds token
+    * @throws IOException  if the frame cannot be read
+    */
+  public static boolean readToken(InputStream in, String token) throws IOException {
+    byte[] expected = token.getBytes("UTF-8");
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != expected.length) { return false; }
+    byte[] actual = new byte[expected.length];
+    data.readFully(actual);
+    return MessageDigest.isEqual(expected, actual);
+  }
+  
+  /** Starts the thread that reads incoming messages. */
+  public void start() {
+    Thread reader = new Thread(_name + " Reader") {
+      public void run() { _readLoop(); }
+    };
+    reader.setDaemon(true);
+    reader.start();
+  }
+  
+  /** Sets the action to run (on the reader thread) once the channel has been closed, locally or by the other side. */
+  public void setCloseListener(Runnable r) { _closeListener = r; }
+  
+  public boolean isClosed() { return _closed; }
+  
+  /** Closes the channel.  Calls waiting for a reply fail with a RemoteException. */
+  public void close() {
+    _closed = true;
+    try { _in.close(); }
+    catch (IOException e) { /* ignore */ }
+    try { _out.close(); }
+    catch (IOException e) { /* ignore */ }
+  }
+  
+  /** Sends a reference to the given object to the other side, where it can be retrieved with {@link #awaitRoot}.
+    * @param root  an object implementing at least one remote interface
+    * @throws IOException  if the message cannot be sent
+    */
+  public void sendRoot(Object root) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(bytes);
+    data.writeByte(ROOT);
+    _writeValue(data, root);
+    _writeFrame(bytes);
+  }
+  
+  /** Waits for the root object sent by the other side with {@link #sendRoot}.
+    * @param timeout  the maximum time to wait, in milliseconds
+    * @return a proxy for the other side's root object
+    * @throws IOException  if the channel is closed or the timeout expires before the root is received
+    * @throws InterruptedException  if the thread is interrupted while waiting
+    */
+  public Object awaitRoot(long timeout) throws IOException, InterruptedException {
+    long end = System.currentTimeMillis() + timeout;
+    synchronized(_stateLock) {
+      while (_root == null) {
+        if (_closed) { throw new EOFException("Channel closed before root was received"); }
+        long remaining = end - System.currentTimeMillis();
+        if (remaining <= 0) { throw new InterruptedIOException("Timed out waiting for root"); }
+        _stateLock.wait(remaining);
+      }
+      return _root;
+    }
+  }
+  
+  
+  /** Blocks until the channel has been closed, locally or by the other side.
+    * @throws InterruptedException  if the thread is interrupted while waiting
+    */
+  public void awaitClose() throws InterruptedException {
+    synchronized(_stateLock) {
+      while (!_closed) { _stateLock.wait(); }
+    }
+  }
+  
+  
+  /* === Outgoing calls === */
+  
+  /** Invocation handler for proxies of objects exported by the other side. */
+  private class RemoteHandler implements InvocationHandler {
+    private final int _id;
+    public RemoteHandler(int id) { _id = id; }
+    public MultiplexedChannel outer() { return MultiplexedChannel.this; }
+    public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+      if (m.getDeclaringClass().equals(Object.class)) {
+        String name = m.getName();
+        if (name.equals("equals")) { return proxy == args[0]; }
+        else if (name.equals("hashCode")) { return System.identityHashCode(proxy); }
+        else if (name.equals("toString")) { return "MultiplexedChannel proxy " + _name + "#" + _id; }
+        else { throw new UnsupportedOperationException(name); }
+      }
+      if (m.isAnnotationPresent(OutOfBand.class)) { _sendOneWay(_id, m, args); return null; }
+      else { return _call(_id, m, args); }
+    }
+  }
+  
+  /** A call waiting for its reply. */
+  private class PendingCall {
+    private boolean _done = false;
+    private Object _result = null;
+    private Throwable _fault = null;
+    public synchronized void complete(Object result, Throwable fault) {
+      _result = result;
+      _fault = fault;
+      _done = true;
+      notifyAll();
+    }
+    /** Waits for the reply.  Fails if the channel is closed without a reply, even if the reader thread has not (yet)
+      * failed this call. */
+    public synchronized Object await() throws Throwable {
+      while (!_done) {
+        wait(LIVENESS_INTERVAL);
+        if (!_done && _closed) { throw new RemoteException("Channel " + _name + " was closed"); }
+      }
+      if (_fault != null) { throw _fault; }
+      return _result;
+    }
+  }
+  
+  private Object _call(int id, Method m, Object[] args) throws Throwable {
+    if (_closed) { throw new RemoteException("Channel " + _name + " is closed"); }
+    int requestId = _nextRequestId.incrementAndGet();
+    PendingCall pc = new PendingCall();
+    _pending.put(requestId, pc);
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream data = new DataOutputStream(bytes);
+      data.writeByte(CALL);
+      data.writeInt(requestId);
+      _writeInvocation(data, id, m, args);
+      _writeMethodAndFrame(m, bytes);
+      // the reader thread may have failed all pending calls before this call was registered
+      if (_closed) { pc.complete(null, new RemoteException("Channel " + _name + " is closed")); }
+      return pc.await();
+    }
+    catch (IOException e) {
+      throw new RemoteException("Unable to send call to " + m.getName() + " over channel " + _name, e);
+    }
+    finally { _pending.remove(requestId); }
+  }
+  
+  private void _sendOneWay(int id, Method m, Object[] args) throws RemoteException {
+    if (_closed) { throw new RemoteException("Channel " + _name + " is closed"); }
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream data = new DataOutputStream(bytes);
+      data.writeByte(ONE_WAY);
+      _writeInvocation(data, id, m, args);
+      _writeMethodAndFrame(m, bytes);
+    }
+    catch (IOException e) {
+      throw new RemoteException("Unable to send call to " + m.getName() + " over channel " + _name, e);
+    }
+  }
+  
+  /** Writes the body of a call, using a placeholder for the method id; see {@link #_writeMethodAndFrame}. */
+  private void _writeInvocation(DataOutputStream data, int id, Method m, Object[] args) throws IOException {
+    data.writeInt(id);
+    data.writeInt(-1); // method id, patched by _writeMethodAndFrame
+    int argCount = (args == null) ? 0 : args.length;
+    data.writeByte(argCount);
+    for (int i = 0; i < argCount; i++) { _writeValue(data, args[i]); }
+  }
+  
+  /** Defines the method if necessary, patches its id into the call frame in bytes, and writes the frame.  The
+    * method id is the second int after the frame type (for CALL frames) or the first (for ONE_WAY frames).
+    */
+  private void _writeMethodAndFrame(Method m, ByteArrayOutputStream bytes) throws IOException {
+    byte[] frame = bytes.toByteArray();
+    int offset = (frame[0] == CALL) ? 9 : 5;
+    synchronized(_writeLock) {
+      Integer methodId = _outMethods.get(m);
+      if (methodId == null) {
+        methodId = _outMethods.size();
+        _outMethods.put(m, methodId);
+        ByteArrayOutputStream defBytes = new ByteArrayOutputStream();
+        DataOutputStream def = new DataOutputStream(defBytes);
+        def.writeByte(METHOD);
+        def.writeInt(methodId);
+        _writeString(def, _signature(m));
+        _writeRaw(defBytes.toByteArray());
+      }
+      frame[offset] = (byte) (methodId >>> 24);
+      frame[offset + 1] = (byte) (methodId >>> 16);
+      frame[offset + 2] = (byte) (methodId >>> 8);
+      frame[offset + 3] = (byte) (int) methodId;
+      _writeRaw(frame);
+      _out.flush();
+    }
+  }
+  
+  private void _writeFrame(ByteArrayOutputStream bytes) throws IOException {
+    synchronized(_writeLock) {
+      _writeRaw(bytes.toByteArray());
+      _out.flush();
+    }
+  }
+  
+  /** Writes a length-prefixed frame; must hold _writeLock. */
+  private void _writeRaw(byte[] frame) throws IOException {
+    int len = frame.length;
+    _out.write(len >>> 24);
+    _out.write(len >>> 16);
+    _out.write(len >>> 8);
+    _out.write(len);
+    _out.write(frame);
+  }
+  
+  
+  /* === Incoming messages === */
+  
+  private void _readLoop() {
+    try {
+      while (true) {
+        int len = _in.readInt();
+        byte[] frame = new byte[len];
+        _in.readFully(frame);
+        _handleFrame(frame);
+      }
+    }
+    catch (EOFException e) { debug.log("Channel " + _name + " closed by other side"); }
+    catch (IOException e) { if (!_closed) { error.log("Channel " + _name + " failed", e); } }
+    finally {
+      _closed = true;
+      _executor.shutdown();
+      _oneWayExecutor.shutdown();
+      for (PendingCall pc : _pending.values()) {
+        pc.complete(null, new RemoteException("Channel " + _name + " was closed"));
+      }
+      synchronized(_stateLock) { _stateLock.notifyAll(); }
+      Runnable listener = _closeListener;
+      if (listener != null) { listener.run(); }
+    }
+  }
+  
+  private void _handleFrame(byte[] frame) throws IOException {
+    final DataInputStream data = new DataInputStream(new ByteArrayInputStream(frame));
+    byte type = data.readByte();
+    switch (type) {
+      case CALL: {
+        final int requestId = data.readInt();
+        final int id = data.readInt();
+        final int methodId = data.readInt();
+        final Future<?> preceding = _lastOneWay;
+        _executor.execute(new Runnable() {
+          public void run() {
+            _awaitOneWay(preceding);
+            _handleCall(requestId, id, methodId, data);
+          }
+        });
+        break;
+      }
+      case ONE_WAY: {
+        final int id = data.readInt();
+        final int methodId = data.readInt();
+        _lastOneWay = _oneWayExecutor.submit(new Runnable() {
+          public void run() {
+            try { _invoke(id, methodId, data); }
+            catch (Throwable t) { error.log("One-way call over channel " + _name + " failed", t); }
+          }
+        });
+        break;
+      }
+      case REPLY:
+      case FAULT: {
+        PendingCall pc = _pending.get(data.readInt());
+        if (pc == null) { break; } // caller has given up
+        try {
+          Object value = _readValue(data);
+          if (type == REPLY) { pc.complete(value, null); }
+          else { pc.complete(null, (Throwable) value); }
+        }
+        catch (Exception e) {
+          pc.complete(null, new RemoteException("Unable to read reply over channel " + _name, e));
+        }
+        break;
+      }
+      case METHOD: {
+        int methodId = data.readInt();
+        String signature = _readString(data);
+        try { _inMethods.put(methodId, _resolve(signature)); }
+        catch (Exception e) { error.log("Unable to resolve method " + signature, e); }
+        break;
+      }
+      case ROOT: {
+        Object root;
+        try { root = _readValue(data); }
+        catch (ClassNotFoundException e) { throw new IOException("Unable to load root interface", e); }
+        synchronized(_stateLock) {
+          _root = root;
+          _stateLock.notifyAll();
+        }
+        break;
+      }
+      default: throw new IOException("Unrecognized frame type " + type);
+    }
+  }
+  
+  /** Waits until the given one-way call (and thus all one-way calls received before it) has completed. */
+  private static void _awaitOneWay(Future<?> oneWay) {
+    if (oneWay == null) { return; }
+    try { oneWay.get(); }
+    catch (Exception e) { /* rejected because the channel was closed, or interrupted: proceed */ }
+  }
+  
+  /** Runs an incoming call and sends its result.  Invoked on an executor thread.  If the result cannot be sent, the
+    * caller receives a RemoteException instead; if that cannot be sent either, the channel is closed, so that the
+    * caller does not wait forever.
+    */
+  private void _handleCall(int requestId, int id, int methodId, DataInputStream data) {
+    Object result = null;
+    Throwable fault = null;
+    try { result = _invoke(id, methodId, data); }
+    catch (Throwable t) { fault = t; }
+    
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      try {
+        out.writeByte(fault == null ? REPLY : FAULT);
+        out.writeInt(requestId);
+        _writeValue(out, fault == null ? result : fault);
+      }
+      catch (Throwable t) {
+        // the cause may itself be unserializable, so it is only described
+        bytes.reset();
+        out.writeByte(FAULT);
+        out.writeInt(requestId);
+        _writeValue(out, new RemoteException("Unable to send result over channel " + _name + ": " + t));
+      }
+      _writeFrame(bytes);
+    }
+    catch (Throwable t) {
+      if (!_closed) {
+        error.log("Unable to send reply over channel " + _name + "; closing it", t);
+        close();
+      }
+    }
+  }
+  
+  /** Reads the arguments of a call and invokes the target method.
+    * @throws Throwable  the exception thrown by the method, or a RemoteException if the call can't be made
+    */
+  private Object _invoke(int id, int methodId, DataInputStream data) throws Throwable {
+    Object target;
+    synchronized(_exports) { target = _exports.get(id); }
+    Method m = _inMethods.get(methodId);
+    if (target == null) { throw new RemoteException("No object with id " + id + " in channel " + _name); }
+    if (m == null) { throw new RemoteException("No method with id " + methodId + " in channel " + _name); }
+    int argCount = data.readByte();
+    Object[] args = new Object[argCount];
+    try { for (int i = 0; i < argCount; i++) { args[i] = _readValue(data); } }
+    catch (Exception e) { throw new RemoteException("Unable to read arguments of " + m.getName(), e); }
+    try { return m.invoke(target, args); }
+    catch (InvocationTargetException e) { throw e.getCause(); }
+    catch (IllegalAccessException e) { throw new RemoteException("Unable to invoke " + m.getName(), e); }
+  }
+  
+  
+  /* === Values === */
+  
+  private void _writeValue(DataOutputStream out, Object v) throws IOException {
+    if (v == null) { out.writeByte(NULL); }
+    else if (v instanceof Boolean) { out.writeByte(((Boolean) v) ? TRUE : FALSE); }
+    else if (v instanceof Integer) { out.writeByte(INT); out.writeInt((Integer) v); }
+    else if (v instanceof Long) { out.writeByte(LONG); out.writeLong((Long) v); }
+    else if (v instanceof Double) { out.writeByte(DOUBLE); out.writeDouble((Double) v); }
+    else if (v instanceof Character) { out.writeByte(CHAR); out.writeChar((Character) v); }
+    else if (v instanceof String) { out.writeByte(STRING); _writeString(out, (String) v); }
+    else if (_isProxy(v)) {
+      out.writeByte(BACK_REF);
+      out.writeInt(((RemoteHandler) Proxy.getInvocationHandler(v))._id);
+    }
+    else if (v instanceof Remote) {
+      List<Class<?>> interfaces = _remoteInterfaces(v.getClass());
+      out.writeByte(REF);
+      out.writeInt(_export(v));
+      out.writeByte(interfaces.size());
+      for (Class<?> c : interfaces) { _writeString(out, c.getName()); }
+    }
+    else {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream objOut = new ObjectOutputStream(bytes);
+      objOut.writeObject(v);
+      objOut.close();
+      out.writeByte(SERIALIZED);
+      out.writeInt(bytes.size());
+      bytes.writeTo(out);
+    }
+  }
+  
+  private Object _readValue(DataInputStream in) throws IOException, ClassNotFoundException {
+    byte tag = in.readByte();
+    switch (tag) {
+      case NULL: return null;
+      case TRUE: return Boolean.TRUE;
+      case FALSE: return Boolean.FALSE;
+      case INT: return in.readInt();
+      case LONG: return in.readLong();
+      case DOUBLE: return in.readDouble();
+      case CHAR: return in.readChar();
+      case STRING: return _readString(in);
+      case BACK_REF: {
+        int id = in.readInt();
+        synchronized(_exports) { return _exports.get(id); }
+      }
+      case REF: {
+        int id = in.readInt();
+        int count = in.readByte();
+        Class<?>[] interfaces = new Class<?>[count];
+        for (int i = 0; i < count; i++) { interfaces[i] = _loadClass(_readString(in)); }
+        synchronized(_exports) {
+          Object proxy = _proxies.get(id);
+          if (proxy == null) {
+            proxy = Proxy.newProxyInstance(MultiplexedChannel.class.getClassLoader(), interfaces, new RemoteHandler(id));
+            _proxies.put(id, proxy);
+          }
+          return proxy;
+        }
+      }
+      case SERIALIZED: {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        ObjectInputStream objIn = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        objIn.setObjectInputFilter(SERIAL_FILTER);
+        try { return objIn.readObject(); }
+        finally { objIn.close(); }
+      }
+      default: throw new IOException("Unrecognized value tag " + tag);
+    }
+  }
+  
+  /** Strings are written as a length and UTF-8 bytes, since DataOutput.writeUTF is limited to 64K. */
+  private static void _writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes("UTF-8");
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+  
+  private static String _readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+  
+  /** @return true iff instances of c may be deserialized; see {@link #SERIAL_FILTER} */
+  private static boolean _isSerializable(Class<?> c) {
+    if (c.isPrimitive()) { return true; }
+    if (Proxy.isProxyClass(c)) { return false; }
+    String name = c.getName();
+    if (name.startsWith("edu.rice.cs.")) { return true; }
+    int dot = name.lastIndexOf('.');
+    String pkg = (dot < 0) ? "" : name.substring(0, dot);
+    for (String p : SERIALIZABLE_PACKAGES) { if (p.equals(pkg)) { return true; } }
+    return false;
+  }
+  
+  private boolean _isProxy(Object v) {
+    if (!Proxy.isProxyClass(v.getClass())) { return false; }
+    InvocationHandler h = Proxy.getInvocationHandler(v);
+    return (h instanceof RemoteHandler) && ((RemoteHandler) h).outer() == this;
+  }
+  
+  /** Exports v if it has not yet been exported, and returns its id. */
+  private int _export(Object v) {
+    synchronized(_exports) {
+      Integer id = _exportIds.get(v);
+      if (id == null) {
+        id = _nextExportId++;
+        _exports.put(id, v);
+        _exportIds.put(v, id);
+      }
+      return id;
+    }
+  }
+  
+  /** @return all interfaces extending Remote implemented by c */
+  private static List<Class<?>> _remoteInterfaces(Class<?> c) {
+    List<Class<?>> result = new ArrayList<Class<?>>();
+    for (Class<?> cur = c; cur != null; cur = cur.getSuperclass()) {
+      for (Class<?> i : cur.getInterfaces()) {
+        if (Remote.class.isAssignableFrom(i) && !result.contains(i)) { result.add(i); }
+      }
+    }
+    return result;
+  }
+  
+  private static String _signature(Method m) {
+    StringBuilder result = new StringBuilder();
+    result.append(m.getDeclaringClass().getName()).append('#').append(m.getName()).append('(');
+    boolean first = true;
+    for (Class<?> c : m.getParameterTypes()) {
+      if (!first) { result.append(','); }
+      result.append(c.getName());
+      first = false;
+    }
+    return result.append(')').toString();
+  }
+  
+  private static Method _resolve(String signature) throws ClassNotFoundException, NoSuchMethodException {
+    int hash = signature.indexOf('#');
+    int paren = signature.indexOf('(');
+    Class<?> c = _loadClass(signature.substring(0, hash));
+    String name = signature.substring(hash + 1, paren);
+    String params = signature.substring(paren + 1, signature.length() - 1);
+    List<Class<?>> paramTypes = new ArrayList<Class<?>>();
+    if (params.length() > 0) {
+      for (String p : params.split(",")) { paramTypes.add(_loadClass(p)); }
+    }
+    return c.getMethod(name, paramTypes.toArray(new Class<?>[paramTypes.size()]));
+  }
+  
+  private static Class<?> _loadClass(String name) throws ClassNotFoundException {
+    Class<?> result = PRIMITIVES.get(name);
+    if (result == null) { result = Class.forName(name, false, MultiplexedChannel.class.getClassLoader()); }
+    return result;
+  }
+}
@@ -0,0 +1,93 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.util.newjvm;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+
+/** Compares the round-trip latency of a {@link MultiplexedChannel} with that of RMI.  Both ends of the channel are
+  * in this JVM, connected by a loopback socket.  Run directly, with an optional number of calls to time.
+  * @version $Id$
+  */
+public class MultiplexedChannelBenchmark {
+  
+  private static final int WARMUP = 2000;
+  
+  public interface Echo extends Remote {
+    public String echo(String s) throws RemoteException;
+  }
+  
+  private static class EchoImpl implements Echo {
+    public String echo(String s) { return s; }
+  }
+  
+  public static void main(String... args) throws Exception {
+    int calls = (args.length > 0) ? Integer.parseInt(args[0]) : 5000;
+    
+    ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+    Socket clientSocket = new Socket(InetAddress.getByName("127.0.0.1"), server.getLocalPort());
+    Socket serverSocket = server.accept();
+    server.close();
+    clientSocket.setTcpNoDelay(true);
+    serverSocket.setTcpNoDelay(true);
+    MultiplexedChannel client = new MultiplexedChannel("Benchmark Client", clientSocket.getInputStream(),
+                                                       clientSocket.getOutputStream());
+    MultiplexedChannel channelServer = new MultiplexedChannel("Benchmark Server", serverSocket.getInputStream(),
+                                                              serverSocket.getOutputStream());
+    client.start();
+    channelServer.start();
+    
+    EchoImpl rmiImpl = new EchoImpl();
+    Echo rmiEcho = (Echo) UnicastRemoteObject.exportObject(rmiImpl, 0);
+    try {
+      channelServer.sendRoot(new EchoImpl());
+      long channelTime = _timeCalls((Echo) client.awaitRoot(5000), calls);
+      long rmiTime = _timeCalls(rmiEcho, calls);
+      System.out.println("MultiplexedChannel round trip: " + (channelTime / calls) + " ns/call; " +
+                         "RMI round trip: " + (rmiTime / calls) + " ns/call");
+    }
+    finally {
+      UnicastRemoteObject.unexportObject(rmiImpl, true);
+      client.close();
+      channelServer.close();
+    }
+  }
+  
+  /** @return the time in nanoseconds for the given number of calls to e.echo, after warming up */
+  private static long _timeCalls(Echo e, int calls) throws RemoteException {
+    for (int i = 0; i < WARMUP; i++) { e.echo("warmup"); }
+    long start = System.nanoTime();
+    for (int i = 0; i < calls; i++) { e.echo("System.out.println(\"Hello\");"); }
+    return System.nanoTime() - start;
+  }
+}
@@ -0,0 +1,238 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2019, JavaPLT group at Rice University (drjava@rice.edu).  All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the 
+ * following conditions are met:
+ *    * Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ *      disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the 
+ *      following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the names of its contributors may be used 
+ *      to endorse or promote products derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software. Open Source Initative Approved is a trademark
+ * of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project from http://www.drjava.org/ or 
+ * http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.util.newjvm;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/** Tests for {@link MultiplexedChannel}.  Both ends of the channel are in this JVM, connected by a loopback socket.
+  * The round-trip latency is compared with that of RMI by {@link MultiplexedChannelBenchmark}.
+  * @version $Id$
+  */
+public class MultiplexedChannelTest extends TestCase {
+  
+  private MultiplexedChannel _client;
+  private MultiplexedChannel _server;
+  private ServiceImpl _service;
+  
+  public interface Service extends Remote {
+    public String echo(String s) throws RemoteException;
+    public int add(int x, int y) throws RemoteException;
+    public List<String> reverse(List<String> l) throws RemoteException;
+    public void fail(String message) throws RemoteException;
+    public int callBack(Callback c, int x) throws RemoteException;
+    @OutOfBand public void print(String s) throws RemoteException;
+    public String printed() throws RemoteException;
+    @OutOfBand public void block() throws RemoteException;
+    public Object unsendable() throws RemoteException;
+  }
+  
+  public interface Callback extends Remote {
+    public int twice(int x) throws RemoteException;
+  }
+  
+  private static class ServiceImpl implements Service {
+    private final StringBuilder _printed = new StringBuilder();
+    public String echo(String s) { return s; }
+    public int add(int x, int y) { return x + y; }
+    public List<String> reverse(List<String> l) {
+      List<String> result = new ArrayList<String>(l);
+      Collections.reverse(result);
+      return result;
+    }
+    public void fail(String message) { throw new IllegalArgumentException(message); }
+    public int callBack(Callback c, int x) throws RemoteException { return c.twice(x) + 1; }
+    public void print(String s) { synchronized(_printed) { _printed.append(s); } }
+    public String printed() { synchronized(_printed) { return _printed.toString(); } }
+    private final java.util.concurrent.CountDownLatch _unblock = new java.util.concurrent.CountDownLatch(1);
+    public void block() {
+      try { _unblock.await(); }
+      catch (InterruptedException e) { throw new RuntimeException(e); }
+    }
+    public Object unsendable() { return new Unsendable(); }
+  }
+  
+  /** A serializable class whose instances fail to be written. */
+  private static class Unsendable implements java.io.Serializable {
+    private void writeObject(java.io.ObjectOutputStream out) { throw new IllegalStateException("unsendable"); }
+  }
+  
+  private static class CallbackImpl implements Callback {
+    public int twice(int x) { return 2 * x; }
+  }
+  
+  public void setUp() throws Exception {
+    super.setUp();
+    ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+    Socket clientSocket = new Socket(InetAddress.getByName("127.0.0.1"), server.getLocalPort());
+    Socket serverSocket = server.accept();
+    server.close();
+    clientSocket.setTcpNoDelay(true);
+    serverSocket.setTcpNoDelay(true);
+    _client = new MultiplexedChannel("Test Client", clientSocket.getInputStream(), clientSocket.getOutputStream());
+    _server = new MultiplexedChannel("Test Server", serverSocket.getInputStream(), serverSocket.getOutputStream());
+    _client.start();
+    _server.start();
+    _service = new ServiceImpl();
+    _server.sendRoot(_service);
+  }
+  
+  public void tearDown() throws Exception {
+    _client.close();
+    _server.close();
+    super.tearDown();
+  }
+  
+  private Service _service() throws Exception { return (Service) _client.awaitRoot(5000); }
+  
+  public void testValues() throws Exception {
+    Service s = _service();
+    assertEquals("hello", s.echo("hello"));
+    assertEquals(null, s.echo(null));
+    assertEquals(7, s.add(3, 4));
+    StringBuilder big = new StringBuilder();
+    for (int i = 0; i < 100000; i++) { big.append((char) ('a' + i % 26)); }
+    assertEquals("long strings are not limited to 64K", big.toString(), s.echo(big.toString()));
+    assertEquals("serialized values", 
+                 java.util.Arrays.asList("c", "b", "a"), s.reverse(java.util.Arrays.asList("a", "b", "c")));
+  }
+  
+  public void testExceptions() throws Exception {
+    Service s = _service();
+    try { s.fail("expected"); fail("no exception"); }
+    catch (IllegalArgumentException e) { assertEquals("expected", e.getMessage()); }
+    assertEquals("channel still usable after exception", 2, s.add(1, 1));
+  }
+  
+  public void testCallBack() throws Exception {
+    Service s = _service();
+    Callback c = new CallbackImpl();
+    assertEquals(11, s.callBack(c, 5));
+    assertEquals(21, s.callBack(c, 10));
+  }
+  
+  public void testPipelinedCalls() throws Exception {
+    final Service s = _service();
+    final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 8; t++) {
+      final int base = t * 1000;
+      Thread thread = new Thread() {
+        public void run() {
+          try {
+            for (int i = 0; i < 200; i++) {
+              if (s.add(base, i) != base + i) { errors.add(new AssertionError("wrong sum")); }
+            }
+          }
+          catch (Throwable e) { errors.add(e); }
+        }
+      };
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) { thread.join(); }
+    assertEquals("errors: " + errors, 0, errors.size());
+  }
+  
+  public void testOutOfBand() throws Exception {
+    Service s = _service();
+    for (int i = 0; i < 100; i++) { s.print(Integer.toString(i % 10)); }
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 100; i++) { expected.append(i % 10); }
+    assertEquals("one-way calls are executed in order, before later calls", expected.toString(), s.printed());
+  }
+  
+  public void testBlockedOneWayDoesNotBlockReplies() throws Exception {
+    Service s = _service();
+    _client.sendRoot(new CallbackImpl());
+    final Callback c = (Callback) _server.awaitRoot(5000);
+    s.block();  // occupies the server's one-way thread
+    try {
+      final int[] result = new int[1];
+      Thread caller = new Thread() {
+        public void run() {
+          try { result[0] = c.twice(3); }
+          catch (RemoteException e) { /* result stays 0 */ }
+        }
+      };
+      caller.setDaemon(true);
+      caller.start();
+      caller.join(5000);
+      assertEquals("the server reads the reply while the one-way call runs", 6, result[0]);
+    }
+    finally { _service._unblock.countDown(); }
+    assertEquals("later calls run after the one-way call", 2, s.add(1, 1));
+  }
+  
+  public void testUnsendableResult() throws Exception {
+    Service s = _service();
+    try { s.unsendable(); fail("no exception"); }
+    catch (RemoteException e) { /* expected */ }
+    assertEquals("channel still usable after failed reply", 2, s.add(1, 1));
+  }
+  
+  @SuppressWarnings("unchecked")
+  public void testRejectedClass() throws Exception {
+    Service s = _service();
+    List<Object> l = new ArrayList<Object>();
+    l.add(new java.util.concurrent.atomic.AtomicInteger(1));
+    try { s.reverse((List<String>) (List<?>) l); fail("no exception"); }
+    catch (RemoteException e) { /* expected */ }
+  }
+  
+  public void testToken() throws Exception {
+    String token = MultiplexedChannel.newToken();
+    assertEquals(64, token.length());
+    assertFalse("tokens are random", token.equals(MultiplexedChannel.newToken()));
+    java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+    MultiplexedChannel.writeToken(bytes, token);
+    bytes.write(42);
+    java.io.ByteArrayInputStream in = new java.io.ByteArrayInputStream(bytes.toByteArray());
+    assertTrue(MultiplexedChannel.readToken(in, token));
+    assertEquals("reads only the token", 42, in.read());
+    assertFalse(MultiplexedChannel.readToken(new java.io.ByteArrayInputStream(bytes.toByteArray()), 
+                                             MultiplexedChannel.newToken()));
+  }
+  
+  public void testClose() throws Exception {
+    Service s = _service();
+    _server.close();
+    _client.awaitClose();
+    try { s.echo("x"); fail("no exception"); }
+    catch (RemoteException e) { /* expected */ }
+  }
+}
@@ -42,6 +42,13 @@ public interface SlaveRemote extends Remote {
    * @throws RemoteException if communication over RMI fails
    */
   public void start(MasterRemote master) throws RemoteException;
+  
+  /** Makes the slave JVM quit if the master becomes unreachable, without starting the slave.  Called on slaves that
+    * are launched ahead of time, before {@link #start} is called on them; start does not poll the master again.
+    * @param master  The remote link to the master JVM.
+    * @throws RemoteException if communication over RMI fails
+    */
+  public void watchMaster(MasterRemote master) throws RemoteException;
 
   /** Quits the slave JVM. 
    * @throws RemoteException if communication over RMI fails
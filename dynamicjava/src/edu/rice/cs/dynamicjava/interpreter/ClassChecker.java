@@ -190,7 +190,36 @@ public class ClassChecker {
   private void checkBodies(Iterable<? extends Node> members) {
     TypeContext sigContext = new ClassSignatureContext(_context, _c, _loader);
     TypeContext bodyContext = new ClassContext(sigContext, _c);
-    visitMembers(members, new MemberBodyVisitor(bodyContext));
+    visitMembers(members, new MemberBodyVisitor(bodyContext, false));
+  }
+  
+  /**
+   * Check the initializers of the {@code static final} fields of a class or interface declaration and
+   * its nested classes.  Other classes may fold the values of these initializers as constants, so checking
+   * them first makes the results of checking those classes independent of the order in which bodies are
+   * checked.  Should be called <em>after</em> the signatures of all relevant classes and interfaces have
+   * been checked; the remaining bodies are then checked by {@link #checkNonConstantBodies}.
+   */
+  public void checkConstantInitializers(TypeDeclaration ast) {
+    TypeContext sigContext = new ClassSignatureContext(_context, _c, _loader);
+    TypeContext bodyContext = new ClassContext(sigContext, _c);
+    visitMembers(ast.getMembers(), new ConstantInitializerVisitor(bodyContext));
+  }
+  
+  /**
+   * Check the bodies of a class or interface declaration, skipping the initializers that have been
+   * checked by {@link #checkConstantInitializers}.
+   */
+  public void checkNonConstantBodies(TypeDeclaration ast) {
+    TypeContext sigContext = new ClassSignatureContext(_context, _c, _loader);
+    TypeContext bodyContext = new ClassContext(sigContext, _c);
+    visitMembers(ast.getMembers(), new MemberBodyVisitor(bodyContext, true));
+  }
+  
+  /** Whether the given field's initializer is checked by {@link #checkConstantInitializers}. */
+  private static boolean isConstantInitializer(FieldDeclaration node) {
+    DJField f = getField(node);
+    return node.getInitializer() != null && f.isStatic() && f.isFinal();
   }
   
   private abstract class MemberSignatureVisitor extends AbstractVisitor<Void> {
@@ -327,16 +356,25 @@ public class ClassChecker {
   private class MemberBodyVisitor extends AbstractVisitor<Void> {
     
     private final TypeContext _bodyContext;
+    private final boolean _skipConstants;
     
-    public MemberBodyVisitor(TypeContext bodyContext) { _bodyContext = bodyContext; }
+    /** @param skipConstants  Whether constant initializers have already been checked, and should be skipped. */
+    public MemberBodyVisitor(TypeContext bodyContext, boolean skipConstants) {
+      _bodyContext = bodyContext;
+      _skipConstants = skipConstants;
+    }
     
     @Override public Void visit(ClassDeclaration node) {
-      new ClassChecker(getDJClass(node), _loader, _bodyContext, _opt).checkBodies(node);
+      ClassChecker checker = new ClassChecker(getDJClass(node), _loader, _bodyContext, _opt);
+      if (_skipConstants) { checker.checkNonConstantBodies(node); }
+      else { checker.checkBodies(node); }
       return null;
     }
     
     @Override public Void visit(InterfaceDeclaration node) {
-      new ClassChecker(getDJClass(node), _loader, _bodyContext, _opt).checkBodies(node);
+      ClassChecker checker = new ClassChecker(getDJClass(node), _loader, _bodyContext, _opt);
+      if (_skipConstants) { checker.checkNonConstantBodies(node); }
+      else { checker.checkBodies(node); }
       return null;
     }
     
@@ -375,7 +413,7 @@ public class ClassChecker {
     
     @Override public Void visit(FieldDeclaration node) {
       Expression init = node.getInitializer();
-      if (init != null) {
+      if (init != null && !(_skipConstants && isConstantInitializer(node))) {
         TypeContext c = new InitializerContext(_bodyContext, getField(node).isStatic(), _c);
         Type expectedT = getType(node.getType());
         Type initT = new ExpressionChecker(c, _opt).check(init, expectedT);
@@ -406,4 +444,36 @@ public class ClassChecker {
     }
   }
   
+  /** Checks constant initializers, delegating to a MemberBodyVisitor, and ignores all other members. */
+  private class ConstantInitializerVisitor extends AbstractVisitor<Void> {
+    
+    private final TypeContext _bodyContext;
+    private final MemberBodyVisitor _bodyVisitor;
+    
+    public ConstantInitializerVisitor(TypeContext bodyContext) {
+      _bodyContext = bodyContext;
+      _bodyVisitor = new MemberBodyVisitor(bodyContext, false);
+    }
+    
+    @Override public Void visit(ClassDeclaration node) {
+      new ClassChecker(getDJClass(node), _loader, _bodyContext, _opt).checkConstantInitializers(node);
+      return null;
+    }
+    
+    @Override public Void visit(InterfaceDeclaration node) {
+      new ClassChecker(getDJClass(node), _loader, _bodyContext, _opt).checkConstantInitializers(node);
+      return null;
+    }
+    
+    @Override public Void visit(FieldDeclaration node) {
+      if (isConstantInitializer(node)) { _bodyVisitor.visit(node); }
+      return null;
+    }
+    
+    @Override public Void visit(MethodDeclaration node) { return null; }
+    @Override public Void visit(ConstructorDeclaration node) { return null; }
+    @Override public Void visit(ClassInitializer node) { return null; }
+    @Override public Void visit(InstanceInitializer node) { return null; }
+  }
+  
 }
@@ -0,0 +1,120 @@
+package edu.rice.cs.dynamicjava.interpreter;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import koala.dynamicjava.parser.wrapper.JavaCCParser;
+
+import edu.rice.cs.dynamicjava.Options;
+
+/**
+ * A micro-benchmark of the interpreter on loop-heavy and reflection-heavy snippets.  Each snippet is interpreted
+ * repeatedly in a fresh Interpreter (after a warm-up phase), and the median time is reported.  The latency of
+ * short, Interactions-style inputs is also measured: both parsing alone (with a new parser for each input, and
+ * with a single reset parser) and complete interpretation in a long-lived Interpreter.
+ * Run with {@code ant benchmark} (or directly, with an optional repetition count).
+ */
+public class EvaluatorBenchmark {
+
+  private static final Map<String, String> SNIPPETS = new LinkedHashMap<String, String>();
+  static {
+    SNIPPETS.put("plain loop",
+                 "int s = 0; for (int i = 0; i < 100000; i++) { s += i % 7; }");
+    SNIPPETS.put("long/double math",
+                 "long s = 0; double d = 1; for (int i = 1; i < 100000; i++) { s += (i << 1) ^ i; d += s / (double) i; }");
+    SNIPPETS.put("continue",
+                 "int s = 0; for (int i = 0; i < 100000; i++) { if (i % 2 == 0) continue; s += i; }");
+    SNIPPETS.put("break",
+                 "int s = 0; for (int i = 0; i < 20000; i++) { for (int j = 0; ; j++) { if (j == 4) break; s++; } }");
+    SNIPPETS.put("labeled continue",
+                 "int s = 0; outer: for (int i = 0; i < 20000; i++) { " +
+                 "for (int j = 0; j < 10; j++) { if (j == 3) continue outer; s++; } }");
+    SNIPPETS.put("while/break",
+                 "int s = 0; int i = 0; while (true) { if (++i > 100000) break; s += i; }");
+    SNIPPETS.put("return",
+                 "int sign(int n) { if (n < 0) return -1; if (n == 0) return 0; return 1; } " +
+                 "int s = 0; for (int i = -50000; i < 50000; i++) { s += sign(i); }");
+    SNIPPETS.put("collections",
+                 "java.util.List<Integer> l = new java.util.ArrayList<Integer>(); " +
+                 "for (int i = 0; i < 20000; i++) { l.add(i); } " +
+                 "java.util.Map<Integer, Integer> m = new java.util.HashMap<Integer, Integer>(); " +
+                 "for (int i = 0; i < l.size(); i++) { m.put(l.get(i), i); }");
+    SNIPPETS.put("string building",
+                 "StringBuilder b = new StringBuilder(); " +
+                 "for (int i = 0; i < 20000; i++) { b.append(i).append(','); b.setLength(b.length() - 1); }");
+    SNIPPETS.put("field access",
+                 "java.awt.Point p = new java.awt.Point(); for (int i = 0; i < 50000; i++) { p.x = p.x + p.y + 1; }");
+  }
+
+  /** Short inputs, as typed in the Interactions pane; interpreted in order in a single Interpreter. */
+  private static final String[] INTERACTIONS = {
+    "int x = 3;",
+    "x + 1",
+    "java.util.List<String> l = new java.util.ArrayList<String>();",
+    "l.add(\"a\" + x);",
+    "l.size()",
+    "String s = l.get(0).toUpperCase();",
+    "s.length() * 2",
+    "Math.max(x, 7)",
+  };
+  
+  public static void main(String... args) throws InterpreterException {
+    int reps = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+    for (Map.Entry<String, String> e : SNIPPETS.entrySet()) {
+      for (int i = 0; i < 3; i++) { time(e.getValue()); } // warm-up
+      long[] times = new long[reps];
+      for (int i = 0; i < reps; i++) { times[i] = time(e.getValue()); }
+      Arrays.sort(times);
+      System.out.printf("%-20s %8.2f ms%n", e.getKey(), times[reps/2] / 1e6);
+    }
+    timeInteractions(reps * 100);
+  }
+  
+  /** Report the median per-input latency of parsing and interpreting {@link #INTERACTIONS}. */
+  private static void timeInteractions(int rounds) throws InterpreterException {
+    int n = INTERACTIONS.length;
+    long[] newParser = new long[rounds * n];
+    long[] resetParser = new long[rounds * n];
+    JavaCCParser parser = new JavaCCParser(new StringReader(""), Options.DEFAULT);
+    for (int r = 0; r < rounds; r++) {
+      for (int i = 0; i < n; i++) {
+        long start = System.nanoTime();
+        new JavaCCParser(new StringReader(INTERACTIONS[i]), Options.DEFAULT).parseStream();
+        newParser[r*n + i] = System.nanoTime() - start;
+        start = System.nanoTime();
+        parser.reset(new StringReader(INTERACTIONS[i]));
+        parser.parseStream();
+        resetParser[r*n + i] = System.nanoTime() - start;
+      }
+    }
+    // each round redeclares the same variables, so each needs a new Interpreter
+    long[] interpret = new long[rounds * n];
+    for (int r = 0; r < rounds; r++) {
+      Interpreter interp = new Interpreter(Options.DEFAULT);
+      for (int i = 0; i < n; i++) {
+        long start = System.nanoTime();
+        interp.interpret(INTERACTIONS[i]);
+        interpret[r*n + i] = System.nanoTime() - start;
+      }
+    }
+    System.out.printf("%-20s %8.2f us%n", "parse (new parser)", median(newParser) / 1e3);
+    System.out.printf("%-20s %8.2f us%n", "parse (reset)", median(resetParser) / 1e3);
+    System.out.printf("%-20s %8.2f us%n", "interaction", median(interpret) / 1e3);
+  }
+  
+  private static long median(long[] times) {
+    Arrays.sort(times);
+    return times[times.length/2];
+  }
+
+  /** The time (in nanoseconds) taken to interpret code in a new interpreter. */
+  private static long time(String code) throws InterpreterException {
+    Interpreter interp = new Interpreter(Options.DEFAULT);
+    long start = System.nanoTime();
+    interp.interpret(code);
+    return System.nanoTime() - start;
+  }
+
+}
@@ -31,7 +31,14 @@ public class ExpressionEvaluator extends AbstractVisitor<Object> implements Lamb
     _options = options;
   }
   
+  /** The bindings in which expressions are evaluated. */
+  RuntimeBindings bindings() { return _bindings; }
+  
   public Object value(Node n) {
+    if (hasSpecialization(n)) {
+      try { return getSpecialization(n).value(this); }
+      catch (ArithmeticException e) { throw specializationError(e); }
+    }
     Object result;
     if (hasValue(n)) { result = getValue(n); }
     else if (hasTranslation(n)) { result = value(getTranslation(n)); }
@@ -47,9 +54,34 @@ public class ExpressionEvaluator extends AbstractVisitor<Object> implements Lamb
     return result;
   }
   
+  /**
+   * Evaluate the given expression, ignoring its value.  Equivalent to {@link #value}, except that
+   * a value that has been computed as a primitive is not boxed.
+   */
+  public void evaluateForEffect(Node n) {
+    if (hasSpecialization(n)) {
+      try { getSpecialization(n).execute(this); }
+      catch (ArithmeticException e) { throw specializationError(e); }
+    }
+    else { value(n); }
+  }
+  
+  /**
+   * Wrap an exception thrown by a {@link PrimitiveSpecializer.Specialization}.  Such exceptions come
+   * from the specialized operations themselves, so (like those of the generic operations) none of
+   * their stack is shown to the user.
+   */
+  private static WrappedException specializationError(ArithmeticException e) {
+    e.setStackTrace(new StackTraceElement[0]);
+    return new WrappedException(new EvaluatorException(e));
+  }
+  
   @Override public Object visit(Literal node) { return node.getValue(); }
   
-  @Override public Object visit(VariableAccess node) { return new LValueVisitor().visit(node).value(); }
+  @Override public Object visit(VariableAccess node) {
+    if (hasVariableSlot(node)) { return _bindings.get(getVariableSlot(node)); }
+    else { return _bindings.get(getVariable(node)); }
+  }
 
   @Override public Object visit(SimpleFieldAccess node) { return new LValueVisitor().visit(node).value(); }
   
@@ -412,11 +444,20 @@ public class ExpressionEvaluator extends AbstractVisitor<Object> implements Lamb
     }
     
     @Override public Box<Object> visit(VariableAccess node) {
-      final LocalVariable var = getVariable(node);
-      return new Box<Object>() {
-        public Object value() { return _bindings.get(var); }
-        public void set(Object val) { _bindings.set(var, val); }
-      };
+      if (hasVariableSlot(node)) {
+        final RuntimeBindings.Slot slot = getVariableSlot(node);
+        return new Box<Object>() {
+          public Object value() { return _bindings.get(slot); }
+          public void set(Object val) { _bindings.set(slot, val); }
+        };
+      }
+      else {
+        final LocalVariable var = getVariable(node);
+        return new Box<Object>() {
+          public Object value() { return _bindings.get(var); }
+          public void set(Object val) { _bindings.set(var, val); }
+        };
+      }
     }
 
     @Override public Box<Object> visit(SimpleFieldAccess node) {
@@ -49,10 +49,12 @@ public class ImportContext extends DelegatingContext {
   
   /**
    * Make a top-level context that delegates to a LibraryContext based on the given class loader.
-   * The context is initialized with an on-demand import of "java.lang".
+   * The context is initialized with an on-demand import of "java.lang".  Since the library is new,
+   * the type system's caches are cleared.
    */
   public ImportContext(ClassLoader loader, Options opt) {
     this(new LibraryContext(SymbolUtil.classLibrary(loader)), opt);
+    opt.typeSystem().clearCaches();
   }
   
   /**
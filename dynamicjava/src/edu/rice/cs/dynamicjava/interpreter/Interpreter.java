@@ -1,6 +1,7 @@
 package edu.rice.cs.dynamicjava.interpreter;
 
 import java.io.StringReader;
+import java.util.LinkedList;
 import edu.rice.cs.plt.tuple.Option;
 import edu.rice.cs.plt.tuple.Pair;
 import edu.rice.cs.plt.lambda.WrappedException;
@@ -16,17 +17,28 @@ import static edu.rice.cs.plt.debug.DebugUtil.debug;
 /** The external interface for the interpreter. */
 public class Interpreter {
 
+  /** The initial limit on the number of checkpoints kept for {@link #undo}. */
+  public static final int DEFAULT_CHECKPOINT_LIMIT = 20;
+  
   private final Options _opt;
   private TypeContext _typeContext;
   private RuntimeBindings _bindings;
+  /** A parser reused for each input (reset with the new code), avoiding the cost of creating a new one. */
+  private final JavaCCParser _parser;
+  /** The state before each of the most recent successful interactions, oldest first. */
+  private final LinkedList<Checkpoint> _checkpoints;
+  private int _checkpointLimit;
   
   public Interpreter(Options opt, TypeContext typeContext, RuntimeBindings bindings) {
     _opt = opt;
     _typeContext = typeContext;
     _bindings = bindings;
+    _checkpoints = new LinkedList<Checkpoint>();
+    _checkpointLimit = DEFAULT_CHECKPOINT_LIMIT;
     // Force potentially expensive objects/classes to initialize now:
     _opt.typeSystem();
-    new JavaCCParser(new StringReader(""), _opt).parseStream();
+    _parser = new JavaCCParser(new StringReader(""), _opt);
+    _parser.parseStream();
   }
   
   public Interpreter(Options opt) {
@@ -41,7 +53,11 @@ public class Interpreter {
     Iterable<Node> tree = parse(code);
     debug.logValue("Parse result", tree);
     TypeContext tcResult = typeCheck(tree);
+    new SlotResolver().resolveList(tree);
+    new PrimitiveSpecializer().specializeList(tree);
     debug.log("Static phase successful");
+    // values must be saved before evaluation, which may assign to existing variables
+    Object[][] values = (_checkpointLimit > 0) ? _bindings.saveValues() : null;
     Pair<RuntimeBindings, Option<Object>> evalResult = evaluate(tree);
     // We don't commit an environment change until evaluation has completed successfully.  This
     // helps to guarantee that _typeContext and _bindings are in sync.  Effects:
@@ -51,14 +67,52 @@ public class Interpreter {
     // The alternative is to interpret the list of nodes incrementally, committing each change
     // before proceeding to the next.  In this case, static errors later in the tree would not
     // prevent execution of earlier code.
+    if (values != null) {
+      _checkpoints.addLast(new Checkpoint(_typeContext, _bindings, values));
+      if (_checkpoints.size() > _checkpointLimit) { _checkpoints.removeFirst(); }
+    }
     _typeContext = tcResult;
     _bindings = evalResult.first();
     return evalResult.second();
   }
   
+  /**
+   * Restore the state before the last {@code steps} successful calls to {@link #interpret}.  Declarations
+   * made by those interactions are dropped, and variables declared earlier get back the values they had.
+   * Other side effects, such as changes to objects or class loading, are not undone.
+   * @throws IllegalArgumentException  If {@code steps} is negative or greater than {@link #undoableSteps}.
+   */
+  public void undo(int steps) {
+    if (steps < 0 || steps > _checkpoints.size()) {
+      throw new IllegalArgumentException("Can't undo " + steps + " steps; " + _checkpoints.size() + " available");
+    }
+    if (steps > 0) {
+      Checkpoint c = null;
+      for (int i = 0; i < steps; i++) { c = _checkpoints.removeLast(); }
+      c.bindings.restoreValues(c.values);
+      _typeContext = c.typeContext;
+      _bindings = c.bindings;
+    }
+  }
+  
+  /** The number of interactions that can currently be undone. */
+  public int undoableSteps() { return _checkpoints.size(); }
+  
+  /**
+   * Set the maximum number of interactions that can be undone.  Since a checkpoint holds on to the earlier
+   * values of all variables in scope (and whatever they reference), this bounds the memory that checkpoints
+   * retain; a limit of 0 disables checkpoints.  Older checkpoints are discarded if necessary.
+   */
+  public void setCheckpointLimit(int limit) {
+    if (limit < 0) { throw new IllegalArgumentException("Negative checkpoint limit"); }
+    _checkpointLimit = limit;
+    while (_checkpoints.size() > limit) { _checkpoints.removeFirst(); }
+  }
+  
   private Iterable<Node> parse(String code) throws InterpreterException {
     try {
-      return new JavaCCParser(new StringReader(code), _opt).parseStream();
+      _parser.reset(new StringReader(code));
+      return _parser.parseStream();
     }
     catch (ParseError e) {
       throw new ParserException(e);
@@ -81,4 +135,19 @@ public class Interpreter {
     }
   }
   
+  /**
+   * The interpreter's state before an interaction.  The contexts and bindings are persistent, so
+   * only the values of variables (which can be assigned in place) need to be copied.
+   */
+  private static class Checkpoint {
+    public final TypeContext typeContext;
+    public final RuntimeBindings bindings;
+    public final Object[][] values;
+    public Checkpoint(TypeContext tc, RuntimeBindings b, Object[][] vals) {
+      typeContext = tc;
+      bindings = b;
+      values = vals;
+    }
+  }
+  
 }
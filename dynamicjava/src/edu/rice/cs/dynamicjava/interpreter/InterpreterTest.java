@@ -0,0 +1,98 @@
+package edu.rice.cs.dynamicjava.interpreter;
+
+import junit.framework.TestCase;
+
+import edu.rice.cs.plt.tuple.Option;
+
+import edu.rice.cs.dynamicjava.Options;
+
+public class InterpreterTest extends TestCase {
+
+  private Interpreter _interp;
+
+  protected void setUp() { _interp = new Interpreter(Options.DEFAULT); }
+
+  private Object eval(String code) throws InterpreterException {
+    Option<Object> result = _interp.interpret(code);
+    return result.isSome() ? result.unwrap() : null;
+  }
+
+  private void assertUndefined(String name) {
+    try {
+      _interp.interpret(name);
+      fail(name + " should be undefined");
+    }
+    catch (InterpreterException e) { /* expected */ }
+  }
+
+  public void testUndoDeclarations() throws InterpreterException {
+    eval("int x = 1;");
+    eval("String s = \"a\" + x;");
+    eval("class C { int f() { return 7; } }");
+    assertEquals(3, _interp.undoableSteps());
+    assertEquals(7, eval("new C().f()"));
+
+    _interp.undo(2);
+    assertEquals(2, _interp.undoableSteps());
+    assertUndefined("C");
+    assertEquals(1, eval("x"));
+
+    _interp.undo(3);
+    assertEquals(0, _interp.undoableSteps());
+    assertUndefined("x");
+    assertUndefined("s");
+    // variables can be redeclared with a different type
+    eval("String x = \"b\";");
+    assertEquals("b", eval("x"));
+  }
+
+  public void testUndoAssignments() throws InterpreterException {
+    eval("int x = 1;");
+    eval("java.util.List<Integer> l = new java.util.ArrayList<Integer>();");
+    eval("x = 2;");
+    eval("for (int i = 0; i < 5; i++) { x += i; } l.add(x);");
+    assertEquals(12, eval("x"));
+
+    // the previous line was also a step
+    _interp.undo(2);
+    assertEquals(2, eval("x"));
+    _interp.undo(2);
+    assertEquals(1, eval("x"));
+    // changes to objects are not undone
+    assertEquals(1, eval("l.size()"));
+  }
+
+  public void testFailedInteractionsAreNotCheckpoints() throws InterpreterException {
+    eval("int x = 1;");
+    assertUndefined("y");
+    try {
+      eval("x = 5; throw new RuntimeException();");
+      fail("Expected an exception");
+    }
+    catch (EvaluatorException e) { /* expected */ }
+    assertEquals(1, _interp.undoableSteps());
+    // the assignment has happened, but undoing restores the value from before the last successful step
+    assertEquals(5, eval("x"));
+    _interp.undo(2);
+    assertUndefined("x");
+  }
+
+  public void testCheckpointLimit() throws InterpreterException {
+    _interp.setCheckpointLimit(2);
+    for (int i = 0; i < 5; i++) { eval("int v" + i + " = " + i + ";"); }
+    assertEquals(2, _interp.undoableSteps());
+    try {
+      _interp.undo(3);
+      fail("Expected an IllegalArgumentException");
+    }
+    catch (IllegalArgumentException e) { /* expected */ }
+    _interp.undo(2);
+    assertEquals(2, eval("v2"));
+    assertUndefined("v3");
+
+    _interp.setCheckpointLimit(0);
+    eval("int w = 0;");
+    assertEquals(0, _interp.undoableSteps());
+  }
+
+}
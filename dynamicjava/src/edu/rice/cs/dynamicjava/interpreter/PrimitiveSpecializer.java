@@ -0,0 +1,833 @@
+package edu.rice.cs.dynamicjava.interpreter;
+
+import koala.dynamicjava.tree.*;
+import koala.dynamicjava.tree.visitor.AbstractVisitor;
+import koala.dynamicjava.tree.visitor.DepthFirstVisitor;
+
+import edu.rice.cs.dynamicjava.symbol.type.*;
+
+import static koala.dynamicjava.interpreter.NodeProperties.*;
+
+/**
+ * Compiles arithmetic on {@code int}, {@code long}, {@code double}, and {@code boolean} values into
+ * {@link Specialization}s that evaluate without boxing intermediate results, to be run on trees that
+ * have been processed by the {@link SlotResolver}.  Each operator expression whose operands (after
+ * conversion) have one of those types is tagged with its specialization (the {@code SPECIALIZATION}
+ * property), which the {@link ExpressionEvaluator} uses in place of the generic operations.  Values are
+ * boxed only when they leave a specialized tree: when stored in a variable, or when passed to code
+ * that is not specialized.
+ *
+ * <p>Specializations are built bottom-up, so a tree's specialization incorporates those of its subtrees.
+ * Operands that can't be specialized (method calls, fields, {@code float} arithmetic, etc.) are evaluated
+ * by the ExpressionEvaluator and unboxed.  Local variables with a {@link RuntimeBindings.Slot} are read
+ * and (in assignments, increments, and decrements) written directly.</p>
+ */
+public class PrimitiveSpecializer extends DepthFirstVisitor {
+
+  /** Specialize all expressions in the given trees. */
+  public void specializeList(Iterable<? extends Node> nodes) {
+    recur(nodes);
+  }
+
+  @Override public void run(Node node) {
+    try { node.acceptVisitor(this); }
+    catch (IllegalArgumentException e) { /* thrown by "empty" stub nodes -- ignore */ }
+    // translations are evaluated in place of the original nodes
+    if (hasLeftExpression(node)) { recur(getLeftExpression(node)); }
+    if (hasTranslation(node)) { recur(getTranslation(node)); }
+    if (hasStatementTranslation(node)) { recur(getStatementTranslation(node)); }
+    if (node instanceof Expression && !hasValue(node) && !hasTranslation(node) && !hasCheckedType(node)) {
+      Specialization s = node.acceptVisitor(new Compiler());
+      if (s != null && hasConvertedType(node)) { s = convert(s, getConvertedType(node).value()); }
+      if (s != null) { setSpecialization(node, s); }
+    }
+  }
+
+
+  /* * * * * * * * * *
+   * COMPILATION
+   * * * * * * * * * */
+
+  /** The type of {@code e}'s value (after any conversion) if it is supported, or null. */
+  private static Class<?> kind(Node e) {
+    if (hasConvertedType(e)) {
+      Class<?> c = getConvertedType(e).value();
+      return (c == int.class || c == long.class || c == double.class || c == boolean.class) ? c : null;
+    }
+    else if (hasCheckedType(e) || !hasType(e)) { return null; }
+    else {
+      Type t = getType(e);
+      if (t instanceof IntType) { return int.class; }
+      else if (t instanceof LongType) { return long.class; }
+      else if (t instanceof DoubleType) { return double.class; }
+      else if (t instanceof BooleanType) { return boolean.class; }
+      else { return null; }
+    }
+  }
+
+  /** Whether {@code e} is evaluated as its translation, without any conversion. */
+  private static boolean isPlainTranslation(Node e) {
+    return hasTranslation(e) && !hasValue(e) && !hasConvertedType(e) && !hasCheckedType(e);
+  }
+
+  /**
+   * The local variable access {@code e} stands for (following translations, as with a name that
+   * has been resolved to a variable) if it has a slot; otherwise null.
+   */
+  private static Node local(Node e) {
+    while (isPlainTranslation(e)) { e = getTranslation(e); }
+    return (e instanceof VariableAccess && hasVariableSlot(e) && !hasTranslation(e)) ? e : null;
+  }
+
+  /** The type of the (non-boolean) local {@code e} stands for, if it is a supported local; otherwise null. */
+  private static Class<?> localKind(Node e) {
+    Node var = local(e);
+    if (var == null || hasConvertedType(var)) { return null; }
+    else {
+      Class<?> k = kind(var);
+      return (k == boolean.class) ? null : k;
+    }
+  }
+
+  /** A specialization producing {@code e}'s value, or null if {@code e} doesn't have a supported type. */
+  private static Specialization operand(Expression e) {
+    if (hasSpecialization(e)) { return getSpecialization(e); }
+    if (isPlainTranslation(e)) { return operand(getTranslation(e)); }
+    Class<?> k = kind(e);
+    if (k == null) { return null; }
+    else if (hasValue(e)) {
+      Object val = getValue(e);
+      if (hasConvertedType(e)) { val = ExpressionEvaluator.convert(val, k); }
+      if (k == int.class) { return new IntConstant((Integer) val); }
+      else if (k == long.class) { return new LongConstant((Long) val); }
+      else if (k == double.class) { return new DoubleConstant((Double) val); }
+      else { return new BooleanConstant((Boolean) val); }
+    }
+    else if (localKind(e) != null) {
+      RuntimeBindings.Slot slot = getVariableSlot(local(e));
+      if (k == int.class) { return new IntLocal(slot); }
+      else if (k == long.class) { return new LongLocal(slot); }
+      else { return new DoubleLocal(slot); }
+    }
+    else {
+      if (k == int.class) { return new IntLeaf(e); }
+      else if (k == long.class) { return new LongLeaf(e); }
+      else if (k == double.class) { return new DoubleLeaf(e); }
+      else { return new BooleanLeaf(e); }
+    }
+  }
+
+  /** Convert {@code s} to produce a value of type {@code target}; null if the conversion isn't supported. */
+  private static Specialization convert(Specialization s, Class<?> target) {
+    if (s instanceof IntSpecialization) {
+      final IntSpecialization i = (IntSpecialization) s;
+      if (target == int.class) { return i; }
+      else if (target == long.class) {
+        return new LongSpecialization() {
+          public long longValue(ExpressionEvaluator eval) { return i.intValue(eval); }
+        };
+      }
+      else if (target == double.class) {
+        return new DoubleSpecialization() {
+          public double doubleValue(ExpressionEvaluator eval) { return i.intValue(eval); }
+        };
+      }
+    }
+    else if (s instanceof LongSpecialization) {
+      final LongSpecialization l = (LongSpecialization) s;
+      if (target == long.class) { return l; }
+      else if (target == int.class) {
+        return new IntSpecialization() {
+          public int intValue(ExpressionEvaluator eval) { return (int) l.longValue(eval); }
+        };
+      }
+      else if (target == double.class) {
+        return new DoubleSpecialization() {
+          public double doubleValue(ExpressionEvaluator eval) { return l.longValue(eval); }
+        };
+      }
+    }
+    else if (s instanceof DoubleSpecialization) {
+      final DoubleSpecialization d = (DoubleSpecialization) s;
+      if (target == double.class) { return d; }
+      else if (target == int.class) {
+        return new IntSpecialization() {
+          public int intValue(ExpressionEvaluator eval) { return (int) d.doubleValue(eval); }
+        };
+      }
+      else if (target == long.class) {
+        return new LongSpecialization() {
+          public long longValue(ExpressionEvaluator eval) { return (long) d.doubleValue(eval); }
+        };
+      }
+    }
+    else if (s instanceof BooleanSpecialization && target == boolean.class) { return s; }
+    return null;
+  }
+
+  /** Whether {@code s} produces values of type {@code k}.  False if {@code s} is null. */
+  private static boolean hasKind(Specialization s, Class<?> k) {
+    if (k == int.class) { return s instanceof IntSpecialization; }
+    else if (k == long.class) { return s instanceof LongSpecialization; }
+    else if (k == double.class) { return s instanceof DoubleSpecialization; }
+    else if (k == boolean.class) { return s instanceof BooleanSpecialization; }
+    else { return false; }
+  }
+
+  /** A shift distance: the low bits of an int or long operand, as an int. */
+  private static IntSpecialization shiftDistance(Expression e) {
+    Specialization s = operand(e);
+    if (s instanceof LongSpecialization) { return (IntSpecialization) convert(s, int.class); }
+    else if (s instanceof IntSpecialization) { return (IntSpecialization) s; }
+    else { return null; }
+  }
+
+  /**
+   * Produces the specialization of an operator expression from those of its operands, or null.  The
+   * result does not include any conversion of the expression's value.
+   */
+  private static class Compiler extends AbstractVisitor<Specialization> {
+
+    @Override public Specialization defaultCase(Node node) { return null; }
+
+    /** Arithmetic on operands that, after conversion, match the expression's type. */
+    private Specialization arithmetic(BinaryExpression node, Op op) {
+      Specialization l = operand(node.getLeftExpression());
+      Specialization r = operand(node.getRightExpression());
+      if (l instanceof IntSpecialization && r instanceof IntSpecialization) {
+        return new IntBinary(op, (IntSpecialization) l, (IntSpecialization) r);
+      }
+      else if (l instanceof LongSpecialization && r instanceof LongSpecialization) {
+        return new LongBinary(op, (LongSpecialization) l, (LongSpecialization) r);
+      }
+      else if (l instanceof DoubleSpecialization && r instanceof DoubleSpecialization && op.isArithmetic()) {
+        return new DoubleBinary(op, (DoubleSpecialization) l, (DoubleSpecialization) r);
+      }
+      else if (l instanceof BooleanSpecialization && r instanceof BooleanSpecialization && op.isBitwise()) {
+        return new BooleanBinary(op, (BooleanSpecialization) l, (BooleanSpecialization) r);
+      }
+      else { return null; }
+    }
+
+    /** A comparison of operands with matching types. */
+    private Specialization comparison(BinaryExpression node, Op op) {
+      Specialization l = operand(node.getLeftExpression());
+      Specialization r = operand(node.getRightExpression());
+      if (l instanceof IntSpecialization && r instanceof IntSpecialization) {
+        return new IntComparison(op, (IntSpecialization) l, (IntSpecialization) r);
+      }
+      else if (l instanceof LongSpecialization && r instanceof LongSpecialization) {
+        return new LongComparison(op, (LongSpecialization) l, (LongSpecialization) r);
+      }
+      else if (l instanceof DoubleSpecialization && r instanceof DoubleSpecialization) {
+        return new DoubleComparison(op, (DoubleSpecialization) l, (DoubleSpecialization) r);
+      }
+      else if (l instanceof BooleanSpecialization && r instanceof BooleanSpecialization &&
+               (op == Op.EQUAL || op == Op.NOT_EQUAL)) {
+        return new BooleanBinary(op, (BooleanSpecialization) l, (BooleanSpecialization) r);
+      }
+      else { return null; }
+    }
+
+    private Specialization shift(BinaryExpression node, Op op) {
+      Specialization l = operand(node.getLeftExpression());
+      IntSpecialization r = shiftDistance(node.getRightExpression());
+      if (r == null) { return null; }
+      else if (l instanceof IntSpecialization) { return new IntBinary(op, (IntSpecialization) l, r); }
+      else if (l instanceof LongSpecialization) { return new LongShift(op, (LongSpecialization) l, r); }
+      else { return null; }
+    }
+
+    @Override public Specialization visit(AddExpression node) {
+      return (getOperation(node) == ExpressionEvaluator.ADD) ? arithmetic(node, Op.ADD) : null;
+    }
+    @Override public Specialization visit(SubtractExpression node) { return arithmetic(node, Op.SUBTRACT); }
+    @Override public Specialization visit(MultiplyExpression node) { return arithmetic(node, Op.MULTIPLY); }
+    @Override public Specialization visit(DivideExpression node) { return arithmetic(node, Op.DIVIDE); }
+    @Override public Specialization visit(RemainderExpression node) { return arithmetic(node, Op.REMAINDER); }
+    @Override public Specialization visit(BitAndExpression node) { return arithmetic(node, Op.AND); }
+    @Override public Specialization visit(BitOrExpression node) { return arithmetic(node, Op.OR); }
+    @Override public Specialization visit(ExclusiveOrExpression node) { return arithmetic(node, Op.XOR); }
+    @Override public Specialization visit(ShiftLeftExpression node) { return shift(node, Op.SHIFT_LEFT); }
+    @Override public Specialization visit(ShiftRightExpression node) { return shift(node, Op.SHIFT_RIGHT); }
+    @Override public Specialization visit(UnsignedShiftRightExpression node) {
+      return shift(node, Op.UNSIGNED_SHIFT_RIGHT);
+    }
+
+    @Override public Specialization visit(LessExpression node) { return comparison(node, Op.LESS); }
+    @Override public Specialization visit(LessOrEqualExpression node) { return comparison(node, Op.LESS_OR_EQUAL); }
+    @Override public Specialization visit(GreaterExpression node) { return comparison(node, Op.GREATER); }
+    @Override public Specialization visit(GreaterOrEqualExpression node) {
+      return comparison(node, Op.GREATER_OR_EQUAL);
+    }
+    @Override public Specialization visit(EqualExpression node) {
+      return (getOperation(node) == ExpressionEvaluator.PRIMITIVE_EQUAL) ? comparison(node, Op.EQUAL) : null;
+    }
+    @Override public Specialization visit(NotEqualExpression node) {
+      return (getOperation(node) == ExpressionEvaluator.PRIMITIVE_NOT_EQUAL) ? comparison(node, Op.NOT_EQUAL) : null;
+    }
+
+    @Override public Specialization visit(AndExpression node) {
+      Specialization l = operand(node.getLeftExpression());
+      Specialization r = operand(node.getRightExpression());
+      if (l instanceof BooleanSpecialization && r instanceof BooleanSpecialization) {
+        return new BooleanBinary(Op.CONDITIONAL_AND, (BooleanSpecialization) l, (BooleanSpecialization) r);
+      }
+      else { return null; }
+    }
+
+    @Override public Specialization visit(OrExpression node) {
+      Specialization l = operand(node.getLeftExpression());
+      Specialization r = operand(node.getRightExpression());
+      if (l instanceof BooleanSpecialization && r instanceof BooleanSpecialization) {
+        return new BooleanBinary(Op.CONDITIONAL_OR, (BooleanSpecialization) l, (BooleanSpecialization) r);
+      }
+      else { return null; }
+    }
+
+    @Override public Specialization visit(NotExpression node) {
+      final Specialization s = operand(node.getExpression());
+      if (s instanceof BooleanSpecialization) {
+        return new BooleanSpecialization() {
+          public boolean booleanValue(ExpressionEvaluator eval) {
+            return !((BooleanSpecialization) s).booleanValue(eval);
+          }
+        };
+      }
+      else { return null; }
+    }
+
+    @Override public Specialization visit(MinusExpression node) {
+      final Specialization s = operand(node.getExpression());
+      if (s instanceof IntSpecialization) {
+        return new IntSpecialization() {
+          public int intValue(ExpressionEvaluator eval) { return -((IntSpecialization) s).intValue(eval); }
+        };
+      }
+      else if (s instanceof LongSpecialization) {
+        return new LongSpecialization() {
+          public long longValue(ExpressionEvaluator eval) { return -((LongSpecialization) s).longValue(eval); }
+        };
+      }
+      else if (s instanceof DoubleSpecialization) {
+        return new DoubleSpecialization() {
+          public double doubleValue(ExpressionEvaluator eval) {
+            return -((DoubleSpecialization) s).doubleValue(eval);
+          }
+        };
+      }
+      else { return null; }
+    }
+
+    @Override public Specialization visit(ComplementExpression node) {
+      final Specialization s = operand(node.getExpression());
+      if (s instanceof IntSpecialization) {
+        return new IntSpecialization() {
+          public int intValue(ExpressionEvaluator eval) { return ~((IntSpecialization) s).intValue(eval); }
+        };
+      }
+      else if (s instanceof LongSpecialization) {
+        return new LongSpecialization() {
+          public long longValue(ExpressionEvaluator eval) { return ~((LongSpecialization) s).longValue(eval); }
+        };
+      }
+      else { return null; }
+    }
+
+    @Override public Specialization visit(CastExpression node) {
+      // the conversion, if any, is applied by the caller
+      return operand(node.getExpression());
+    }
+
+    @Override public Specialization visit(SimpleAssignExpression node) {
+      Class<?> k = localKind(node.getLeftExpression());
+      Specialization r = operand(node.getRightExpression());
+      if (k == null || !hasKind(r, k)) { return null; }
+      RuntimeBindings.Slot slot = getVariableSlot(local(node.getLeftExpression()));
+      if (k == int.class) { return new IntStore(slot, null, (IntSpecialization) r); }
+      else if (k == long.class) { return new LongStore(slot, null, (LongSpecialization) r); }
+      else { return new DoubleStore(slot, null, (DoubleSpecialization) r); }
+    }
+
+    /** An operator-assignment to a local whose type matches that of the operation. */
+    private Specialization update(AssignExpression node, Op op) {
+      Class<?> k = localKind(node.getLeftExpression());
+      if (k == null || kind(node) != k || !hasLeftExpression(node) || kind(getLeftExpression(node)) != k) {
+        return null;
+      }
+      Specialization r = op.isShift() ? shiftDistance(node.getRightExpression()) : operand(node.getRightExpression());
+      if (r == null || !op.isShift() && !hasKind(r, k)) { return null; }
+      RuntimeBindings.Slot slot = getVariableSlot(local(node.getLeftExpression()));
+      if (k == int.class) { return new IntStore(slot, op, (IntSpecialization) r); }
+      else if (k == long.class) {
+        if (op.isShift()) { return new LongShiftStore(slot, op, (IntSpecialization) r); }
+        else { return new LongStore(slot, op, (LongSpecialization) r); }
+      }
+      else if (op.isArithmetic()) { return new DoubleStore(slot, op, (DoubleSpecialization) r); }
+      else { return null; }
+    }
+
+    @Override public Specialization visit(AddAssignExpression node) {
+      return (getOperation(node) == ExpressionEvaluator.ADD) ? update(node, Op.ADD) : null;
+    }
+    @Override public Specialization visit(SubtractAssignExpression node) { return update(node, Op.SUBTRACT); }
+    @Override public Specialization visit(MultiplyAssignExpression node) { return update(node, Op.MULTIPLY); }
+    @Override public Specialization visit(DivideAssignExpression node) { return update(node, Op.DIVIDE); }
+    @Override public Specialization visit(RemainderAssignExpression node) { return update(node, Op.REMAINDER); }
+    @Override public Specialization visit(BitAndAssignExpression node) { return update(node, Op.AND); }
+    @Override public Specialization visit(BitOrAssignExpression node) { return update(node, Op.OR); }
+    @Override public Specialization visit(ExclusiveOrAssignExpression node) { return update(node, Op.XOR); }
+    @Override public Specialization visit(ShiftLeftAssignExpression node) { return update(node, Op.SHIFT_LEFT); }
+    @Override public Specialization visit(ShiftRightAssignExpression node) { return update(node, Op.SHIFT_RIGHT); }
+    @Override public Specialization visit(UnsignedShiftRightAssignExpression node) {
+      return update(node, Op.UNSIGNED_SHIFT_RIGHT);
+    }
+
+    /** An increment or decrement of a local. */
+    private Specialization step(UnaryExpression node, int delta, boolean post) {
+      Class<?> k = localKind(node.getExpression());
+      if (k == null || kind(node) != k) { return null; }
+      RuntimeBindings.Slot slot = getVariableSlot(local(node.getExpression()));
+      if (k == int.class) { return new IntStep(slot, delta, post); }
+      else if (k == long.class) { return new LongStep(slot, delta, post); }
+      else { return new DoubleStep(slot, delta, post); }
+    }
+
+    @Override public Specialization visit(PreIncrement node) { return step(node, 1, false); }
+    @Override public Specialization visit(PostIncrement node) { return step(node, 1, true); }
+    @Override public Specialization visit(PreDecrement node) { return step(node, -1, false); }
+    @Override public Specialization visit(PostDecrement node) { return step(node, -1, true); }
+
+  }
+
+
+  /* * * * * * * * * *
+   * SPECIALIZATIONS
+   * * * * * * * * * */
+
+  /**
+   * The evaluation of an expression in terms of unboxed values.  Any ArithmeticException thrown
+   * by a specialization comes from an operation that it performs directly (rather than, for example,
+   * a method called by the expression).
+   */
+  public static abstract class Specialization {
+    /** Evaluate the expression, boxing its value. */
+    public abstract Object value(ExpressionEvaluator eval);
+    /** Evaluate the expression for its side effects only. */
+    public abstract void execute(ExpressionEvaluator eval);
+  }
+
+  private static abstract class IntSpecialization extends Specialization {
+    public abstract int intValue(ExpressionEvaluator eval);
+    public Object value(ExpressionEvaluator eval) { return intValue(eval); }
+    public void execute(ExpressionEvaluator eval) { intValue(eval); }
+  }
+
+  private static abstract class LongSpecialization extends Specialization {
+    public abstract long longValue(ExpressionEvaluator eval);
+    public Object value(ExpressionEvaluator eval) { return longValue(eval); }
+    public void execute(ExpressionEvaluator eval) { longValue(eval); }
+  }
+
+  private static abstract class DoubleSpecialization extends Specialization {
+    public abstract double doubleValue(ExpressionEvaluator eval);
+    public Object value(ExpressionEvaluator eval) { return doubleValue(eval); }
+    public void execute(ExpressionEvaluator eval) { doubleValue(eval); }
+  }
+
+  private static abstract class BooleanSpecialization extends Specialization {
+    public abstract boolean booleanValue(ExpressionEvaluator eval);
+    public Object value(ExpressionEvaluator eval) { return booleanValue(eval); }
+    public void execute(ExpressionEvaluator eval) { booleanValue(eval); }
+  }
+
+  private static enum Op {
+    ADD, SUBTRACT, MULTIPLY, DIVIDE, REMAINDER, AND, OR, XOR, SHIFT_LEFT, SHIFT_RIGHT, UNSIGNED_SHIFT_RIGHT,
+    LESS, LESS_OR_EQUAL, GREATER, GREATER_OR_EQUAL, EQUAL, NOT_EQUAL, CONDITIONAL_AND, CONDITIONAL_OR;
+
+    public boolean isArithmetic() { return compareTo(REMAINDER) <= 0; }
+    public boolean isBitwise() { return this == AND || this == OR || this == XOR; }
+    public boolean isShift() { return this == SHIFT_LEFT || this == SHIFT_RIGHT || this == UNSIGNED_SHIFT_RIGHT; }
+
+    public int apply(int l, int r) {
+      switch (this) {
+        case ADD: return l + r;
+        case SUBTRACT: return l - r;
+        case MULTIPLY: return l * r;
+        case DIVIDE: return l / r;
+        case REMAINDER: return l % r;
+        case AND: return l & r;
+        case OR: return l | r;
+        case XOR: return l ^ r;
+        case SHIFT_LEFT: return l << r;
+        case SHIFT_RIGHT: return l >> r;
+        case UNSIGNED_SHIFT_RIGHT: return l >>> r;
+        default: throw new IllegalArgumentException();
+      }
+    }
+
+    public long apply(long l, long r) {
+      switch (this) {
+        case ADD: return l + r;
+        case SUBTRACT: return l - r;
+        case MULTIPLY: return l * r;
+        case DIVIDE: return l / r;
+        case REMAINDER: return l % r;
+        case AND: return l & r;
+        case OR: return l | r;
+        case XOR: return l ^ r;
+        default: throw new IllegalArgumentException();
+      }
+    }
+
+    public long shift(long l, int r) {
+      switch (this) {
+        case SHIFT_LEFT: return l << r;
+        case SHIFT_RIGHT: return l >> r;
+        case UNSIGNED_SHIFT_RIGHT: return l >>> r;
+        default: throw new IllegalArgumentException();
+      }
+    }
+
+    public double apply(double l, double r) {
+      switch (this) {
+        case ADD: return l + r;
+        case SUBTRACT: return l - r;
+        case MULTIPLY: return l * r;
+        case DIVIDE: return l / r;
+        case REMAINDER: return l % r;
+        default: throw new IllegalArgumentException();
+      }
+    }
+
+    public boolean compare(int l, int r) {
+      switch (this) {
+        case LESS: return l < r;
+        case LESS_OR_EQUAL: return l <= r;
+        case GREATER: return l > r;
+        case GREATER_OR_EQUAL: return l >= r;
+        case EQUAL: return l == r;
+        case NOT_EQUAL: return l != r;
+        default: throw new IllegalArgumentException();
+      }
+    }
+
+    public boolean compare(long l, long r) {
+      switch (this) {
+        case LESS: return l < r;
+        case LESS_OR_EQUAL: return l <= r;
+        case GREATER: return l > r;
+        case GREATER_OR_EQUAL: return l >= r;
+        case EQUAL: return l == r;
+        case NOT_EQUAL: return l != r;
+        default: throw new IllegalArgumentException();
+      }
+    }
+
+    public boolean compare(double l, double r) {
+      switch (this) {
+        case LESS: return l < r;
+        case LESS_OR_EQUAL: return l <= r;
+        case GREATER: return l > r;
+        case GREATER_OR_EQUAL: return l >= r;
+        case EQUAL: return l == r;
+        case NOT_EQUAL: return l != r;
+        default: throw new IllegalArgumentException();
+      }
+    }
+  }
+
+  /* Leaves */
+
+  private static class IntConstant extends IntSpecialization {
+    private final int _val;
+    public IntConstant(int val) { _val = val; }
+    public int intValue(ExpressionEvaluator eval) { return _val; }
+  }
+
+  private static class LongConstant extends LongSpecialization {
+    private final long _val;
+    public LongConstant(long val) { _val = val; }
+    public long longValue(ExpressionEvaluator eval) { return _val; }
+  }
+
+  private static class DoubleConstant extends DoubleSpecialization {
+    private final double _val;
+    public DoubleConstant(double val) { _val = val; }
+    public double doubleValue(ExpressionEvaluator eval) { return _val; }
+  }
+
+  private static class BooleanConstant extends BooleanSpecialization {
+    private final boolean _val;
+    public BooleanConstant(boolean val) { _val = val; }
+    public boolean booleanValue(ExpressionEvaluator eval) { return _val; }
+  }
+
+  private static class IntLocal extends IntSpecialization {
+    private final RuntimeBindings.Slot _slot;
+    public IntLocal(RuntimeBindings.Slot slot) { _slot = slot; }
+    public int intValue(ExpressionEvaluator eval) { return (Integer) eval.bindings().get(_slot); }
+  }
+
+  private static class LongLocal extends LongSpecialization {
+    private final RuntimeBindings.Slot _slot;
+    public LongLocal(RuntimeBindings.Slot slot) { _slot = slot; }
+    public long longValue(ExpressionEvaluator eval) { return (Long) eval.bindings().get(_slot); }
+  }
+
+  private static class DoubleLocal extends DoubleSpecialization {
+    private final RuntimeBindings.Slot _slot;
+    public DoubleLocal(RuntimeBindings.Slot slot) { _slot = slot; }
+    public double doubleValue(ExpressionEvaluator eval) { return (Double) eval.bindings().get(_slot); }
+  }
+
+  /** An operand evaluated by the ExpressionEvaluator. */
+  private static class IntLeaf extends IntSpecialization {
+    private final Expression _e;
+    public IntLeaf(Expression e) { _e = e; }
+    public int intValue(ExpressionEvaluator eval) { return (Integer) eval.value(_e); }
+  }
+
+  /** An operand evaluated by the ExpressionEvaluator. */
+  private static class LongLeaf extends LongSpecialization {
+    private final Expression _e;
+    public LongLeaf(Expression e) { _e = e; }
+    public long longValue(ExpressionEvaluator eval) { return (Long) eval.value(_e); }
+  }
+
+  /** An operand evaluated by the ExpressionEvaluator. */
+  private static class DoubleLeaf extends DoubleSpecialization {
+    private final Expression _e;
+    public DoubleLeaf(Expression e) { _e = e; }
+    public double doubleValue(ExpressionEvaluator eval) { return (Double) eval.value(_e); }
+  }
+
+  /** An operand evaluated by the ExpressionEvaluator. */
+  private static class BooleanLeaf extends BooleanSpecialization {
+    private final Expression _e;
+    public BooleanLeaf(Expression e) { _e = e; }
+    public boolean booleanValue(ExpressionEvaluator eval) { return (Boolean) eval.value(_e); }
+  }
+
+  /* Operators */
+
+  private static class IntBinary extends IntSpecialization {
+    private final Op _op;
+    private final IntSpecialization _left;
+    private final IntSpecialization _right;
+    public IntBinary(Op op, IntSpecialization left, IntSpecialization right) {
+      _op = op; _left = left; _right = right;
+    }
+    public int intValue(ExpressionEvaluator eval) {
+      return _op.apply(_left.intValue(eval), _right.intValue(eval));
+    }
+  }
+
+  private static class LongBinary extends LongSpecialization {
+    private final Op _op;
+    private final LongSpecialization _left;
+    private final LongSpecialization _right;
+    public LongBinary(Op op, LongSpecialization left, LongSpecialization right) {
+      _op = op; _left = left; _right = right;
+    }
+    public long longValue(ExpressionEvaluator eval) {
+      return _op.apply(_left.longValue(eval), _right.longValue(eval));
+    }
+  }
+
+  private static class LongShift extends LongSpecialization {
+    private final Op _op;
+    private final LongSpecialization _left;
+    private final IntSpecialization _right;
+    public LongShift(Op op, LongSpecialization left, IntSpecialization right) {
+      _op = op; _left = left; _right = right;
+    }
+    public long longValue(ExpressionEvaluator eval) {
+      return _op.shift(_left.longValue(eval), _right.intValue(eval));
+    }
+  }
+
+  private static class DoubleBinary extends DoubleSpecialization {
+    private final Op _op;
+    private final DoubleSpecialization _left;
+    private final DoubleSpecialization _right;
+    public DoubleBinary(Op op, DoubleSpecialization left, DoubleSpecialization right) {
+      _op = op; _left = left; _right = right;
+    }
+    public double doubleValue(ExpressionEvaluator eval) {
+      return _op.apply(_left.doubleValue(eval), _right.doubleValue(eval));
+    }
+  }
+
+  private static class IntComparison extends BooleanSpecialization {
+    private final Op _op;
+    private final IntSpecialization _left;
+    private final IntSpecialization _right;
+    public IntComparison(Op op, IntSpecialization left, IntSpecialization right) {
+      _op = op; _left = left; _right = right;
+    }
+    public boolean booleanValue(ExpressionEvaluator eval) {
+      return _op.compare(_left.intValue(eval), _right.intValue(eval));
+    }
+  }
+
+  private static class LongComparison extends BooleanSpecialization {
+    private final Op _op;
+    private final LongSpecialization _left;
+    private final LongSpecialization _right;
+    public LongComparison(Op op, LongSpecialization left, LongSpecialization right) {
+      _op = op; _left = left; _right = right;
+    }
+    public boolean booleanValue(ExpressionEvaluator eval) {
+      return _op.compare(_left.longValue(eval), _right.longValue(eval));
+    }
+  }
+
+  private static class DoubleComparison extends BooleanSpecialization {
+    private final Op _op;
+    private final DoubleSpecialization _left;
+    private final DoubleSpecialization _right;
+    public DoubleComparison(Op op, DoubleSpecialization left, DoubleSpecialization right) {
+      _op = op; _left = left; _right = right;
+    }
+    public boolean booleanValue(ExpressionEvaluator eval) {
+      return _op.compare(_left.doubleValue(eval), _right.doubleValue(eval));
+    }
+  }
+
+  private static class BooleanBinary extends BooleanSpecialization {
+    private final Op _op;
+    private final BooleanSpecialization _left;
+    private final BooleanSpecialization _right;
+    public BooleanBinary(Op op, BooleanSpecialization left, BooleanSpecialization right) {
+      _op = op; _left = left; _right = right;
+    }
+    public boolean booleanValue(ExpressionEvaluator eval) {
+      boolean l = _left.booleanValue(eval);
+      switch (_op) {
+        case CONDITIONAL_AND: return l && _right.booleanValue(eval);
+        case CONDITIONAL_OR: return l || _right.booleanValue(eval);
+        case AND: return l & _right.booleanValue(eval);
+        case OR: return l | _right.booleanValue(eval);
+        case XOR: case NOT_EQUAL: return l ^ _right.booleanValue(eval);
+        case EQUAL: return l == _right.booleanValue(eval);
+        default: throw new IllegalArgumentException();
+      }
+    }
+  }
+
+  /* Assignments */
+
+  /** An assignment ({@code op} is null) or operator-assignment to a local. */
+  private static class IntStore extends IntSpecialization {
+    private final RuntimeBindings.Slot _slot;
+    private final Op _op;
+    private final IntSpecialization _right;
+    public IntStore(RuntimeBindings.Slot slot, Op op, IntSpecialization right) {
+      _slot = slot; _op = op; _right = right;
+    }
+    public int intValue(ExpressionEvaluator eval) {
+      RuntimeBindings b = eval.bindings();
+      int result = (_op == null) ? _right.intValue(eval) : _op.apply((Integer) b.get(_slot), _right.intValue(eval));
+      b.set(_slot, result);
+      return result;
+    }
+  }
+
+  /** An assignment ({@code op} is null) or operator-assignment to a local. */
+  private static class LongStore extends LongSpecialization {
+    private final RuntimeBindings.Slot _slot;
+    private final Op _op;
+    private final LongSpecialization _right;
+    public LongStore(RuntimeBindings.Slot slot, Op op, LongSpecialization right) {
+      _slot = slot; _op = op; _right = right;
+    }
+    public long longValue(ExpressionEvaluator eval) {
+      RuntimeBindings b = eval.bindings();
+      long result = (_op == null) ? _right.longValue(eval) : _op.apply((Long) b.get(_slot), _right.longValue(eval));
+      b.set(_slot, result);
+      return result;
+    }
+  }
+
+  private static class LongShiftStore extends LongSpecialization {
+    private final RuntimeBindings.Slot _slot;
+    private final Op _op;
+    private final IntSpecialization _right;
+    public LongShiftStore(RuntimeBindings.Slot slot, Op op, IntSpecialization right) {
+      _slot = slot; _op = op; _right = right;
+    }
+    public long longValue(ExpressionEvaluator eval) {
+      RuntimeBindings b = eval.bindings();
+      long result = _op.shift((Long) b.get(_slot), _right.intValue(eval));
+      b.set(_slot, result);
+      return result;
+    }
+  }
+
+  /** An assignment ({@code op} is null) or operator-assignment to a local. */
+  private static class DoubleStore extends DoubleSpecialization {
+    private final RuntimeBindings.Slot _slot;
+    private final Op _op;
+    private final DoubleSpecialization _right;
+    public DoubleStore(RuntimeBindings.Slot slot, Op op, DoubleSpecialization right) {
+      _slot = slot; _op = op; _right = right;
+    }
+    public double doubleValue(ExpressionEvaluator eval) {
+      RuntimeBindings b = eval.bindings();
+      double result = (_op == null) ? _right.doubleValue(eval) :
+                                      _op.apply((Double) b.get(_slot), _right.doubleValue(eval));
+      b.set(_slot, result);
+      return result;
+    }
+  }
+
+  /** An increment or decrement of a local; the value is the old one if {@code post}. */
+  private static class IntStep extends IntSpecialization {
+    private final RuntimeBindings.Slot _slot;
+    private final int _delta;
+    private final boolean _post;
+    public IntStep(RuntimeBindings.Slot slot, int delta, boolean post) {
+      _slot = slot; _delta = delta; _post = post;
+    }
+    public int intValue(ExpressionEvaluator eval) {
+      RuntimeBindings b = eval.bindings();
+      int old = (Integer) b.get(_slot);
+      b.set(_slot, old + _delta);
+      return _post ? old : old + _delta;
+    }
+  }
+
+  /** An increment or decrement of a local; the value is the old one if {@code post}. */
+  private static class LongStep extends LongSpecialization {
+    private final RuntimeBindings.Slot _slot;
+    private final int _delta;
+    private final boolean _post;
+    public LongStep(RuntimeBindings.Slot slot, int delta, boolean post) {
+      _slot = slot; _delta = delta; _post = post;
+    }
+    public long longValue(ExpressionEvaluator eval) {
+      RuntimeBindings b = eval.bindings();
+      long old = (Long) b.get(_slot);
+      b.set(_slot, old + _delta);
+      return _post ? old : old + _delta;
+    }
+  }
+
+  /** An increment or decrement of a local; the value is the old one if {@code post}. */
+  private static class DoubleStep extends DoubleSpecialization {
+    private final RuntimeBindings.Slot _slot;
+    private final int _delta;
+    private final boolean _post;
+    public DoubleStep(RuntimeBindings.Slot slot, int delta, boolean post) {
+      _slot = slot; _delta = delta; _post = post;
+    }
+    public double doubleValue(ExpressionEvaluator eval) {
+      RuntimeBindings b = eval.bindings();
+      double old = (Double) b.get(_slot);
+      b.set(_slot, old + _delta);
+      return _post ? old : old + _delta;
+    }
+  }
+
+}
@@ -3,7 +3,7 @@ package edu.rice.cs.dynamicjava.interpreter;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Collections;
-import edu.rice.cs.plt.tuple.Pair;
+import java.util.Iterator;
 import edu.rice.cs.plt.iter.IterUtil;
 
 import edu.rice.cs.dynamicjava.symbol.*;
@@ -19,39 +19,67 @@ import edu.rice.cs.dynamicjava.symbol.type.VariableType;
   */
 public class RuntimeBindings {
   
+  // must precede EMPTY, which is initialized with them
+  private static final LocalVariable[] NO_VARS = new LocalVariable[0];
+  private static final Object[] NO_VALS = new Object[0];
+  
   public static final RuntimeBindings EMPTY = new RuntimeBindings();
   
   private final RuntimeBindings _parent;
-  private final Map<LocalVariable, Object> _vars;
-  private final Map<VariableType, Type> _tvars; // might be useful someday...
-  private final Map<DJClass, Object> _thisVals;
+  private final LocalVariable[] _vars;
+  private final Object[] _vals;
+  private final Map<VariableType, Type> _tvars; // might be useful someday... (null if empty)
+  private final Map<DJClass, Object> _thisVals; // null if empty
   
   public RuntimeBindings(RuntimeBindings parent, Map<LocalVariable, Object> vars,
                          Map<VariableType, Type> tvars, Map<DJClass, Object> thisVals) {
     _parent = parent;
-    _vars = new HashMap<LocalVariable, Object>(vars);
-    _tvars = new HashMap<VariableType, Type>(tvars);
-    _thisVals = new HashMap<DJClass, Object>(thisVals);
+    _vars = new LocalVariable[vars.size()];
+    _vals = new Object[vars.size()];
+    int i = 0;
+    for (Map.Entry<LocalVariable, Object> e : vars.entrySet()) {
+      _vars[i] = e.getKey();
+      _vals[i] = e.getValue();
+      i++;
+    }
+    _tvars = tvars.isEmpty() ? null : new HashMap<VariableType, Type>(tvars);
+    _thisVals = thisVals.isEmpty() ? null : new HashMap<DJClass, Object>(thisVals);
+  }
+  
+  private RuntimeBindings(RuntimeBindings parent, LocalVariable[] vars, Object[] vals) {
+    _parent = parent;
+    _vars = vars;
+    _vals = vals;
+    _tvars = null;
+    _thisVals = null;
   }
   
   private RuntimeBindings() {
-    this(null, Collections.<LocalVariable, Object>emptyMap(),
-         Collections.<VariableType, Type>emptyMap(), Collections.<DJClass, Object>emptyMap());
+    this(null, NO_VARS, NO_VALS);
   }
   
   public RuntimeBindings(RuntimeBindings parent, LocalVariable var, Object val) {
-    this(parent, Collections.singletonMap(var, val), Collections.<VariableType, Type>emptyMap(),
-         Collections.<DJClass, Object>emptyMap());
+    this(parent, new LocalVariable[]{ var }, new Object[]{ val });
   }
   
+  /** Bind vars to vals, in order.  The variables are stored in that order, so slot i is the ith variable. */
   public RuntimeBindings(RuntimeBindings parent, Iterable<LocalVariable> vars, Iterable<Object> vals) {
-    this(parent, makeMap(vars, vals), Collections.<VariableType, Type>emptyMap(),
-         Collections.<DJClass, Object>emptyMap());
+    this(parent, IterUtil.toArray(vars, LocalVariable.class), valuesArray(vars, vals));
+  }
+  
+  /**
+   * Create a frame for the given variables, all initially bound to {@code null}.  The variables
+   * are expected to be assigned (with {@link #set(Slot, Object)}) when their declarations are evaluated.
+   */
+  public RuntimeBindings(RuntimeBindings parent, LocalVariable[] frame) {
+    this(parent, frame, new Object[frame.length]);
   }
   
-  private static <K, V> Map<K, V> makeMap(Iterable<? extends K> keys, Iterable<? extends V> vals) {
-    Map<K, V> result = new HashMap<K, V>();
-    for (Pair<K, V> entry : IterUtil.zip(keys, vals)) { result.put(entry.first(), entry.second()); }
+  /** The values corresponding to each of vars (extra values are ignored; missing values are null). */
+  private static Object[] valuesArray(Iterable<LocalVariable> vars, Iterable<Object> vals) {
+    Object[] result = new Object[IterUtil.sizeOf(vars)];
+    Iterator<Object> valIter = vals.iterator();
+    for (int i = 0; i < result.length && valIter.hasNext(); i++) { result[i] = valIter.next(); }
     return result;
   }
   
@@ -60,28 +88,113 @@ public class RuntimeBindings {
            Collections.<VariableType, Type>emptyMap(), Collections.singletonMap(thisClass, thisObj));
   }
   
+  /** The index of v in this frame, or -1. */
+  private int indexOf(LocalVariable v) {
+    LocalVariable[] vars = _vars;
+    for (int i = 0; i < vars.length; i++) {
+      if (vars[i] == v) { return i; }
+    }
+    return -1;
+  }
+  
   public Object get(LocalVariable v) {
-    if (_vars.containsKey(v)) { return _vars.get(v); }
-    else if (_parent != null) { return _parent.get(v); }
-    else { throw new IllegalArgumentException("Variable " + v + " is undefined"); }
+    for (RuntimeBindings b = this; b != null; b = b._parent) {
+      int i = b.indexOf(v);
+      if (i >= 0) { return b._vals[i]; }
+    }
+    throw new IllegalArgumentException("Variable " + v + " is undefined");
   }
   
   public void set(LocalVariable v, Object val) {
-    if (_vars.containsKey(v)) { _vars.put(v, val); }
-    else if (_parent != null) { _parent.set(v, val); }
-    else { throw new IllegalArgumentException("Variable " + v + " is undefined"); }
+    for (RuntimeBindings b = this; b != null; b = b._parent) {
+      int i = b.indexOf(v);
+      if (i >= 0) { b._vals[i] = val; return; }
+    }
+    throw new IllegalArgumentException("Variable " + v + " is undefined");
+  }
+  
+  /** The frame {@code s.depth()} levels up from this one, if it holds {@code s.variable()} at {@code s.index()}. */
+  private RuntimeBindings frameFor(Slot s) {
+    RuntimeBindings b = this;
+    for (int d = s.depth(); d > 0 && b != null; d--) { b = b._parent; }
+    if (b != null && s.index() < b._vars.length && b._vars[s.index()] == s.variable()) { return b; }
+    else { return null; }
+  }
+  
+  /** Get the value of a resolved variable. */
+  public Object get(Slot s) {
+    RuntimeBindings b = frameFor(s);
+    return (b == null) ? get(s.variable()) : b._vals[s.index()];
+  }
+  
+  /** Set the value of a resolved variable. */
+  public void set(Slot s, Object val) {
+    RuntimeBindings b = frameFor(s);
+    if (b == null) { set(s.variable(), val); }
+    else { b._vals[s.index()] = val; }
+  }
+  
+  /** Whether {@code s} refers to a variable of this frame (as opposed to an enclosing one). */
+  public boolean isLocal(Slot s) {
+    return s.depth() == 0 && frameFor(s) != null;
   }
 
   public Type get(VariableType v) {
-    if (_tvars.containsKey(v)) { return _tvars.get(v); }
-    else if (_parent != null) { return _parent.get(v); }
-    else { throw new IllegalArgumentException("Type variable " + v + " is undefined"); }
+    for (RuntimeBindings b = this; b != null; b = b._parent) {
+      if (b._tvars != null && b._tvars.containsKey(v)) { return b._tvars.get(v); }
+    }
+    throw new IllegalArgumentException("Type variable " + v + " is undefined");
   }
   
   public Object getThis(DJClass c) {
-    if (_thisVals.containsKey(c)) { return _thisVals.get(c); }
-    else if (_parent != null) { return _parent.getThis(c); }
-    else { throw new IllegalArgumentException("This value " + c + " is undefined"); }
+    for (RuntimeBindings b = this; b != null; b = b._parent) {
+      if (b._thisVals != null && b._thisVals.containsKey(c)) { return b._thisVals.get(c); }
+    }
+    throw new IllegalArgumentException("This value " + c + " is undefined");
+  }
+  
+  /**
+   * A copy of the values bound in this frame and its ancestors, innermost first, that can later be put
+   * back with {@link #restoreValues}.  The objects referenced by the values are not copied.
+   */
+  Object[][] saveValues() {
+    int depth = 0;
+    for (RuntimeBindings b = this; b != null; b = b._parent) { depth++; }
+    Object[][] result = new Object[depth][];
+    int i = 0;
+    for (RuntimeBindings b = this; b != null; b = b._parent) {
+      result[i++] = (b._vals.length == 0) ? NO_VALS : b._vals.clone();
+    }
+    return result;
+  }
+  
+  /** Reset the values bound in this frame and its ancestors to those recorded by {@link #saveValues}. */
+  void restoreValues(Object[][] saved) {
+    int i = 0;
+    for (RuntimeBindings b = this; b != null; b = b._parent) {
+      System.arraycopy(saved[i++], 0, b._vals, 0, b._vals.length);
+    }
+  }
+  
+  
+  /**
+   * The location of a local variable relative to the frame in which a reference to it is evaluated:
+   * {@code depth} frames up the parent chain, at position {@code index}.  Computed statically by the
+   * {@link SlotResolver}.
+   */
+  public static final class Slot {
+    private final LocalVariable _var;
+    private final int _depth;
+    private final int _index;
+    public Slot(LocalVariable var, int depth, int index) {
+      _var = var;
+      _depth = depth;
+      _index = index;
+    }
+    public LocalVariable variable() { return _var; }
+    public int depth() { return _depth; }
+    public int index() { return _index; }
+    public String toString() { return "Slot(" + _var.declaredName() + ": " + _depth + ", " + _index + ")"; }
   }
 
 }
@@ -0,0 +1,249 @@
+package edu.rice.cs.dynamicjava.interpreter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import koala.dynamicjava.tree.*;
+import koala.dynamicjava.tree.visitor.DepthFirstVisitor;
+
+import edu.rice.cs.dynamicjava.symbol.LocalVariable;
+
+import static koala.dynamicjava.interpreter.NodeProperties.*;
+
+/**
+ * Assigns each local variable reference a {@link RuntimeBindings.Slot}, to be run on trees that have
+ * been processed by the {@link StatementChecker} without any errors.  The resolver mirrors the way
+ * the {@link StatementEvaluator} extends its bindings: blocks, {@code for} and {@code switch}
+ * statements that declare variables get a single frame for all of them (recorded with the
+ * {@code FRAME} property); {@code for-each} and {@code catch} parameters and function parameters
+ * get a frame of their own; and a declaration in a statement list that has no frame (such as the
+ * top level of the interactions pane) extends the bindings with a one-variable frame.
+ *
+ * <p>References that cross a function or class body are not resolved, since the bindings in which
+ * those bodies are evaluated depend on the caller.  Neither are references to variables declared
+ * in earlier inputs.  In any case, a slot is only an optimization: RuntimeBindings checks that the
+ * variable is where the slot says it is before using it.</p>
+ */
+public class SlotResolver extends DepthFirstVisitor {
+
+  /** The frames in scope, innermost last.  Each is laid out as the corresponding RuntimeBindings. */
+  private List<LocalVariable[]> _frames;
+  /** Whether declarations in the current statement list are slots of the innermost frame. */
+  private boolean _framed;
+
+  public SlotResolver() {
+    _frames = new ArrayList<LocalVariable[]>();
+    _framed = false;
+  }
+
+  /** Resolve a list of statements evaluated in sequence in the current bindings (such as an input). */
+  public void resolveList(Iterable<? extends Node> nodes) {
+    resolveSequence(nodes, false);
+  }
+
+  @Override public void run(Node node) {
+    try { node.acceptVisitor(this); }
+    catch (IllegalArgumentException e) { /* thrown by "empty" stub nodes -- ignore */ }
+    // translations are evaluated in place of the original nodes
+    if (hasLeftExpression(node)) { recur(getLeftExpression(node)); }
+    if (hasTranslation(node)) { recur(getTranslation(node)); }
+    if (hasStatementTranslation(node)) { recur(getStatementTranslation(node)); }
+  }
+
+
+  /* * * * * * * * * *
+   * SCOPES
+   * * * * * * * * * */
+
+  /**
+   * Resolve statements evaluated by {@link StatementEvaluator#evaluateSequence}.  If {@code framed},
+   * their declarations have slots in the innermost frame; otherwise, each declaration pushes a frame
+   * that extends to the end of the list.
+   */
+  private void resolveSequence(Iterable<? extends Node> nodes, boolean framed) {
+    boolean oldFramed = _framed;
+    int pushed = 0;
+    for (Node n : nodes) {
+      LocalVariable v = declaredVariable(n);
+      _framed = framed;
+      if (v != null && !framed) { _frames.add(new LocalVariable[]{ v }); pushed++; }
+      run(n);
+    }
+    for (int i = 0; i < pushed; i++) { _frames.remove(_frames.size()-1); }
+    _framed = oldFramed;
+  }
+
+  /** The variable declared by a statement in a list, or null. */
+  private static LocalVariable declaredVariable(Node n) {
+    if (n instanceof ExpressionStatement && hasStatementTranslation(n)) { n = getStatementTranslation(n); }
+    if (n instanceof VariableDeclaration && hasVariable(n)) { return getVariable(n); }
+    else { return null; }
+  }
+
+  /** The variables declared by a list of statements, or null if there are none. */
+  private static LocalVariable[] declaredVariables(Iterable<? extends Node> nodes) {
+    List<LocalVariable> vars = new ArrayList<LocalVariable>();
+    for (Node n : nodes) {
+      LocalVariable v = declaredVariable(n);
+      if (v != null) { vars.add(v); }
+    }
+    return vars.isEmpty() ? null : vars.toArray(new LocalVariable[vars.size()]);
+  }
+
+  /**
+   * Resolve the given statements in a fresh scope, as in a function or class body.  If {@code params}
+   * is non-null, it is the only frame in scope.  The nodes are resolved as a statement list (without
+   * a frame) if {@code sequence} is true; otherwise, each is resolved independently.
+   */
+  private void resolveBody(LocalVariable[] params, Iterable<? extends Node> nodes, boolean sequence) {
+    List<LocalVariable[]> oldFrames = _frames;
+    boolean oldFramed = _framed;
+    _frames = new ArrayList<LocalVariable[]>();
+    if (params != null) { _frames.add(params); }
+    _framed = false;
+    if (sequence) { resolveSequence(nodes, false); }
+    else { recur(nodes); }
+    _frames = oldFrames;
+    _framed = oldFramed;
+  }
+
+  private static LocalVariable[] parameterFrame(List<FormalParameter> params) {
+    LocalVariable[] result = new LocalVariable[params.size()];
+    for (int i = 0; i < result.length; i++) { result[i] = getVariable(params.get(i)); }
+    return result;
+  }
+
+  @Override public Void visit(BlockStatement node) {
+    LocalVariable[] frame = declaredVariables(node.getStatements());
+    if (frame == null) { resolveSequence(node.getStatements(), false); }
+    else {
+      setFrame(node, frame);
+      _frames.add(frame);
+      resolveSequence(node.getStatements(), true);
+      _frames.remove(_frames.size()-1);
+    }
+    return null;
+  }
+
+  @Override public Void visit(ForStatement node) {
+    LocalVariable[] frame = null;
+    if (node.getInitialization() != null) { frame = declaredVariables(node.getInitialization()); }
+    if (frame != null) { setFrame(node, frame); _frames.add(frame); }
+    if (node.getInitialization() != null) { resolveSequence(node.getInitialization(), frame != null); }
+    recur(node.getCondition());
+    if (node.getUpdate() != null) { resolveSequence(node.getUpdate(), false); }
+    recur(node.getBody());
+    if (frame != null) { _frames.remove(_frames.size()-1); }
+    return null;
+  }
+
+  @Override public Void visit(ForEachStatement node) {
+    _frames.add(new LocalVariable[]{ getVariable(node.getParameter()) });
+    recur(node.getCollection());
+    recur(node.getBody());
+    _frames.remove(_frames.size()-1);
+    return null;
+  }
+
+  @Override public Void visit(SwitchStatement node) {
+    recur(node.getSelector());
+    List<Node> body = new ArrayList<Node>();
+    for (SwitchBlock b : node.getBindings()) {
+      recur(b.getExpression());
+      body.addAll(b.getStatements());
+    }
+    LocalVariable[] frame = declaredVariables(body);
+    if (frame != null) { setFrame(node, frame); _frames.add(frame); }
+    resolveSequence(body, frame != null);
+    if (frame != null) { _frames.remove(_frames.size()-1); }
+    return null;
+  }
+
+  @Override public Void visit(CatchStatement node) {
+    _frames.add(new LocalVariable[]{ getVariable(node.getException()) });
+    recur(node.getBlock());
+    _frames.remove(_frames.size()-1);
+    return null;
+  }
+
+  @Override public Void visit(MethodDeclaration node) {
+    if (node.getBody() != null) {
+      resolveBody(parameterFrame(node.getParameters()), Collections.singletonList(node.getBody()), false);
+    }
+    return null;
+  }
+
+  @Override public Void visit(ConstructorDeclaration node) {
+    // the constructor call and the statements are each evaluated in a frame of the arguments (the
+    // statements are wrapped in a new block, without a frame, by the TreeCompiler)
+    LocalVariable[] params = parameterFrame(node.getParameters());
+    if (node.getConstructorCall() != null) {
+      resolveBody(params, Collections.singletonList(node.getConstructorCall()), false);
+    }
+    resolveBody(params, node.getStatements(), true);
+    return null;
+  }
+
+  @Override public Void visit(ClassDeclaration node) {
+    resolveBody(null, node.getMembers(), false);
+    return null;
+  }
+
+  @Override public Void visit(InterfaceDeclaration node) {
+    resolveBody(null, node.getMembers(), false);
+    return null;
+  }
+
+  @Override public Void visit(AnonymousAllocation node) {
+    recur(node.getArguments());
+    resolveBody(null, node.getMembers(), false);
+    return null;
+  }
+
+  @Override public Void visit(AnonymousInnerAllocation node) {
+    recur(node.getExpression());
+    recur(node.getArguments());
+    resolveBody(null, node.getMembers(), false);
+    return null;
+  }
+
+
+  /* * * * * * * * * *
+   * VARIABLES
+   * * * * * * * * * */
+
+  /** The slot of v in the frames in scope, or null. */
+  private RuntimeBindings.Slot resolve(LocalVariable v) {
+    if (v == null) { return null; }
+    for (int i = _frames.size()-1; i >= 0; i--) {
+      LocalVariable[] frame = _frames.get(i);
+      for (int j = 0; j < frame.length; j++) {
+        if (frame[j] == v) { return new RuntimeBindings.Slot(v, _frames.size()-1-i, j); }
+      }
+    }
+    return null;
+  }
+
+  @Override public Void visit(VariableDeclaration node) {
+    if (_framed && hasVariable(node)) {
+      RuntimeBindings.Slot s = resolve(getVariable(node));
+      if (s != null && s.depth() == 0) { setVariableSlot(node, s); }
+    }
+    // the initializer is not part of the enclosing statement list
+    boolean oldFramed = _framed;
+    _framed = false;
+    recur(node.getInitializer());
+    _framed = oldFramed;
+    return null;
+  }
+
+  @Override public Void visit(VariableAccess node) {
+    if (hasVariable(node)) {
+      RuntimeBindings.Slot s = resolve(getVariable(node));
+      if (s != null) { setVariableSlot(node, s); }
+    }
+    return null;
+  }
+
+}
@@ -53,17 +53,29 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
 
   private final RuntimeBindings _bindings;
   private final Options _opt;
+  /** The result of a statement that has no value and doesn't change the bindings. */
+  private final Result _noValue;
+  /** An evaluator for expressions in {@code _bindings}, created when first needed. */
+  private ExpressionEvaluator _exprEval;
 
   public StatementEvaluator(RuntimeBindings bindings, Options opt) {
     _bindings = bindings;
     _opt = opt;
+    _noValue = new Result(bindings);
+    _exprEval = null;
   }
   
+  private ExpressionEvaluator expressionEvaluator() {
+    if (_exprEval == null) { _exprEval = new ExpressionEvaluator(_bindings, _opt); }
+    return _exprEval;
+  }
   
   public Result evaluateSequence(Iterable<? extends Node> nodes) {
-    Result result = new Result(_bindings);
+    Result result = _noValue;
+    StatementEvaluator eval = this;
     for (Node n : nodes) {
-      result = n.acceptVisitor(new StatementEvaluator(result.bindings(), _opt));
+      if (result.bindings() != eval._bindings) { eval = new StatementEvaluator(result.bindings(), _opt); }
+      result = n.acceptVisitor(eval);
     }
     return result;
   }
@@ -73,17 +85,26 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
    * DECLARATIONS
    * * * * * * * * * */
 
-  @Override public Result visit(PackageDeclaration node) { return new Result(_bindings); }
-  @Override public Result visit(ImportDeclaration node) { return new Result(_bindings); }
-  @Override public Result visit(ClassDeclaration node) { return new Result(_bindings); }
-  @Override public Result visit(InterfaceDeclaration node) { return new Result(_bindings); }
-  @Override public Result visit(ConstructorDeclaration node) { return new Result(_bindings); }
-  @Override public Result visit(MethodDeclaration node) { return new Result(_bindings); }
+  @Override public Result visit(PackageDeclaration node) { return _noValue; }
+  @Override public Result visit(ImportDeclaration node) { return _noValue; }
+  @Override public Result visit(ClassDeclaration node) { return _noValue; }
+  @Override public Result visit(InterfaceDeclaration node) { return _noValue; }
+  @Override public Result visit(ConstructorDeclaration node) { return _noValue; }
+  @Override public Result visit(MethodDeclaration node) { return _noValue; }
 
   @Override public Result visit(VariableDeclaration node) {
     // even when an initializer is present, there may be a reference to the uninitialized
     // variable in the initializer
     Object init = SymbolUtil.initialValue(getErasedType(node).value());
+    if (hasVariableSlot(node) && _bindings.isLocal(getVariableSlot(node))) {
+      // the variable belongs to the frame of the enclosing block
+      RuntimeBindings.Slot slot = getVariableSlot(node);
+      _bindings.set(slot, init);
+      if (node.getInitializer() != null) {
+        _bindings.set(slot, expressionEvaluator().value(node.getInitializer()));
+      }
+      return _noValue;
+    }
     RuntimeBindings newB = new RuntimeBindings(_bindings, getVariable(node), init);
     if (node.getInitializer() != null) {
       newB.set(getVariable(node), new ExpressionEvaluator(newB, _opt).value(node.getInitializer()));
@@ -96,23 +117,24 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
    * STATEMENTS
    * * * * * * * * * */
   
-  @Override public Result visit(EmptyStatement node) { return new Result(_bindings); }
+  @Override public Result visit(EmptyStatement node) { return _noValue; }
   
   @Override public Result visit(ExpressionStatement node) {
     if (hasStatementTranslation(node)) {
       return getStatementTranslation(node).acceptVisitor(this);
     }
     else {
-      Object val = new ExpressionEvaluator(_bindings, _opt).value(node.getExpression());
+      ExpressionEvaluator eval = expressionEvaluator();
       if (node.getHasSemicolon() || getType(node.getExpression()).equals(TypeSystem.VOID)) {
-        return new Result(_bindings);
+        eval.evaluateForEffect(node.getExpression());
+        return _noValue;
       }
-      else { return new Result(val, _bindings); }
+      else { return new Result(eval.value(node.getExpression()), _bindings); }
     }
   }
 
   @Override public Result visit(WhileStatement node) {
-    ExpressionEvaluator eval = new ExpressionEvaluator(_bindings, _opt);
+    ExpressionEvaluator eval = expressionEvaluator();
     try {
       while ((Boolean) eval.value(node.getCondition())) {
         try { node.getBody().acceptVisitor(this); }
@@ -124,7 +146,7 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
     catch (BreakException e) {
       if (e.hasLabel() && !node.hasLabel(e.label())) { throw e; }
     }
-    return new Result(_bindings);
+    return _noValue;
   }
 
   @Override public Result visit(final ForEachStatement node) {
@@ -181,13 +203,13 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
     catch (BreakException e) {
       if (e.hasLabel() && !node.hasLabel(e.label())) { throw e; }
     }
-    return new Result(_bindings);
+    return _noValue;
   }
   
   @Override public Result visit(ForStatement node) {
-    RuntimeBindings newB = _bindings;
+    RuntimeBindings newB = hasFrame(node) ? new RuntimeBindings(_bindings, getFrame(node)) : _bindings;
     if (node.getInitialization() != null) {
-      newB = evaluateSequence(node.getInitialization()).bindings();
+      newB = new StatementEvaluator(newB, _opt).evaluateSequence(node.getInitialization()).bindings();
     }
     Expression cond = node.getCondition();
     Iterable<Node> update = node.getUpdate();
@@ -205,11 +227,11 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
     catch (BreakException e) {
       if (e.hasLabel() && !node.hasLabel(e.label())) { throw e; }
     }
-    return new Result(_bindings);
+    return _noValue;
   }
 
   @Override public Result visit(DoStatement node) {
-    ExpressionEvaluator eval = new ExpressionEvaluator(_bindings, _opt);
+    ExpressionEvaluator eval = expressionEvaluator();
     try {
       do {
         try { node.getBody().acceptVisitor(this); } 
@@ -220,11 +242,11 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
     } catch (BreakException e) {
       if (e.hasLabel() && !node.hasLabel(e.label())) { throw e; }
     }
-    return new Result(_bindings);
+    return _noValue;
   }
 
   @Override public Result visit(SwitchStatement node) {
-    ExpressionEvaluator eval = new ExpressionEvaluator(_bindings, _opt);
+    ExpressionEvaluator eval = expressionEvaluator();
     Object sel = eval.value(node.getSelector());
     Iterator<SwitchBlock> body = node.getBindings().iterator();
     
@@ -247,11 +269,12 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
     
     Iterable<Node> toEvaluate = IterUtil.empty();
     while (body.hasNext()) { toEvaluate = IterUtil.compose(toEvaluate, body.next().getStatements()); }
-    try { evaluateSequence(toEvaluate); }
+    RuntimeBindings bodyB = hasFrame(node) ? new RuntimeBindings(_bindings, getFrame(node)) : _bindings;
+    try { new StatementEvaluator(bodyB, _opt).evaluateSequence(toEvaluate); }
     catch (BreakException e) {
       if (e.hasLabel()) { throw e; }
     }
-    return new Result(_bindings);
+    return _noValue;
   }
   
   @Override public Result visit(LabeledStatement node) {
@@ -259,23 +282,23 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
     catch (BreakException e) {
       if (!e.hasLabel() || !e.label().equals(node.getLabel())) { throw e; }
     }
-    return new Result(_bindings);
+    return _noValue;
   }
 
   @Override public Result visit(SynchronizedStatement node) {
-    synchronized (new ExpressionEvaluator(_bindings, _opt).value(node.getLock())) {
+    synchronized (expressionEvaluator().value(node.getLock())) {
       node.getBody().acceptVisitor(this);
     }
-    return new Result(_bindings);
+    return _noValue;
   }
 
   @Override public Result visit(BreakStatement node) {
-    if (node.getLabel() == null) { throw new BreakException(); }
+    if (node.getLabel() == null) { throw BreakException.UNLABELED; }
     else { throw new BreakException(node.getLabel()); }
   }
 
   @Override public Result visit(ContinueStatement node) {
-    if (node.getLabel() == null) { throw new ContinueException(); }
+    if (node.getLabel() == null) { throw ContinueException.UNLABELED; }
     else { throw new ContinueException(node.getLabel()); }
   }
 
@@ -300,11 +323,11 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
     finally {
       if (node.getFinallyBlock() != null) { node.getFinallyBlock().acceptVisitor(this); }
     }
-    return new Result(_bindings);
+    return _noValue;
   }
   
   @Override public Result visit(ThrowStatement node) {
-    Throwable t = (Throwable) new ExpressionEvaluator(_bindings, _opt).value(node.getExpression());
+    Throwable t = (Throwable) expressionEvaluator().value(node.getExpression());
     // bug fix for DrJava bug 3008828
     if (t == null) {
         // as per Java Language Specification (JLS):
@@ -318,35 +341,35 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
   }
 
   @Override public Result visit(ReturnStatement node) {
-    if (node.getExpression() == null) { throw new ReturnException(); }
+    if (node.getExpression() == null) { throw ReturnException.VOID; }
     else {
-      Object result = new ExpressionEvaluator(_bindings, _opt).value(node.getExpression());
+      Object result = expressionEvaluator().value(node.getExpression());
       throw new ReturnException(result);
     }
   }
 
   @Override public Result visit(IfThenStatement node) {
-    if ((Boolean) new ExpressionEvaluator(_bindings, _opt).value(node.getCondition())) {
+    if ((Boolean) expressionEvaluator().value(node.getCondition())) {
       node.getThenStatement().acceptVisitor(this);
     }
-    return new Result(_bindings);
+    return _noValue;
   }
 
   @Override public Result visit(IfThenElseStatement node) {
-    if ((Boolean) new ExpressionEvaluator(_bindings, _opt).value(node.getCondition())) {
+    if ((Boolean) expressionEvaluator().value(node.getCondition())) {
       node.getThenStatement().acceptVisitor(this);
     }
     else {
       node.getElseStatement().acceptVisitor(this);
     }
-    return new Result(_bindings);
+    return _noValue;
   }
 
   @Override public Result visit(AssertStatement node) {
     // TODO: detect whether assertions are turned on in this context
-    ExpressionEvaluator eval = new ExpressionEvaluator(_bindings, _opt);
+    ExpressionEvaluator eval = expressionEvaluator();
     if ((Boolean) eval.value(node.getCondition())) {
-      return new Result(_bindings);
+      return _noValue;
     }
     else {
       if (node.getFailString() == null) {
@@ -363,11 +386,25 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
   }
   
   @Override public Result visit(BlockStatement node) {
-    return evaluateSequence(node.getStatements());
+    if (hasFrame(node)) {
+      // all of the block's variables live in a single frame, which is discarded at the end of the block
+      RuntimeBindings frame = new RuntimeBindings(_bindings, getFrame(node));
+      Result r = new StatementEvaluator(frame, _opt).evaluateSequence(node.getStatements());
+      return r.value().isSome() ? new Result(r.value().unwrap(), _bindings) : _noValue;
+    }
+    else { return evaluateSequence(node.getStatements()); }
   }
   
   
-  public static class ControlFlowException extends RuntimeException {}
+  /**
+   * A signal that a statement completed abruptly.  These are used for control flow rather than error
+   * reporting, so they do not record a stack trace (which would otherwise dominate the cost of a
+   * {@code break} or {@code continue} in an interpreted loop).  Unlabeled signals carry no state, and
+   * are thrown as shared instances.
+   */
+  public static class ControlFlowException extends RuntimeException {
+    protected ControlFlowException() { super(null, null, false, false); }
+  }
 
   public static class LabelControlException extends ControlFlowException {
     private final String _label;
@@ -378,16 +415,19 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
   }
 
   public static class ContinueException extends LabelControlException {
+    public static final ContinueException UNLABELED = new ContinueException();
     public ContinueException() { super(); }
     public ContinueException(String label) { super(label); }
   }
 
   public static class BreakException extends LabelControlException {
+    public static final BreakException UNLABELED = new BreakException();
     public BreakException() { super(); }
     public BreakException(String label) { super(label); }
   }
   
   public static class ReturnException extends ControlFlowException {
+    public static final ReturnException VOID = new ReturnException();
     private final Option<Object> _value;
     public ReturnException() { _value = Option.none(); }
     public ReturnException(Object value) { _value = Option.some(value); }
@@ -10,6 +10,8 @@ import java.io.PrintWriter;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -17,6 +19,11 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import koala.dynamicjava.interpreter.NodeProperties;
 import koala.dynamicjava.interpreter.error.ExecutionError;
@@ -54,14 +61,32 @@ public class SourceChecker {
 
   private final Options _opt;
   private final boolean _quiet;
+  private final int _parallelism;
   private int _statusCount;
   private Iterable<CompilationUnit> _processed;
+  /** The pool used by concurrent phases during a call to {@code check}; null if checking sequentially. */
+  private ForkJoinPool _pool;
   
   public SourceChecker(Options opt, boolean quiet) {
+    this(opt, quiet, 1);
+  }
+  
+  /**
+   * Create a checker that parses files and checks class member bodies on {@code parallelism} threads.
+   * The remaining phases (building the TreeLibrary, resolving imports, and checking signatures) mutate
+   * shared symbols, and are always run sequentially, as is checking the initializers of {@code static final}
+   * fields, whose values may be folded into other classes' bodies.  Errors are reported sorted by file and
+   * position.  The type system of {@code opt} must be safe for concurrent use (as
+   * {@link StandardTypeSystem} is).
+   */
+  public SourceChecker(Options opt, boolean quiet, int parallelism) {
+    if (parallelism < 1) { throw new IllegalArgumentException("parallelism must be positive"); }
     _opt = opt;
     _quiet = quiet;
+    _parallelism = parallelism;
     _statusCount = 0;
     _processed = IterUtil.empty();
+    _pool = null;
   }
   
   public Iterable<CompilationUnit> processed() { return _processed; }
@@ -76,32 +101,42 @@ public class SourceChecker {
   
   public void check(Iterable<? extends File> sources, Iterable<? extends File> classPath)
                       throws InterpreterException {
-    Iterable<CompilationUnit> tree = parse(sources);
-    _processed = IterUtil.compose(_processed, tree);
-    TypeContext context = makeContext(tree, classPath);
-    Relation<TypeDeclaration, ClassChecker> decls = extractDeclarations(tree, context);
-    initializeClassSignatures(decls);
-    checkSignatures(decls);
-    checkBodies(decls);
+    if (_parallelism > 1) { _pool = new ForkJoinPool(_parallelism); }
+    try {
+      Iterable<CompilationUnit> tree = parse(sources);
+      _processed = IterUtil.compose(_processed, tree);
+      TypeContext context = makeContext(tree, classPath);
+      Relation<TypeDeclaration, ClassChecker> decls = extractDeclarations(tree, context);
+      initializeClassSignatures(decls);
+      checkSignatures(decls);
+      checkBodies(decls);
+    }
+    finally {
+      if (_pool != null) { _pool.shutdown(); _pool = null; }
+    }
   }
   
   private Iterable<CompilationUnit> parse(Iterable<? extends File> sources) throws InterpreterException {
-    final List<CompilationUnit> result = new ArrayList<CompilationUnit>();
-    Iterable<File> files = IterUtil.collapse(IterUtil.map(sources, new Lambda<File, Iterable<File>>() {
+    Iterable<File> found = IterUtil.collapse(IterUtil.map(sources, new Lambda<File, Iterable<File>>() {
       private final FileFilter _filter = IOUtil.extensionFilePredicate("java");
       public Iterable<File> value(File f) { return IOUtil.listFilesRecursively(f, _filter); }
     }));
-    new Phase<File>("Parsing") {
+    List<File> files = CollectUtil.makeArrayList(found);
+    final Map<File, CompilationUnit> parsed = new ConcurrentHashMap<File, CompilationUnit>();
+    new Phase<File>("Parsing", true) {
       protected void step(File source) throws InterpreterException {
         try {
           JavaCCParser parser = new JavaCCParser(new FileReader(source), source, _opt);
-          result.add(parser.parseCompilationUnit());
+          parsed.put(source, parser.parseCompilationUnit());
         }
         catch (ParseError e) { throw new ParserException(e); }
         catch (FileNotFoundException e) { throw new SourceException(e); }
       }
       protected SourceInfo location(File f) { return SourceInfo.point(f, 0, 0); }
     }.run(files);
+    // keep the units in file order, regardless of the order in which they were parsed
+    List<CompilationUnit> result = new ArrayList<CompilationUnit>(files.size());
+    for (File f : files) { result.add(parsed.get(f)); }
     return result;
   }
   
@@ -110,6 +145,7 @@ public class SourceChecker {
     debug.logStart("creating TreeLibrary");
     Library sourceLib = new TreeLibrary(sources, classLib.classLoader(), _opt);
     debug.logEnd("creating TreeLibrary");
+    _opt.typeSystem().clearCaches();
     return new ImportContext(new LibraryContext(new LibraryContext(classLib), sourceLib), _opt);
   }
   
@@ -118,7 +154,7 @@ public class SourceChecker {
                                                                        throws InterpreterException {
     final CompilationUnitChecker unitChecker = new CompilationUnitChecker(context, _opt);
     final Relation<TypeDeclaration, ClassChecker> checkers = UnindexedRelation.makeLinkedHashBased();
-    new Phase<CompilationUnit>("Resolving imports") {
+    new Phase<CompilationUnit>("Resolving imports", false) {
       protected void step(CompilationUnit u) throws InterpreterException {
         checkers.addAll(unitChecker.extractDeclarations(u));
       }
@@ -128,20 +164,34 @@ public class SourceChecker {
   }
 
   private void initializeClassSignatures(Relation<TypeDeclaration, ClassChecker> decls) throws InterpreterException {
-    new ClassCheckerPhase("Checking class signatures") {
+    new ClassCheckerPhase("Checking class signatures", false) {
       protected void step(TypeDeclaration ast, ClassChecker checker) { checker.initializeClassSignatures(ast); } 
     }.run(decls);
   }
   
   private void checkSignatures(Relation<TypeDeclaration, ClassChecker> decls) throws InterpreterException {
-    new ClassCheckerPhase("Checking class member signatures") {
+    new ClassCheckerPhase("Checking class member signatures", false) {
       protected void step(TypeDeclaration ast, ClassChecker checker) { checker.checkSignatures(ast); } 
     }.run(decls);
   }
   
   private void checkBodies(Relation<TypeDeclaration, ClassChecker> decls) throws InterpreterException {
-    new ClassCheckerPhase("Checking class member bodies") {
-      protected void step(TypeDeclaration ast, ClassChecker checker) { checker.checkBodies(ast); } 
+    // Bodies may fold other classes' constants, so constant initializers are checked first, in a fixed order
+    // (whatever the parallelism); their errors are recorded in the AST and reported with the rest of the
+    // class's errors.
+    final Set<TypeDeclaration> failed = new HashSet<TypeDeclaration>();
+    new ClassCheckerPhase("Checking constant initializers", false) {
+      protected void step(TypeDeclaration ast, ClassChecker checker) {
+        try { checker.checkConstantInitializers(ast); }
+        catch (ExecutionError e) { failed.add(ast); }
+      }
+    }.run(decls);
+    // each body is checked in its own contexts; the symbols it refers to were completed by earlier phases
+    new ClassCheckerPhase("Checking class member bodies", true) {
+      protected void step(TypeDeclaration ast, ClassChecker checker) throws InterpreterException {
+        checker.checkNonConstantBodies(ast);
+        if (failed.contains(ast)) { throw extractErrors(ast); }
+      }
     }.run(decls);
   }
   
@@ -155,7 +205,7 @@ public class SourceChecker {
     }
   }
   
-  private void incrementStatus() {
+  private synchronized void incrementStatus() {
     _statusCount++;
     // arbitrarily chose 10 as the interval for status printouts
     if (!_quiet && (_statusCount % 10 == 0)) { System.out.print('*'); System.out.flush(); }
@@ -168,7 +218,15 @@ public class SourceChecker {
   
   private abstract class Phase<T> {
     private final String _description;
-    protected Phase(String description) { _description = description; }
+    private final boolean _concurrent;
+    /**
+     * @param concurrent  Whether the steps are independent, and may be run on the checker's pool.
+     *                    Steps of a concurrent phase must only modify state that is confined to their argument.
+     */
+    protected Phase(String description, boolean concurrent) {
+      _description = description;
+      _concurrent = concurrent;
+    }
     
     protected abstract void step(T arg) throws InterpreterException;
     protected abstract SourceInfo location(T arg);
@@ -177,22 +235,59 @@ public class SourceChecker {
       List<InterpreterException> errors = new ArrayList<InterpreterException>();
       debug.logStart(_description);
       startStatus(_description);
-      for (T arg : args) {
-        debug.logStart("location", location(arg));
-        try { step(arg); }
-        catch (InterpreterException e) { errors.add(e); }
-        catch (RuntimeException e) { errors.add(new InternalException(e, location(arg))); }
-        incrementStatus();
-        debug.logEnd();
+      if (_concurrent && _pool != null) {
+        List<Callable<InterpreterException>> tasks = new ArrayList<Callable<InterpreterException>>();
+        for (final T arg : args) {
+          tasks.add(new Callable<InterpreterException>() {
+            public InterpreterException call() { return attempt(arg); }
+          });
+        }
+        // futures are in task order, so errors are collected just as in a sequential run
+        for (Future<InterpreterException> f : _pool.invokeAll(tasks)) {
+          InterpreterException e = join(f);
+          if (e != null) { errors.add(e); }
+        }
+      }
+      else {
+        for (T arg : args) {
+          InterpreterException e = attempt(arg);
+          if (e != null) { errors.add(e); }
+        }
       }
       endStatus();
       debug.logEnd(_description);
-      if (!errors.isEmpty()) { throw CompositeException.make(errors); }
+      if (!errors.isEmpty()) { throw sortErrors(errors); }
+    }
+    
+    /** Run the step for arg, returning its error (or null). */
+    private InterpreterException attempt(T arg) {
+      InterpreterException result = null;
+      debug.logStart("location", location(arg));
+      try { step(arg); }
+      catch (InterpreterException e) { result = e; }
+      catch (RuntimeException e) { result = new InternalException(e, location(arg)); }
+      incrementStatus();
+      debug.logEnd();
+      return result;
+    }
+    
+    private InterpreterException join(Future<InterpreterException> f) {
+      try { return f.get(); }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+      catch (ExecutionException e) {
+        // attempt() catches all exceptions, so the cause must be an Error
+        Throwable cause = e.getCause();
+        if (cause instanceof Error) { throw (Error) cause; }
+        else { throw new RuntimeException(cause); }
+      }
     }
   }
   
   private abstract class ClassCheckerPhase extends Phase<Pair<TypeDeclaration, ClassChecker>> {
-    protected ClassCheckerPhase(String description) { super(description); }
+    protected ClassCheckerPhase(String description, boolean concurrent) { super(description, concurrent); }
     protected final void step(Pair<TypeDeclaration, ClassChecker> arg) throws InterpreterException {
       try { step(arg.first(), arg.second()); }
       catch (ExecutionError e) { throw extractErrors(arg.first()); }
@@ -200,10 +295,30 @@ public class SourceChecker {
     protected final SourceInfo location(Pair<TypeDeclaration, ClassChecker> arg) {
       return arg.first().getSourceInfo();
     }
-    protected abstract void step(TypeDeclaration ast, ClassChecker checker);
+    protected abstract void step(TypeDeclaration ast, ClassChecker checker) throws InterpreterException;
   }
   
   
+  /**
+   * Combine the given errors in a CompositeException, sorted by file and position.  The sort is stable, and
+   * errors without a location follow all others.
+   */
+  private static InterpreterException sortErrors(Iterable<? extends InterpreterException> errors) {
+    CompositeException all = (CompositeException) CompositeException.make(errors);
+    List<InterpreterException> sorted = CollectUtil.makeArrayList(all.exceptions());
+    Collections.sort(sorted, new Comparator<InterpreterException>() {
+      public int compare(InterpreterException e1, InterpreterException e2) {
+        boolean hasLoc1 = e1 instanceof SourceInfo.Wrapper;
+        boolean hasLoc2 = e2 instanceof SourceInfo.Wrapper;
+        if (hasLoc1 && hasLoc2) {
+          return ((SourceInfo.Wrapper) e1).getSourceInfo().compareTo(((SourceInfo.Wrapper) e2).getSourceInfo());
+        }
+        else { return (hasLoc1 ? 0 : 1) - (hasLoc2 ? 0 : 1); }
+      }
+    });
+    return new CompositeException(sorted);
+  }
+  
   /** Get all ERROR values associated with the given AST. */
   private static InterpreterException extractErrors(Node ast) {
     // accumulate in a set to avoid duplicates from DAGs
@@ -265,16 +380,28 @@ public class SourceChecker {
     argParser.supportAlias("cp", "classpath");
     argParser.supportOption("opt", 1);
     argParser.supportOption("verbose");
+    argParser.supportOption("threads", 1);
     argParser.requireParams(1);
     final ArgumentParser.Result parsedArgs = argParser.parse(args);
     Iterable<File> cp = IOUtil.parsePath(parsedArgs.getUnaryOption("classpath"));
     Iterable<File> sources = IterUtil.map(parsedArgs.params(), IOUtil.FILE_FACTORY);
     boolean verbose = parsedArgs.hasOption("verbose");
+    int threads = 1;
+    if (parsedArgs.hasOption("threads")) {
+      String threadsArg = parsedArgs.getUnaryOption("threads");
+      try { threads = Integer.parseInt(threadsArg); }
+      catch (NumberFormatException e) { threads = 0; }
+      if (threads < 1) {
+        System.out.println("Invalid number of threads (expected a positive integer): " + threadsArg);
+        debug.logEnd();
+        return;
+      }
+    }
     
     if (parsedArgs.hasOption("opt")) {
       Options opt = _options.get(parsedArgs.getUnaryOption("opt"));
       if (opt == null) { System.out.println("Unrecognized options name: " + parsedArgs.getUnaryOption("opt")); }
-      else { processFiles(sources, cp, opt); }
+      else { processFiles(sources, cp, opt, threads, verbose); }
     }
       
     else {
@@ -282,7 +409,7 @@ public class SourceChecker {
       Map<String, Iterable<CompilationUnit>> results = new LinkedHashMap<String, Iterable<CompilationUnit>>();
       for (String n : _options.keySet()) {
         System.out.println("============ Checking with type system " + n + " ============");
-        results.put(n, processFiles(sources, cp, _options.get(n)));
+        results.put(n, processFiles(sources, cp, _options.get(n), threads, verbose));
       }
       for (Map.Entry<String, Iterable<CompilationUnit>> e : results.entrySet()) {
         if (e.getKey().equals(canonical)) continue;
@@ -310,8 +437,9 @@ public class SourceChecker {
   }
   
   
-  private static Iterable<CompilationUnit> processFiles(Iterable<File> sources, Iterable<File> cp, Options opt) {
-    SourceChecker checker = new SourceChecker(opt, false);
+  private static Iterable<CompilationUnit> processFiles(Iterable<File> sources, Iterable<File> cp, Options opt,
+                                                       int threads, boolean verbose) {
+    SourceChecker checker = new SourceChecker(opt, false, threads);
     try {
       checker.check(sources, cp);
       System.out.println("Completed checking successfully.");
@@ -320,6 +448,9 @@ public class SourceChecker {
       debug.log(e);
       e.printUserMessage(new PrintWriter(System.out, true));
     }
+    if (verbose && opt.typeSystem() instanceof StandardTypeSystem) {
+      System.out.println(((StandardTypeSystem) opt.typeSystem()).cacheStatistics());
+    }
     return checker.processed();
   }
   
@@ -0,0 +1,106 @@
+package edu.rice.cs.dynamicjava.sourcechecker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import koala.dynamicjava.tree.SourceInfo;
+
+import edu.rice.cs.plt.io.IOUtil;
+
+import edu.rice.cs.dynamicjava.Options;
+import edu.rice.cs.dynamicjava.interpreter.CompositeException;
+import edu.rice.cs.dynamicjava.interpreter.InterpreterException;
+
+public class SourceCheckerTest extends TestCase {
+
+  /**
+   * Classes whose bodies fold each other's (non-literal) constants, with errors in bodies, in a constant
+   * initializer, and in a conversion that is legal only if a constant is folded correctly.
+   */
+  private static final String[][] SOURCES = {
+    { "A.java",
+      "public class A {\n" +
+      "  public static final int X = B.Y + 1;\n" +
+      "  public static final String S = \"a\" + X;\n" +
+      "  int f() { return undefinedA; }\n" +
+      "  byte g() { byte b = X; return b; }\n" +
+      "}\n" },
+    { "B.java",
+      "public class B {\n" +
+      "  public static final int Y = C.Z * 2;\n" +
+      "  public static final int BAD = undefinedB;\n" +
+      "  void g() { int i = \"s\"; }\n" +
+      "}\n" },
+    { "C.java",
+      "public class C {\n" +
+      "  public static final int Z = 3 + 4;\n" +
+      "  int h(int i) {\n" +
+      "    switch (i) { case A.X: return 1; case B.Y: return 2; default: return 0; }\n" +
+      "  }\n" +
+      "  void k() { String s = 1; }\n" +
+      "}\n" },
+    { "D.java",
+      "public class D {\n" +
+      "  byte ok = C.Z;\n" +
+      "  char big = B.Y * 100000;\n" +
+      "  String s = A.S.undefinedD();\n" +
+      "}\n" },
+    { "E.java",
+      "public class E {\n" +
+      "  int fine() { return A.X + B.Y + C.Z; }\n" +
+      "}\n" }
+  };
+
+  private File _dir;
+
+  protected void setUp() throws IOException {
+    _dir = IOUtil.createAndMarkTempDirectory("SourceCheckerTest", "");
+    for (String[] source : SOURCES) { IOUtil.writeStringToFile(new File(_dir, source[0]), source[1]); }
+  }
+
+  protected void tearDown() { IOUtil.deleteRecursively(_dir); }
+
+  /** Check the sources, returning each error's location and message. */
+  private List<String> errors(int parallelism) {
+    SourceChecker checker = new SourceChecker(new Options() {}, true, parallelism);
+    List<String> result = new ArrayList<String>();
+    try {
+      checker.check(_dir);
+      fail("Expected errors");
+    }
+    catch (InterpreterException e) {
+      Iterable<InterpreterException> all = (e instanceof CompositeException) ?
+        ((CompositeException) e).exceptions() : java.util.Collections.singleton(e);
+      SourceInfo prev = null;
+      for (InterpreterException err : all) {
+        assertTrue(err.toString(), err instanceof SourceInfo.Wrapper);
+        SourceInfo si = ((SourceInfo.Wrapper) err).getSourceInfo();
+        if (prev != null) { assertTrue(prev + " precedes " + si, prev.compareTo(si) <= 0); }
+        prev = si;
+        result.add(si.getFile().getName() + ":" + si.getStartLine() + ": " + err.getMessage());
+      }
+    }
+    return result;
+  }
+
+  public void testParallelErrorsMatchSequential() {
+    List<String> sequential = errors(1);
+    Set<String> locations = new HashSet<String>();
+    for (String e : sequential) { locations.add(e.substring(0, e.indexOf(": "))); }
+    for (String expected : new String[]{ "A.java:4", "B.java:3", "B.java:4", "C.java:6", "D.java:3", "D.java:4" }) {
+      assertTrue(expected + " in " + sequential, locations.contains(expected));
+    }
+    // C.Z is folded in D's body, whatever order the files are checked in
+    assertFalse(sequential.toString(), locations.contains("D.java:2"));
+    assertFalse(sequential.toString(), locations.contains("E.java:2"));
+
+    for (int i = 0; i < 5; i++) { assertEquals(sequential, errors(4)); }
+  }
+
+}
@@ -112,7 +112,7 @@ public class ExtendedTypeSystem extends StandardTypeSystem {
    * Determine if {@code subT} is a subtype of {@code superT}.  This is a recursive
    * (in terms of {@link #isEqual}), transitive relation.
    */
-  public boolean isSubtype(Type subT, Type superT) {
+  protected boolean checkSubtype(Type subT, Type superT) {
     NormSubtyper sub = new NormSubtyper();
     Normalizer norm = new Normalizer(sub);
     return sub.contains(norm.value(subT), norm.value(superT));
@@ -239,7 +239,7 @@ public class JLSTypeSystem extends StandardTypeSystem {
    * Determine if {@code subT} is a subtype of {@code superT}.  This is a recursive
    * (in terms of {@link #isEqual}), transitive relation.
    */
-  public boolean isSubtype(Type subT, Type superT) { return new Subtyper().contains(subT, superT); }
+  protected boolean checkSubtype(Type subT, Type superT) { return new Subtyper().contains(subT, superT); }
   
   /**
    * Tests subtyping.  Due to its use of internal state, unrelated (and possibly parallel)
@@ -6,7 +6,6 @@ import java.util.ArrayList;
 import edu.rice.cs.plt.lambda.Lambda;
 import edu.rice.cs.plt.lambda.Thunk;
 import edu.rice.cs.plt.lambda.LazyThunk;
-import edu.rice.cs.plt.lambda.Predicate;
 import edu.rice.cs.plt.iter.IterUtil;
 import edu.rice.cs.plt.recur.PrecomputedRecursionStack;
 import edu.rice.cs.plt.reflect.ReflectUtil;
@@ -56,30 +55,15 @@ public class Java5Class extends JavaClass {
     return superC == null ? superIs : IterUtil.compose(superC, superIs);
   }
   
-  @Override public Iterable<DJField> declaredFields() {
-    // CONVERT_FIELD is shadowed here to create a Java5Field
-    return IterUtil.mapSnapshot(IterUtil.asIterable(_c.getDeclaredFields()), CONVERT_FIELD);
-  }
+  @Override protected DJField makeField(Field f) { return new Java5Field(f); }
   
-  @Override public Iterable<DJConstructor> declaredConstructors() {
-    // CONVERT_CONSTRUCTOR is shadowed here to create a Java5Constructor
-    return IterUtil.mapSnapshot(IterUtil.asIterable(_c.getDeclaredConstructors()), CONVERT_CONSTRUCTOR);
-  }
+  @Override protected DJConstructor makeConstructor(Constructor<?> k) { return new Java5Constructor(k); }
   
-  @Override public Iterable<DJMethod> declaredMethods() {
-    // CONVERT_METHOD is shadowed here to create a Java5Method
-    Iterable<Method> ms = IterUtil.filter(IterUtil.asIterable(_c.getDeclaredMethods()), IS_NOT_BRIDGE);
-    return IterUtil.mapSnapshot(ms, CONVERT_METHOD);
-  }
+  @Override protected DJMethod makeMethod(Method m) { return new Java5Method(m); }
   
-  private static final Predicate<Method> IS_NOT_BRIDGE = new Predicate<Method>() {
-    public boolean contains(Method m) { return !m.isBridge(); }
-  };
+  @Override protected boolean includeMethod(Method m) { return !m.isBridge(); }
   
-  @Override public Iterable<DJClass> declaredClasses() {
-    // CONVERT_CLASS is shadowed here to create a Java5Class
-    return IterUtil.mapSnapshot(IterUtil.asIterable(_c.getDeclaredClasses()), CONVERT_CLASS);
-  }
+  @Override protected DJClass makeClass(Class<?> c) { return new Java5Class(c); }
   
 
   /**
@@ -252,28 +236,6 @@ public class Java5Class extends JavaClass {
     }
   };
   
-  @SuppressWarnings("unchecked") // java.lang.Class methods return (raw) type Class[] in Java 5 (fixed in Java 6)
-  private static final Lambda<Class, DJClass> CONVERT_CLASS = new Lambda<Class, DJClass>() {
-    public DJClass value(Class c) { return new Java5Class(c); }
-  };
-  
-  /** Non-static because Java5Field is non-static. */
-  private final Lambda<Field, DJField> CONVERT_FIELD = new Lambda<Field, DJField>() {
-    public DJField value(Field f) { return new Java5Field(f); }
-  };
-  
-  /** Non-static because Java5Constructor is non-static. */
-  @SuppressWarnings("unchecked") // java.lang.Class methods return (raw) type Constructor[] in Java 5 (fixed in Java 6)
-  private final Lambda<Constructor, DJConstructor> CONVERT_CONSTRUCTOR =
-    new Lambda<Constructor, DJConstructor>() {
-    public DJConstructor value(Constructor k) { return new Java5Constructor(k); }
-  };
-  
-  /** Non-static because Java5Method is non-static. */
-  private final Lambda<Method, DJMethod> CONVERT_METHOD = new Lambda<Method, DJMethod>() {
-    public DJMethod value(Method m) { return new Java5Method(m); }
-  };
-
   private class Java5Field extends JavaField {
     public Java5Field(Field f) { super(f); }
     @Override public Type type() { return CONVERT_TYPE.value(_f.getGenericType()); }
@@ -2,7 +2,16 @@ package edu.rice.cs.dynamicjava.symbol;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.lang.reflect.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 
 import edu.rice.cs.dynamicjava.Options;
 import edu.rice.cs.dynamicjava.symbol.type.*;
@@ -12,6 +21,7 @@ import edu.rice.cs.dynamicjava.interpreter.EvaluatorException;
 
 import edu.rice.cs.plt.reflect.ReflectUtil;
 import edu.rice.cs.plt.tuple.Option;
+import edu.rice.cs.plt.tuple.Pair;
 import edu.rice.cs.plt.iter.IterUtil;
 import edu.rice.cs.plt.lambda.Lambda;
 import edu.rice.cs.plt.lambda.Thunk;
@@ -29,8 +39,10 @@ import static edu.rice.cs.plt.debug.DebugUtil.debug;
 public class JavaClass implements DJClass {
   
   protected Class<?> _c;
+  /** The shared member table for {@code _c}, or null if it has not yet been looked up. */
+  private volatile MemberTable _members;
   
-  public JavaClass(Class<?> c) { _c = c; }
+  public JavaClass(Class<?> c) { _c = c; _members = null; }
   
   public String packageName() {
     String name = _c.getName();
@@ -83,20 +95,128 @@ public class JavaClass implements DJClass {
     return superC == null ? superIs : IterUtil.compose(superC, superIs);
   }
   
-  public Iterable<DJField> declaredFields() {
-    return IterUtil.mapSnapshot(IterUtil.asIterable(_c.getDeclaredFields()), CONVERT_FIELD);
-  }
+  public Iterable<DJField> declaredFields() { return members().fields; }
+  
+  public Iterable<DJConstructor> declaredConstructors() { return members().constructors; }
+  
+  public Iterable<DJMethod> declaredMethods() { return members().methods; }
   
-  public Iterable<DJConstructor> declaredConstructors() {
-    return IterUtil.mapSnapshot(IterUtil.asIterable(_c.getDeclaredConstructors()), CONVERT_CONSTRUCTOR);
+  public Iterable<DJClass> declaredClasses() { return members().classes; }
+  
+  /** The declared field with the given name, or {@code null} if there is none. */
+  public DJField declaredField(String name) { return members().fieldsByName.get(name); }
+  
+  /** The declared methods with the given name. */
+  public Iterable<DJMethod> declaredMethods(String name) {
+    Iterable<DJMethod> result = members().methodsByName.get(name);
+    return (result == null) ? IterUtil.<DJMethod>empty() : result;
   }
   
-  public Iterable<DJMethod> declaredMethods() {
-    return IterUtil.mapSnapshot(IterUtil.asIterable(_c.getDeclaredMethods()), CONVERT_METHOD);
+  /** Wrap a field declared by this class.  Subclasses may override to produce a different kind of DJField. */
+  protected DJField makeField(Field f) { return new JavaField(f); }
+  
+  /** Wrap a constructor declared by this class.  Subclasses may override. */
+  protected DJConstructor makeConstructor(Constructor<?> k) { return new JavaConstructor(k); }
+  
+  /** Wrap a method declared by this class.  Subclasses may override. */
+  protected DJMethod makeMethod(Method m) { return new JavaMethod(m); }
+  
+  /** Whether a method declared by this class should be listed as one of its members. */
+  protected boolean includeMethod(Method m) { return true; }
+  
+  /** Wrap a class declared by this class.  Subclasses may override. */
+  protected DJClass makeClass(Class<?> c) { return new JavaClass(c); }
+  
+  /**
+   * The members of a class, as wrapped by one kind of JavaClass.  The tables are shared (see
+   * {@link #MEMBER_TABLES}), so each member is reflected and wrapped once.
+   */
+  private static class MemberTable {
+    public final Iterable<DJField> fields;
+    public final Map<String, DJField> fieldsByName;
+    public final Iterable<DJConstructor> constructors;
+    public final Iterable<DJMethod> methods;
+    public final Map<String, Iterable<DJMethod>> methodsByName;
+    public final Iterable<DJClass> classes;
+    
+    public MemberTable(JavaClass c) {
+      List<DJField> fs = new ArrayList<DJField>();
+      fieldsByName = new HashMap<String, DJField>();
+      for (Field f : c._c.getDeclaredFields()) {
+        DJField djf = c.makeField(f);
+        fs.add(djf);
+        fieldsByName.put(f.getName(), djf);
+      }
+      fields = IterUtil.immutable(fs);
+      
+      List<DJConstructor> ks = new ArrayList<DJConstructor>();
+      for (Constructor<?> k : sorted(c._c.getDeclaredConstructors())) { ks.add(c.makeConstructor(k)); }
+      constructors = IterUtil.immutable(ks);
+      
+      List<DJMethod> ms = new ArrayList<DJMethod>();
+      Map<String, List<DJMethod>> byName = new HashMap<String, List<DJMethod>>();
+      for (Method m : sorted(c._c.getDeclaredMethods())) {
+        if (c.includeMethod(m)) {
+          DJMethod djm = c.makeMethod(m);
+          ms.add(djm);
+          List<DJMethod> named = byName.get(m.getName());
+          if (named == null) { named = new ArrayList<DJMethod>(1); byName.put(m.getName(), named); }
+          named.add(djm);
+        }
+      }
+      methods = IterUtil.immutable(ms);
+      methodsByName = new HashMap<String, Iterable<DJMethod>>();
+      for (Map.Entry<String, List<DJMethod>> e : byName.entrySet()) {
+        methodsByName.put(e.getKey(), IterUtil.immutable(e.getValue()));
+      }
+      
+      List<DJClass> cs = new ArrayList<DJClass>();
+      for (Class<?> inner : c._c.getDeclaredClasses()) { cs.add(c.makeClass(inner)); }
+      classes = IterUtil.immutable(cs);
+    }
+    
+    /**
+     * Put reflected members in a canonical order.  The JVM's order for overloaded members varies from run to
+     * run (it depends on where the names' symbols happen to be allocated), and candidates are listed in
+     * error messages in this order.
+     */
+    private static <T extends Member> T[] sorted(T[] members) {
+      Arrays.sort(members, new Comparator<T>() {
+        public int compare(T m1, T m2) {
+          int result = m1.getName().compareTo(m2.getName());
+          return (result == 0) ? m1.toString().compareTo(m2.toString()) : result;
+        }
+      });
+      return members;
+    }
   }
   
-  public Iterable<DJClass> declaredClasses() {
-    return IterUtil.mapSnapshot(IterUtil.asIterable(_c.getDeclaredClasses()), CONVERT_CLASS);
+  /**
+   * Member tables for each class, keyed by the kind of JavaClass (since {@link Java5Class} wraps members
+   * differently).  As with {@link #MEMBER_HANDLES}, a class's entries are discarded along with the
+   * class, so a reset interpreter's class loader does not leak.
+   */
+  private static final ClassValue<ConcurrentMap<Class<?>, MemberTable>> MEMBER_TABLES =
+    new ClassValue<ConcurrentMap<Class<?>, MemberTable>>() {
+      protected ConcurrentMap<Class<?>, MemberTable> computeValue(Class<?> c) {
+        return new ConcurrentHashMap<Class<?>, MemberTable>(2);
+      }
+    };
+  
+  /** This class's member table, created (by reflection) if necessary. */
+  private MemberTable members() {
+    MemberTable result = _members;
+    if (result == null) {
+      ConcurrentMap<Class<?>, MemberTable> tables = MEMBER_TABLES.get(_c);
+      result = tables.get(getClass());
+      if (result == null) {
+        result = new MemberTable(this);
+        MemberTable prev = tables.putIfAbsent(getClass(), result);
+        if (prev != null) { result = prev; }
+      }
+      _members = result;
+    }
+    return result;
   }
   
 
@@ -135,31 +255,14 @@ public class JavaClass implements DJClass {
     }
   };
   
-  @SuppressWarnings("unchecked") // java.lang.Class methods return (raw) type Class[] in Java 5 (fixed in Java 6)
-  private static final Lambda<Class, DJClass> CONVERT_CLASS = new Lambda<Class, DJClass>() {
-    public DJClass value(Class c) { return new JavaClass(c); }
-  };
-  
-  /** Non-static because JavaField is non-static. */
-  private final Lambda<Field, DJField> CONVERT_FIELD = new Lambda<Field, DJField>() {
-    public DJField value(Field f) { return new JavaField(f); }
-  };
-  
-  /** Non-static because JavaConstructor is non-static. */
-  @SuppressWarnings("unchecked") // java.lang.Class methods return (raw) type Constructor[] in Java 5 (fixed in Java 6)
-  private final Lambda<Constructor, DJConstructor> CONVERT_CONSTRUCTOR =
-    new Lambda<Constructor, DJConstructor>() {
-    public DJConstructor value(Constructor k) { return new JavaConstructor(k); }
-  };
-  
-  /** Non-static because JavaMethod is non-static. */
-  private final Lambda<Method, DJMethod> CONVERT_METHOD = new Lambda<Method, DJMethod>() {
-    public DJMethod value(Method m) { return new JavaMethod(m); }
-  };
-
   protected class JavaField implements DJField {
     protected final Field _f;
-    public JavaField(Field f) { _f = f; }
+    /** Getter of type {@code (Object)Object}, or null if it is unavailable; valid once {@code _resolved}. */
+    private volatile MethodHandle _getter;
+    /** Setter of type {@code (Object,Object)void}, or null if it is unavailable; valid once {@code _resolved}. */
+    private volatile MethodHandle _setter;
+    private volatile boolean _resolved;
+    public JavaField(Field f) { _f = f; _getter = null; _setter = null; _resolved = false; }
     public String declaredName() { return _f.getName(); }
     public DJClass declaringClass() { return JavaClass.this; }
     public Type type() { return classAsType(_f.getType()); }
@@ -180,15 +283,54 @@ public class JavaClass implements DJClass {
       else { return Option.none(); }
     }
     
+    /**
+     * Relax the field's accessibility and adapt its getter and setter handles.  This happens once,
+     * at the first access; a handle that can't be created is left null, and reflection is used instead.
+     */
+    private void resolve() {
+      if (!_resolved) {
+        try { _f.setAccessible(true); }
+        catch (RuntimeException e) { debug.log(e); /* ignore -- we can't relax accessibility */ }
+        _getter = sharedHandle(_f.getDeclaringClass(), _f, new Thunk<MethodHandle>() {
+          public MethodHandle value() {
+            try {
+              MethodHandle h = HANDLE_LOOKUP.unreflectGetter(_f);
+              if (isStatic()) { h = MethodHandles.dropArguments(h, 0, Object.class); }
+              return h.asType(MethodType.genericMethodType(1));
+            }
+            catch (IllegalAccessException e) { debug.log(e); return null; }
+          }
+        });
+        _setter = sharedHandle(_f.getDeclaringClass(), Pair.make(_f, "set"), new Thunk<MethodHandle>() {
+          public MethodHandle value() {
+            try {
+              MethodHandle h = HANDLE_LOOKUP.unreflectSetter(_f);
+              if (isStatic()) { h = MethodHandles.dropArguments(h, 0, Object.class); }
+              return h.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            }
+            catch (IllegalAccessException e) { debug.log(e); /* final fields can't be set */ return null; }
+          }
+        });
+        _resolved = true;
+      }
+    }
+    
     public Box<Object> boxForReceiver(final Object receiver) {
+      resolve();
       return new Box<Object>() {
 
         public Object value() {
           if (!isStatic() && receiver == null) {
             throw new WrappedException(new EvaluatorException(new NullPointerException()));
           }
-          try { _f.setAccessible(true); }
-          catch (SecurityException e) { debug.log(e); /* ignore -- we can't relax accessibility */ }
+          MethodHandle getter = _getter;
+          if (getter != null) {
+            try { return (Object) getter.invokeExact(receiver); }
+            catch (Throwable t) {
+              // may be ExceptionInInitializerError, NoClassDefFoundError, etc.
+              throw new WrappedException(new EvaluatorException(t, CLASS_INIT_EXTRA_STACK));
+            }
+          }
           try { return _f.get(receiver); }
           catch (IllegalAccessException e) {
             // should have been caught by static analysis
@@ -208,8 +350,14 @@ public class JavaClass implements DJClass {
           if (!isStatic() && receiver == null) {
             throw new WrappedException(new EvaluatorException(new NullPointerException()));
           }
-          try { _f.setAccessible(true); }
-          catch (SecurityException e) { debug.log(e); /* ignore -- we can't relax accessibility */ }
+          MethodHandle setter = _setter;
+          if (setter != null) {
+            try { setter.invokeExact(receiver, o); return; }
+            catch (Throwable t) {
+              // may be ExceptionInInitializerError, NoClassDefFoundError, etc.
+              throw new WrappedException(new EvaluatorException(t, CLASS_INIT_EXTRA_STACK));
+            }
+          }
           try { _f.set(receiver, o); }
           catch (IllegalAccessException e) {
             // should have been caught by static analysis
@@ -253,9 +401,14 @@ public class JavaClass implements DJClass {
     protected final Constructor<?> _k;
     protected final Type _outerType;
     private final Thunk<Iterable<LocalVariable>> _params;
+    /** Handle of type {@code (Object[])Object}, or null if it is unavailable; valid once {@code _resolved}. */
+    private volatile MethodHandle _handle;
+    private volatile boolean _resolved;
     
     public JavaConstructor(Constructor<?> k) {
       _k = k;
+      _handle = null;
+      _resolved = false;
       DJClass outer = SymbolUtil.dynamicOuterClass(JavaClass.this);
       _outerType = (outer == null) ? null : SymbolUtil.thisType(outer);
       _params = makeParamThunk(); /* allows overriding */
@@ -290,10 +443,15 @@ public class JavaClass implements DJClass {
         args = IterUtil.compose(outer, args);
       }
       
-      try { _k.setAccessible(true); }
-      catch (SecurityException e) { debug.log(e); /* ignore -- we can't relax accessibility */ }
-      
+      MethodHandle h = handle();
       Object[] argsArray = IterUtil.toArray(args, Object.class);
+      if (h != null) {
+        try { return (Object) h.invokeExact(argsArray); }
+        catch (Throwable t) {
+          // thrown by the constructor, or by a static initializer (ExceptionInInitializerError, etc.)
+          throw new EvaluatorException(t, CLASS_INIT_EXTRA_STACK);
+        }
+      }
       try {
         return _k.newInstance(argsArray);
       }
@@ -318,6 +476,29 @@ public class JavaClass implements DJClass {
       }
     }
     
+    /**
+     * Relax the constructor's accessibility and adapt it to a handle taking all arguments (including
+     * the outer instance) as an array.  This happens once; the result is null if reflection must be
+     * used instead (if, for example, the class is abstract).
+     */
+    private MethodHandle handle() {
+      if (!_resolved) {
+        try { _k.setAccessible(true); }
+        catch (RuntimeException e) { debug.log(e); /* ignore -- we can't relax accessibility */ }
+        _handle = sharedHandle(_k.getDeclaringClass(), _k, new Thunk<MethodHandle>() {
+          public MethodHandle value() {
+            try {
+              MethodHandle h = HANDLE_LOOKUP.unreflectConstructor(_k).asFixedArity();
+              return spread(h, 0, _k.getParameterTypes().length);
+            }
+            catch (IllegalAccessException e) { debug.log(e); return null; }
+          }
+        });
+        _resolved = true;
+      }
+      return _handle;
+    }
+    
     public String toString() { return "JavaConstructor(" + declaredName() + ")"; }
   }
   
@@ -330,9 +511,25 @@ public class JavaClass implements DJClass {
   
   protected class JavaMethod implements DJMethod {
     protected final Method _m;
+    /** The erased parameter types of {@code _m} (not to be modified). */
+    private final Class<?>[] _erasedParams;
     private final Thunk<Iterable<LocalVariable>> _params;
-    public JavaMethod(Method m) { _m = m; _params = makeParamThunk(); /* allows overriding */ }
-    protected Thunk<Iterable<LocalVariable>> makeParamThunk() { return paramFactory(_m.getParameterTypes()); }
+    /** Handle of type {@code (Object,Object[])Object}, or null if it is unavailable; valid once {@code _resolved}. */
+    private volatile MethodHandle _handle;
+    private volatile boolean _resolved;
+    /** The last receiver class for which {@link #handleForReceiver} was invoked, and its result. */
+    private volatile Pair<Class<?>, MethodHandle> _receiverHandle;
+    public JavaMethod(Method m) {
+      _m = m;
+      _erasedParams = m.getParameterTypes();
+      _params = makeParamThunk(); /* allows overriding */
+      _handle = null;
+      _resolved = false;
+      _receiverHandle = null;
+    }
+    protected Thunk<Iterable<LocalVariable>> makeParamThunk() { return paramFactory(_erasedParams); }
+    /** The erased types of the parameters, as determined by the class file.  The array must not be modified. */
+    Class<?>[] erasedParameterTypes() { return _erasedParams; }
     public String declaredName() { return _m.getName(); }
     public DJClass declaringClass() { return JavaClass.this; }
     public boolean isStatic() { return Modifier.isStatic(_m.getModifiers()); }
@@ -354,10 +551,18 @@ public class JavaClass implements DJClass {
         throw new WrappedException(new EvaluatorException(new NullPointerException()));
       }
       
-      try { _m.setAccessible(true); }
-      catch (SecurityException e) { debug.log(e); /* ignore -- we can't relax accessibility */ }
-      
+      MethodHandle h = handle();
+      if (h == null && receiver != null && Modifier.isPublic(_m.getModifiers())) {
+        h = handleForReceiver(receiver.getClass());
+      }
       Object[] argsArray = IterUtil.toArray(args, Object.class);
+      if (h != null) {
+        try { return (Object) h.invokeExact(receiver, argsArray); }
+        catch (Throwable t) {
+          // thrown by the method, or by a static initializer (ExceptionInInitializerError, etc.)
+          throw new EvaluatorException(t, CLASS_INIT_EXTRA_STACK);
+        }
+      }
       try {
         return _m.invoke(receiver, argsArray);
       }
@@ -378,6 +583,55 @@ public class JavaClass implements DJClass {
       }
     }
     
+    /**
+     * Relax the method's accessibility and adapt it to a handle taking a receiver (ignored if the
+     * method is static) and an argument array.  This happens once; the result is null if reflection
+     * must be used instead.
+     */
+    private MethodHandle handle() {
+      if (!_resolved) {
+        try { _m.setAccessible(true); }
+        catch (RuntimeException e) { debug.log(e); /* ignore -- we can't relax accessibility */ }
+        _handle = sharedHandle(_m.getDeclaringClass(), _m, new Thunk<MethodHandle>() {
+          public MethodHandle value() {
+            try {
+              MethodHandle h = HANDLE_LOOKUP.unreflect(_m).asFixedArity();
+              if (isStatic()) { h = MethodHandles.dropArguments(h, 0, Object.class); }
+              return spread(h, 1, _erasedParams.length);
+            }
+            catch (IllegalAccessException e) { debug.log(e); return null; }
+          }
+        });
+        _resolved = true;
+      }
+      return _handle;
+    }
+    
+    /**
+     * Find a handle for a public method of an inaccessible class (like {@code AbstractStringBuilder.length})
+     * by looking it up in an accessible subclass: the class of the receiver, or one of its superclasses.
+     * The result for the most recent receiver class is cached here; others are shared (as an entry for
+     * {@code _m} among the receiver class's handles).
+     */
+    private MethodHandle handleForReceiver(final Class<?> c) {
+      Pair<Class<?>, MethodHandle> cached = _receiverHandle;
+      if (cached != null && cached.first() == c) { return cached.second(); }
+      MethodHandle result = sharedHandle(c, _m, new Thunk<MethodHandle>() {
+        public MethodHandle value() {
+          Class<?>[] paramTypes = _erasedParams;
+          MethodType t = MethodType.methodType(_m.getReturnType(), paramTypes);
+          for (Class<?> sub = c; sub != null && !sub.equals(_m.getDeclaringClass()); sub = sub.getSuperclass()) {
+            try { return spread(HANDLE_LOOKUP.findVirtual(sub, _m.getName(), t).asFixedArity(), 1, paramTypes.length); }
+            catch (NoSuchMethodException e) { /* try the superclass */ }
+            catch (IllegalAccessException e) { /* try the superclass */ }
+          }
+          return null;
+        }
+      });
+      _receiverHandle = Pair.<Class<?>, MethodHandle>make(c, result);
+      return result;
+    }
+    
     public String toString() { return "JavaMethod(" + declaredName() + ")"; }
   }
   
@@ -387,6 +641,74 @@ public class JavaClass implements DJClass {
                    "sun.reflect.NativeMethodAccessorImpl.invoke",
                    "sun.reflect.NativeMethodAccessorImpl.invoke0" };
   
+  /**
+   * Method handles for members are created with this lookup.  Since the members' accessibility
+   * is relaxed first, access is usually not checked.
+   */
+  private static final MethodHandles.Lookup HANDLE_LOOKUP = MethodHandles.lookup();
+  
+  /**
+   * Adapted handles for the members of each class, keyed by member (or, for a field's setter, by the
+   * pair of the field and {@code "set"}).  These are shared by all interpreters: besides saving the
+   * cost of adapting them, the JVM only compiles a handle's adapters after it has been used many times.
+   * Empty entries record that no handle is available.
+   */
+  private static final ClassValue<ConcurrentMap<Object, Option<MethodHandle>>> MEMBER_HANDLES =
+    new ClassValue<ConcurrentMap<Object, Option<MethodHandle>>>() {
+      protected ConcurrentMap<Object, Option<MethodHandle>> computeValue(Class<?> c) {
+        return new ConcurrentHashMap<Object, Option<MethodHandle>>();
+      }
+    };
+  
+  /** Get the handle for {@code key} among {@code c}'s handles, creating it if necessary.  May be null. */
+  private static MethodHandle sharedHandle(Class<?> c, Object key, Thunk<? extends MethodHandle> factory) {
+    ConcurrentMap<Object, Option<MethodHandle>> handles = MEMBER_HANDLES.get(c);
+    Option<MethodHandle> result = handles.get(key);
+    if (result == null) {
+      result = Option.<MethodHandle>wrap(factory.value());
+      Option<MethodHandle> prev = handles.putIfAbsent(key, result);
+      if (prev != null) { result = prev; }
+    }
+    return result.unwrap(null);
+  }
+  
+  /**
+   * Adapt a handle taking {@code leading} fixed arguments followed by {@code n} others to accept and
+   * return Objects, with the {@code n} arguments collected in an array.  Boxing, unboxing, and casts
+   * are thus performed by the handle.
+   */
+  private static MethodHandle spread(MethodHandle h, int leading, int n) {
+    return h.asType(MethodType.genericMethodType(leading + n)).asSpreader(Object[].class, n);
+  }
+  
+  /**
+   * Frames between a member's method handle and the initializer of the member's class, as of Java 9:
+   * alternatives for methods and constructors, and for fields.  (Exceptions thrown directly by a member
+   * have no frames between it and the handle.)
+   */
+  private static final String[][] CLASS_INIT_EXTRA_STACK =
+    new String[][] {
+      { "java.lang.invoke.DirectMethodHandle.ensureInitialized",
+        "java.lang.invoke.DirectMethodHandle.ensureInitialized",
+        "java.lang.invoke.DirectMethodHandle.checkInitialized",
+        "java.lang.ClassValue.get",
+        "java.lang.ClassValue.getFromBackup",
+        "java.lang.ClassValue.getFromHashMap",
+        "java.lang.invoke.DirectMethodHandle$EnsureInitialized.computeValue",
+        "java.lang.invoke.DirectMethodHandle$EnsureInitialized.computeValue",
+        "jdk.internal.misc.Unsafe.ensureClassInitialized",
+        "jdk.internal.misc.Unsafe.ensureClassInitialized0" },
+      { "java.lang.invoke.DirectMethodHandle.internalMemberNameEnsureInit",
+        "java.lang.invoke.DirectMethodHandle.ensureInitialized",
+        "java.lang.invoke.DirectMethodHandle.checkInitialized",
+        "java.lang.ClassValue.get",
+        "java.lang.ClassValue.getFromBackup",
+        "java.lang.ClassValue.getFromHashMap",
+        "java.lang.invoke.DirectMethodHandle$EnsureInitialized.computeValue",
+        "java.lang.invoke.DirectMethodHandle$EnsureInitialized.computeValue",
+        "jdk.internal.misc.Unsafe.ensureClassInitialized",
+        "jdk.internal.misc.Unsafe.ensureClassInitialized0" } };
+  
   private static Thunk<Iterable<LocalVariable>> paramFactory(final Class<?>[] cs) {
     // Caches LocalVariables so we don't create duplicates
     return LazyThunk.make(new Thunk<Iterable<LocalVariable>>() {
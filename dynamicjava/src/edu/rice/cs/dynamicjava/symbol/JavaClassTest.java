@@ -0,0 +1,124 @@
+package edu.rice.cs.dynamicjava.symbol;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import edu.rice.cs.plt.iter.IterUtil;
+import edu.rice.cs.plt.collect.CollectUtil;
+
+public class JavaClassTest extends TestCase {
+
+  /** Classes with overloaded, inherited, static, and bridge methods. */
+  private static final Class<?>[] CLASSES = { Object.class, String.class, StringBuilder.class, ArrayList.class,
+                                              AbstractList.class, Integer.class, Overloads.class, Bridges.class };
+
+  @SuppressWarnings("unused")
+  private static class Overloads {
+    public static int count;
+    private String name;
+    public void m() {}
+    public void m(int i) {}
+    public void m(String s) {}
+    public static void m(Object o, Object p) {}
+    public int n() { return 0; }
+  }
+
+  private static class Bridges implements Comparable<Bridges> {
+    public int compareTo(Bridges b) { return 0; }
+    public Bridges clone() { return this; }
+  }
+
+  private static List<DJClass> wrappers(Class<?> c) {
+    List<DJClass> result = new ArrayList<DJClass>();
+    result.add(new JavaClass(c));
+    result.add(new Java5Class(c));
+    return result;
+  }
+
+  private static List<DJMethod> unindexedMethods(DJClass c, String name) {
+    List<DJMethod> result = new ArrayList<DJMethod>();
+    for (DJMethod m : c.declaredMethods()) {
+      if (m.declaredName().equals(name)) { result.add(m); }
+    }
+    return result;
+  }
+
+  private static DJField unindexedField(DJClass c, String name) {
+    for (DJField f : c.declaredFields()) {
+      if (f.declaredName().equals(name)) { return f; }
+    }
+    return null;
+  }
+
+  public void testDeclaredMethodsByName() {
+    for (Class<?> c : CLASSES) {
+      for (DJClass djc : wrappers(c)) {
+        for (DJMethod m : djc.declaredMethods()) {
+          String name = m.declaredName();
+          assertEquals(djc + "." + name, unindexedMethods(djc, name),
+                       CollectUtil.makeList(SymbolUtil.declaredMethods(djc, name)));
+        }
+        assertTrue(IterUtil.isEmpty(SymbolUtil.declaredMethods(djc, "noSuchMethod")));
+      }
+    }
+  }
+
+  public void testDeclaredFieldByName() {
+    for (Class<?> c : CLASSES) {
+      for (DJClass djc : wrappers(c)) {
+        for (DJField f : djc.declaredFields()) {
+          String name = f.declaredName();
+          assertSame(djc + "." + name, unindexedField(djc, name), SymbolUtil.declaredField(djc, name));
+        }
+        assertNull(SymbolUtil.declaredField(djc, "noSuchField"));
+      }
+    }
+  }
+
+  public void testOverloads() {
+    for (DJClass djc : wrappers(Overloads.class)) {
+      assertEquals(4, IterUtil.sizeOf(SymbolUtil.declaredMethods(djc, "m")));
+      assertEquals(1, IterUtil.sizeOf(SymbolUtil.declaredMethods(djc, "n")));
+      assertNotNull(SymbolUtil.declaredField(djc, "count"));
+      assertNotNull(SymbolUtil.declaredField(djc, "name"));
+    }
+  }
+
+  public void testBridgeMethods() {
+    // the compiler generates compareTo(Object) and clone() returning Object
+    DJClass plain = new JavaClass(Bridges.class);
+    assertEquals(2, IterUtil.sizeOf(SymbolUtil.declaredMethods(plain, "compareTo")));
+    assertEquals(2, IterUtil.sizeOf(SymbolUtil.declaredMethods(plain, "clone")));
+    DJClass java5 = new Java5Class(Bridges.class);
+    assertEquals(1, IterUtil.sizeOf(SymbolUtil.declaredMethods(java5, "compareTo")));
+    assertEquals(1, IterUtil.sizeOf(SymbolUtil.declaredMethods(java5, "clone")));
+    assertEquals(2, IterUtil.sizeOf(java5.declaredMethods()));
+  }
+
+  public void testSharedTables() {
+    JavaClass plain1 = new JavaClass(ArrayList.class);
+    JavaClass plain2 = new JavaClass(ArrayList.class);
+    Java5Class java51 = new Java5Class(ArrayList.class);
+    Java5Class java52 = new Java5Class(ArrayList.class);
+
+    // each kind of wrapper shares one table per class
+    assertSame(plain1.declaredField("size"), plain2.declaredField("size"));
+    assertSame(java51.declaredField("size"), java52.declaredField("size"));
+    assertSame(IterUtil.first(plain1.declaredMethods("get")), IterUtil.first(plain2.declaredMethods("get")));
+    assertSame(IterUtil.first(java51.declaredMethods("get")), IterUtil.first(java52.declaredMethods("get")));
+
+    // but a Java5Class never sees the members wrapped by a JavaClass (or vice versa)
+    for (DJMethod m : plain1.declaredMethods()) { assertEquals("JavaMethod", m.getClass().getSimpleName()); }
+    for (DJMethod m : java51.declaredMethods()) { assertEquals("Java5Method", m.getClass().getSimpleName()); }
+    for (DJField f : plain1.declaredFields()) { assertEquals("JavaField", f.getClass().getSimpleName()); }
+    for (DJField f : java51.declaredFields()) { assertEquals("Java5Field", f.getClass().getSimpleName()); }
+    assertTrue(IterUtil.first(java51.declaredMethods("get")).returnType() instanceof
+               edu.rice.cs.dynamicjava.symbol.type.VariableType);
+    assertFalse(IterUtil.first(plain1.declaredMethods("get")).returnType() instanceof
+                edu.rice.cs.dynamicjava.symbol.type.VariableType);
+  }
+
+}
@@ -1,6 +1,9 @@
 package edu.rice.cs.dynamicjava.symbol;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import edu.rice.cs.plt.tuple.Pair;
 import edu.rice.cs.plt.tuple.Option;
@@ -52,6 +55,23 @@ public abstract class StandardTypeSystem extends TypeSystem {
    */
   private final boolean _strictClassEquality;
   
+  /** Memoized results of {@link #isSubtype}. */
+  private final Memo<Pair<Type, Type>, Boolean> _subtypes = new Memo<Pair<Type, Type>, Boolean>("isSubtype", 8192);
+  /** Memoized results of {@link #isAssignable(Type, Type)}. */
+  private final Memo<Pair<Type, Type>, Boolean> _assignables =
+    new Memo<Pair<Type, Type>, Boolean>("isAssignable", 4096);
+  /** Memoized results of {@link #erase}. */
+  private final Memo<Type, Type> _erasures = new Memo<Type, Type>("erase", 4096);
+  /** Methods found (before overload resolution) by a MethodFinder, keyed by type, name, and context. */
+  private final Memo<List<Object>, PredicateSet<DJMethod>> _methodCandidates =
+    new Memo<List<Object>, PredicateSet<DJMethod>>("method candidates", 2048);
+  /** The method chosen for each invocation shape (see {@link #resolutionKey}). */
+  private final Memo<List<Object>, DJMethod> _methodResolutions =
+    new Memo<List<Object>, DJMethod>("method resolution", 4096);
+  /** The constructor chosen for each invocation shape (see {@link #resolutionKey}). */
+  private final Memo<List<Object>, DJConstructor> _constructorResolutions =
+    new Memo<List<Object>, DJConstructor>("constructor resolution", 2048);
+  
   protected StandardTypeSystem(Options opt, boolean boxingInMostSpecific, boolean useExplicitTypeArgs,
                                 boolean strictClassEquality) {
     _opt  = opt;
@@ -60,6 +80,84 @@ public abstract class StandardTypeSystem extends TypeSystem {
     _strictClassEquality = strictClassEquality;
   }
   
+  /**
+   * Discard the memoized results of type relations and member lookups.  Results referring to the
+   * classes of a discarded library would never be used again, but would keep those classes reachable.
+   */
+  @Override public void clearCaches() {
+    _subtypes.clear();
+    _assignables.clear();
+    _erasures.clear();
+    _methodCandidates.clear();
+    _methodResolutions.clear();
+    _constructorResolutions.clear();
+  }
+  
+  /** Describe the hit rates of the memoized results, one table per line. */
+  public String cacheStatistics() {
+    return _subtypes + "\n" + _assignables + "\n" + _erasures + "\n" + _methodCandidates + "\n" +
+           _methodResolutions + "\n" + _constructorResolutions;
+  }
+  
+  /** The number of entries in all the memo tables.  Package-private for testing. */
+  int cachedResults() {
+    return _subtypes.size() + _assignables.size() + _erasures.size() + _methodCandidates.size() +
+           _methodResolutions.size() + _constructorResolutions.size();
+  }
+  
+  /** The number of memoized method and constructor resolutions.  Package-private for testing. */
+  int cachedResolutions() { return _methodResolutions.size() + _constructorResolutions.size(); }
+  
+  /** The number of lookups that reused a memoized resolution.  Package-private for testing. */
+  long resolutionHits() { return _methodResolutions.hits() + _constructorResolutions.hits(); }
+  
+  /**
+   * A bounded, thread-safe table of computed results, with hit and miss counters.  Keys are compared
+   * with {@code equals}, which for types is structural: equal types that were constructed separately
+   * share an entry.  When the table is full, it is emptied, and the working set quickly refills it.
+   */
+  private static class Memo<K, V> {
+    private final String _name;
+    private final int _capacity;
+    private final ConcurrentMap<K, V> _table;
+    private final AtomicLong _hits;
+    private final AtomicLong _misses;
+    
+    public Memo(String name, int capacity) {
+      _name = name;
+      _capacity = capacity;
+      _table = new ConcurrentHashMap<K, V>();
+      _hits = new AtomicLong(0);
+      _misses = new AtomicLong(0);
+    }
+    
+    /** The value recorded for {@code key}, or {@code null} if there is none. */
+    public V get(K key) {
+      V result = _table.get(key);
+      if (result == null) { _misses.incrementAndGet(); }
+      else { _hits.incrementAndGet(); }
+      return result;
+    }
+    
+    public void put(K key, V value) {
+      if (_table.size() >= _capacity) { _table.clear(); }
+      _table.put(key, value);
+    }
+    
+    public void clear() { _table.clear(); }
+    
+    public int size() { return _table.size(); }
+    
+    public long hits() { return _hits.get(); }
+    
+    public String toString() {
+      long hits = _hits.get();
+      long total = hits + _misses.get();
+      double rate = (total == 0) ? 0 : 100.0 * hits / total;
+      return String.format("%s: %d of %d lookups hit (%.1f%%)", _name, hits, total, rate);
+    }
+  }
+  
   /** Determine if the type is well-formed. */
   public abstract boolean isWellFormed(Type t);
 
@@ -68,9 +166,20 @@ public abstract class StandardTypeSystem extends TypeSystem {
 
   /**
    * Determine if {@code subT} is a subtype of {@code superT}.  This is a recursive
-   * (in terms of {@link #isEqual}), transitive relation.
+   * (in terms of {@link #isEqual}), transitive relation.  Results are memoized.
    */
-  public abstract boolean isSubtype(Type subT, Type superT);
+  public boolean isSubtype(Type subT, Type superT) {
+    Pair<Type, Type> key = Pair.make(subT, superT);
+    Boolean result = _subtypes.get(key);
+    if (result == null) {
+      result = checkSubtype(subT, superT);
+      _subtypes.put(key, result);
+    }
+    return result;
+  }
+  
+  /** Determine if {@code subT} is a subtype of {@code superT}, as in {@link #isSubtype}, without memoization. */
+  protected abstract boolean checkSubtype(Type subT, Type superT);
   
   /** Compute a common supertype of the given list of types. */
   public abstract Type join(Iterable<? extends Type> ts);
@@ -366,14 +475,20 @@ public abstract class StandardTypeSystem extends TypeSystem {
   
   /** Determine if {@link #assign} would succeed given a non-constant expression of the given type */
   public boolean isAssignable(Type target, Type expT) {
-    // TODO: Handle unchecked warnings -- perhaps at the call site
-    try { 
-      Expression e = TypeUtil.makeEmptyExpression();
-      NodeProperties.setType(e, expT);
-      assign(target, e);
-      return true;
+    Pair<Type, Type> key = Pair.make(target, expT);
+    Boolean result = _assignables.get(key);
+    if (result == null) {
+      // TODO: Handle unchecked warnings -- perhaps at the call site
+      try { 
+        Expression e = TypeUtil.makeEmptyExpression();
+        NodeProperties.setType(e, expT);
+        assign(target, e);
+        result = true;
+      }
+      catch (UnsupportedConversionException e) { result = false; }
+      _assignables.put(key, result);
     }
-    catch (UnsupportedConversionException e) { return false; }
+    return result;
   }
   
   /** Determine if {@link #assign} would succeed given a constant expression of the given type and value */
@@ -439,7 +554,14 @@ public abstract class StandardTypeSystem extends TypeSystem {
    * Compute the erased type of {@code t}.  The result is guaranteed to be reifiable (according
    * to {@link #isReifiable}) and a supertype of {@code t}.
    */
-  public Type erase(Type t) { return t.apply(ERASE); }
+  public Type erase(Type t) {
+    Type result = _erasures.get(t);
+    if (result == null) {
+      result = t.apply(ERASE);
+      _erasures.put(t, result);
+    }
+    return result;
+  }
   
   private static final TypeVisitorLambda<Type> ERASE = new TypeAbstractVisitor<Type>() {
     public Type defaultCase(Type t) { return t; }
@@ -1347,9 +1469,15 @@ public abstract class StandardTypeSystem extends TypeSystem {
         }
       });
     
-    Iterable<DJConstructor> accessible = IterUtil.filter(constructors, new Predicate<DJConstructor>() {
-      public boolean contains(DJConstructor k) { return accessible(k, accessModule); }
-    });
+    List<Object> key = resolutionKey(t, null, accessModule, false, typeArgs, args, expected);
+    DJConstructor resolved = (key == null) ? null : _constructorResolutions.get(key);
+    Iterable<DJConstructor> accessible;
+    if (resolved != null) { accessible = IterUtil.singleton(resolved); }
+    else {
+      accessible = IterUtil.filter(constructors, new Predicate<DJConstructor>() {
+        public boolean contains(DJConstructor k) { return accessible(k, accessModule); }
+      });
+    }
     Iterable<FunctionInvocationCandidate<DJConstructor>> cs = bestInvocations(accessible, typeArgs, args, expected);
     // TODO: provide more error-message information
     int matches = IterUtil.sizeOf(cs);
@@ -1364,6 +1492,7 @@ public abstract class StandardTypeSystem extends TypeSystem {
     else {
       FunctionInvocationCandidate<DJConstructor> c = IterUtil.first(cs);
       DJConstructor k = c.function();
+      if (key != null && resolved == null) { _constructorResolutions.put(key, k); }
       SubstitutionMap sigma = c.substitution();
       return new ConstructorInvocation(k, c.typeArguments(), c.arguments(), substitute(k.thrownTypes(), sigma));
     }
@@ -1371,6 +1500,41 @@ public abstract class StandardTypeSystem extends TypeSystem {
     } finally { debug.logEnd(); }
   }
   
+  /**
+   * Produce a key identifying the shape of an invocation: the type in which the function is looked up,
+   * the function's name ({@code null} for constructors), the access context, whether only static methods
+   * are considered, and the explicit type arguments, argument types, and expected type.  Invocations
+   * with the same shape resolve to the same function, so the result of overload resolution can be reused
+   * (inference is still performed on the chosen function, and the arguments are still converted).
+   * Package-private for testing.
+   * 
+   * @return  The key, or {@code null} if {@code t} has wildcard arguments.  Such types are captured
+   *          whenever their members are looked up, and the capture variables must not be shared.
+   */
+  static List<Object> resolutionKey(Type t, String name, Access.Module accessModule, boolean onlyStatic,
+                                    Iterable<? extends Type> targs, Iterable<? extends Expression> args,
+                                    Option<Type> expected) {
+    if (t instanceof ParameterizedClassType) {
+      for (Type targ : ((ParameterizedClassType) t).typeArguments()) {
+        if (targ instanceof Wildcard) { return null; }
+      }
+    }
+    else if (!(t instanceof SimpleClassType || t instanceof RawClassType || t instanceof ArrayType)) { return null; }
+    List<Type> targList = new ArrayList<Type>();
+    for (Type targ : targs) { targList.add(targ); }
+    List<Type> argTypes = new ArrayList<Type>();
+    for (Expression arg : args) { argTypes.add(NodeProperties.getType(arg)); }
+    List<Object> result = new ArrayList<Object>(7);
+    result.add(t);
+    result.add(name);
+    result.add(accessModule);
+    result.add(onlyStatic);
+    result.add(targList);
+    result.add(argTypes);
+    result.add(expected);
+    return result;
+  }
+  
   public boolean containsMethod(Type t, String name, Access.Module accessModule) {
     return new MethodFinder(name, accessModule, false).hasMatch(t);
   }
@@ -1854,7 +2018,21 @@ public abstract class StandardTypeSystem extends TypeSystem {
                          Option<Type> expected) throws UnmatchedLookupException {
       debug.logStart(new String[]{"t","name","onlyStatic"}, wrap(t), _name, _onlyStatic); try {
         
-      PredicateSet<DJMethod> candidates = findAll(t);
+      List<Object> key = resolutionKey(t, _name, _accessModule, _onlyStatic, targs, args, expected);
+      DJMethod resolved = (key == null) ? null : _methodResolutions.get(key);
+      Iterable<DJMethod> candidates;
+      if (resolved != null) { candidates = IterUtil.singleton(resolved); }
+      else if (key != null) {
+        // the candidates depend only on the first four components of the key
+        List<Object> candidatesKey = new ArrayList<Object>(key.subList(0, 4));
+        PredicateSet<DJMethod> all = _methodCandidates.get(candidatesKey);
+        if (all == null) {
+          all = findAll(t);
+          _methodCandidates.put(candidatesKey, all);
+        }
+        candidates = all;
+      }
+      else { candidates = findAll(t); }
       Iterable<FunctionInvocationCandidate<DJMethod>> best = bestInvocations(candidates, targs, args, expected);
       // TODO: provide more error-message information
       int matches = IterUtil.sizeOf(best);
@@ -1865,7 +2043,11 @@ public abstract class StandardTypeSystem extends TypeSystem {
         });
         throw new AmbiguousFunctionLookupException(ms);
       }
-      else { return IterUtil.first(best); }
+      else {
+        FunctionInvocationCandidate<DJMethod> result = IterUtil.first(best);
+        if (key != null && resolved == null) { _methodResolutions.put(key, result.function()); }
+        return result;
+      }
       
       } finally { debug.logEnd(); }
     }
@@ -1884,7 +2066,7 @@ public abstract class StandardTypeSystem extends TypeSystem {
         }
         @Override public Iterable<DJMethod> forClassType(ClassType t) {
           List<DJMethod> result = new LinkedList<DJMethod>();
-          for (DJMethod m : t.ofClass().declaredMethods()) {
+          for (DJMethod m : SymbolUtil.declaredMethods(t.ofClass(), _name)) {
             if (matches(m)) { result.add(instantiateMethod(m, t)); }
           }
           if (!_onlyStatic && _name.equals("getClass")) {
@@ -1982,10 +2164,9 @@ public abstract class StandardTypeSystem extends TypeSystem {
           else { return IterUtil.empty(); }
         }
         @Override public Iterable<T> forClassType(ClassType t) {
-          for (DJField f : t.ofClass().declaredFields()) {
-            if (matches(f)) { return IterUtil.make(makeFieldReference(t, f)); }
-          }
-          return IterUtil.empty();
+          DJField f = SymbolUtil.declaredField(t.ofClass(), _name);
+          if (f != null && matches(f)) { return IterUtil.make(makeFieldReference(t, f)); }
+          else { return IterUtil.empty(); }
         }
       });
       return result;
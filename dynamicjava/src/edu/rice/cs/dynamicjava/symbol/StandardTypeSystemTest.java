@@ -0,0 +1,117 @@
+package edu.rice.cs.dynamicjava.symbol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import koala.dynamicjava.interpreter.NodeProperties;
+import koala.dynamicjava.tree.Expression;
+import koala.dynamicjava.tree.NullLiteral;
+
+import edu.rice.cs.plt.iter.IterUtil;
+import edu.rice.cs.plt.tuple.Option;
+
+import edu.rice.cs.dynamicjava.Options;
+import edu.rice.cs.dynamicjava.symbol.type.*;
+
+import static edu.rice.cs.dynamicjava.symbol.TypeSystem.*;
+
+public class StandardTypeSystemTest extends TestCase {
+
+  private static final Type STRING_BUILDER = new SimpleClassType(SymbolUtil.wrapClass(StringBuilder.class));
+
+  private StandardTypeSystem _ts;
+
+  protected void setUp() { _ts = new ExtendedTypeSystem(Options.DEFAULT); }
+
+  /** An expression of the given type. */
+  private static Expression expr(Type t) {
+    Expression result = new NullLiteral();
+    NodeProperties.setType(result, t);
+    return result;
+  }
+
+  private static List<Expression> args(Type... ts) {
+    List<Expression> result = new ArrayList<Expression>();
+    for (Type t : ts) { result.add(expr(t)); }
+    return result;
+  }
+
+  private DJMethod lookup(Type receiver, String name, Access.Module module, Type... argTypes) throws Exception {
+    return _ts.lookupMethod(expr(receiver), name, IterUtil.<Type>empty(), args(argTypes),
+                            Option.<Type>none(), module).method();
+  }
+
+  /** {@code ArrayList<?>} */
+  private static Type wildcardList() {
+    Wildcard w = new Wildcard(new BoundedSymbol(new Object(), OBJECT, NULL));
+    return new ParameterizedClassType(SymbolUtil.wrapClass(ArrayList.class), IterUtil.singleton(w));
+  }
+
+  public void testRepeatedLookupHits() throws Exception {
+    Access.Module module = new TopLevelAccessModule("p");
+    DJMethod first = lookup(STRING_BUILDER, "append", module, INT);
+    assertEquals(1, _ts.cachedResolutions());
+    assertEquals(0, _ts.resolutionHits());
+
+    DJMethod second = lookup(STRING_BUILDER, "append", module, INT);
+    assertSame(first, second);
+    assertEquals(1, _ts.cachedResolutions());
+    assertEquals(1, _ts.resolutionHits());
+
+    // a different overload is resolved separately
+    DJMethod third = lookup(STRING_BUILDER, "append", module, STRING);
+    assertNotSame(first, third);
+    assertEquals(2, _ts.cachedResolutions());
+    assertEquals(1, _ts.resolutionHits());
+  }
+
+  public void testWildcardReceiverNotCached() throws Exception {
+    Access.Module module = new TopLevelAccessModule("p");
+    assertNull(StandardTypeSystem.resolutionKey(wildcardList(), "size", module, false, IterUtil.<Type>empty(),
+                                                args(), Option.<Type>none()));
+    lookup(wildcardList(), "size", module);
+    lookup(wildcardList(), "get", module, INT);
+    lookup(wildcardList(), "get", module, INT);
+    assertEquals(0, _ts.cachedResolutions());
+    assertEquals(0, _ts.resolutionHits());
+  }
+
+  public void testClearCaches() throws Exception {
+    Access.Module module = new TopLevelAccessModule("p");
+    lookup(STRING_BUILDER, "append", module, INT);
+    assertTrue(_ts.isSubtype(STRING, OBJECT));
+    assertTrue(_ts.isAssignable(OBJECT, STRING));
+    _ts.erase(wildcardList());
+    assertTrue(_ts.cachedResults() > 0);
+
+    _ts.clearCaches();
+    assertEquals(0, _ts.cachedResults());
+    // the tables refill afterwards
+    lookup(STRING_BUILDER, "append", module, INT);
+    assertEquals(1, _ts.cachedResolutions());
+  }
+
+  public void testAccessModuleKeys() throws Exception {
+    List<Object> k1 = StandardTypeSystem.resolutionKey(STRING_BUILDER, "append", new TopLevelAccessModule("p"),
+                                                       false, IterUtil.<Type>empty(), args(INT),
+                                                       Option.<Type>none());
+    List<Object> k2 = StandardTypeSystem.resolutionKey(STRING_BUILDER, "append", new TopLevelAccessModule("p"),
+                                                       false, IterUtil.<Type>empty(), args(INT),
+                                                       Option.<Type>none());
+    List<Object> k3 = StandardTypeSystem.resolutionKey(STRING_BUILDER, "append", new TopLevelAccessModule("q"),
+                                                       false, IterUtil.<Type>empty(), args(INT),
+                                                       Option.<Type>none());
+    assertEquals(k1, k2);
+    assertEquals(k1.hashCode(), k2.hashCode());
+    assertFalse(k1.equals(k3));
+
+    // each interaction creates its own module, but they share resolutions
+    lookup(STRING_BUILDER, "append", new TopLevelAccessModule("p"), INT);
+    lookup(STRING_BUILDER, "append", new TopLevelAccessModule("p"), INT);
+    assertEquals(1, _ts.cachedResolutions());
+    assertEquals(1, _ts.resolutionHits());
+  }
+
+}
@@ -3,6 +3,7 @@ package edu.rice.cs.dynamicjava.symbol;
 import java.lang.reflect.Array;
 import edu.rice.cs.plt.lambda.Lambda;
 import edu.rice.cs.plt.lambda.Thunk;
+import edu.rice.cs.plt.lambda.Predicate;
 import edu.rice.cs.plt.iter.IterUtil;
 import edu.rice.cs.plt.reflect.JavaVersion;
 import edu.rice.cs.plt.reflect.ReflectUtil;
@@ -145,6 +146,30 @@ public class SymbolUtil {
     else { return new ParameterizedClassType(c, vars); }
   }
   
+  /**
+   * List the methods declared by {@code c} with the given name.  For a {@link JavaClass}, this is a
+   * lookup in the class's shared member table; otherwise, all the declared methods are filtered.
+   */
+  public static Iterable<DJMethod> declaredMethods(DJClass c, final String name) {
+    if (c instanceof JavaClass) { return ((JavaClass) c).declaredMethods(name); }
+    else {
+      return IterUtil.filter(c.declaredMethods(), new Predicate<DJMethod>() {
+        public boolean contains(DJMethod m) { return m.declaredName().equals(name); }
+      });
+    }
+  }
+  
+  /** Get the field declared by {@code c} with the given name, or {@code null} if there is none. */
+  public static DJField declaredField(DJClass c, String name) {
+    if (c instanceof JavaClass) { return ((JavaClass) c).declaredField(name); }
+    else {
+      for (DJField f : c.declaredFields()) {
+        if (f.declaredName().equals(name)) { return f; }
+      }
+      return null;
+    }
+  }
+  
   /**
    * Create an appropriate DJClass for the given Class, based on the available reflection APIs.
    * If Java 5 is available, returns a {@link Java5Class}.  Otherwise, returns a {@link JavaClass}.
@@ -9,4 +9,5 @@ public class TopLevelAccessModule implements Access.Module {
     return (o instanceof TopLevelAccessModule) &&
             ((TopLevelAccessModule) o)._packageName.equals(_packageName);
   }
+  public int hashCode() { return getClass().hashCode() ^ _packageName.hashCode(); }
 }
@@ -320,11 +320,8 @@ public class TreeClass implements DJClass {
       _loaded = LazyThunk.make(new Thunk<DJField>() {
         public DJField value() {
           DJClass c = SymbolUtil.wrapClass(TreeClass.this.load());
-          for (DJField candidate : c.declaredFields()) {
-            if (TreeField.this.declaredName().equals(candidate.declaredName())) {
-              return candidate;
-            }
-          }
+          DJField candidate = SymbolUtil.declaredField(c, TreeField.this.declaredName());
+          if (candidate != null) { return candidate; }
           // error: can't find it
           debug.logValues(new String[]{"name", "candidates"},
                           TreeField.this.declaredName(), c.declaredFields());
@@ -441,11 +438,8 @@ public class TreeClass implements DJClass {
             params = IterUtil.compose(new LocalVariable("", RUNTIME_BINDINGS_TYPE, false), params);
           }
           DJClass c = SymbolUtil.wrapClass(TreeClass.this.load());
-          for (DJMethod candidate : c.declaredMethods()) {
-            if (TreeMethod.this.declaredName().equals(candidate.declaredName()) &&
-                paramsMatch(params, candidate.parameters())) {
-              return candidate;
-            }
+          for (DJMethod candidate : SymbolUtil.declaredMethods(c, TreeMethod.this.declaredName())) {
+            if (paramsMatch(params, candidate)) { return candidate; }
           }
           // error: can't find it
           debug.logValues(new String[]{"name", "params", "candidates"},
@@ -519,4 +513,21 @@ public class TreeClass implements DJClass {
     else { return false; }
   }
   
+  /** Compare erased parameter types, using the precomputed erasure of a reflected method if possible. */
+  private boolean paramsMatch(Iterable<LocalVariable> params, DJMethod candidate) {
+    if (candidate instanceof JavaClass.JavaMethod) {
+      Class<?>[] erased = ((JavaClass.JavaMethod) candidate).erasedParameterTypes();
+      if (IterUtil.sizeOf(params) == erased.length) {
+        TypeSystem ts = _opt.typeSystem();
+        int i = 0;
+        for (LocalVariable v : params) {
+          if (!ts.erasedClass(v.type()).value().equals(erased[i++])) { return false; }
+        }
+        return true;
+      }
+      else { return false; }
+    }
+    else { return paramsMatch(params, candidate.parameters()); }
+  }
+  
 }
@@ -140,6 +140,13 @@ public abstract class TypeSystem {
   public abstract boolean isImplementable(Type t);
   
   
+  /**
+   * Discard any results the type system has cached.  Clients should invoke this when the classes
+   * available to them change (for example, when a new class library is created).
+   */
+  public void clearCaches() {}
+  
+  
   /* Fundamental Type Relationships */
   
   /** Determine if the given types may be treated as equal.  This is recursive, transitive, and symmetric. */
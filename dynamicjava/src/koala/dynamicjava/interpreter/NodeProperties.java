@@ -31,6 +31,8 @@ package koala.dynamicjava.interpreter;
 import koala.dynamicjava.interpreter.error.ExecutionError;
 import koala.dynamicjava.tree.Node;
 import koala.dynamicjava.tree.Expression;
+import edu.rice.cs.dynamicjava.interpreter.PrimitiveSpecializer;
+import edu.rice.cs.dynamicjava.interpreter.RuntimeBindings;
 import edu.rice.cs.dynamicjava.interpreter.TypeContext;
 import edu.rice.cs.dynamicjava.symbol.*;
 import edu.rice.cs.dynamicjava.symbol.type.Type;
@@ -49,18 +51,19 @@ public class NodeProperties {
 
     /** The Type of an expression */
     public final static String TYPE = "type";
+    private final static int TYPE_INDEX = Node.propertySlot(TYPE);
 
     public static Type getType(Node n) {
-        return (Type)n.getProperty(TYPE);
+        return (Type)n.getSlot(TYPE_INDEX);
     }
     
     public static Type setType(Node n, Type t) {
-      n.setProperty(TYPE, t);
+      n.setSlot(TYPE_INDEX, t);
       return t;
     }
     
     public static boolean hasType(Node n) {
-      return n.hasProperty(TYPE);
+      return n.hasSlot(TYPE_INDEX);
     }
     
     public static final Lambda<Node, Type> NODE_TYPE = new Lambda<Node, Type>() {
@@ -70,18 +73,19 @@ public class NodeProperties {
 
     /** The Type of an expression when treated as a variable (an lvalue) */
     public final static String VARIABLE_TYPE = "variableType";
+    private final static int VARIABLE_TYPE_INDEX = Node.propertySlot(VARIABLE_TYPE);
 
     public static Type getVariableType(Node n) {
-        return (Type)n.getProperty(VARIABLE_TYPE);
+        return (Type)n.getSlot(VARIABLE_TYPE_INDEX);
     }
     
     public static Type setVariableType(Node n, Type t) {
-      n.setProperty(VARIABLE_TYPE, t);
+      n.setSlot(VARIABLE_TYPE_INDEX, t);
       return t;
     }
     
     public static boolean hasVariableType(Node n) {
-      return n.hasProperty(VARIABLE_TYPE);
+      return n.hasSlot(VARIABLE_TYPE_INDEX);
     }
     
 
@@ -90,90 +94,95 @@ public class NodeProperties {
      * and TypeDeclarations, because the type is expressed in the syntax).
      */
     public final static String SUPER_TYPE = "superType";
+    private final static int SUPER_TYPE_INDEX = Node.propertySlot(SUPER_TYPE);
 
     public static Type getSuperType(Node n) {
-        return (Type)n.getProperty(SUPER_TYPE);
+        return (Type)n.getSlot(SUPER_TYPE_INDEX);
     }
     
     public static Type setSuperType(Node n, Type t) {
-      n.setProperty(SUPER_TYPE, t);
+      n.setSlot(SUPER_TYPE_INDEX, t);
       return t;
     }
     
     public static boolean hasSuperType(Node n) {
-      return n.hasProperty(SUPER_TYPE);
+      return n.hasSlot(SUPER_TYPE_INDEX);
     }
     
 
     /** A Thunk<Class<?>> representing the converted type of a primitive cast */
     public final static String CONVERTED_TYPE = "convertedType";
+    private final static int CONVERTED_TYPE_INDEX = Node.propertySlot(CONVERTED_TYPE);
 
     @SuppressWarnings("unchecked")
     public static Thunk<Class<?>> getConvertedType(Node n) {
-        return (Thunk<Class<?>>) n.getProperty(CONVERTED_TYPE);
+        return (Thunk<Class<?>>) n.getSlot(CONVERTED_TYPE_INDEX);
     }
     
     public static Thunk<Class<?>> setConvertedType(Node n, Thunk<Class<?>> c) {
-      n.setProperty(CONVERTED_TYPE, c);
+      n.setSlot(CONVERTED_TYPE_INDEX, c);
       return c;
     }
     
     public static boolean hasConvertedType(Node n) {
-      return n.hasProperty(CONVERTED_TYPE);
+      return n.hasSlot(CONVERTED_TYPE_INDEX);
     }
     
 
     /** A Thunk<Class<?>> representing the asserted type of an upcast (for diagnostic purposes). */
     public final static String ASSERTED_TYPE = "assertedType";
+    private final static int ASSERTED_TYPE_INDEX = Node.propertySlot(ASSERTED_TYPE);
 
     @SuppressWarnings("unchecked")
     public static Thunk<Class<?>> getAssertedType(Node n) {
-        return (Thunk<Class<?>>) n.getProperty(ASSERTED_TYPE);
+        return (Thunk<Class<?>>) n.getSlot(ASSERTED_TYPE_INDEX);
     }
     
     public static Thunk<Class<?>> setAssertedType(Node n, Thunk<Class<?>> c) {
-      n.setProperty(ASSERTED_TYPE, c);
+      n.setSlot(ASSERTED_TYPE_INDEX, c);
       return c;
     }
     
     public static boolean hasAssertedType(Node n) {
-      return n.hasProperty(ASSERTED_TYPE);
+      return n.hasSlot(ASSERTED_TYPE_INDEX);
     }
     
 
     /** A Thunk<Class<?>> representing the checked cast type of a cast, method, or field */
     public final static String CHECKED_TYPE = "checkedType";
+    private final static int CHECKED_TYPE_INDEX = Node.propertySlot(CHECKED_TYPE);
 
     @SuppressWarnings("unchecked")
     public static Thunk<Class<?>> getCheckedType(Node n) {
-        return (Thunk<Class<?>>) n.getProperty(CHECKED_TYPE);
+        return (Thunk<Class<?>>) n.getSlot(CHECKED_TYPE_INDEX);
     }
     
     public static Thunk<Class<?>> setCheckedType(Node n, Thunk<Class<?>> c) {
-      n.setProperty(CHECKED_TYPE, c);
+      n.setSlot(CHECKED_TYPE_INDEX, c);
       return c;
     }
     
     public static boolean hasCheckedType(Node n) {
-      return n.hasProperty(CHECKED_TYPE);
+      return n.hasSlot(CHECKED_TYPE_INDEX);
     }
     
 
     /** A Thunk<Class<?>> representing the erased type of certain expressions and statements. */
     public final static String ERASED_TYPE = "erasedType";
+    private final static int ERASED_TYPE_INDEX = Node.propertySlot(ERASED_TYPE);
 
     @SuppressWarnings("unchecked")
     public static Thunk<Class<?>> getErasedType(Node n) {
-        return (Thunk<Class<?>>) n.getProperty(ERASED_TYPE);
+        return (Thunk<Class<?>>) n.getSlot(ERASED_TYPE_INDEX);
     }
     
     public static Thunk<Class<?>> setErasedType(Node n, Thunk<Class<?>> c) {
-      n.setProperty(ERASED_TYPE, c);
+      n.setSlot(ERASED_TYPE_INDEX, c);
       return c;
     }
     
     public static boolean hasErasedType(Node n) {
-      return n.hasProperty(ERASED_TYPE);
+      return n.hasSlot(ERASED_TYPE_INDEX);
     }
     
 
@@ -183,18 +192,19 @@ public class NodeProperties {
      * the new value
      */
     public final static String LEFT_EXPRESSION = "leftExpression";
+    private final static int LEFT_EXPRESSION_INDEX = Node.propertySlot(LEFT_EXPRESSION);
 
     public static Expression getLeftExpression(Node n) {
-        return (Expression) n.getProperty(LEFT_EXPRESSION);
+        return (Expression) n.getSlot(LEFT_EXPRESSION_INDEX);
     }
     
     public static Expression setLeftExpression(Node n, Expression exp) {
-      n.setProperty(LEFT_EXPRESSION, exp);
+      n.setSlot(LEFT_EXPRESSION_INDEX, exp);
       return exp;
     }
     
     public static boolean hasLeftExpression(Node n) {
-      return n.hasProperty(LEFT_EXPRESSION);
+      return n.hasSlot(LEFT_EXPRESSION_INDEX);
     }
     
 
@@ -202,53 +212,56 @@ public class NodeProperties {
      * An Expression representing the translated equivalent of the tagged Expression
      */
     public final static String TRANSLATION = "translation";
+    private final static int TRANSLATION_INDEX = Node.propertySlot(TRANSLATION);
 
     public static Expression getTranslation(Node n) {
-        return (Expression) n.getProperty(TRANSLATION);
+        return (Expression) n.getSlot(TRANSLATION_INDEX);
     }
     
     public static Expression setTranslation(Node n, Expression exp) {
-      n.setProperty(TRANSLATION, exp);
+      n.setSlot(TRANSLATION_INDEX, exp);
       return exp;
     }
     
     public static boolean hasTranslation(Node n) {
-      return n.hasProperty(TRANSLATION);
+      return n.hasSlot(TRANSLATION_INDEX);
     }
     
     /**
      * A Node representing the translated equivalent of the tagged statement (or declaration)
      */
     public final static String STATEMENT_TRANSLATION = "statementTranslation";
+    private final static int STATEMENT_TRANSLATION_INDEX = Node.propertySlot(STATEMENT_TRANSLATION);
 
     public static Node getStatementTranslation(Node n) {
-        return (Node) n.getProperty(STATEMENT_TRANSLATION);
+        return (Node) n.getSlot(STATEMENT_TRANSLATION_INDEX);
     }
     
     public static Node setStatementTranslation(Node n, Node s) {
-      n.setProperty(STATEMENT_TRANSLATION, s);
+      n.setSlot(STATEMENT_TRANSLATION_INDEX, s);
       return s;
     }
     
     public static boolean hasStatementTranslation(Node n) {
-      return n.hasProperty(STATEMENT_TRANSLATION);
+      return n.hasSlot(STATEMENT_TRANSLATION_INDEX);
     }
     
 
     /** An Object value of a constant expression */
     public final static String VALUE = "value";
+    private final static int VALUE_INDEX = Node.propertySlot(VALUE);
 
     public static Object getValue(Node n) {
-        return n.getProperty(VALUE);
+        return n.getSlot(VALUE_INDEX);
     }
     
     public static Object setValue(Node n, Object o) {
-      n.setProperty(VALUE, o);
+      n.setSlot(VALUE_INDEX, o);
       return o;
     }
     
     public static boolean hasValue(Node n) {
-      return n.hasProperty(VALUE);
+      return n.hasSlot(VALUE_INDEX);
     }
     
 
@@ -256,35 +269,37 @@ public class NodeProperties {
      * The errorStrings property contains an array of additional messages (Strings)
      */
     public final static String ERROR_STRINGS = "errorStrings";
+    private final static int ERROR_STRINGS_INDEX = Node.propertySlot(ERROR_STRINGS);
 
     public static String[] getErrorStrings(Node n) {
-      return (String[]) n.getProperty(ERROR_STRINGS);
+      return (String[]) n.getSlot(ERROR_STRINGS_INDEX);
     }
     
     public static String[] setErrorStrings(Node n, String... strings) {
-      n.setProperty(ERROR_STRINGS, strings);
+      n.setSlot(ERROR_STRINGS_INDEX, strings);
       return strings;
     }
     
     public static boolean hasErrorStrings(Node n) {
-      return n.hasProperty(ERROR_STRINGS);
+      return n.hasSlot(ERROR_STRINGS_INDEX);
     }
 
 
     /** A LocalVariable corresponding to the variable declared by the given node */
     public final static String VARIABLE = "variable";
+    private final static int VARIABLE_INDEX = Node.propertySlot(VARIABLE);
     
     public static LocalVariable getVariable(Node n) {
-      return (LocalVariable) n.getProperty(VARIABLE);
+      return (LocalVariable) n.getSlot(VARIABLE_INDEX);
     }
     
     public static LocalVariable setVariable(Node n, LocalVariable v) {
-      n.setProperty(VARIABLE, v);
+      n.setSlot(VARIABLE_INDEX, v);
       return v;
     }
     
     public static boolean hasVariable(Node n) {
-      return n.hasProperty(VARIABLE);
+      return n.hasSlot(VARIABLE_INDEX);
     }
     
     public static final Lambda<Node, LocalVariable> NODE_VARIABLE = new Lambda<Node, LocalVariable>() {
@@ -292,104 +307,165 @@ public class NodeProperties {
     };
     
     
+    /** The resolved location of the LocalVariable accessed or declared by the given node */
+    public final static String VARIABLE_SLOT = "variableSlot";
+    private final static int VARIABLE_SLOT_INDEX = Node.propertySlot(VARIABLE_SLOT);
+    
+    public static RuntimeBindings.Slot getVariableSlot(Node n) {
+      return (RuntimeBindings.Slot) n.getSlot(VARIABLE_SLOT_INDEX);
+    }
+    
+    public static RuntimeBindings.Slot setVariableSlot(Node n, RuntimeBindings.Slot s) {
+      n.setSlot(VARIABLE_SLOT_INDEX, s);
+      return s;
+    }
+    
+    public static boolean hasVariableSlot(Node n) {
+      return n.hasSlot(VARIABLE_SLOT_INDEX);
+    }
+    
+    
+    /** The LocalVariables (in slot order) of the frame created when the given scope is evaluated */
+    public final static String FRAME = "frame";
+    private final static int FRAME_INDEX = Node.propertySlot(FRAME);
+    
+    public static LocalVariable[] getFrame(Node n) {
+      return (LocalVariable[]) n.getSlot(FRAME_INDEX);
+    }
+    
+    public static LocalVariable[] setFrame(Node n, LocalVariable[] vars) {
+      n.setSlot(FRAME_INDEX, vars);
+      return vars;
+    }
+    
+    public static boolean hasFrame(Node n) {
+      return n.hasSlot(FRAME_INDEX);
+    }
+    
+    
+    /** The unboxed evaluation of a primitive expression (see {@link PrimitiveSpecializer}) */
+    public final static String SPECIALIZATION = "specialization";
+    private final static int SPECIALIZATION_INDEX = Node.propertySlot(SPECIALIZATION);
+    
+    public static PrimitiveSpecializer.Specialization getSpecialization(Node n) {
+      return (PrimitiveSpecializer.Specialization) n.getSlot(SPECIALIZATION_INDEX);
+    }
+    
+    public static PrimitiveSpecializer.Specialization setSpecialization(Node n,
+                                                                        PrimitiveSpecializer.Specialization s) {
+      n.setSlot(SPECIALIZATION_INDEX, s);
+      return s;
+    }
+    
+    public static boolean hasSpecialization(Node n) {
+      return n.hasSlot(SPECIALIZATION_INDEX);
+    }
+    
+    
     /** DJConstructor used by a constructor invocation */
     public final static String CONSTRUCTOR = "constructor";
+    private final static int CONSTRUCTOR_INDEX = Node.propertySlot(CONSTRUCTOR);
 
     public static DJConstructor getConstructor(Node n) {
-      return (DJConstructor) n.getProperty(CONSTRUCTOR);
+      return (DJConstructor) n.getSlot(CONSTRUCTOR_INDEX);
     }
     
     public static DJConstructor setConstructor(Node n, DJConstructor c) {
-      n.setProperty(CONSTRUCTOR, c);
+      n.setSlot(CONSTRUCTOR_INDEX, c);
       return c;
     }
     
     public static boolean hasConstructor(Node n) {
-      return n.hasProperty(CONSTRUCTOR);
+      return n.hasSlot(CONSTRUCTOR_INDEX);
     }
 
 
     /** DJField used by a field access or declared by a field declaration */
     public final static String FIELD = "field";
+    private final static int FIELD_INDEX = Node.propertySlot(FIELD);
 
     public static DJField getField(Node n) {
-      return (DJField) n.getProperty(FIELD);
+      return (DJField) n.getSlot(FIELD_INDEX);
     }
     
     public static DJField setField(Node n, DJField f) {
-      n.setProperty(FIELD, f);
+      n.setSlot(FIELD_INDEX, f);
       return f;
     }
     
     public static boolean hasField(Node n) {
-      return n.hasProperty(FIELD);
+      return n.hasSlot(FIELD_INDEX);
     }
 
     /** Method used by a method invocation or declared by a method declaration */
     public final static String METHOD = "method";
+    private final static int METHOD_INDEX = Node.propertySlot(METHOD);
     
     public static DJMethod getMethod(Node n) {
-      return (DJMethod) n.getProperty(METHOD);
+      return (DJMethod) n.getSlot(METHOD_INDEX);
     }
     
     public static DJMethod setMethod(Node n, DJMethod m) {
-      n.setProperty(METHOD, m);
+      n.setSlot(METHOD_INDEX, m);
       return m;
     }
     
     public static boolean hasMethod(Node n) {
-      return n.hasProperty(METHOD);
+      return n.hasSlot(METHOD_INDEX);
     }
 
 
     /** DJClass declared by a class declaration or referenced by "this" */
     public final static String DJCLASS = "djclass";
+    private final static int DJCLASS_INDEX = Node.propertySlot(DJCLASS);
     
     public static DJClass getDJClass(Node n) {
-      return (DJClass) n.getProperty(DJCLASS);
+      return (DJClass) n.getSlot(DJCLASS_INDEX);
     }
     
     public static DJClass setDJClass(Node n, DJClass c) {
-      n.setProperty(DJCLASS, c);
+      n.setSlot(DJCLASS_INDEX, c);
       return c;
     }
     
     public static boolean hasDJClass(Node n) {
-      return n.hasProperty(DJCLASS);
+      return n.hasSlot(DJCLASS_INDEX);
     }
 
 
     /** This DJClass of "this" used implicitly as the enclosing object of an allocation. */
     public final static String ENCLOSING_THIS = "enclosingThis";
+    private final static int ENCLOSING_THIS_INDEX = Node.propertySlot(ENCLOSING_THIS);
     
     public static DJClass getEnclosingThis(Node n) {
-      return (DJClass) n.getProperty(ENCLOSING_THIS);
+      return (DJClass) n.getSlot(ENCLOSING_THIS_INDEX);
     }
     
     public static DJClass setEnclosingThis(Node n, DJClass c) {
-      n.setProperty(ENCLOSING_THIS, c);
+      n.setSlot(ENCLOSING_THIS_INDEX, c);
       return c;
     }
     
     public static boolean hasEnclosingThis(Node n) {
-      return n.hasProperty(ENCLOSING_THIS);
+      return n.hasSlot(ENCLOSING_THIS_INDEX);
     }
 
 
     /** VariableType declared in a class or method signature */
     public final static String TYPE_VARIABLE = "typeVariable";
+    private final static int TYPE_VARIABLE_INDEX = Node.propertySlot(TYPE_VARIABLE);
 
     public static VariableType getTypeVariable(Node n) {
-      return (VariableType) n.getProperty(TYPE_VARIABLE);
+      return (VariableType) n.getSlot(TYPE_VARIABLE_INDEX);
     }
     
     public static VariableType setTypeVariable(Node n, VariableType v) {
-      n.setProperty(TYPE_VARIABLE, v);
+      n.setSlot(TYPE_VARIABLE_INDEX, v);
       return v;
     }
     
     public static boolean hasTypeVariable(Node n) {
-      return n.hasProperty(TYPE_VARIABLE);
+      return n.hasSlot(TYPE_VARIABLE_INDEX);
     }
 
     public static final Lambda<Node, VariableType> NODE_TYPE_VARIABLE = new Lambda<Node, VariableType>() {
@@ -399,34 +475,36 @@ public class NodeProperties {
     
     /** An ExecutionError that occurred at the given node. */
     public final static String ERROR = "error";
+    private final static int ERROR_INDEX = Node.propertySlot(ERROR);
 
     public static ExecutionError getError(Node n) {
-      return (ExecutionError) n.getProperty(ERROR);
+      return (ExecutionError) n.getSlot(ERROR_INDEX);
     }
     
     public static ExecutionError setError(Node n, ExecutionError e) {
-      n.setProperty(ERROR, e);
+      n.setSlot(ERROR_INDEX, e);
       return e;
     }
     
     public static boolean hasError(Node n) {
-      return n.hasProperty(ERROR);
+      return n.hasSlot(ERROR_INDEX);
     }
 
     /** The new context that would have been the result had there not been an error. */
     public final static String ERROR_CONTEXT = "errorContext";
+    private final static int ERROR_CONTEXT_INDEX = Node.propertySlot(ERROR_CONTEXT);
 
     public static TypeContext getErrorContext(Node n) {
-      return (TypeContext) n.getProperty(ERROR_CONTEXT);
+      return (TypeContext) n.getSlot(ERROR_CONTEXT_INDEX);
     }
     
     public static TypeContext setErrorContext(Node n, TypeContext c) {
-      n.setProperty(ERROR_CONTEXT, c);
+      n.setSlot(ERROR_CONTEXT_INDEX, c);
       return c;
     }
     
     public static boolean hasErrorContext(Node n) {
-      return n.hasProperty(ERROR_CONTEXT);
+      return n.hasSlot(ERROR_CONTEXT_INDEX);
     }
 
     /**
@@ -434,20 +512,21 @@ public class NodeProperties {
      * ambiguous (for example, a PlusExpression might require addition or concatenation)
      */
     public final static String OPERATION = "operation";
+    private final static int OPERATION_INDEX = Node.propertySlot(OPERATION);
 
     @SuppressWarnings("unchecked")
     public static Lambda2<Object, Object, Object> getOperation(Node n) {
-      return (Lambda2<Object, Object, Object>) n.getProperty(OPERATION);
+      return (Lambda2<Object, Object, Object>) n.getSlot(OPERATION_INDEX);
     }
     
     public static Lambda2<Object, Object, Object> setOperation(Node n, 
                                                                Lambda2<Object, Object, Object> f) {
-      n.setProperty(OPERATION, f);
+      n.setSlot(OPERATION_INDEX, f);
       return f;
     }
     
     public static boolean hasOperation(Node n) {
-      return n.hasProperty(OPERATION);
+      return n.hasSlot(OPERATION_INDEX);
     }
 
     /**
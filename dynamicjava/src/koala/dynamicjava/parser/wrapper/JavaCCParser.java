@@ -77,6 +77,16 @@ public class JavaCCParser implements SourceCodeParser {
     _f = null;
   }
   
+  /**
+   * Replaces the remaining input with the given reader, so that this parser can be reused for
+   * another parse.  The token manager and character buffers are reinitialized rather than
+   * reallocated, which makes this much cheaper than creating a new parser for short inputs.
+   * Any state left over from a previous (possibly failed) parse is discarded.
+   */
+  public void reset(Reader r) {
+    _parser.ReInit(r);
+  }
+  
   /**
    * Parses top level statements
    * @return a list of nodes
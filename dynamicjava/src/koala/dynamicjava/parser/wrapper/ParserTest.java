@@ -45,6 +45,7 @@ import java.io.File;
 import java.io.StringReader;
 import java.util.*;
 
+import edu.rice.cs.dynamicjava.Options;
 import edu.rice.cs.plt.collect.CollectUtil;
 import edu.rice.cs.plt.iter.IterUtil;
 import edu.rice.cs.plt.tuple.Option;
@@ -625,7 +626,24 @@ public class ParserTest extends TestCase {
     args.add(new IntegerLiteral("5"));
     Expression expected = new SimpleMethodCall("meth", args, SourceInfo.NONE);
     verifyExprOutput("meth(5)", expected);
-  }  
+  }
+
+  public void testReset() {
+    JavaCCParser p = new JavaCCParser(new StringReader(""), Options.DEFAULT);
+    String[] inputs = { "int x = 3;", "e.meth(new Object(), 5, false)", "x = ;", "\"unterminated", "/* open", "meth(5)" };
+    for (int i = 0; i < 2; i++) {
+      for (String input : inputs) {
+        p.reset(new StringReader(input));
+        String reused;
+        try { reused = p.parseStream().toString(); }
+        catch (ParseError e) { reused = "error at " + e.getSourceInfo(); }
+        String fresh;
+        try { fresh = new JavaCCParser(new StringReader(input), Options.DEFAULT).parseStream().toString(); }
+        catch (ParseError e) { fresh = "error at " + e.getSourceInfo(); }
+        assertEquals("Reused parser result differs for " + input, fresh, reused);
+      }
+    }
+  }
 
   
 //  /** Multiple input tests. */
@@ -65,6 +65,9 @@
 package koala.dynamicjava.tree;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import koala.dynamicjava.tree.visitor.*;
 
@@ -76,14 +79,30 @@ import koala.dynamicjava.tree.visitor.*;
  */
 
 public abstract class Node implements SourceInfo.Wrapper {
-  private final Map<String,Object> properties;
+  
+  /** Marks an unset slot in {@link #slots}, since null is a legitimate property value. */
+  private static final Object UNSET = new Object();
+  
+  /** The names of the properties stored in slots, indexed by slot number. */
+  private static final List<String> slotNames = new CopyOnWriteArrayList<String>();
+  /** The slot numbers of the properties stored in slots. */
+  private static final ConcurrentMap<String, Integer> slotIndices = new ConcurrentHashMap<String, Integer>();
+  
+  /**
+   * Property values for the names registered with {@link #propertySlot}, indexed by slot number.
+   * Allocated on the first assignment, and grown if slots are registered afterwards.
+   */
+  private Object[] slots;
+  /** Values of any other properties; null if there are none. */
+  private Map<String,Object> properties;
   private SourceInfo sourceInfo;
   
   
   protected Node(SourceInfo si) {
     assert si != null;
     sourceInfo = si;
-    properties = new HashMap<String, Object>();
+    slots = null;
+    properties = null;
   } 
   
   /** Returns the sourceInfo. */
@@ -103,13 +122,74 @@ public abstract class Node implements SourceInfo.Wrapper {
   
   // Properties support //////////////////////////////////////////////////
   
+  /**
+   * Get the slot number for the given property name, registering it if necessary.  Properties with a
+   * slot are stored in a small array rather than a map; clients that use a property frequently (like
+   * {@link koala.dynamicjava.interpreter.NodeProperties}) should register it once and use
+   * {@link #getSlot}, {@link #setSlot}, and {@link #hasSlot}.  The string-based methods refer to the
+   * same storage.
+   */
+  public static int propertySlot(String name) {
+    synchronized (slotIndices) {
+      Integer result = slotIndices.get(name);
+      if (result == null) {
+        result = slotNames.size();
+        slotNames.add(name);
+        slotIndices.put(name, result);
+      }
+      return result;
+    }
+  }
+  
+  /** The slot number for the given name, or -1 if it has none. */
+  private static int slotIndex(String name) {
+    Integer result = slotIndices.get(name);
+    return (result == null) ? -1 : result;
+  }
+  
+  /** Sets the value of the property with the given slot number. */
+  public void setSlot(int slot, Object value) {
+    if (slots == null || slot >= slots.length) {
+      Object[] newSlots = new Object[Math.max(slotNames.size(), slot+1)];
+      int copied = 0;
+      if (slots != null) {
+        System.arraycopy(slots, 0, newSlots, 0, slots.length);
+        copied = slots.length;
+      }
+      Arrays.fill(newSlots, copied, newSlots.length, UNSET);
+      slots = newSlots;
+    }
+    slots[slot] = value;
+  }
+  
+  /**
+   * Returns the value of the property with the given slot number
+   * @throws IllegalStateException  If the property is not set
+   */
+  public Object getSlot(int slot) {
+    if (slots == null || slot >= slots.length || slots[slot] == UNSET) {
+      throw new IllegalStateException("Property '" + slotNames.get(slot) + "' is not initialized");
+    }
+    return slots[slot];
+  }
+  
+  /** Returns true if the property with the given slot number is set. */
+  public boolean hasSlot(int slot) {
+    return slots != null && slot < slots.length && slots[slot] != UNSET;
+  }
+  
   /**
    * Sets the value of a property
    * @param name  the property name
    * @param value the new value to set
    */
   public void setProperty(String name, Object value) {
-    properties.put(name, value);
+    int slot = slotIndex(name);
+    if (slot >= 0) { setSlot(slot, value); }
+    else {
+      if (properties == null) { properties = new HashMap<String, Object>(); }
+      properties.put(name, value);
+    }
   }
   
   /**
@@ -118,10 +198,12 @@ public abstract class Node implements SourceInfo.Wrapper {
    * @return null if the property was not previously set
    */
   public Object getProperty(String name) {
-    if (!properties.containsKey(name)) { 
+    int slot = slotIndex(name);
+    if (slot >= 0) { return getSlot(slot); }
+    else if (properties == null || !properties.containsKey(name)) { 
       throw new IllegalStateException("Property '" + name + "' is not initialized");
     }
-    return properties.get(name);
+    else { return properties.get(name); }
   }
   
   /**
@@ -129,7 +211,14 @@ public abstract class Node implements SourceInfo.Wrapper {
    * @return a set of string
    */
   public Set<String> getProperties() {
-    return properties.keySet();
+    Set<String> result = new LinkedHashSet<String>();
+    if (slots != null) {
+      for (int i = 0; i < slots.length; i++) {
+        if (slots[i] != UNSET) { result.add(slotNames.get(i)); }
+      }
+    }
+    if (properties != null) { result.addAll(properties.keySet()); }
+    return result;
   }
   
   /**
@@ -137,15 +226,26 @@ public abstract class Node implements SourceInfo.Wrapper {
    * @param name the name of the property
    */
   public boolean hasProperty(String name) {
-    return properties.containsKey(name);
+    int slot = slotIndex(name);
+    if (slot >= 0) { return hasSlot(slot); }
+    else { return properties != null && properties.containsKey(name); }
   }
   
   /** Change the names of all properties by prefixing each name with the given string. */
   public void archiveProperties(String prefix) {
     Map<String, Object> newProps = new HashMap<String, Object>();
-    for (Map.Entry<String, Object> e : properties.entrySet()) { newProps.put(prefix + e.getKey(), e.getValue()); }
-    properties.clear();
-    properties.putAll(newProps);
+    if (slots != null) {
+      for (int i = 0; i < slots.length; i++) {
+        if (slots[i] != UNSET) { newProps.put(prefix + slotNames.get(i), slots[i]); }
+      }
+      slots = null;
+    }
+    if (properties != null) {
+      for (Map.Entry<String, Object> e : properties.entrySet()) { newProps.put(prefix + e.getKey(), e.getValue()); }
+    }
+    // a prefixed name could itself have a slot
+    properties = null;
+    for (Map.Entry<String, Object> e : newProps.entrySet()) { setProperty(e.getKey(), e.getValue()); }
   }
   
   /**
@@ -0,0 +1,82 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+
+package koala.dynamicjava.tree;
+
+import junit.framework.TestCase;
+
+/**
+ * JUnit tests for the property storage of koala.dynamicjava.tree.Node.
+ */
+public class NodeTest extends TestCase {
+  
+  private static final int SLOT = Node.propertySlot("nodeTestSlot");
+  
+  public void testSlotAndStringAccessAgree() {
+    Node n = new IntegerLiteral("1");
+    assertFalse(n.hasSlot(SLOT));
+    assertFalse(n.hasProperty("nodeTestSlot"));
+    n.setSlot(SLOT, null);
+    assertTrue(n.hasProperty("nodeTestSlot"));
+    assertNull(n.getProperty("nodeTestSlot"));
+    n.setProperty("nodeTestSlot", "x");
+    assertEquals("x", n.getSlot(SLOT));
+    assertEquals(Node.propertySlot("nodeTestSlot"), SLOT);
+  }
+  
+  public void testUnsetProperties() {
+    Node n = new IntegerLiteral("1");
+    try { n.getSlot(SLOT); fail("Expected exception"); }
+    catch (IllegalStateException e) { assertEquals("Property 'nodeTestSlot' is not initialized", e.getMessage()); }
+    try { n.getProperty("nodeTestOther"); fail("Expected exception"); }
+    catch (IllegalStateException e) { assertEquals("Property 'nodeTestOther' is not initialized", e.getMessage()); }
+  }
+  
+  public void testArchiveProperties() {
+    Node n = new IntegerLiteral("1");
+    n.setSlot(SLOT, "a");
+    n.setProperty("nodeTestOther", "b");
+    assertEquals(2, n.getProperties().size());
+    n.archiveProperties("old.");
+    assertFalse(n.hasSlot(SLOT));
+    assertFalse(n.hasProperty("nodeTestOther"));
+    assertEquals("a", n.getProperty("old.nodeTestSlot"));
+    assertEquals("b", n.getProperty("old.nodeTestOther"));
+    assertTrue(n.getProperties().contains("old.nodeTestSlot"));
+  }
+  
+}